@@ -0,0 +1,86 @@
+package com.kevinbank.accountbalancecalculation.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * 读写分离数据源配置类
+ * 开启datasource.replica.enabled后，写事务和非只读请求使用spring.datasource配置的主库，
+ * 服务层的只读事务在副本可用时使用datasource.replica.pool配置的只读副本
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    /**
+     * 主库连接池，沿用spring.datasource和spring.datasource.hikari配置
+     *
+     * @param properties spring.datasource配置
+     * @return 主库连接池
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    /**
+     * 只读副本连接池
+     *
+     * @return 副本连接池
+     */
+    @Bean
+    @ConfigurationProperties("datasource.replica.pool")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    /**
+     * 副本延迟监控
+     *
+     * @param replicaDataSource 副本连接池
+     * @param lagQuery 查询复制延迟（秒）的语句
+     * @param maxLagMs 允许的最大复制延迟（毫秒），超过后只读请求回退到主库
+     * @param meterRegistry 指标注册表
+     * @return 副本延迟监控
+     */
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                               @Value("${datasource.replica.lag-query:SHOW REPLICA STATUS}") String lagQuery,
+                                               @Value("${datasource.replica.max-lag-ms:1000}") long maxLagMs,
+                                               MeterRegistry meterRegistry) {
+        return new ReplicaLagMonitor(replicaDataSource, lagQuery, maxLagMs, meterRegistry);
+    }
+
+    /**
+     * 应用使用的数据源：按服务层事务的只读标志在主库和副本之间选择，
+     * 外层的LazyConnectionDataSourceProxy把获取连接推迟到第一条语句，保证选择时只读标志已经绑定
+     *
+     * @return 读写分离数据源
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                 ReplicaLagMonitor replicaLagMonitor,
+                                 MeterRegistry meterRegistry) {
+        return new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource, replicaLagMonitor, meterRegistry));
+    }
+}
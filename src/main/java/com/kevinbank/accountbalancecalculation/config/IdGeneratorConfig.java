@@ -0,0 +1,43 @@
+package com.kevinbank.accountbalancecalculation.config;
+
+import com.kevinbank.accountbalancecalculation.id.SnowflakeIdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * ID生成器配置类
+ * 在JPA初始化之前按配置的节点ID初始化全局Snowflake生成器
+ */
+@Configuration
+public class IdGeneratorConfig {
+
+    /**
+     * 初始化全局ID生成器
+     * 根据主机名推导的节点ID可能冲突，多实例部署时应开启require-node-id，未配置节点ID时启动失败
+     *
+     * @param nodeId        节点ID，小于0时根据主机名推导；多实例部署时每个实例必须不同
+     * @param requireNodeId 为true时必须显式配置节点ID
+     * @return 全局ID生成器
+     * @throws RuntimeException 如果要求显式配置节点ID但未配置
+     */
+    @Bean
+    public SnowflakeIdGenerator snowflakeIdGenerator(@Value("${id.generator.node-id:-1}") long nodeId,
+                                                     @Value("${id.generator.require-node-id:false}") boolean requireNodeId) {
+        if (nodeId < 0 && requireNodeId) {
+            throw new RuntimeException("未配置id.generator.node-id，多实例部署时每个实例必须显式指定不同的节点ID");
+        }
+        return SnowflakeIdGenerator.initialize(nodeId);
+    }
+
+    /**
+     * 让EntityManagerFactory依赖ID生成器，保证实体插入时生成器已按配置初始化
+     *
+     * @return 依赖关系后处理器
+     */
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor snowflakeIdGeneratorDependsOnPostProcessor() {
+        return new EntityManagerFactoryDependsOnPostProcessor("snowflakeIdGenerator");
+    }
+}
@@ -0,0 +1,62 @@
+package com.kevinbank.accountbalancecalculation.config;
+
+import com.kevinbank.accountbalancecalculation.id.SnowflakeIdGenerator;
+import com.kevinbank.accountbalancecalculation.journal.FsyncPolicy;
+import com.kevinbank.accountbalancecalculation.journal.TransactionJournal;
+import com.kevinbank.accountbalancecalculation.model.JournalCheckpoint;
+import com.kevinbank.accountbalancecalculation.repository.JournalCheckpointRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+
+/**
+ * 交易日志配置类
+ * 启用后交易在写入本地交易日志后即返回，由后台线程批量写入数据库。
+ * 交易日志以分片内存余额引擎的余额为准做校验，因此要求balance.engine.mode=sharded。
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "transaction.journal.enabled", havingValue = "true")
+public class JournalConfig {
+
+    /**
+     * 打开交易日志，写入位置从数据库中的持久化检查点恢复
+     *
+     * @param checkpointRepository 检查点仓库
+     * @param snowflakeIdGenerator ID生成器，用其节点ID区分不同实例的检查点
+     * @param balanceEngineMode 余额引擎模式
+     * @param directory 日志目录
+     * @param segmentSizeMb 每个分段文件的大小（MB）
+     * @param fsync 刷盘策略
+     * @return 交易日志
+     * @throws RuntimeException 如果未启用分片内存余额引擎
+     */
+    @Bean(destroyMethod = "close")
+    public TransactionJournal transactionJournal(JournalCheckpointRepository checkpointRepository,
+                                                 SnowflakeIdGenerator snowflakeIdGenerator,
+                                                 @Value("${balance.engine.mode:jdbc}") String balanceEngineMode,
+                                                 @Value("${transaction.journal.dir:./data/journal}") String directory,
+                                                 @Value("${transaction.journal.segment-size-mb:64}") long segmentSizeMb,
+                                                 @Value("${transaction.journal.fsync:batch}") String fsync) {
+        if (!"sharded".equalsIgnoreCase(balanceEngineMode)) {
+            throw new RuntimeException("交易日志需要启用分片内存余额引擎(balance.engine.mode=sharded)");
+        }
+
+        long nodeId = snowflakeIdGenerator.getNodeId();
+        JournalCheckpoint checkpoint = checkpointRepository.findById(nodeId).orElseGet(() -> {
+            JournalCheckpoint created = new JournalCheckpoint();
+            created.setNodeId(nodeId);
+            created.setPersistedOffset(0L);
+            created.setUpdatedAt(LocalDateTime.now());
+            return checkpointRepository.save(created);
+        });
+
+        return new TransactionJournal(Paths.get(directory, "node-" + nodeId), segmentSizeMb * 1024 * 1024,
+                FsyncPolicy.valueOf(fsync.toUpperCase()), checkpoint.getPersistedOffset());
+    }
+}
@@ -0,0 +1,145 @@
+package com.kevinbank.accountbalancecalculation.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 虚拟线程固定（pinning）诊断端点 /actuator/pinnedthreads
+ * 使用JFR事件流订阅jdk.VirtualThreadPinned事件：虚拟线程在synchronized块或本地方法中阻塞时，无法从载体线程卸载，
+ * 载体线程在此期间不能运行其他虚拟线程。端点返回累计次数和最近若干次的线程名、持续时间和调用栈，
+ * 同时以jvm.threads.virtual.pinned计数器导出到Prometheus。
+ * 只在启用虚拟线程时订阅，未启用时端点只返回enabled=false。
+ */
+@Slf4j
+@Component
+@Endpoint(id = "pinnedthreads")
+public class PinnedThreadEndpoint {
+
+    private static final String EVENT_NAME = "jdk.VirtualThreadPinned";
+
+    @Autowired
+    private WorkerThreads workerThreads;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 记录固定事件的最短持续时间（毫秒）
+     */
+    @Value("${diagnostics.pinned-threads.threshold-ms:20}")
+    private long thresholdMs;
+
+    /**
+     * 保留的最近事件数量
+     */
+    @Value("${diagnostics.pinned-threads.recent-size:50}")
+    private int recentSize;
+
+    /**
+     * 每个事件保留的栈帧数量
+     */
+    @Value("${diagnostics.pinned-threads.stack-depth:12}")
+    private int stackDepth;
+
+    private RecordingStream stream;
+
+    private Counter pinnedCounter;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final ArrayDeque<Map<String, Object>> recent = new ArrayDeque<>();
+
+    @PostConstruct
+    public void init() {
+        if (!workerThreads.isVirtual()) {
+            return;
+        }
+        pinnedCounter = Counter.builder("jvm.threads.virtual.pinned")
+                .description("Virtual threads that blocked while pinned to their carrier thread")
+                .register(meterRegistry);
+        try {
+            stream = new RecordingStream();
+            stream.enable(EVENT_NAME).withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+            stream.onEvent(EVENT_NAME, this::onPinned);
+            stream.startAsync();
+            log.info("虚拟线程固定诊断已启用 - 阈值: {} 毫秒", thresholdMs);
+        } catch (Exception e) {
+            stream = null;
+            log.warn("无法启动JFR事件流，虚拟线程固定诊断不可用: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    /**
+     * @return 固定事件的累计次数和最近的事件
+     */
+    @ReadOperation
+    public Map<String, Object> pinnedThreads() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", stream != null);
+        result.put("thresholdMs", thresholdMs);
+        result.put("total", pinnedCounter != null ? (long) pinnedCounter.count() : 0L);
+        lock.lock();
+        try {
+            result.put("recent", new ArrayList<>(recent));
+        } finally {
+            lock.unlock();
+        }
+        return result;
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedCounter.increment();
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("time", Instant.from(event.getStartTime()).toString());
+        entry.put("durationMs", event.getDuration().toMillis());
+        entry.put("thread", event.getThread() != null ? event.getThread().getJavaName() : null);
+        List<String> frames = new ArrayList<>();
+        if (event.getStackTrace() != null) {
+            for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+                if (frames.size() >= stackDepth) {
+                    break;
+                }
+                frames.add(frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                        + ":" + frame.getLineNumber());
+            }
+        }
+        entry.put("stackTrace", frames);
+
+        lock.lock();
+        try {
+            recent.addFirst(entry);
+            while (recent.size() > recentSize) {
+                recent.removeLast();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
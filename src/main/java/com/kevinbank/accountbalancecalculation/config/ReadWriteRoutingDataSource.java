@@ -0,0 +1,112 @@
+package com.kevinbank.accountbalancecalculation.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 读写分离的数据源。
+ * 只有服务层以@Transactional(readOnly = true)开启的事务在副本可用时从副本获取连接，其他连接都从主库获取；
+ * 从副本获取连接失败时回退到主库。
+ *
+ * 必须包装在LazyConnectionDataSourceProxy中使用：事务开始时只读标志尚未绑定到当前线程，
+ * 代理把真正获取连接推迟到第一条语句执行时，此时才能按只读标志选择数据源。
+ * 注意：副本上读到的数据可能落后主库最多max-lag-ms，刚写入的数据在只读事务中不一定可见。
+ * Spring Data仓库方法在没有外层事务时自行开启的只读事务、只读的TransactionTemplate都不使用副本：
+ * 分片余额引擎加载余额、写入后回读余额、幂等记录查询等读取必须看到主库上已提交的数据。
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractDataSource {
+
+    /**
+     * 服务层事务的名称前缀，@Transactional开启的事务以"类全名.方法名"命名
+     */
+    static final String SERVICE_TRANSACTION_PREFIX = "com.kevinbank.accountbalancecalculation.service.";
+
+    private final DataSource primaryDataSource;
+
+    private final DataSource replicaDataSource;
+
+    private final ReplicaLagMonitor replicaLagMonitor;
+
+    private final Counter primaryCounter;
+
+    private final Counter replicaCounter;
+
+    private final Counter lagFallbackCounter;
+
+    private final Counter errorFallbackCounter;
+
+    public ReadWriteRoutingDataSource(DataSource primaryDataSource, DataSource replicaDataSource,
+                                      ReplicaLagMonitor replicaLagMonitor, MeterRegistry meterRegistry) {
+        this.primaryDataSource = primaryDataSource;
+        this.replicaDataSource = replicaDataSource;
+        this.replicaLagMonitor = replicaLagMonitor;
+        primaryCounter = connectionCounter(meterRegistry, "primary");
+        replicaCounter = connectionCounter(meterRegistry, "replica");
+        lagFallbackCounter = fallbackCounter(meterRegistry, "lag");
+        errorFallbackCounter = fallbackCounter(meterRegistry, "error");
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (useReplica()) {
+            try {
+                Connection connection = replicaDataSource.getConnection();
+                replicaCounter.increment();
+                return connection;
+            } catch (SQLException e) {
+                log.warn("从只读副本获取连接失败，回退到主库: {}", e.getMessage());
+                replicaLagMonitor.markUnusable();
+                errorFallbackCounter.increment();
+            }
+        }
+        primaryCounter.increment();
+        return primaryDataSource.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        primaryCounter.increment();
+        return primaryDataSource.getConnection(username, password);
+    }
+
+    /**
+     * 服务层的只读事务且副本可用时使用副本；副本因延迟不可用时计入回退次数。
+     * 参与外层事务的仓库方法沿用外层事务的名称和只读标志，因此只读服务方法内的仓库查询同样使用副本
+     */
+    private boolean useReplica() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return false;
+        }
+        String name = TransactionSynchronizationManager.getCurrentTransactionName();
+        if (name == null || !name.startsWith(SERVICE_TRANSACTION_PREFIX)) {
+            return false;
+        }
+        if (!replicaLagMonitor.isUsable()) {
+            lagFallbackCounter.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private static Counter connectionCounter(MeterRegistry meterRegistry, String route) {
+        return Counter.builder("datasource.route.connections")
+                .description("Connections obtained through the read/write routing data source")
+                .tag("route", route)
+                .register(meterRegistry);
+    }
+
+    private static Counter fallbackCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("datasource.route.fallbacks")
+                .description("Read-only transactions routed to the primary because the replica was unusable")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
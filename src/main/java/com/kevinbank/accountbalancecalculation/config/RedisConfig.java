@@ -6,6 +6,8 @@ import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
@@ -17,6 +19,7 @@ import java.time.Duration;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -25,6 +28,8 @@ import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import com.kevinbank.accountbalancecalculation.model.Account;
+import com.kevinbank.accountbalancecalculation.model.MoneyJsonModule;
 import lombok.extern.slf4j.Slf4j;
 import javax.annotation.PostConstruct;
 
@@ -58,9 +63,9 @@ public class RedisConfig {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
         
-        // 使用配置好的ObjectMapper
+        // 使用缓存专用的ObjectMapper，金额以分为单位的整数写入
         Jackson2JsonRedisSerializer<Object> serializer = new Jackson2JsonRedisSerializer<>(Object.class);
-        serializer.setObjectMapper(objectMapper());
+        serializer.setObjectMapper(redisObjectMapper());
         
         template.setValueSerializer(serializer);
         template.setKeySerializer(new StringRedisSerializer());
@@ -88,6 +93,24 @@ public class RedisConfig {
         return template;
     }
     
+    /**
+     * 创建读取账户缓存的响应式 RedisTemplate
+     * 与 RedisTemplate 共用 Lettuce 连接工厂和缓存专用的 ObjectMapper，可以直接读取同步路径写入的账户缓存
+     *
+     * @return 值类型为账户的响应式 RedisTemplate
+     */
+    @Bean
+    public ReactiveRedisTemplate<String, Account> reactiveAccountRedisTemplate() {
+        ObjectMapper mapper = redisObjectMapper();
+        mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        Jackson2JsonRedisSerializer<Account> serializer = new Jackson2JsonRedisSerializer<>(mapper, Account.class);
+        RedisSerializationContext<String, Account> context = RedisSerializationContext
+                .<String, Account>newSerializationContext(new StringRedisSerializer())
+                .value(serializer)
+                .build();
+        return new ReactiveRedisTemplate<>((ReactiveRedisConnectionFactory) redisConnectionFactory(), context);
+    }
+
     @Bean
     public RedisConnectionFactory redisConnectionFactory() {
         RedisStandaloneConfiguration config = new RedisStandaloneConfiguration();
@@ -107,7 +130,7 @@ public class RedisConfig {
 
     @Bean
     public RedisCacheManager cacheManager(RedisConnectionFactory connectionFactory) {
-        GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer(objectMapper());
+        GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer(redisObjectMapper());
         
         RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
             .entryTtl(Duration.ofHours(1))
@@ -125,10 +148,25 @@ public class RedisConfig {
     public ObjectMapper objectMapper() {
         ObjectMapper mapper = new ObjectMapper();
         mapper.registerModule(new JavaTimeModule());  // 添加Java 8时间模块支持
+        mapper.registerModule(MoneyJsonModule.decimal());  // 接口中的金额保持两位小数
         mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);  // 使用ISO-8601格式
         return mapper;
     }
 
+    /**
+     * 创建Redis缓存使用的ObjectMapper
+     * 与接口使用的ObjectMapper相同，只是金额以分为单位的整数序列化，缓存负载更小
+     *
+     * @return 缓存专用的ObjectMapper实例
+     */
+    public static ObjectMapper redisObjectMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.registerModule(MoneyJsonModule.minorUnits());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        return mapper;
+    }
+
     @PostConstruct
     public void testRedisConnection() {
         try {
@@ -0,0 +1,119 @@
+package com.kevinbank.accountbalancecalculation.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 只读副本延迟监控。
+ * 定期在副本上执行lag-query读取复制延迟，延迟超过max-lag-ms、复制中断或副本无法连接时把副本标记为不可用，
+ * 只读请求回退到主库，直到下一次检查恢复正常。启动后第一次检查完成之前副本视为不可用。
+ *
+ * lag-query默认为SHOW REPLICA STATUS，读取Seconds_Behind_Source（旧版本为Seconds_Behind_Master）列；
+ * 没有返回行说明连接的不是副本（例如本地用主库充当副本），延迟视为0。其他查询读取第一列作为延迟秒数。
+ * lag-query为空时只检查连接是否可用。
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private final DataSource replicaDataSource;
+
+    private final String lagQuery;
+
+    private final long maxLagMs;
+
+    private volatile boolean usable;
+
+    /**
+     * 最近一次检查得到的延迟（秒），无法确定时为NaN
+     */
+    private volatile double lagSeconds = Double.NaN;
+
+    public ReplicaLagMonitor(DataSource replicaDataSource, String lagQuery, long maxLagMs, MeterRegistry meterRegistry) {
+        this.replicaDataSource = replicaDataSource;
+        this.lagQuery = lagQuery;
+        this.maxLagMs = maxLagMs;
+        Gauge.builder("datasource.replica.lag", this, m -> m.lagSeconds)
+                .description("Replication lag of the read replica")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("datasource.replica.usable", this, m -> m.usable ? 1.0 : 0.0)
+                .description("Whether read-only transactions are currently routed to the replica")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 定期检查副本延迟
+     */
+    @Scheduled(fixedDelayString = "${datasource.replica.lag-check-interval-ms:1000}")
+    public void check() {
+        boolean wasUsable = usable;
+        try (Connection connection = replicaDataSource.getConnection()) {
+            if (lagQuery == null || lagQuery.isBlank()) {
+                lagSeconds = 0.0;
+                usable = connection.isValid(1);
+            } else {
+                Long lag = queryLag(connection);
+                lagSeconds = lag != null ? lag : Double.NaN;
+                usable = lag != null && lag * 1000 <= maxLagMs;
+            }
+        } catch (SQLException e) {
+            lagSeconds = Double.NaN;
+            usable = false;
+            if (wasUsable) {
+                log.warn("只读副本检查失败，只读请求回退到主库: {}", e.getMessage());
+            }
+            return;
+        }
+        if (wasUsable != usable) {
+            log.info("只读副本{} - 复制延迟: {} 秒", usable ? "已恢复" : "延迟过大或复制中断，只读请求回退到主库", lagSeconds);
+        }
+    }
+
+    /**
+     * @return 复制延迟（秒），复制中断时返回null
+     */
+    private Long queryLag(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(lagQuery)) {
+            if (!rs.next()) {
+                return 0L;
+            }
+            int column = lagColumn(rs.getMetaData());
+            long lag = rs.getLong(column);
+            return rs.wasNull() ? null : lag;
+        }
+    }
+
+    private static int lagColumn(ResultSetMetaData metaData) throws SQLException {
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            String name = metaData.getColumnLabel(i);
+            if ("Seconds_Behind_Source".equalsIgnoreCase(name) || "Seconds_Behind_Master".equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * @return 只读请求当前是否可以使用副本
+     */
+    public boolean isUsable() {
+        return usable;
+    }
+
+    /**
+     * 从副本获取连接失败时立即标记为不可用，不等待下一次检查
+     */
+    public void markUnusable() {
+        usable = false;
+    }
+}
@@ -0,0 +1,47 @@
+package com.kevinbank.accountbalancecalculation.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 后台工作线程的线程工厂
+ * spring.threads.virtual.enabled=true时，主要时间花在等待数据库和Redis的工作线程使用虚拟线程，
+ * 与Tomcat请求线程、@Async和@Scheduled执行器保持一致；否则使用普通平台线程。
+ *
+ * 注意：分片余额引擎的分片线程、交易日志刷盘线程和组提交线程是长期运行的单线程，
+ * 其中刷盘的文件I/O会占住载体线程，这些线程始终使用平台线程，不通过本类创建。
+ */
+@Component
+public class WorkerThreads {
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtual;
+
+    public WorkerThreads() {
+    }
+
+    public WorkerThreads(boolean virtual) {
+        this.virtual = virtual;
+    }
+
+    /**
+     * 创建线程工厂，线程名为前缀加从0开始的序号
+     *
+     * @param prefix 线程名前缀
+     * @return 线程工厂
+     */
+    public ThreadFactory factory(String prefix) {
+        return virtual
+                ? Thread.ofVirtual().name(prefix, 0).factory()
+                : Thread.ofPlatform().name(prefix, 0).factory();
+    }
+
+    /**
+     * @return 如果工作线程使用虚拟线程则返回true
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+}
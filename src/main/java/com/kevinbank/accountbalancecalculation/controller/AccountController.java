@@ -1,14 +1,19 @@
 package com.kevinbank.accountbalancecalculation.controller;
 
 import com.kevinbank.accountbalancecalculation.model.Account;
+import com.kevinbank.accountbalancecalculation.model.BalanceAsOf;
 import com.kevinbank.accountbalancecalculation.model.CreateAccountRequest;
+import com.kevinbank.accountbalancecalculation.model.Money;
 import com.kevinbank.accountbalancecalculation.service.AccountService;
+import com.kevinbank.accountbalancecalculation.service.BalanceHistoryService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -25,6 +30,12 @@ public class AccountController {
     @Autowired
     private AccountService accountService;
 
+    /**
+     * 自动注入 BalanceHistoryService 实例，用于按时间点查询余额。
+     */
+    @Autowired
+    private BalanceHistoryService balanceHistoryService;
+
     /**
      * 创建新账户。
      *
@@ -37,8 +48,11 @@ public class AccountController {
         Account account = new Account();
         account.setUserId(request.getUserId());
         account.setAccountNumber(request.getAccountNumber());
-        account.setBalance(request.getBalance() != null ? request.getBalance() : BigDecimal.ZERO);
-        account.setCreditLimit(request.getCreditLimit());
+        account.setBalance(Money.ofNullable(request.getBalance()));
+        account.setCreditLimit(Money.of(request.getCreditLimit()));
+        if (request.getSubBalanceSlots() != null) {
+            account.setSubBalanceSlots(request.getSubBalanceSlots());
+        }
         
         return accountService.createAccount(account);
     }
@@ -58,6 +72,21 @@ public class AccountController {
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * 查询账户在指定时间点的余额。
+     * 从该时间点之前最近的每日余额检查点出发，只累加检查点之后的交易。
+     *
+     * @param id 账户 ID。
+     * @param asOf 时间点，ISO-8601 格式，例如 2026-01-01T12:00:00。
+     * @return 返回包含该时间点余额的响应实体。
+     */
+    @GetMapping("/{id}/balance")
+    public ResponseEntity<BalanceAsOf> getBalanceAsOf(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf) {
+        return ResponseEntity.ok(balanceHistoryService.getBalanceAsOf(id, asOf));
+    }
+
     /**
      * 获取指定 ID 的账户信息。
      *
@@ -4,6 +4,7 @@ import com.kevinbank.accountbalancecalculation.model.Account;
 import com.kevinbank.accountbalancecalculation.model.DepositRequest;
 import com.kevinbank.accountbalancecalculation.model.WithdrawRequest;
 import com.kevinbank.accountbalancecalculation.service.AccountService;
+import com.kevinbank.accountbalancecalculation.service.IdempotencyService;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,20 +27,29 @@ public class AccountOperationController {
     @Autowired
     private AccountService accountService;
 
+    /**
+     * 注入幂等服务，带Idempotency-Key的重复请求直接返回首次处理的结果
+     */
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     /**
      * 存款操作
      *
      * @param accountId 账户ID
      * @param request 存款请求体，包含存款金额
+     * @param idempotencyKey 幂等键，可选
      * @return 更新后的账户信息
      */
     @PostMapping("/{accountId}/deposit")
     public ResponseEntity<Account> deposit(
             @PathVariable Long accountId,
-            @Valid @RequestBody DepositRequest request) {
+            @Valid @RequestBody DepositRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         log.info("存款请求 - 账户ID: {}, 金额: {}", accountId, request.getAmount());
         try {
-            Account updatedAccount = accountService.deposit(accountId, request.getAmount());
+            Account updatedAccount = idempotencyService.execute("deposit:" + accountId, idempotencyKey, request,
+                    Account.class, () -> accountService.deposit(accountId, request.getAmount()));
             return ResponseEntity.ok(updatedAccount);
         } catch (Exception e) {
             log.error("存款失败", e);
@@ -52,15 +62,18 @@ public class AccountOperationController {
      *
      * @param accountId 账户ID
      * @param request 取款请求体，包含取款金额
+     * @param idempotencyKey 幂等键，可选
      * @return 更新后的账户信息
      */
     @PostMapping("/{accountId}/withdraw")
     public ResponseEntity<Account> withdraw(
             @PathVariable Long accountId,
-            @Valid @RequestBody WithdrawRequest request) {
+            @Valid @RequestBody WithdrawRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         log.info("取款请求 - 账户ID: {}, 金额: {}", accountId, request.getAmount());
         try {
-            Account account = accountService.withdraw(accountId, request.getAmount());
+            Account account = idempotencyService.execute("withdraw:" + accountId, idempotencyKey, request,
+                    Account.class, () -> accountService.withdraw(accountId, request.getAmount()));
             return ResponseEntity.ok(account);
         } catch (Exception e) {
             log.error("取款失败", e);
@@ -0,0 +1,59 @@
+package com.kevinbank.accountbalancecalculation.controller;
+
+import com.kevinbank.accountbalancecalculation.model.Account;
+import com.kevinbank.accountbalancecalculation.model.Transaction;
+import com.kevinbank.accountbalancecalculation.service.ReactiveQueryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * ReactiveQueryController 类提供账户和交易的响应式只读查询。
+ * 返回 Mono/Flux 时请求线程在等待 Redis 和数据库期间被释放；
+ * 请求 application/x-ndjson 时列表逐条写出，并按客户端的读取速度从数据库读取，否则汇总为 JSON 数组返回。
+ */
+@RestController
+@RequestMapping("/api/reactive")
+public class ReactiveQueryController {
+
+    @Autowired
+    private ReactiveQueryService reactiveQueryService;
+
+    /**
+     * 根据账户 ID 获取账户信息。
+     *
+     * @param id 账户 ID。
+     * @return 账户信息。
+     */
+    @GetMapping("/accounts/{id}")
+    public Mono<Account> getAccount(@PathVariable Long id) {
+        return reactiveQueryService.getAccount(id);
+    }
+
+    /**
+     * 获取所有账户信息。
+     *
+     * @return 账户流。
+     */
+    @GetMapping(value = "/accounts", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Account> getAllAccounts() {
+        return reactiveQueryService.getAllAccounts();
+    }
+
+    /**
+     * 根据账户 ID 获取交易记录。
+     *
+     * @param accountId 账户 ID。
+     * @return 交易记录流。
+     */
+    @GetMapping(value = "/transactions/account/{accountId}",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Transaction> getTransactionsByAccount(@PathVariable Long accountId) {
+        return reactiveQueryService.getTransactionsByAccountId(accountId);
+    }
+}
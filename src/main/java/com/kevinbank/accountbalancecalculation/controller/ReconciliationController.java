@@ -0,0 +1,49 @@
+package com.kevinbank.accountbalancecalculation.controller;
+
+import com.kevinbank.accountbalancecalculation.reconciliation.BalanceReconciliationService;
+import com.kevinbank.accountbalancecalculation.reconciliation.ReconciliationReport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * ReconciliationController 类负责触发余额对账和查询对账报告。
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/reconciliation")
+public class ReconciliationController {
+
+    @Autowired
+    private BalanceReconciliationService reconciliationService;
+
+    /**
+     * 在后台开始一次余额对账。
+     *
+     * @return 已开始时返回 202，已有对账在执行时返回 409。
+     */
+    @PostMapping("/runs")
+    public ResponseEntity<Void> startReconciliation() {
+        if (!reconciliationService.start()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        log.info("Reconciliation started");
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .header("Location", "/api/reconciliation/report")
+                .build();
+    }
+
+    /**
+     * 获取最近一次完成的对账报告。
+     *
+     * @return 对账报告，尚未执行过对账时返回 404。
+     */
+    @GetMapping("/report")
+    public ResponseEntity<ReconciliationReport> getLatestReport() {
+        return reconciliationService.getLatestReport()
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -1,16 +1,31 @@
 package com.kevinbank.accountbalancecalculation.controller;
 
+import com.kevinbank.accountbalancecalculation.model.BatchTransactionResult;
+import com.kevinbank.accountbalancecalculation.model.ExportFormat;
 import com.kevinbank.accountbalancecalculation.model.Transaction;
 import com.kevinbank.accountbalancecalculation.model.CreateTransactionRequest;
+import com.kevinbank.accountbalancecalculation.model.TransactionPage;
+import com.kevinbank.accountbalancecalculation.model.TransactionRequestStatus;
 import com.kevinbank.accountbalancecalculation.model.TransactionType;
+import com.kevinbank.accountbalancecalculation.service.AsyncTransactionService;
+import com.kevinbank.accountbalancecalculation.service.IdempotencyService;
+import com.kevinbank.accountbalancecalculation.service.TransactionExportService;
 import com.kevinbank.accountbalancecalculation.service.TransactionService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -25,12 +40,22 @@ public class TransactionController {
     @Autowired
     private TransactionService transactionService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private AsyncTransactionService asyncTransactionService;
+
+    @Autowired
+    private TransactionExportService transactionExportService;
+
     /**
      * 执行转账操作。
      *
      * @param sourceAccountId 发起转账的账户 ID。
      * @param targetAccountId 接收转账的账户 ID。
      * @param amount 转账金额。
+     * @param idempotencyKey 幂等键，可选；相同的键重复提交时直接返回首次处理的结果。
      * @return 创建的交易记录。
      * @throws Exception 如果转账过程中发生错误。
      */
@@ -38,7 +63,8 @@ public class TransactionController {
     public ResponseEntity<Transaction> transfer(
             @RequestParam Long sourceAccountId,
             @RequestParam Long targetAccountId,
-            @RequestParam BigDecimal amount) {
+            @RequestParam BigDecimal amount,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         log.info("转账请求 - 从账户: {}, 到账户: {}, 金额: {}",
                 sourceAccountId, targetAccountId, amount);
 
@@ -50,7 +76,8 @@ public class TransactionController {
         request.setDescription("转账交易");
 
         try {
-            Transaction transaction = transactionService.createTransaction(request);
+            Transaction transaction = idempotencyService.execute("transfer", idempotencyKey, request,
+                    Transaction.class, () -> transactionService.createTransaction(request));
             return ResponseEntity.ok(transaction);
         } catch (Exception e) {
             log.error("转账失败", e);
@@ -62,25 +89,117 @@ public class TransactionController {
      * 创建一个新的交易记录。
      *
      * @param request 创建交易的请求对象，包含交易的详细信息。
+     * @param idempotencyKey 幂等键，可选；相同的键重复提交时直接返回首次处理的结果。
      * @return 创建的交易记录。
      */
     @PostMapping
-    public ResponseEntity<Transaction> createTransaction(@Valid @RequestBody CreateTransactionRequest request) {
+    public ResponseEntity<Transaction> createTransaction(
+            @Valid @RequestBody CreateTransactionRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         log.info("Creating transaction: {}", request);
-        Transaction transaction = transactionService.createTransaction(request);
+        Transaction transaction = idempotencyService.execute("transaction", idempotencyKey, request,
+                Transaction.class, () -> transactionService.createTransaction(request));
         return ResponseEntity.ok(transaction);
     }
 
     /**
-     * 根据账户 ID 获取交易记录列表。
+     * 异步创建交易记录。
+     * 请求校验通过并进入队列后立即返回 202，之后通过返回的句柄查询处理结果；队列已满时返回 429。
+     *
+     * @param request 创建交易的请求对象。
+     * @return 处于 PENDING 状态的请求句柄。
+     */
+    @PostMapping("/async")
+    public ResponseEntity<TransactionRequestStatus> createTransactionAsync(
+            @Valid @RequestBody CreateTransactionRequest request) {
+        log.info("Submitting transaction: {}", request);
+        TransactionRequestStatus status = asyncTransactionService.submit(request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .header("Location", "/api/transactions/requests/" + status.getHandle())
+                .body(status);
+    }
+
+    /**
+     * 查询异步交易请求的处理状态。
+     *
+     * @param handle 提交时返回的句柄。
+     * @return 处理状态：PENDING、COMPLETED 或 REJECTED。
+     */
+    @GetMapping("/requests/{handle}")
+    public ResponseEntity<TransactionRequestStatus> getTransactionRequest(@PathVariable String handle) {
+        return ResponseEntity.ok(asyncTransactionService.getStatus(handle));
+    }
+
+    /**
+     * 批量创建交易记录。
+     * 每笔交易单独校验、单独成功或失败，返回结果与请求数组按位置一一对应；不支持幂等键。
+     *
+     * @param requests 按提交顺序排列的交易请求，涉及同一账户的交易按该顺序执行。
+     * @return 每笔交易的处理结果。
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchTransactionResult>> createTransactions(
+            @RequestBody List<CreateTransactionRequest> requests) {
+        log.info("批量交易请求 - 笔数: {}", requests.size());
+        List<BatchTransactionResult> results = transactionService.createTransactions(requests);
+        return ResponseEntity.ok(results);
+    }
+
+    /**
+     * 按交易时间从新到旧分页获取账户的交易记录。
      *
      * @param accountId 账户 ID。
-     * @return 账户对应的交易记录列表。
+     * @param cursor 上一页返回的 next 游标，不传时读取第一页。
+     * @param limit 每页记录数。
+     * @return 一页交易记录，next 为空时没有更多记录；游标无效时返回 400。
      */
     @GetMapping("/account/{accountId}")
-    public ResponseEntity<List<Transaction>> getTransactionsByAccount(@PathVariable Long accountId) {
-        List<Transaction> transactions = transactionService.getTransactionsByAccountId(accountId);
-        return ResponseEntity.ok(transactions);
+    public ResponseEntity<TransactionPage> getTransactionsByAccount(
+            @PathVariable Long accountId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "${transaction.page.default-limit:50}") int limit) {
+        TransactionPage page = transactionService.getTransactionsByAccountId(accountId, cursor, limit);
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * 流式导出交易记录。
+     * 数据从数据库游标逐行读取并直接写入响应，导出任意时间范围所需的内存都是固定的。
+     *
+     * @param accountId 账户 ID，不传时导出全部账户。
+     * @param from 起始交易时间（包含），ISO 格式。
+     * @param to 结束交易时间（不包含），ISO 格式。
+     * @param format 导出格式：ndjson 或 csv。
+     * @param response HTTP 响应，导出内容直接写入其输出流。
+     * @throws IOException 如果写出失败，通常是客户端断开连接。
+     */
+    @GetMapping("/export")
+    public void exportTransactions(
+            @RequestParam(required = false) Long accountId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "不支持的导出格式: " + format);
+            return;
+        }
+        if (!from.isBefore(to)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "from必须早于to");
+            return;
+        }
+        log.info("交易导出请求 - 账户: {}, 时间范围: [{}, {}), 格式: {}", accountId, from, to, exportFormat);
+
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("transactions." + exportFormat.getExtension())
+                .build()
+                .toString());
+        transactionExportService.export(accountId, from, to, exportFormat, response.getOutputStream());
     }
 
     /**
@@ -96,13 +215,17 @@ public class TransactionController {
     }
 
     /**
-     * 获取所有交易记录。
+     * 按交易时间从新到旧分页获取所有交易记录。
      *
-     * @return 所有交易记录列表。
+     * @param cursor 上一页返回的 next 游标，不传时读取第一页。
+     * @param limit 每页记录数。
+     * @return 一页交易记录，next 为空时没有更多记录；游标无效时返回 400。
      */
     @GetMapping
-    public ResponseEntity<List<Transaction>> getAllTransactions() {
-        List<Transaction> transactions = transactionService.getAllTransactions();
-        return ResponseEntity.ok(transactions);
+    public ResponseEntity<TransactionPage> getAllTransactions(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "${transaction.page.default-limit:50}") int limit) {
+        TransactionPage page = transactionService.getTransactions(cursor, limit);
+        return ResponseEntity.ok(page);
     }
 }
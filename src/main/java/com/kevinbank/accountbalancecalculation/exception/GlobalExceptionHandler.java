@@ -1,5 +1,7 @@
 package com.kevinbank.accountbalancecalculation.exception;
 
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -13,6 +15,55 @@ import java.util.Map;
 @Slf4j
 public class GlobalExceptionHandler {
 
+    /**
+     * 账户并发更新冲突，请求没有生效，客户端可以重试
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> handleOptimisticLockingFailure(OptimisticLockingFailureException e) {
+        log.warn("Concurrent update conflict: {}", e.getMessage());
+        Map<String, String> response = new HashMap<>();
+        response.put("error", e.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                           .body(response);
+    }
+
+    /**
+     * 幂等键被用于内容不同的请求，或相同幂等键的请求仍在处理中
+     */
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<Map<String, String>> handleIdempotencyConflict(IdempotencyConflictException e) {
+        log.warn("Idempotency conflict: {}", e.getMessage());
+        Map<String, String> response = new HashMap<>();
+        response.put("error", e.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                           .body(response);
+    }
+
+    /**
+     * 异步交易队列已满，请求没有被接受，客户端可以稍后重试
+     */
+    @ExceptionHandler(TransactionQueueFullException.class)
+    public ResponseEntity<Map<String, String>> handleTransactionQueueFull(TransactionQueueFullException e) {
+        log.warn("Transaction queue full: {}", e.getMessage());
+        Map<String, String> response = new HashMap<>();
+        response.put("error", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                           .header(HttpHeaders.RETRY_AFTER, "1")
+                           .body(response);
+    }
+
+    /**
+     * 分页游标无法解析，客户端应从第一页重新读取
+     */
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidCursor(InvalidCursorException e) {
+        log.warn("Invalid cursor: {}", e.getMessage());
+        Map<String, String> response = new HashMap<>();
+        response.put("error", e.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                           .body(response);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, String>> handleException(Exception e) {
         log.error("Unhandled exception", e);
@@ -0,0 +1,12 @@
+package com.kevinbank.accountbalancecalculation.exception;
+
+/**
+ * 幂等键冲突异常
+ * 同一个Idempotency-Key被用于内容不同的请求时抛出，对应HTTP 409
+ */
+public class IdempotencyConflictException extends RuntimeException {
+
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+}
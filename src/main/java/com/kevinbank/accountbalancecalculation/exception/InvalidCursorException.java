@@ -0,0 +1,12 @@
+package com.kevinbank.accountbalancecalculation.exception;
+
+/**
+ * 分页游标无效异常
+ * 游标不是由服务端返回的next值，对应HTTP 400
+ */
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
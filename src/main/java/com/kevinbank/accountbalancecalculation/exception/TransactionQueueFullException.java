@@ -0,0 +1,12 @@
+package com.kevinbank.accountbalancecalculation.exception;
+
+/**
+ * 异步交易队列已满异常
+ * 请求没有被接受，客户端应稍后重试，对应HTTP 429
+ */
+public class TransactionQueueFullException extends RuntimeException {
+
+    public TransactionQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,188 @@
+package com.kevinbank.accountbalancecalculation.id;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 基于时间有序的64位ID生成器（Snowflake算法）。
+ * ID由41位毫秒时间戳（相对于2024-01-01）、10位节点ID和12位序列号组成，
+ * 同一节点每毫秒最多生成4096个ID，生成的ID随时间单调递增。
+ * 不依赖数据库自增列，Hibernate可以在插入前获得主键，从而启用JDBC批量插入。
+ *
+ * 状态用一个AtomicLong保存，通过CAS更新，不使用锁。
+ */
+@Slf4j
+public final class SnowflakeIdGenerator {
+
+    /**
+     * 自定义纪元：2024-01-01T00:00:00Z
+     */
+    public static final long EPOCH_MILLIS = 1704067200000L;
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+
+    /**
+     * 节点ID的最大值
+     */
+    public static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int TIMESTAMP_SHIFT = NODE_BITS + SEQUENCE_BITS;
+
+    /**
+     * 允许等待的最大时钟回拨（毫秒），超过则拒绝生成ID
+     */
+    private static final long MAX_CLOCK_BACKWARD_MS = 10;
+
+    private static volatile SnowflakeIdGenerator instance;
+
+    private final long nodeId;
+
+    /**
+     * 上一次生成ID时的状态：高位为相对时间戳，低12位为序列号
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * @param nodeId 节点ID，取值范围0~1023
+     * @throws RuntimeException 如果节点ID超出范围
+     */
+    public SnowflakeIdGenerator(long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new RuntimeException("节点ID必须在0到" + MAX_NODE_ID + "之间: " + nodeId);
+        }
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * 初始化全局生成器。节点ID小于0时根据主机名推导。
+     *
+     * @param nodeId 配置的节点ID
+     * @return 全局生成器
+     */
+    public static synchronized SnowflakeIdGenerator initialize(long nodeId) {
+        long resolved = nodeId >= 0 ? nodeId : deriveNodeId();
+        if (instance != null && instance.nodeId == resolved) {
+            return instance;
+        }
+        instance = new SnowflakeIdGenerator(resolved);
+        log.info("ID生成器已初始化，节点ID: {}", resolved);
+        return instance;
+    }
+
+    /**
+     * 获取全局生成器，未显式初始化时使用根据主机名推导的节点ID
+     *
+     * @return 全局生成器
+     */
+    public static SnowflakeIdGenerator getInstance() {
+        SnowflakeIdGenerator current = instance;
+        return current != null ? current : initialize(-1);
+    }
+
+    /**
+     * 生成下一个ID
+     *
+     * @return 全局唯一且单调递增的ID
+     * @throws RuntimeException 如果系统时钟回拨超过允许范围
+     */
+    public long nextId() {
+        while (true) {
+            long last = state.get();
+            long lastTimestamp = last >>> SEQUENCE_BITS;
+            long now = currentTimestamp();
+
+            if (now < lastTimestamp) {
+                if (lastTimestamp - now > MAX_CLOCK_BACKWARD_MS) {
+                    throw new RuntimeException("系统时钟回拨" + (lastTimestamp - now) + "毫秒，拒绝生成ID");
+                }
+                LockSupport.parkNanos((lastTimestamp - now) * 1_000_000L);
+                continue;
+            }
+
+            long next;
+            if (now == lastTimestamp) {
+                long sequence = (last + 1) & SEQUENCE_MASK;
+                if (sequence == 0) {
+                    // 当前毫秒的序列号已用完，等待下一毫秒
+                    Thread.onSpinWait();
+                    continue;
+                }
+                next = last + 1;
+            } else {
+                next = now << SEQUENCE_BITS;
+            }
+
+            if (state.compareAndSet(last, next)) {
+                return ((next >>> SEQUENCE_BITS) << TIMESTAMP_SHIFT)
+                        | (nodeId << SEQUENCE_BITS)
+                        | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * @return 当前生成器的节点ID
+     */
+    public long getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 从ID中解析出生成时间的毫秒时间戳
+     *
+     * @param id 由本生成器生成的ID
+     * @return 生成ID时的Unix毫秒时间戳
+     */
+    public static long timestampOf(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + EPOCH_MILLIS;
+    }
+
+    /**
+     * 从ID中解析出生成时间
+     *
+     * @param id 由本生成器生成的ID
+     * @return 生成ID时的本地时间
+     */
+    public static LocalDateTime timeOf(long id) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(timestampOf(id)), ZoneId.systemDefault());
+    }
+
+    /**
+     * 返回指定时间点可能生成的最小ID，可用于按时间范围查询ID
+     *
+     * @param epochMillis Unix毫秒时间戳
+     * @return 该毫秒内最小的ID
+     */
+    public static long minIdAt(long epochMillis) {
+        return Math.max(0L, epochMillis - EPOCH_MILLIS) << TIMESTAMP_SHIFT;
+    }
+
+    private static long currentTimestamp() {
+        return System.currentTimeMillis() - EPOCH_MILLIS;
+    }
+
+    /**
+     * 根据主机名推导节点ID。Kubernetes中主机名即Pod名，不同副本通常得到不同的节点ID，
+     * 但存在哈希冲突的可能，生产环境应通过id.generator.node-id显式指定（k8s清单中取StatefulSet的Pod序号）。
+     */
+    private static long deriveNodeId() {
+        String hostname = System.getenv("HOSTNAME");
+        if (hostname == null || hostname.isEmpty()) {
+            try {
+                hostname = java.net.InetAddress.getLocalHost().getHostName();
+            } catch (Exception e) {
+                hostname = String.valueOf(ProcessHandle.current().pid());
+            }
+        }
+        long derived = (hostname.hashCode() & 0x7fffffffL) % (MAX_NODE_ID + 1);
+        log.warn("未配置id.generator.node-id，根据主机名 {} 推导节点ID: {}", hostname, derived);
+        return derived;
+    }
+}
@@ -0,0 +1,16 @@
+package com.kevinbank.accountbalancecalculation.id;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+/**
+ * Hibernate主键生成器，委托给全局的{@link SnowflakeIdGenerator}。
+ * 主键在插入前即已确定，Hibernate可以把多条INSERT合并为一个JDBC批次。
+ */
+public class SnowflakeIdentifierGenerator implements IdentifierGenerator {
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        return SnowflakeIdGenerator.getInstance().nextId();
+    }
+}
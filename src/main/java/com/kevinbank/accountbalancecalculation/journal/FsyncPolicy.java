@@ -0,0 +1,21 @@
+package com.kevinbank.accountbalancecalculation.journal;
+
+/**
+ * 交易日志的刷盘策略
+ */
+public enum FsyncPolicy {
+    /**
+     * 每次追加后立即刷盘，最安全，延迟最高
+     */
+    ALWAYS,
+
+    /**
+     * 由刷盘线程按固定间隔刷盘，追加方等待所在批次刷盘完成后才返回，多笔交易共享一次fsync
+     */
+    BATCH,
+
+    /**
+     * 不主动刷盘，依赖操作系统回写；进程崩溃不丢数据，但机器掉电可能丢失最近的记录
+     */
+    NONE
+}
@@ -0,0 +1,180 @@
+package com.kevinbank.accountbalancecalculation.journal;
+
+import com.kevinbank.accountbalancecalculation.id.SnowflakeIdGenerator;
+import com.kevinbank.accountbalancecalculation.model.Transaction;
+import com.kevinbank.accountbalancecalculation.repository.JournalCheckpointRepository;
+import com.kevinbank.accountbalancecalculation.service.impl.TransactionBatchWriter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 交易日志持久化线程。
+ * 从已持久化序号开始读取已刷盘的日志记录，每批在一个数据库事务中完成：批量插入交易记录、按账户合并后批量更新余额、推进检查点。
+ * 检查点与数据在同一事务中提交，因此崩溃后从检查点重放不会重复入账。
+ * 启动时先同步追平日志中尚未持久化的记录，再对外提供服务，保证分片余额引擎从数据库加载到的是最新余额。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "transaction.journal.enabled", havingValue = "true")
+public class JournalPersister {
+
+    @Autowired
+    private TransactionJournal transactionJournal;
+
+    @Autowired
+    private TransactionBatchWriter transactionBatchWriter;
+
+    @Autowired
+    private JournalCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private SnowflakeIdGenerator snowflakeIdGenerator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 每批写入数据库的最大记录数
+     */
+    @Value("${transaction.journal.persist-batch-size:1000}")
+    private int persistBatchSize;
+
+    /**
+     * 没有新记录时的轮询间隔（毫秒）
+     */
+    @Value("${transaction.journal.persist-interval-ms:20}")
+    private long persistIntervalMs;
+
+    /**
+     * 持久化失败后的重试间隔（毫秒）
+     */
+    @Value("${transaction.journal.persist-retry-interval-ms:1000}")
+    private long persistRetryIntervalMs;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Thread persister;
+
+    private volatile boolean running;
+
+    /**
+     * 追平尚未持久化的日志记录，然后启动后台持久化线程
+     */
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        Gauge.builder("transaction.journal.backlog", transactionJournal,
+                        journal -> journal.getDurableOffset() - journal.getPersistedOffset())
+                .description("Journaled transactions not yet persisted to the database")
+                .register(meterRegistry);
+
+        long recovered = 0;
+        int persisted;
+        while ((persisted = persistNextBatch()) > 0) {
+            recovered += persisted;
+        }
+        if (recovered > 0) {
+            log.info("启动时已回放 {} 条交易日志记录到数据库", recovered);
+        }
+
+        running = true;
+        persister = new Thread(this::persistLoop, "transaction-journal-persister");
+        persister.start();
+    }
+
+    /**
+     * 停止后台线程，并把剩余的日志记录全部写入数据库
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(persister);
+        try {
+            persister.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            while (persistNextBatch() > 0) {
+                // 继续写入直到追平
+            }
+        } catch (Exception e) {
+            log.error("停止时持久化交易日志失败，剩余记录将在下次启动时回放: {}", e.getMessage(), e);
+        }
+    }
+
+    private void persistLoop() {
+        while (running) {
+            try {
+                if (persistNextBatch() == 0) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(persistIntervalMs));
+                }
+            } catch (Exception e) {
+                log.error("持久化交易日志失败，{} 毫秒后重试: {}", persistRetryIntervalMs, e.getMessage(), e);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(persistRetryIntervalMs));
+            }
+        }
+    }
+
+    /**
+     * 把下一批日志记录写入数据库
+     *
+     * @return 本批写入的记录数
+     */
+    private int persistNextBatch() {
+        long from = transactionJournal.getPersistedOffset();
+        List<Transaction> batch = transactionJournal.read(from, persistBatchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, Long> netDeltas = new LinkedHashMap<>();
+        for (Transaction transaction : batch) {
+            long cents = transaction.getAmount().getCents();
+            switch (transaction.getType()) {
+                case TRANSFER:
+                    netDeltas.merge(transaction.getSourceAccountId(), -cents, Long::sum);
+                    netDeltas.merge(transaction.getTargetAccountId(), cents, Long::sum);
+                    break;
+                case DEPOSIT:
+                    netDeltas.merge(transaction.getTargetAccountId(), cents, Long::sum);
+                    break;
+                case WITHDRAW:
+                    netDeltas.merge(transaction.getSourceAccountId(), -cents, Long::sum);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        long next = from + batch.size();
+        transactionTemplate.executeWithoutResult(status -> {
+            transactionBatchWriter.insertTransactions(batch);
+            transactionBatchWriter.applyNetDeltas(netDeltas);
+            if (checkpointRepository.advance(snowflakeIdGenerator.getNodeId(), next) == 0) {
+                throw new RuntimeException("交易日志检查点已被其他实例推进，停止持久化");
+            }
+        });
+        transactionJournal.markPersisted(next);
+        log.debug("已持久化交易日志记录 [{}, {})，涉及账户: {}", from, next, netDeltas.size());
+        return batch.size();
+    }
+}
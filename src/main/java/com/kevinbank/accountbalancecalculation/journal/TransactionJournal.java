@@ -0,0 +1,540 @@
+package com.kevinbank.accountbalancecalculation.journal;
+
+import com.kevinbank.accountbalancecalculation.model.Money;
+import com.kevinbank.accountbalancecalculation.model.Transaction;
+import com.kevinbank.accountbalancecalculation.model.TransactionType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * 基于内存映射文件的交易日志（预写日志）。
+ * 日志由若干固定大小的分段文件组成，文件名为该分段第一条记录的全局序号，记录只追加不修改。
+ * 每条记录占用固定的{@value #RECORD_SIZE}字节，带CRC32C校验，启动时从最后一个分段中扫描出第一条无效记录作为写入位置，
+ * 进程崩溃时写了一半的记录会被丢弃。
+ *
+ * 记录布局（字节偏移）：
+ * 0 魔数，4 CRC32C（覆盖8~255字节），8 交易ID，16 源账户ID（0表示空），24 目标账户ID（0表示空），
+ * 32 金额（分），40 交易时间秒数（UTC），48 交易时间纳秒，52 交易类型序号，53 描述字节数（-1表示空），55 描述（UTF-8），
+ * 240 交易后源账户余额（分），248 交易后目标账户余额（分），余额为Long.MIN_VALUE表示空。
+ * 旧版本魔数的记录没有交易后余额，描述最长可到255字节，仍然可以读取。
+ *
+ * 日志使用三个序号：已写入（writtenOffset）、已刷盘（durableOffset）和已持久化到数据库（persistedOffset），
+ * 持久化序号之前的分段可以删除。
+ */
+@Slf4j
+public class TransactionJournal implements AutoCloseable {
+
+    /**
+     * 每条记录的固定字节数
+     */
+    public static final int RECORD_SIZE = 256;
+
+    /**
+     * 描述字段最多保存的UTF-8字节数，超出部分在字符边界处截断
+     */
+    public static final int DESCRIPTION_MAX_BYTES = RECORD_SIZE - 16 - 55;
+
+    private static final int MAGIC = 0x4B424A32;
+    private static final int LEGACY_MAGIC = 0x4B424A31;
+    private static final int SOURCE_BALANCE_AFTER_OFFSET = RECORD_SIZE - 16;
+    private static final int TARGET_BALANCE_AFTER_OFFSET = RECORD_SIZE - 8;
+    private static final long NULL_BALANCE = Long.MIN_VALUE;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("journal-(\\d{20})\\.log");
+    private static final long DURABLE_WAIT_TIMEOUT_MS = 5000;
+
+    private final Path directory;
+    private final long recordsPerSegment;
+    private final FsyncPolicy fsyncPolicy;
+
+    /**
+     * 分段起始序号到分段的映射
+     */
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock durableLock = new ReentrantLock();
+    private final Condition durableAdvanced = durableLock.newCondition();
+
+    /**
+     * 追加时复用的编码缓冲区，只在持有appendLock时使用
+     */
+    private final ByteBuffer encodeBuffer = ByteBuffer.allocate(RECORD_SIZE);
+    private final CRC32C encodeCrc = new CRC32C();
+
+    private volatile long writtenOffset;
+    private volatile long durableOffset;
+    private volatile long persistedOffset;
+    private volatile boolean closed;
+
+    private final Thread flusher;
+
+    /**
+     * 打开或创建交易日志并恢复写入位置
+     *
+     * @param directory 日志目录
+     * @param segmentBytes 每个分段文件的字节数，会向下取整为记录大小的整数倍，最大不超过2GB
+     * @param fsyncPolicy 刷盘策略
+     * @param persistedOffset 已持久化到数据库的序号，日志目录为空时从该序号开始写入
+     * @throws RuntimeException 如果日志目录无法创建或分段文件无法映射
+     */
+    public TransactionJournal(Path directory, long segmentBytes, FsyncPolicy fsyncPolicy, long persistedOffset) {
+        this.directory = directory;
+        this.recordsPerSegment = Math.max(1, Math.min(segmentBytes, Integer.MAX_VALUE) / RECORD_SIZE);
+        this.fsyncPolicy = fsyncPolicy;
+        this.persistedOffset = persistedOffset;
+        try {
+            Files.createDirectories(directory);
+            recover(persistedOffset);
+        } catch (IOException e) {
+            closeSegments();
+            throw new RuntimeException("打开交易日志失败: " + e.getMessage(), e);
+        }
+        this.durableOffset = writtenOffset;
+
+        if (fsyncPolicy == FsyncPolicy.BATCH) {
+            flusher = new Thread(this::flushLoop, "transaction-journal-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        } else {
+            flusher = null;
+        }
+        log.info("交易日志已打开 - 目录: {}, 分段数: {}, 写入序号: {}, 已持久化序号: {}, 刷盘策略: {}",
+                directory, segments.size(), writtenOffset, persistedOffset, fsyncPolicy);
+    }
+
+    /**
+     * 追加一条交易记录。返回时记录已写入映射内存，进程崩溃不会丢失，但不一定已刷盘。
+     * 该方法抛出异常时记录一定没有写入。
+     *
+     * @param transaction 已分配ID的交易
+     * @return 记录的全局序号
+     * @throws RuntimeException 如果日志已关闭或分段文件无法创建
+     */
+    public long write(Transaction transaction) {
+        appendLock.lock();
+        try {
+            if (closed) {
+                throw new RuntimeException("交易日志已关闭");
+            }
+            long offset = writtenOffset;
+            Segment segment = segmentForWrite(offset);
+            encode(transaction);
+            segment.buffer.put(segment.position(offset), encodeBuffer.array(), 0, RECORD_SIZE);
+            writtenOffset = offset + 1;
+
+            if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                segment.buffer.force(segment.position(offset), RECORD_SIZE);
+                publishDurable(writtenOffset);
+            } else if (fsyncPolicy == FsyncPolicy.NONE) {
+                publishDurable(writtenOffset);
+            }
+            return offset;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * 等待指定序号的记录刷盘
+     *
+     * @param offset 记录序号
+     * @throws RuntimeException 如果等待超时或被中断
+     */
+    public void awaitDurable(long offset) {
+        if (durableOffset > offset) {
+            return;
+        }
+        LockSupport.unpark(flusher);
+        long remaining = TimeUnit.MILLISECONDS.toNanos(DURABLE_WAIT_TIMEOUT_MS);
+        durableLock.lock();
+        try {
+            while (durableOffset <= offset) {
+                if (remaining <= 0) {
+                    throw new RuntimeException("交易日志刷盘超时");
+                }
+                remaining = durableAdvanced.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待交易日志刷盘被中断");
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    /**
+     * 追加一条交易记录并按刷盘策略等待其落盘
+     *
+     * @param transaction 已分配ID的交易
+     * @return 记录的全局序号
+     */
+    public long append(Transaction transaction) {
+        long offset = write(transaction);
+        awaitDurable(offset);
+        return offset;
+    }
+
+    /**
+     * 从指定序号开始读取已刷盘的记录
+     *
+     * @param fromOffset 起始序号
+     * @param maxRecords 最多读取的记录数
+     * @return 按序号排列的交易，数量可能少于maxRecords
+     * @throws RuntimeException 如果记录校验失败
+     */
+    public List<Transaction> read(long fromOffset, int maxRecords) {
+        long end = Math.min(durableOffset, fromOffset + maxRecords);
+        List<Transaction> transactions = new ArrayList<>((int) Math.max(0, end - fromOffset));
+        byte[] record = new byte[RECORD_SIZE];
+        CRC32C crc = new CRC32C();
+        for (long offset = fromOffset; offset < end; offset++) {
+            Map.Entry<Long, Segment> entry = segments.floorEntry(offset);
+            if (entry == null || !entry.getValue().contains(offset)) {
+                throw new RuntimeException("交易日志记录不存在: " + offset);
+            }
+            Segment segment = entry.getValue();
+            segment.buffer.get(segment.position(offset), record, 0, RECORD_SIZE);
+            Transaction transaction = decode(record, crc);
+            if (transaction == null) {
+                throw new RuntimeException("交易日志记录损坏: " + offset);
+            }
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+
+    /**
+     * 记录已持久化到数据库的序号，并删除已完全持久化的分段
+     *
+     * @param offset 下一条待持久化记录的序号
+     */
+    public void markPersisted(long offset) {
+        persistedOffset = offset;
+        for (Map.Entry<Long, Segment> entry : segments.entrySet()) {
+            Segment segment = entry.getValue();
+            if (segment.endOffset() > offset) {
+                break;
+            }
+            if (segments.remove(entry.getKey(), segment)) {
+                segment.close();
+                try {
+                    Files.deleteIfExists(segment.path);
+                    log.debug("已删除完全持久化的交易日志分段: {}", segment.path);
+                } catch (IOException e) {
+                    log.warn("删除交易日志分段失败: {}, error={}", segment.path, e.getMessage());
+                }
+            }
+        }
+    }
+
+    public long getWrittenOffset() {
+        return writtenOffset;
+    }
+
+    public long getDurableOffset() {
+        return durableOffset;
+    }
+
+    public long getPersistedOffset() {
+        return persistedOffset;
+    }
+
+    /**
+     * 刷盘并关闭全部分段
+     */
+    @Override
+    public void close() {
+        appendLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            appendLock.unlock();
+        }
+        if (flusher != null) {
+            LockSupport.unpark(flusher);
+            try {
+                flusher.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Segment segment : segments.values()) {
+            segment.buffer.force();
+        }
+        publishDurable(writtenOffset);
+        closeSegments();
+        log.info("交易日志已关闭 - 写入序号: {}, 已持久化序号: {}", writtenOffset, persistedOffset);
+    }
+
+    /**
+     * 映射已有分段，并从最后一个分段中找出第一条无效记录作为写入位置
+     */
+    private void recover(long startOffset) throws IOException {
+        List<Long> starts = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(path -> {
+                Matcher matcher = SEGMENT_NAME.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    starts.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        }
+        starts.sort(Long::compare);
+
+        for (Long start : starts) {
+            Path path = segmentPath(start);
+            long records = Math.max(1, Files.size(path) / RECORD_SIZE);
+            segments.put(start, new Segment(path, start, records));
+        }
+
+        if (segments.isEmpty()) {
+            writtenOffset = startOffset;
+            return;
+        }
+
+        Segment last = segments.lastEntry().getValue();
+        byte[] record = new byte[RECORD_SIZE];
+        CRC32C crc = new CRC32C();
+        long offset = Math.max(last.startOffset, Math.min(startOffset, last.endOffset()));
+        while (offset < last.endOffset()) {
+            last.buffer.get(last.position(offset), record, 0, RECORD_SIZE);
+            if (decode(record, crc) == null) {
+                break;
+            }
+            offset++;
+        }
+        writtenOffset = offset;
+        if (offset < last.endOffset()) {
+            // 清掉写入位置上可能残留的半条记录，避免与后续追加的记录混在一起
+            last.buffer.put(last.position(offset), new byte[RECORD_SIZE], 0, RECORD_SIZE);
+        }
+    }
+
+    private Segment segmentForWrite(long offset) {
+        Map.Entry<Long, Segment> entry = segments.lastEntry();
+        if (entry != null && entry.getValue().contains(offset)) {
+            return entry.getValue();
+        }
+        try {
+            Segment segment = new Segment(segmentPath(offset), offset, recordsPerSegment);
+            segments.put(offset, segment);
+            log.info("创建交易日志分段: {}", segment.path);
+            return segment;
+        } catch (IOException e) {
+            throw new RuntimeException("创建交易日志分段失败: " + e.getMessage(), e);
+        }
+    }
+
+    private Path segmentPath(long startOffset) {
+        return directory.resolve(String.format("journal-%020d.log", startOffset));
+    }
+
+    /**
+     * 刷盘线程：有新写入时立即刷盘，刷盘期间到达的记录在下一轮一起刷盘
+     */
+    private void flushLoop() {
+        while (!closed) {
+            long target = writtenOffset;
+            if (target <= durableOffset) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                continue;
+            }
+            try {
+                long from = durableOffset;
+                for (Segment segment : segments.values()) {
+                    if (segment.endOffset() > from && segment.startOffset < target) {
+                        segment.buffer.force();
+                    }
+                }
+                publishDurable(target);
+            } catch (Exception e) {
+                log.error("交易日志刷盘失败: {}", e.getMessage(), e);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+            }
+        }
+    }
+
+    private void publishDurable(long offset) {
+        durableLock.lock();
+        try {
+            if (offset > durableOffset) {
+                durableOffset = offset;
+                durableAdvanced.signalAll();
+            }
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    private void encode(Transaction transaction) {
+        ByteBuffer buffer = encodeBuffer;
+        Arrays.fill(buffer.array(), (byte) 0);
+
+        Instant time = transaction.getTransactionTime().atZone(ZoneId.systemDefault()).toInstant();
+        byte[] description = truncate(transaction.getDescription());
+
+        buffer.putInt(0, MAGIC);
+        buffer.putLong(8, transaction.getId());
+        buffer.putLong(16, transaction.getSourceAccountId() != null ? transaction.getSourceAccountId() : 0L);
+        buffer.putLong(24, transaction.getTargetAccountId() != null ? transaction.getTargetAccountId() : 0L);
+        buffer.putLong(32, transaction.getAmount().getCents());
+        buffer.putLong(40, time.getEpochSecond());
+        buffer.putInt(48, time.getNano());
+        buffer.put(52, (byte) transaction.getType().ordinal());
+        buffer.putShort(53, (short) (description != null ? description.length : -1));
+        if (description != null) {
+            buffer.put(55, description);
+        }
+        buffer.putLong(SOURCE_BALANCE_AFTER_OFFSET, centsOf(transaction.getSourceBalanceAfter()));
+        buffer.putLong(TARGET_BALANCE_AFTER_OFFSET, centsOf(transaction.getTargetBalanceAfter()));
+
+        encodeCrc.reset();
+        encodeCrc.update(buffer.array(), 8, RECORD_SIZE - 8);
+        buffer.putInt(4, (int) encodeCrc.getValue());
+    }
+
+    /**
+     * 解码一条记录
+     *
+     * @return 交易；如果魔数或校验和不匹配则返回null
+     */
+    private static Transaction decode(byte[] record, CRC32C crc) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        int magic = buffer.getInt(0);
+        if (magic != MAGIC && magic != LEGACY_MAGIC) {
+            return null;
+        }
+        crc.reset();
+        crc.update(record, 8, RECORD_SIZE - 8);
+        if ((int) crc.getValue() != buffer.getInt(4)) {
+            return null;
+        }
+
+        int type = buffer.get(52);
+        if (type < 0 || type >= TransactionType.values().length) {
+            return null;
+        }
+
+        Transaction transaction = new Transaction();
+        transaction.setId(buffer.getLong(8));
+        long source = buffer.getLong(16);
+        long target = buffer.getLong(24);
+        transaction.setSourceAccountId(source != 0L ? source : null);
+        transaction.setTargetAccountId(target != 0L ? target : null);
+        transaction.setAmount(Money.ofCents(buffer.getLong(32)));
+        transaction.setTransactionTime(LocalDateTime.ofInstant(
+                Instant.ofEpochSecond(buffer.getLong(40), buffer.getInt(48)), ZoneId.systemDefault()));
+        transaction.setType(TransactionType.values()[type]);
+        short descriptionLength = buffer.getShort(53);
+        if (descriptionLength >= 0) {
+            transaction.setDescription(new String(record, 55, descriptionLength, StandardCharsets.UTF_8));
+        }
+        if (magic == MAGIC) {
+            transaction.setSourceBalanceAfter(moneyOf(buffer.getLong(SOURCE_BALANCE_AFTER_OFFSET)));
+            transaction.setTargetBalanceAfter(moneyOf(buffer.getLong(TARGET_BALANCE_AFTER_OFFSET)));
+        }
+        return transaction;
+    }
+
+    private static long centsOf(Money balance) {
+        return balance != null ? balance.getCents() : NULL_BALANCE;
+    }
+
+    private static Money moneyOf(long cents) {
+        return cents != NULL_BALANCE ? Money.ofCents(cents) : null;
+    }
+
+    /**
+     * 把描述编码为UTF-8，超出长度时在字符边界处截断
+     */
+    private static byte[] truncate(String description) {
+        if (description == null) {
+            return null;
+        }
+        byte[] bytes = description.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= DESCRIPTION_MAX_BYTES) {
+            return bytes;
+        }
+        int length = DESCRIPTION_MAX_BYTES;
+        while (length > 0 && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        log.warn("交易描述超过{}字节，写入日志时被截断", DESCRIPTION_MAX_BYTES);
+        byte[] truncated = new byte[length];
+        System.arraycopy(bytes, 0, truncated, 0, length);
+        return truncated;
+    }
+
+    private void closeSegments() {
+        for (Segment segment : segments.values()) {
+            segment.close();
+        }
+    }
+
+    /**
+     * 一个内存映射的日志分段文件
+     */
+    private static final class Segment {
+        private final Path path;
+        private final long startOffset;
+        private final long records;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+
+        private Segment(Path path, long startOffset, long records) throws IOException {
+            this.path = path;
+            this.startOffset = startOffset;
+            this.records = records;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, records * RECORD_SIZE);
+        }
+
+        private boolean contains(long offset) {
+            return offset >= startOffset && offset < endOffset();
+        }
+
+        private long endOffset() {
+            return startOffset + records;
+        }
+
+        private int position(long offset) {
+            return (int) ((offset - startOffset) * RECORD_SIZE);
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("关闭交易日志分段失败: {}, error={}", path, e.getMessage());
+            }
+        }
+    }
+}
@@ -6,9 +6,12 @@ package com.kevinbank.accountbalancecalculation.mapper;
 
 import com.kevinbank.accountbalancecalculation.model.Transaction;
 import com.kevinbank.accountbalancecalculation.model.CreateTransactionRequest;
+import com.kevinbank.accountbalancecalculation.model.Money;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
+import java.math.BigDecimal;
+
 /**
  * 定义一个MapStruct映射器接口，用于将CreateTransactionRequest对象转换为Transaction对象
  * 该映射器被配置为使用Spring组件模型，这样它就可以作为Spring应用中的一个Bean自动被管理
@@ -21,12 +24,25 @@ public interface TransactionMapper {
      * 此方法定义了两个特定的映射规则：
      * 1. 忽略Transaction对象的"id"字段，因为该值将在数据库中自动生成
      * 2. 设置"transactionTime"字段为当前系统时间，因为交易时间应为处理请求时的时间
+     * 3. 忽略交易后余额，它们在余额更新时才能确定
      *
      * @param request 创建交易的请求对象，包含交易的相关信息
      * @return 返回一个根据CreateTransactionRequest对象生成的Transaction对象
      */
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "transactionTime", expression = "java(java.time.LocalDateTime.now())")
+    @Mapping(target = "sourceBalanceAfter", ignore = true)
+    @Mapping(target = "targetBalanceAfter", ignore = true)
     Transaction toTransaction(CreateTransactionRequest request);
 
+    /**
+     * 将请求中的十进制金额转换为Money
+     *
+     * @param amount 十进制金额
+     * @return Money对象，金额为空时返回null
+     */
+    default Money toMoney(BigDecimal amount) {
+        return amount == null ? null : Money.of(amount);
+    }
+
 }
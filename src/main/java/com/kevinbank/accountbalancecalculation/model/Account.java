@@ -1,8 +1,8 @@
 package com.kevinbank.accountbalancecalculation.model;
 
+import com.kevinbank.accountbalancecalculation.id.SnowflakeId;
 import jakarta.persistence.*;
 import lombok.Data;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
@@ -17,10 +17,10 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 @JsonSerialize
 public class Account {
     /**
-     * 主键，唯一标识一个账户记录。
+     * 主键，唯一标识一个账户记录，由Snowflake生成器在插入前分配。
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     @JsonSerialize
     private Long id;
 
@@ -41,16 +41,40 @@ public class Account {
     /**
      * 账户余额，默认为0。
      */
-    @Column(name = "balance", precision = 10, scale = 2, nullable = false)
+    @Column(name = "balance", precision = 19, scale = 2, nullable = false)
     @JsonSerialize
-    private BigDecimal balance = BigDecimal.ZERO;
+    private Money balance = Money.ZERO;
 
     /**
      * 信用额度，默认为0。
      */
-    @Column(name = "credit_limit", nullable = false)
+    @Column(name = "credit_limit", precision = 19, scale = 2, nullable = false)
     @JsonSerialize
-    private BigDecimal creditLimit = BigDecimal.ZERO;
+    private Money creditLimit = Money.ZERO;
+
+    /**
+     * 开户余额，创建账户时的初始余额，之后不再修改。
+     * 对账时账户余额应等于开户余额加上全部交易的净额；为空表示开户早于该字段，尚未设置对账基线。
+     */
+    @Column(name = "opening_balance", precision = 19, scale = 2, updatable = false)
+    @JsonSerialize
+    private Money openingBalance;
+
+    /**
+     * 热点账户的子余额槽数量，0表示普通账户。
+     * 大于0时入账分散写入account_sub_balances表中的各个槽位，账户余额为主余额与各槽位余额之和。
+     */
+    @Column(name = "sub_balance_slots", nullable = false)
+    @JsonSerialize
+    private int subBalanceSlots = 0;
+
+    /**
+     * 乐观锁版本号，每次修改余额或账户信息时加1。
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    @JsonSerialize
+    private Long version;
 
     /**
      * 账户创建时间。
@@ -60,11 +84,14 @@ public class Account {
     private LocalDateTime createdAt;
 
     /**
-     * 在持久化实体之前自动设置创建时间。
+     * 在持久化实体之前自动设置创建时间和开户余额。
      * 这个方法由 JPA 调用，用于在实体被持久化到数据库之前设置创建时间。
      */
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
+        if (openingBalance == null) {
+            openingBalance = balance;
+        }
     }
 }
@@ -0,0 +1,50 @@
+package com.kevinbank.accountbalancecalculation.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 热点账户的子余额槽位。
+ * 入账按槽位分散写入，不同槽位位于不同的行，并发入账不再争用accounts表中的同一行锁。
+ * 槽位余额只会增加，出账前由合并步骤把各槽位余额转入主余额。
+ */
+@Data
+@Entity
+@Table(name = "account_sub_balances")
+@IdClass(AccountSubBalance.Key.class)
+public class AccountSubBalance {
+    /**
+     * 所属账户ID。
+     */
+    @Id
+    @Column(name = "account_id")
+    private Long accountId;
+
+    /**
+     * 槽位序号，从0开始。
+     */
+    @Id
+    @Column(name = "slot")
+    private Integer slot;
+
+    /**
+     * 槽位余额。
+     */
+    @Column(name = "balance", precision = 19, scale = 2, nullable = false)
+    private Money balance = Money.ZERO;
+
+    /**
+     * 子余额槽位的联合主键
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long accountId;
+        private Integer slot;
+    }
+}
@@ -0,0 +1,39 @@
+package com.kevinbank.accountbalancecalculation.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 账户在某一时间点的余额
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BalanceAsOf {
+    /**
+     * 账户ID
+     */
+    private Long accountId;
+
+    /**
+     * 查询的时间点，余额包含交易时间不晚于该时间的全部交易
+     */
+    private LocalDateTime asOf;
+
+    /**
+     * 该时间点的余额
+     */
+    @JsonSerialize
+    private Money balance;
+
+    /**
+     * 计算时使用的余额检查点时间；没有可用检查点时为空
+     */
+    private LocalDateTime checkpointTime;
+}
@@ -0,0 +1,57 @@
+package com.kevinbank.accountbalancecalculation.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 账户余额检查点。
+ * 每天零点由后台任务为每个账户记录一行，余额包含交易时间早于检查点时间的全部交易；
+ * 查询任意时间点的余额时，从最近的检查点出发只需要累加不超过一天的交易。
+ */
+@Data
+@Entity
+@Table(name = "balance_checkpoints")
+@IdClass(BalanceCheckpoint.Key.class)
+public class BalanceCheckpoint {
+    /**
+     * 账户ID。
+     */
+    @Id
+    @Column(name = "account_id")
+    private Long accountId;
+
+    /**
+     * 检查点时间，即每天零点。
+     */
+    @Id
+    @Column(name = "checkpoint_time")
+    private LocalDateTime checkpointTime;
+
+    /**
+     * 检查点时间之前的余额，包含热点账户的子余额。
+     */
+    @Column(name = "balance", precision = 19, scale = 2, nullable = false)
+    private Money balance;
+
+    /**
+     * 记录生成时间。
+     */
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    /**
+     * 余额检查点的联合主键
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long accountId;
+        private LocalDateTime checkpointTime;
+    }
+}
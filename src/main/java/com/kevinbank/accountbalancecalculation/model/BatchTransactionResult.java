@@ -0,0 +1,44 @@
+package com.kevinbank.accountbalancecalculation.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量交易中单笔请求的处理结果
+ * 成功时包含交易记录，失败时包含失败原因，index与请求数组中的位置一一对应
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchTransactionResult {
+    /**
+     * 请求在批量数组中的位置，从0开始
+     */
+    private int index;
+
+    /**
+     * 是否处理成功
+     */
+    private boolean success;
+
+    /**
+     * 成功时创建的交易记录
+     */
+    private Transaction transaction;
+
+    /**
+     * 失败原因
+     */
+    private String error;
+
+    public static BatchTransactionResult succeeded(int index, Transaction transaction) {
+        return new BatchTransactionResult(index, true, transaction, null);
+    }
+
+    public static BatchTransactionResult failed(int index, String error) {
+        return new BatchTransactionResult(index, false, null, error);
+    }
+}
@@ -1,5 +1,7 @@
 package com.kevinbank.accountbalancecalculation.model;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import lombok.Data;
@@ -38,4 +40,12 @@ public class CreateAccountRequest {
      * 可以为空，因为在创建账户时可能不需要立即设定余额
      */
     private BigDecimal balance;
+
+    /**
+     * 热点账户的子余额槽数量，用于入账非常集中的结算账户、商户收款账户
+     * 可以为空，为空或0表示普通账户
+     */
+    @Min(value = 0, message = "子余额槽数量不能小于0")
+    @Max(value = 64, message = "子余额槽数量不能大于64")
+    private Integer subBalanceSlots;
 }
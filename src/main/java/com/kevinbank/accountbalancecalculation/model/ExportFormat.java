@@ -0,0 +1,33 @@
+package com.kevinbank.accountbalancecalculation.model;
+
+/**
+ * 交易导出的文件格式
+ */
+public enum ExportFormat {
+    /**
+     * 每行一个JSON对象
+     */
+    NDJSON("application/x-ndjson", "ndjson"),
+
+    /**
+     * 带表头的CSV，字段按RFC 4180转义
+     */
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
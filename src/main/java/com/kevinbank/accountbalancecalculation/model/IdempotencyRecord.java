@@ -0,0 +1,53 @@
+package com.kevinbank.accountbalancecalculation.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 幂等记录，保存幂等键对应的请求摘要和首次处理的响应。
+ * 记录与交易在同一个数据库事务中写入，交易提交则记录一定存在，交易回滚则记录一并消失，客户端可以用同一个键重试。
+ */
+@Data
+@Entity
+@Table(name = "idempotency_records")
+public class IdempotencyRecord {
+    /**
+     * 幂等键，由接口范围和客户端传入的Idempotency-Key组成。
+     */
+    @Id
+    @Column(name = "idempotency_key", length = 160)
+    private String idempotencyKey;
+
+    /**
+     * 请求内容的SHA-256摘要，用于识别同一个键被用于不同的请求。
+     */
+    @Column(name = "request_hash", length = 64, nullable = false)
+    private String requestHash;
+
+    /**
+     * 首次处理产生的交易ID，响应不是交易记录时为空。
+     */
+    @Column(name = "transaction_id")
+    private Long transactionId;
+
+    /**
+     * 首次处理的响应内容（JSON）。
+     */
+    @Lob
+    @Column(name = "response_body", columnDefinition = "TEXT")
+    private String responseBody;
+
+    /**
+     * 记录创建时间。
+     */
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * 记录过期时间，过期后同一个键会被当作新请求处理。
+     */
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,33 @@
+package com.kevinbank.accountbalancecalculation.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 交易日志持久化检查点，记录每个节点的交易日志已经写入数据库的位置。
+ * 检查点与交易记录、余额变动在同一个数据库事务中更新，重启后从该位置继续回放，不会重复入账。
+ */
+@Data
+@Entity
+@Table(name = "journal_checkpoints")
+public class JournalCheckpoint {
+    /**
+     * 节点ID，与ID生成器的节点ID一致。
+     */
+    @Id
+    @Column(name = "node_id")
+    private Long nodeId;
+
+    /**
+     * 下一条待持久化记录的序号。
+     */
+    @Column(name = "persisted_offset", nullable = false)
+    private Long persistedOffset;
+
+    /**
+     * 最后更新时间。
+     */
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,174 @@
+package com.kevinbank.accountbalancecalculation.model;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 金额值类型，内部以long保存以分为单位的定点数。
+ * 余额计算、额度校验和缓存都使用该类型，避免BigDecimal运算中的大量对象分配；
+ * 所有运算都做溢出检查，对外API和数据库列仍然使用两位小数的十进制表示。
+ */
+public final class Money implements Comparable<Money>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 金额的小数位数，与数据库DECIMAL(19,2)列一致
+     */
+    public static final int SCALE = 2;
+
+    /**
+     * 零金额
+     */
+    public static final Money ZERO = new Money(0L);
+
+    /**
+     * 以分为单位的金额
+     */
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    /**
+     * 根据以分为单位的数值创建金额
+     *
+     * @param cents 以分为单位的金额
+     * @return 金额对象
+     */
+    public static Money ofCents(long cents) {
+        return cents == 0L ? ZERO : new Money(cents);
+    }
+
+    /**
+     * 根据十进制金额创建金额对象
+     *
+     * @param amount 十进制金额，最多两位小数
+     * @return 金额对象
+     * @throws RuntimeException 如果金额为空、小数位超过两位或超出long的表示范围
+     */
+    public static Money of(BigDecimal amount) {
+        if (amount == null) {
+            throw new RuntimeException("金额不能为空");
+        }
+        try {
+            return ofCents(amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact());
+        } catch (ArithmeticException e) {
+            throw new RuntimeException("金额格式不正确，最多保留两位小数: " + amount);
+        }
+    }
+
+    /**
+     * 根据十进制金额创建金额对象，金额为空时返回零
+     *
+     * @param amount 十进制金额，可以为空
+     * @return 金额对象
+     */
+    public static Money ofNullable(BigDecimal amount) {
+        return amount == null ? ZERO : of(amount);
+    }
+
+    /**
+     * 带溢出检查的分值加法
+     *
+     * @param a 以分为单位的金额
+     * @param b 以分为单位的金额
+     * @return 两者之和
+     * @throws RuntimeException 如果结果超出long的表示范围
+     */
+    public static long addCents(long a, long b) {
+        try {
+            return Math.addExact(a, b);
+        } catch (ArithmeticException e) {
+            throw new RuntimeException("金额计算溢出");
+        }
+    }
+
+    /**
+     * 带溢出检查的分值取反
+     *
+     * @param a 以分为单位的金额
+     * @return 取反后的金额
+     * @throws RuntimeException 如果结果超出long的表示范围
+     */
+    public static long negateCents(long a) {
+        try {
+            return Math.negateExact(a);
+        } catch (ArithmeticException e) {
+            throw new RuntimeException("金额计算溢出");
+        }
+    }
+
+    /**
+     * @return 以分为单位的金额
+     */
+    public long getCents() {
+        return cents;
+    }
+
+    /**
+     * @param other 另一个金额
+     * @return 两个金额之和
+     */
+    public Money add(Money other) {
+        return ofCents(addCents(cents, other.cents));
+    }
+
+    /**
+     * @param other 另一个金额
+     * @return 两个金额之差
+     */
+    public Money subtract(Money other) {
+        return ofCents(addCents(cents, negateCents(other.cents)));
+    }
+
+    /**
+     * @return 取反后的金额
+     */
+    public Money negate() {
+        return ofCents(negateCents(cents));
+    }
+
+    /**
+     * @return 如果金额大于0则返回true
+     */
+    public boolean isPositive() {
+        return cents > 0L;
+    }
+
+    /**
+     * @return 如果金额小于0则返回true
+     */
+    public boolean isNegative() {
+        return cents < 0L;
+    }
+
+    /**
+     * @return 两位小数的十进制金额
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof Money other && cents == other.cents);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
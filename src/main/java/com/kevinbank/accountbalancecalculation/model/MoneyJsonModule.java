@@ -0,0 +1,78 @@
+package com.kevinbank.accountbalancecalculation.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Money的Jackson序列化模块。
+ * 对外API使用两位小数的十进制数字，保持原有的接口约定；
+ * Redis缓存使用以分为单位的整数，序列化时不经过BigDecimal，负载也更小。
+ */
+public class MoneyJsonModule extends SimpleModule {
+
+    private MoneyJsonModule(String name, JsonSerializer<Money> serializer, JsonDeserializer<Money> deserializer) {
+        super(name);
+        addSerializer(Money.class, serializer);
+        addDeserializer(Money.class, deserializer);
+    }
+
+    /**
+     * @return 以十进制数字读写金额的模块，用于REST接口
+     */
+    public static MoneyJsonModule decimal() {
+        return new MoneyJsonModule("MoneyDecimalModule", new DecimalSerializer(), new DecimalDeserializer());
+    }
+
+    /**
+     * @return 以分为单位的整数读写金额的模块，用于Redis缓存
+     */
+    public static MoneyJsonModule minorUnits() {
+        return new MoneyJsonModule("MoneyMinorUnitsModule", new MinorUnitsSerializer(), new MinorUnitsDeserializer());
+    }
+
+    private static class DecimalSerializer extends JsonSerializer<Money> {
+        @Override
+        public void serialize(Money value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeNumber(value.toBigDecimal());
+        }
+    }
+
+    private static class DecimalDeserializer extends JsonDeserializer<Money> {
+        @Override
+        public Money deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() == JsonToken.VALUE_STRING) {
+                return Money.of(new BigDecimal(p.getText().trim()));
+            }
+            return Money.of(p.getDecimalValue());
+        }
+    }
+
+    private static class MinorUnitsSerializer extends JsonSerializer<Money> {
+        @Override
+        public void serialize(Money value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeNumber(value.getCents());
+        }
+    }
+
+    /**
+     * 只接受整数；以元为单位的小数（旧格式的缓存）直接拒绝，不会被截断后当作分读取
+     */
+    private static class MinorUnitsDeserializer extends JsonDeserializer<Money> {
+        @Override
+        public Money deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() != JsonToken.VALUE_NUMBER_INT) {
+                return (Money) ctxt.handleUnexpectedToken(Money.class, p);
+            }
+            return Money.ofCents(p.getLongValue());
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package com.kevinbank.accountbalancecalculation.model;
 
+import com.kevinbank.accountbalancecalculation.id.SnowflakeId;
 import jakarta.persistence.*;
 import lombok.Data;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
@@ -12,14 +12,19 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
  */
 @Data
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        @Index(name = "idx_transactions_time_id", columnList = "transaction_time, id"),
+        @Index(name = "idx_transactions_source_time_id", columnList = "source_account_id, transaction_time, id"),
+        @Index(name = "idx_transactions_target_time_id", columnList = "target_account_id, transaction_time, id")
+})
 @JsonSerialize
 public class Transaction {
     /**
-     * 交易的唯一标识符。
+     * 交易的唯一标识符，由Snowflake生成器在插入前分配，按生成时间递增。
+     * 按月分区后数据库主键为(id, transaction_time)，id的唯一性由生成器保证，数据库不再单独校验。
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     @JsonSerialize
     private Long id;
 
@@ -40,9 +45,9 @@ public class Transaction {
     /**
      * 交易金额，不能为空，表示交易涉及的金额。
      */
-    @Column(nullable = false)
+    @Column(precision = 19, scale = 2, nullable = false)
     @JsonSerialize
-    private BigDecimal amount;
+    private Money amount;
 
     /**
      * 交易类型，不能为空，表示交易的类型（例如：存款、取款、转账）。
@@ -58,6 +63,22 @@ public class Transaction {
     @JsonSerialize
     private String description;
 
+    /**
+     * 交易完成后来源账户的余额，与余额更新在同一事务中记录；无法确定时为空（热点账户或历史数据未回填）。
+     * 热点账户的余额分散在子余额槽位中，始终为空，也不回填，其对账单仍需按交易累加余额。
+     */
+    @Column(name = "source_balance_after", precision = 19, scale = 2)
+    @JsonSerialize
+    private Money sourceBalanceAfter;
+
+    /**
+     * 交易完成后目标账户的余额，与余额更新在同一事务中记录；无法确定时为空（热点账户或历史数据未回填）。
+     * 热点账户的余额分散在子余额槽位中，始终为空，也不回填，其对账单仍需按交易累加余额。
+     */
+    @Column(name = "target_balance_after", precision = 19, scale = 2)
+    @JsonSerialize
+    private Money targetBalanceAfter;
+
     /**
      * 交易时间，不能为空，记录交易发生的时间。
      */
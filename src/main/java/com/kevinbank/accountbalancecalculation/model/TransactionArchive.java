@@ -0,0 +1,39 @@
+package com.kevinbank.accountbalancecalculation.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 已归档的交易分区。
+ * 分区中交易的净额并入账户开户余额时写入该记录，两者在同一个数据库事务中提交，保证每个分区只并入一次。
+ */
+@Data
+@Entity
+@Table(name = "transaction_archives")
+public class TransactionArchive {
+    /**
+     * 分区名称，如p202401。
+     */
+    @Id
+    @Column(name = "partition_name", length = 64)
+    private String partitionName;
+
+    /**
+     * 保存分区数据的归档表；直接删除分区时为空。
+     */
+    @Column(name = "archive_table", length = 64)
+    private String archiveTable;
+
+    /**
+     * 分区中的交易数。
+     */
+    @Column(name = "row_count", nullable = false)
+    private Long rowCount;
+
+    /**
+     * 归档时间。
+     */
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
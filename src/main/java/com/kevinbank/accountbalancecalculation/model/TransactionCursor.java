@@ -0,0 +1,64 @@
+package com.kevinbank.accountbalancecalculation.model;
+
+import com.kevinbank.accountbalancecalculation.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 交易分页游标，记录上一页最后一笔交易的(transaction_time, id)，下一页从该位置之后继续读取。
+ * 对外以URL安全的Base64编码，客户端只应原样传回，不应解析。
+ *
+ * @param transactionTime 上一页最后一笔交易的交易时间
+ * @param id 上一页最后一笔交易的ID
+ */
+public record TransactionCursor(LocalDateTime transactionTime, long id) {
+
+    /**
+     * 第一页使用的游标，位于所有交易之前
+     */
+    public static final TransactionCursor FIRST = new TransactionCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    /**
+     * 指向某笔交易之后的游标
+     *
+     * @param transaction 交易
+     * @return 游标
+     */
+    public static TransactionCursor after(Transaction transaction) {
+        return new TransactionCursor(transaction.getTransactionTime(), transaction.getId());
+    }
+
+    /**
+     * @return 编码后的游标
+     */
+    public String encode() {
+        String raw = transactionTime + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析客户端传回的游标
+     *
+     * @param cursor 编码后的游标，为空时表示第一页
+     * @return 游标
+     * @throws InvalidCursorException 如果游标无法解析
+     */
+    public static TransactionCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return FIRST;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int comma = raw.indexOf(',');
+            if (comma < 0) {
+                throw new InvalidCursorException("无效的分页游标");
+            }
+            return new TransactionCursor(LocalDateTime.parse(raw.substring(0, comma)), Long.parseLong(raw.substring(comma + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidCursorException("无效的分页游标");
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.kevinbank.accountbalancecalculation.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+/**
+ * 导出的一笔交易。
+ * 由查询直接构造，不是受持久化上下文管理的实体，逐行写出后即可回收。
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TransactionExportRow(
+        Long id,
+        LocalDateTime transactionTime,
+        TransactionType type,
+        Long sourceAccountId,
+        Long targetAccountId,
+        Money amount,
+        Money sourceBalanceAfter,
+        Money targetBalanceAfter,
+        String description) {
+}
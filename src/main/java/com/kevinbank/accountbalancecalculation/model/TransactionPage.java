@@ -0,0 +1,27 @@
+package com.kevinbank.accountbalancecalculation.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 一页交易记录，按交易时间从新到旧排列
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TransactionPage {
+    /**
+     * 本页的交易记录
+     */
+    private List<Transaction> items;
+
+    /**
+     * 下一页的游标，作为cursor参数原样传回；没有更多记录时为空
+     */
+    private String next;
+}
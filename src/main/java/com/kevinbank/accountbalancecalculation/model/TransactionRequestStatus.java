@@ -0,0 +1,70 @@
+package com.kevinbank.accountbalancecalculation.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 异步交易请求的处理状态
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TransactionRequestStatus {
+
+    /**
+     * 处理状态
+     */
+    public enum State {
+        /**
+         * 已进入队列，尚未处理完成
+         */
+        PENDING,
+        /**
+         * 交易已创建
+         */
+        COMPLETED,
+        /**
+         * 交易被拒绝，例如余额不足或账户不存在
+         */
+        REJECTED
+    }
+
+    /**
+     * 请求句柄，用于查询处理状态
+     */
+    private String handle;
+
+    private State state;
+
+    /**
+     * 处理完成时创建的交易记录
+     */
+    private Transaction transaction;
+
+    /**
+     * 被拒绝的原因
+     */
+    private String error;
+
+    private LocalDateTime submittedAt;
+
+    private LocalDateTime updatedAt;
+
+    public static TransactionRequestStatus pending(String handle) {
+        LocalDateTime now = LocalDateTime.now();
+        return new TransactionRequestStatus(handle, State.PENDING, null, null, now, now);
+    }
+
+    public TransactionRequestStatus completed(Transaction transaction) {
+        return new TransactionRequestStatus(handle, State.COMPLETED, transaction, null, submittedAt, LocalDateTime.now());
+    }
+
+    public TransactionRequestStatus rejected(String error) {
+        return new TransactionRequestStatus(handle, State.REJECTED, null, error, submittedAt, LocalDateTime.now());
+    }
+}
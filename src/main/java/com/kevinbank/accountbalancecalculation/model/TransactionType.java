@@ -44,4 +44,20 @@ public enum TransactionType {
     public boolean isCredit() {
         return this == DEPOSIT || this == REFUND;
     }
+
+    /**
+     * 判断该类型的交易是否扣减来源账户的余额
+     * @return 转账和取款返回true；支付和退款只记录交易，不改变余额。
+     */
+    public boolean debitsSource() {
+        return this == TRANSFER || this == WITHDRAW;
+    }
+
+    /**
+     * 判断该类型的交易是否增加目标账户的余额
+     * @return 转账和存款返回true；支付和退款只记录交易，不改变余额。
+     */
+    public boolean creditsTarget() {
+        return this == TRANSFER || this == DEPOSIT;
+    }
 }
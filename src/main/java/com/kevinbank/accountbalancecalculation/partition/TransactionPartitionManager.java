@@ -0,0 +1,270 @@
+package com.kevinbank.accountbalancecalculation.partition;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 交易表分区维护任务。
+ * transactions表按transaction_time按月做RANGE COLUMNS分区（见V14迁移），最后一个分区以MAXVALUE为上界，接收尚未创建月份分区的交易。
+ * V14迁移已建好截至迁移当月的月份分区，任务定期从该分区中拆出当前月份之后months-ahead个月的分区，
+ * 新月份的交易写入时该月份的分区已经存在，MAXVALUE分区保持为空，拆分时不需要移动数据。
+ * 如果任务长时间停止导致MAXVALUE分区中已有交易，拆分会复制这些交易并阻塞写入，任务会记录警告。
+ *
+ * retention-months大于0时，结束时间早于保留期的分区会被归档：先在一个事务中把分区内交易的净额并入账户的开户余额并记录归档，
+ * 再按archive-mode把分区交换到单独的归档表（exchange）或直接删除（drop），最后删除空分区。
+ * 开户余额加上剩余交易的净额仍然等于账户余额，全量对账不受影响；归档记录与开户余额同时提交，任务中断后重试不会重复并入。
+ *
+ * 分区后主键为(id, transaction_time)，数据库不再单独保证id唯一，由Snowflake生成器的节点ID各不相同来保证。
+ * 注意：归档之后，早于保留期的历史余额查询和交易后余额回填缺少对应的交易，结果不再可靠。
+ * 表未分区（迁移尚未执行）时任务只记录警告。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "transaction.partition.enabled", havingValue = "true")
+public class TransactionPartitionManager {
+
+    private static final String SELECT_PARTITIONS_SQL = "SELECT PARTITION_NAME, PARTITION_DESCRIPTION " +
+            "FROM information_schema.PARTITIONS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'transactions' " +
+            "AND PARTITION_NAME IS NOT NULL ORDER BY PARTITION_ORDINAL_POSITION";
+
+    private static final String ARCHIVED_SQL = "SELECT COUNT(*) FROM transaction_archives WHERE partition_name = ?";
+
+    private static final String INSERT_ARCHIVE_SQL = "INSERT INTO transaction_archives " +
+            "(partition_name, archive_table, row_count, archived_at) VALUES (?, ?, ?, ?)";
+
+    /**
+     * 把分区内交易的净额并入开户余额；没有开户余额的账户保持为空
+     */
+    private static final String ROLL_INTO_OPENING_BALANCE_SQL = "UPDATE accounts a JOIN (" +
+            "SELECT account_id, SUM(delta) AS delta FROM (" +
+            "SELECT target_account_id AS account_id, amount AS delta FROM transactions PARTITION (%1$s) " +
+            "WHERE target_account_id IS NOT NULL AND type IN ('TRANSFER', 'DEPOSIT') " +
+            "UNION ALL " +
+            "SELECT source_account_id, -amount FROM transactions PARTITION (%1$s) " +
+            "WHERE source_account_id IS NOT NULL AND type IN ('TRANSFER', 'WITHDRAW')) d " +
+            "GROUP BY account_id) n ON n.account_id = a.id " +
+            "SET a.opening_balance = a.opening_balance + n.delta";
+
+    private static final String TABLE_EXISTS_SQL = "SELECT COUNT(*) FROM information_schema.TABLES " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private static final DateTimeFormatter PARTITION_BOUND = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * 分区名和表名直接拼入DDL，只允许字母、数字和下划线
+     */
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z0-9_]+");
+
+    private static final String ARCHIVE_TABLE_PREFIX = "transactions_archive_";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * 预先创建的未来月份数
+     */
+    @Value("${transaction.partition.months-ahead:3}")
+    private int monthsAhead;
+
+    /**
+     * 保留的月份数，早于保留期的分区被归档；为0时不归档
+     */
+    @Value("${transaction.partition.retention-months:0}")
+    private int retentionMonths;
+
+    /**
+     * 归档方式: exchange / drop
+     */
+    @Value("${transaction.partition.archive-mode:exchange}")
+    private String archiveMode;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        if (!"exchange".equalsIgnoreCase(archiveMode) && !"drop".equalsIgnoreCase(archiveMode)) {
+            throw new IllegalStateException("不支持的分区归档方式: " + archiveMode);
+        }
+        log.info("交易表分区维护已启用 - 预建月份数: {}, 保留月份数: {}, 归档方式: {}",
+                monthsAhead, retentionMonths, archiveMode);
+    }
+
+    /**
+     * 定期创建未来月份的分区并归档过期分区
+     */
+    @Scheduled(cron = "${transaction.partition.cron:0 30 0 * * *}")
+    public void scheduledMaintain() {
+        try {
+            maintain(LocalDate.now());
+        } catch (Exception e) {
+            log.error("交易表分区维护失败: {}", e.getMessage(), e);
+        }
+    }
+
+    void maintain(LocalDate today) {
+        List<Partition> partitions = jdbcTemplate.query(SELECT_PARTITIONS_SQL,
+                (rs, rowNum) -> new Partition(rs.getString(1), parseBound(rs.getString(2))));
+        if (partitions.isEmpty()) {
+            log.warn("transactions表未分区，跳过分区维护");
+            return;
+        }
+
+        YearMonth current = YearMonth.from(today);
+        String addSql = addPartitionsSql(partitions, current, current.plusMonths(monthsAhead));
+        if (addSql != null) {
+            Partition last = partitions.get(partitions.size() - 1);
+            if (last.upperBound() == null && hasRows("transactions PARTITION (" + identifier(last.name()) + ")")) {
+                log.warn("MAXVALUE分区 {} 中已有交易，拆分需要复制这些交易并阻塞写入", last.name());
+            }
+            log.info("创建交易表分区: {}", addSql);
+            jdbcTemplate.execute(addSql);
+        }
+
+        if (retentionMonths > 0) {
+            LocalDateTime cutoff = current.minusMonths(retentionMonths).atDay(1).atStartOfDay();
+            for (Partition partition : expired(partitions, cutoff)) {
+                archive(partition);
+            }
+        }
+    }
+
+    /**
+     * 归档一个分区：并入开户余额并记录，交换到归档表或直接丢弃数据，再删除空分区
+     */
+    private void archive(Partition partition) {
+        String name = identifier(partition.name());
+        String archiveTable = "exchange".equalsIgnoreCase(archiveMode) ? identifier(ARCHIVE_TABLE_PREFIX + name) : null;
+
+        if (count(ARCHIVED_SQL, name) == 0) {
+            transactionTemplate.executeWithoutResult(status -> {
+                Long rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transactions PARTITION (" + name + ")", Long.class);
+                int accounts = jdbcTemplate.update(String.format(ROLL_INTO_OPENING_BALANCE_SQL, name));
+                jdbcTemplate.update(INSERT_ARCHIVE_SQL, name, archiveTable, rows, LocalDateTime.now());
+                log.info("分区交易净额已并入开户余额 - 分区: {}, 交易数: {}, 账户数: {}", name, rows, accounts);
+            });
+        }
+
+        if (archiveTable != null && hasRows("transactions PARTITION (" + name + ")")) {
+            if (count(TABLE_EXISTS_SQL, archiveTable) == 0) {
+                jdbcTemplate.execute("CREATE TABLE " + archiveTable + " LIKE transactions");
+                jdbcTemplate.execute("ALTER TABLE " + archiveTable + " REMOVE PARTITIONING");
+            }
+            // 交换会把归档表中已有的数据换回分区，随后被删除
+            if (hasRows(archiveTable)) {
+                log.error("归档表 {} 不为空，跳过分区 {} 的归档", archiveTable, name);
+                return;
+            }
+            jdbcTemplate.execute("ALTER TABLE transactions EXCHANGE PARTITION " + name + " WITH TABLE " + archiveTable);
+            log.info("分区已交换到归档表 - 分区: {}, 归档表: {}", name, archiveTable);
+        }
+        jdbcTemplate.execute("ALTER TABLE transactions DROP PARTITION " + name);
+        log.info("交易表分区已删除: {}", name);
+    }
+
+    private int count(String sql, String arg) {
+        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, arg);
+        return count != null ? count : 0;
+    }
+
+    private boolean hasRows(String source) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS(SELECT 1 FROM " + source + ")", Boolean.class));
+    }
+
+    /**
+     * 生成创建月份分区的DDL。
+     * 从最后一个有上界的分区的上界所在月份开始，逐月创建到through（包含）；以MAXVALUE为上界的分区存在时从中拆分，否则直接追加。
+     *
+     * @param partitions 按顺序排列的现有分区
+     * @param current 当前月份，没有任何有上界的分区时从该月开始
+     * @param through 需要存在的最后一个月份
+     * @return DDL，不需要创建分区时返回null
+     */
+    static String addPartitionsSql(List<Partition> partitions, YearMonth current, YearMonth through) {
+        Partition last = partitions.get(partitions.size() - 1);
+        LocalDateTime lowerBound = null;
+        for (Partition partition : partitions) {
+            if (partition.upperBound() != null) {
+                lowerBound = partition.upperBound();
+            }
+        }
+        List<String> definitions = new ArrayList<>();
+        for (YearMonth month = lowerBound != null ? YearMonth.from(lowerBound) : current;
+             !month.isAfter(through); month = month.plusMonths(1)) {
+            definitions.add("PARTITION " + month.format(PARTITION_NAME) + " VALUES LESS THAN ('"
+                    + month.plusMonths(1).atDay(1).atStartOfDay().format(PARTITION_BOUND) + "')");
+        }
+        if (definitions.isEmpty()) {
+            return null;
+        }
+        if (last.upperBound() == null) {
+            String name = identifier(last.name());
+            definitions.add("PARTITION " + name + " VALUES LESS THAN (MAXVALUE)");
+            return "ALTER TABLE transactions REORGANIZE PARTITION " + name + " INTO (" + String.join(", ", definitions) + ")";
+        }
+        return "ALTER TABLE transactions ADD PARTITION (" + String.join(", ", definitions) + ")";
+    }
+
+    /**
+     * @param partitions 按顺序排列的现有分区
+     * @param cutoff 保留期的起点
+     * @return 上界不晚于保留期起点、可以归档的分区
+     */
+    static List<Partition> expired(List<Partition> partitions, LocalDateTime cutoff) {
+        List<Partition> expired = new ArrayList<>();
+        for (Partition partition : partitions) {
+            if (partition.upperBound() != null && !partition.upperBound().isAfter(cutoff)) {
+                expired.add(partition);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * 解析information_schema中RANGE COLUMNS分区的上界，如'2024-02-01 00:00:00'或MAXVALUE
+     */
+    static LocalDateTime parseBound(String description) {
+        if (description == null || "MAXVALUE".equalsIgnoreCase(description)) {
+            return null;
+        }
+        String value = description.replace("'", "").trim();
+        return value.length() == 10 ? LocalDate.parse(value).atStartOfDay() : LocalDateTime.parse(value, PARTITION_BOUND);
+    }
+
+    private static String identifier(String name) {
+        if (name == null || !IDENTIFIER.matcher(name).matches()) {
+            throw new IllegalStateException("非法的分区或表名: " + name);
+        }
+        return name;
+    }
+
+    /**
+     * 交易表的一个分区
+     *
+     * @param name 分区名
+     * @param upperBound 分区的上界（不包含），MAXVALUE时为null
+     */
+    record Partition(String name, LocalDateTime upperBound) {
+    }
+}
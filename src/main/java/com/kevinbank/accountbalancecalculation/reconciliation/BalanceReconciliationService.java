@@ -0,0 +1,467 @@
+package com.kevinbank.accountbalancecalculation.reconciliation;
+
+import com.kevinbank.accountbalancecalculation.config.WorkerThreads;
+import com.kevinbank.accountbalancecalculation.model.Money;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToLongFunction;
+
+/**
+ * 余额对账服务。
+ * 按交易ID的键集游标分段读取transactions表，每段交给ForkJoin任务拆分后在基本类型哈希表中按账户累加净额，
+ * 读取下一段的同时归并上一段的结果；再按ID分页读取账户，用开户余额加交易净额校验accounts表中的余额，
+ * 并与Redis中account:{id}缓存的余额比较，生成差异报告和指标。
+ *
+ * 全程只使用普通的一致性读，不加锁。分段读取期间仍有交易提交，初步比较不一致的账户会在一个可重复读事务中
+ * 重新读取余额和该账户的全部交易再确认一次，只有确认后仍不一致的账户才计入差异。
+ *
+ * 注意：通过余额接口直接调整而没有交易记录的变动会被报告为余额差异；未启用交易日志的分片内存余额引擎异步写回余额，
+ * 对账结果中会包含尚未写回的账户。
+ */
+@Slf4j
+@Service
+public class BalanceReconciliationService {
+
+    /**
+     * 缓存中的金额以分为单位，键带版本前缀，不会读到旧版本以元为单位写入的缓存
+     */
+    private static final String ACCOUNT_CACHE_KEY_PREFIX = "v2:account:";
+
+    /**
+     * 每笔交易拆成借方账户和贷方账户两条分录，不改变余额的交易类型和为空的账户ID用0表示，金额换算为分
+     */
+    private static final String SELECT_LEGS_SQL = "SELECT id, " +
+            "CASE WHEN type IN ('TRANSFER', 'WITHDRAW') THEN COALESCE(source_account_id, 0) ELSE 0 END, " +
+            "CASE WHEN type IN ('TRANSFER', 'DEPOSIT') THEN COALESCE(target_account_id, 0) ELSE 0 END, " +
+            "CAST(amount * 100 AS SIGNED) " +
+            "FROM transactions WHERE id > ? AND id <= ? ORDER BY id LIMIT ?";
+
+    private static final String SELECT_ACCOUNTS_SQL = "SELECT a.id, a.balance + COALESCE((SELECT SUM(s.balance) " +
+            "FROM account_sub_balances s WHERE s.account_id = a.id), 0), a.opening_balance " +
+            "FROM accounts a WHERE a.id > ? ORDER BY a.id LIMIT ?";
+
+    private static final String SELECT_ACCOUNT_SQL = "SELECT a.balance + COALESCE((SELECT SUM(s.balance) " +
+            "FROM account_sub_balances s WHERE s.account_id = a.id), 0), a.opening_balance FROM accounts a WHERE a.id = ?";
+
+    private static final String SUM_ACCOUNT_SQL = "SELECT COALESCE(SUM(delta), 0) FROM (" +
+            "SELECT amount AS delta FROM transactions WHERE target_account_id = ? AND type IN ('TRANSFER', 'DEPOSIT') " +
+            "UNION ALL " +
+            "SELECT -amount FROM transactions WHERE source_account_id = ? AND type IN ('TRANSFER', 'WITHDRAW')) d";
+
+    /**
+     * ForkJoin任务不再拆分的分录数
+     */
+    private static final int REDUCE_THRESHOLD = 8192;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private WorkerThreads workerThreads;
+
+    /**
+     * 每段读取的交易数
+     */
+    @Value("${reconciliation.chunk-size:10000}")
+    private int chunkSize;
+
+    /**
+     * 每页读取的账户数，同时也是每次批量读取缓存的键数
+     */
+    @Value("${reconciliation.account-page-size:1000}")
+    private int accountPageSize;
+
+    /**
+     * 归并交易的ForkJoin并行度，0表示使用CPU核数
+     */
+    @Value("${reconciliation.parallelism:0}")
+    private int parallelism;
+
+    /**
+     * 报告中记录的差异明细上限
+     */
+    @Value("${reconciliation.max-report-size:1000}")
+    private int maxReportSize;
+
+    /**
+     * 是否删除与数据库不一致的账户缓存，删除后下次读取会从数据库重新加载
+     */
+    @Value("${reconciliation.evict-stale-cache:false}")
+    private boolean evictStaleCache;
+
+    private ForkJoinPool reducePool;
+
+    private ExecutorService runner;
+
+    private TransactionTemplate snapshotTransactionTemplate;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile ReconciliationReport latestReport;
+
+    private Timer durationTimer;
+
+    @PostConstruct
+    public void init() {
+        reducePool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        runner = Executors.newSingleThreadExecutor(workerThreads.factory("reconciliation-"));
+
+        snapshotTransactionTemplate = new TransactionTemplate(transactionManager);
+        snapshotTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshotTransactionTemplate.setReadOnly(true);
+
+        durationTimer = Timer.builder("reconciliation.duration")
+                .description("Time taken by a full balance reconciliation")
+                .register(meterRegistry);
+        Gauge.builder("reconciliation.discrepancies", this, s -> s.latestValue(ReconciliationReport::getBalanceMismatches))
+                .description("Accounts whose balance differs from opening balance plus transactions in the latest reconciliation")
+                .tag("kind", "balance")
+                .register(meterRegistry);
+        Gauge.builder("reconciliation.discrepancies", this, s -> s.latestValue(ReconciliationReport::getStaleCacheEntries))
+                .description("Cached accounts whose balance differs from the database in the latest reconciliation")
+                .tag("kind", "cache")
+                .register(meterRegistry);
+        Gauge.builder("reconciliation.transactions.scanned", this, s -> s.latestValue(ReconciliationReport::getTransactionsScanned))
+                .description("Transactions aggregated by the latest reconciliation")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+        reducePool.shutdownNow();
+    }
+
+    /**
+     * 按reconciliation.cron定期对账，默认不执行
+     */
+    @Scheduled(cron = "${reconciliation.cron:-}")
+    public void scheduledReconcile() {
+        start();
+    }
+
+    /**
+     * 在后台开始一次对账
+     *
+     * @return 如果已经有对账在执行则返回false
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            runner.execute(() -> {
+                try {
+                    reconcile();
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * @return 最近一次完成的对账报告
+     */
+    public Optional<ReconciliationReport> getLatestReport() {
+        return Optional.ofNullable(latestReport);
+    }
+
+    /**
+     * 执行一次完整的对账
+     *
+     * @return 对账报告
+     */
+    public ReconciliationReport reconcile() {
+        ReconciliationReport report = new ReconciliationReport();
+        report.setStartedAt(LocalDateTime.now());
+        long start = System.nanoTime();
+        try {
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM transactions", Long.class);
+            report.setWatermark(maxId != null ? maxId : 0L);
+            LongLongMap netAmounts = aggregate(report);
+            checkAccounts(netAmounts, report);
+            log.info("余额对账完成 - 交易: {}, 账户: {}, 余额差异: {}, 缓存差异: {}, 耗时: {} 毫秒",
+                    report.getTransactionsScanned(), report.getAccountsChecked(), report.getBalanceMismatches(),
+                    report.getStaleCacheEntries(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Exception e) {
+            log.error("余额对账失败: {}", e.getMessage(), e);
+            report.setError(e.getMessage());
+        } finally {
+            durationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            report.setCompletedAt(LocalDateTime.now());
+            latestReport = report;
+        }
+        return report;
+    }
+
+    /**
+     * 按ID顺序分段读取水位线以内的交易，读取下一段的同时由ForkJoin任务归并上一段
+     *
+     * @return 账户ID到以分为单位的交易净额
+     */
+    private LongLongMap aggregate(ReconciliationReport report) {
+        LongLongMap total = new LongLongMap(1024);
+        ForkJoinTask<LongLongMap> pending = null;
+        long cursor = 0L;
+        while (cursor < report.getWatermark()) {
+            Chunk chunk = readChunk(cursor, report.getWatermark());
+            if (chunk.rows == 0) {
+                break;
+            }
+            report.setTransactionsScanned(report.getTransactionsScanned() + chunk.rows);
+            cursor = chunk.lastId;
+            ForkJoinTask<LongLongMap> task = reducePool.submit(new ReduceTask(chunk.accounts, chunk.amounts, 0, chunk.size));
+            if (pending != null) {
+                total.merge(pending.join());
+            }
+            pending = task;
+            if (chunk.rows < chunkSize) {
+                break;
+            }
+        }
+        if (pending != null) {
+            total.merge(pending.join());
+        }
+        return total;
+    }
+
+    /**
+     * 读取一段交易并拆成分录，贷方为正、借方为负
+     */
+    private Chunk readChunk(long afterId, long watermark) {
+        Chunk chunk = new Chunk(chunkSize);
+        jdbcTemplate.query(SELECT_LEGS_SQL, rs -> {
+            chunk.lastId = rs.getLong(1);
+            long amountCents = rs.getLong(4);
+            chunk.add(rs.getLong(2), Money.negateCents(amountCents));
+            chunk.add(rs.getLong(3), amountCents);
+            chunk.rows++;
+        }, afterId, watermark, chunkSize);
+        return chunk;
+    }
+
+    /**
+     * 按ID分页校验账户余额和缓存
+     */
+    private void checkAccounts(LongLongMap netAmounts, ReconciliationReport report) {
+        long lastId = 0L;
+        while (true) {
+            List<AccountRow> page = jdbcTemplate.query(SELECT_ACCOUNTS_SQL, (rs, rowNum) -> {
+                BigDecimal opening = rs.getBigDecimal(3);
+                return new AccountRow(rs.getLong(1), Money.of(rs.getBigDecimal(2)).getCents(),
+                        opening != null ? Money.of(opening).getCents() : null);
+            }, lastId, accountPageSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            for (AccountRow account : page) {
+                report.setAccountsChecked(report.getAccountsChecked() + 1);
+                if (account.openingCents() == null) {
+                    report.setAccountsWithoutBaseline(report.getAccountsWithoutBaseline() + 1);
+                    continue;
+                }
+                long expected = Money.addCents(account.openingCents(), netAmounts.get(account.id()));
+                if (expected != account.balanceCents()) {
+                    confirmBalanceMismatch(account.id(), report);
+                }
+            }
+            checkCache(page, report);
+            if (page.size() < accountPageSize) {
+                break;
+            }
+            lastId = page.get(page.size() - 1).id();
+        }
+    }
+
+    /**
+     * 在一个可重复读事务中重新读取账户余额和该账户的全部交易，排除对账期间提交的交易造成的误报
+     */
+    private void confirmBalanceMismatch(long accountId, ReconciliationReport report) {
+        long[] confirmed = snapshotTransactionTemplate.execute(status -> {
+            List<long[]> rows = jdbcTemplate.query(SELECT_ACCOUNT_SQL, (rs, rowNum) -> {
+                BigDecimal opening = rs.getBigDecimal(2);
+                return opening == null ? null : new long[]{
+                        Money.of(rs.getBigDecimal(1)).getCents(), Money.of(opening).getCents()};
+            }, accountId);
+            if (rows.isEmpty() || rows.get(0) == null) {
+                return null;
+            }
+            BigDecimal net = jdbcTemplate.queryForObject(SUM_ACCOUNT_SQL, BigDecimal.class, accountId, accountId);
+            long expected = Money.addCents(rows.get(0)[1], Money.ofNullable(net).getCents());
+            return expected != rows.get(0)[0] ? new long[]{expected, rows.get(0)[0]} : null;
+        });
+        if (confirmed != null) {
+            report.setBalanceMismatches(report.getBalanceMismatches() + 1);
+            addDiscrepancy(report, accountId, ReconciliationReport.Kind.BALANCE_MISMATCH, confirmed[0], confirmed[1]);
+        }
+    }
+
+    /**
+     * 批量读取一页账户的缓存，与数据库中的余额比较；缓存不可用时跳过，不影响余额校验
+     */
+    private void checkCache(List<AccountRow> page, ReconciliationReport report) {
+        List<String> keys = new ArrayList<>(page.size());
+        for (AccountRow account : page) {
+            keys.add(ACCOUNT_CACHE_KEY_PREFIX + account.id());
+        }
+        List<Object> cached;
+        try {
+            cached = redisTemplate.opsForValue().multiGet(keys);
+        } catch (Exception e) {
+            log.warn("读取账户缓存失败，跳过本页缓存校验: {}", e.getMessage());
+            return;
+        }
+        if (cached == null) {
+            return;
+        }
+        List<String> stale = new ArrayList<>();
+        for (int i = 0; i < page.size() && i < cached.size(); i++) {
+            Long cachedCents = cachedBalanceCents(cached.get(i));
+            if (cachedCents == null) {
+                continue;
+            }
+            report.setCacheEntriesChecked(report.getCacheEntriesChecked() + 1);
+            AccountRow account = page.get(i);
+            if (cachedCents != account.balanceCents()) {
+                report.setStaleCacheEntries(report.getStaleCacheEntries() + 1);
+                addDiscrepancy(report, account.id(), ReconciliationReport.Kind.STALE_CACHE, account.balanceCents(), cachedCents);
+                stale.add(keys.get(i));
+            }
+        }
+        if (evictStaleCache && !stale.isEmpty()) {
+            try {
+                Long deleted = redisTemplate.delete(stale);
+                report.setStaleCacheEvicted(report.getStaleCacheEvicted() + (deleted != null ? deleted : 0L));
+            } catch (Exception e) {
+                log.warn("删除过期账户缓存失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 缓存中的账户以JSON写入，金额为以分为单位的整数，没有类型信息时读出来是Map
+     */
+    static Long cachedBalanceCents(Object value) {
+        if (value instanceof Map<?, ?> map && map.get("balance") instanceof Number balance) {
+            return balance.longValue();
+        }
+        return null;
+    }
+
+    private void addDiscrepancy(ReconciliationReport report, long accountId, ReconciliationReport.Kind kind,
+                                long expectedCents, long actualCents) {
+        log.warn("对账差异 - 账户: {}, 类型: {}, 期望: {}, 实际: {}",
+                accountId, kind, Money.ofCents(expectedCents), Money.ofCents(actualCents));
+        if (report.getDiscrepancies().size() < maxReportSize) {
+            report.getDiscrepancies().add(new ReconciliationReport.Discrepancy(
+                    accountId, kind, Money.ofCents(expectedCents), Money.ofCents(actualCents)));
+        }
+    }
+
+    private long latestValue(ToLongFunction<ReconciliationReport> metric) {
+        ReconciliationReport report = latestReport;
+        return report != null ? metric.applyAsLong(report) : 0L;
+    }
+
+    /**
+     * 一段交易拆出的分录，账户ID为0的分录不计入
+     */
+    private static final class Chunk {
+        private final long[] accounts;
+        private final long[] amounts;
+        private int size;
+        private int rows;
+        private long lastId;
+
+        private Chunk(int chunkSize) {
+            accounts = new long[chunkSize * 2];
+            amounts = new long[chunkSize * 2];
+        }
+
+        private void add(long accountId, long amountCents) {
+            if (accountId != 0L) {
+                accounts[size] = accountId;
+                amounts[size] = amountCents;
+                size++;
+            }
+        }
+    }
+
+    /**
+     * 把一段分录按账户归并，超过阈值时对半拆分，两半的结果合并时把较小的表并入较大的表
+     */
+    static final class ReduceTask extends RecursiveTask<LongLongMap> {
+        private final long[] accounts;
+        private final long[] amounts;
+        private final int from;
+        private final int to;
+
+        ReduceTask(long[] accounts, long[] amounts, int from, int to) {
+            this.accounts = accounts;
+            this.amounts = amounts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected LongLongMap compute() {
+            if (to - from <= REDUCE_THRESHOLD) {
+                LongLongMap map = new LongLongMap(to - from);
+                for (int i = from; i < to; i++) {
+                    map.add(accounts[i], amounts[i]);
+                }
+                return map;
+            }
+            int middle = (from + to) >>> 1;
+            ReduceTask left = new ReduceTask(accounts, amounts, from, middle);
+            left.fork();
+            LongLongMap right = new ReduceTask(accounts, amounts, middle, to).compute();
+            LongLongMap leftResult = left.join();
+            return leftResult.size() >= right.size() ? leftResult.merge(right) : right.merge(leftResult);
+        }
+    }
+
+    private record AccountRow(long id, long balanceCents, Long openingCents) {
+    }
+}
@@ -0,0 +1,294 @@
+package com.kevinbank.accountbalancecalculation.reconciliation;
+
+import com.kevinbank.accountbalancecalculation.id.SnowflakeIdGenerator;
+import com.kevinbank.accountbalancecalculation.model.Money;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 增量余额对账。
+ * 记录已经处理到的交易ID水位线，每隔几秒只读取水位线之后的新交易，累加到影子余额表中，
+ * 再与本批交易涉及账户的accounts行比较，不一致的账户以漂移的形式通过Prometheus指标暴露。
+ *
+ * 交易ID在提交前分配，ID较小的交易可能晚于ID较大的交易提交，因此只处理ID对应时间早于当前时间减去lag-ms的交易，
+ * lag-ms必须大于交易从分配ID到提交的最长时间（事务超时、存款轧差窗口、交易日志持久化积压）。
+ * 新交易与账户余额在同一个可重复读事务中读取，账户余额中包含的、ID超过本批上界的交易在比较时扣除。
+ *
+ * 账户第一次出现时以当时的余额初始化影子余额，之后只由交易推进；通过余额接口直接调整而没有交易记录的变动会一直表现为漂移。
+ * 未启用交易日志的分片内存余额引擎异步写回余额，该模式下不执行增量对账。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "reconciliation.incremental.enabled", havingValue = "true")
+public class IncrementalReconciler {
+
+    private static final String SELECT_LEGS_SQL = "SELECT id, " +
+            "CASE WHEN type IN ('TRANSFER', 'WITHDRAW') THEN COALESCE(source_account_id, 0) ELSE 0 END, " +
+            "CASE WHEN type IN ('TRANSFER', 'DEPOSIT') THEN COALESCE(target_account_id, 0) ELSE 0 END, " +
+            "CAST(amount * 100 AS SIGNED) " +
+            "FROM transactions WHERE id > ? AND id <= ? ORDER BY id LIMIT ?";
+
+    private static final String SELECT_BALANCES_SQL = "SELECT a.id, CAST((a.balance + COALESCE((SELECT SUM(s.balance) " +
+            "FROM account_sub_balances s WHERE s.account_id = a.id), 0)) * 100 AS SIGNED) FROM accounts a WHERE a.id IN (%s)";
+
+    /**
+     * 账户余额中已经包含、但ID超过本批上界的交易净额
+     */
+    private static final String SUM_NEWER_SQL = "SELECT account_id, CAST(SUM(delta) * 100 AS SIGNED) FROM (" +
+            "SELECT target_account_id AS account_id, amount AS delta FROM transactions " +
+            "WHERE target_account_id IN (%1$s) AND type IN ('TRANSFER', 'DEPOSIT') AND id > ? " +
+            "UNION ALL " +
+            "SELECT source_account_id, -amount FROM transactions " +
+            "WHERE source_account_id IN (%1$s) AND type IN ('TRANSFER', 'WITHDRAW') AND id > ?) d GROUP BY account_id";
+
+    /**
+     * 单条IN查询中的账户数上限
+     */
+    private static final int IN_BATCH_SIZE = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 只处理ID对应时间早于当前时间减去该值（毫秒）的交易
+     */
+    @Value("${reconciliation.incremental.lag-ms:10000}")
+    private long lagMs;
+
+    /**
+     * 每次最多处理的交易数
+     */
+    @Value("${reconciliation.incremental.batch-size:10000}")
+    private int batchSize;
+
+    /**
+     * 影子余额表最多跟踪的账户数，超过后清空重新初始化
+     */
+    @Value("${reconciliation.incremental.max-accounts:1000000}")
+    private int maxAccounts;
+
+    @Value("${balance.engine.mode:jdbc}")
+    private String balanceEngineMode;
+
+    @Value("${transaction.journal.enabled:false}")
+    private boolean journalEnabled;
+
+    private TransactionTemplate snapshotTransactionTemplate;
+
+    /**
+     * 已处理的交易ID水位线，只由调度线程访问
+     */
+    private long watermark = -1L;
+
+    /**
+     * 账户ID到水位线处由交易推算的余额（分），只由调度线程访问
+     */
+    private LongLongMap shadowBalances = new LongLongMap(1024);
+
+    /**
+     * 当前存在漂移的账户及漂移金额（分），账户余额减去影子余额
+     */
+    private final Map<Long, Long> drifts = new ConcurrentHashMap<>();
+
+    private volatile long watermarkTimestamp;
+
+    private Counter transactionCounter;
+
+    private boolean enabled;
+
+    @PostConstruct
+    public void init() {
+        snapshotTransactionTemplate = new TransactionTemplate(transactionManager);
+        snapshotTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshotTransactionTemplate.setReadOnly(true);
+
+        transactionCounter = Counter.builder("reconciliation.incremental.transactions")
+                .description("Transactions applied to the incremental reconciliation shadow balances")
+                .register(meterRegistry);
+        Gauge.builder("reconciliation.incremental.drift.accounts", drifts, Map::size)
+                .description("Accounts whose balance differs from the balance derived from their transactions")
+                .register(meterRegistry);
+        Gauge.builder("reconciliation.incremental.drift.amount", this, IncrementalReconciler::totalDrift)
+                .description("Sum of absolute balance drift across drifting accounts")
+                .register(meterRegistry);
+        Gauge.builder("reconciliation.incremental.watermark.age", this,
+                        r -> r.watermarkTimestamp > 0 ? (System.currentTimeMillis() - r.watermarkTimestamp) / 1000.0 : 0.0)
+                .description("Age in seconds of the newest transaction covered by incremental reconciliation")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+
+        enabled = !"sharded".equalsIgnoreCase(balanceEngineMode) || journalEnabled;
+        if (!enabled) {
+            log.warn("分片内存余额引擎未启用交易日志，余额与交易记录不一致，不执行增量对账");
+        }
+    }
+
+    /**
+     * 定期处理水位线之后的新交易
+     */
+    @Scheduled(initialDelayString = "${reconciliation.incremental.interval-ms:5000}",
+            fixedDelayString = "${reconciliation.incremental.interval-ms:5000}")
+    public void scheduledReconcile() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            reconcileNewTransactions();
+        } catch (Exception e) {
+            log.error("增量对账失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 处理一批新交易。第一次调用只确定水位线，不处理历史交易，历史交易由全量对账覆盖。
+     *
+     * @return 本次处理的交易数
+     */
+    int reconcileNewTransactions() {
+        long upperBound = upperBound();
+        if (watermark < 0) {
+            watermark = upperBound;
+            watermarkTimestamp = System.currentTimeMillis() - lagMs;
+            log.info("增量对账已启动 - 起始水位线: {}", watermark);
+            return 0;
+        }
+        if (upperBound <= watermark) {
+            return 0;
+        }
+        Integer processed = snapshotTransactionTemplate.execute(status -> applyBatch(upperBound));
+        return processed != null ? processed : 0;
+    }
+
+    /**
+     * 在快照事务中读取一批新交易和涉及账户的余额，推进影子余额并比较
+     */
+    private int applyBatch(long upperBound) {
+        long[] lastId = {watermark};
+        LongLongMap netAmounts = new LongLongMap(256);
+        int[] rows = {0};
+        jdbcTemplate.query(SELECT_LEGS_SQL, rs -> {
+            lastId[0] = rs.getLong(1);
+            long amountCents = rs.getLong(4);
+            long debitAccount = rs.getLong(2);
+            long creditAccount = rs.getLong(3);
+            if (debitAccount != 0L) {
+                netAmounts.add(debitAccount, Money.negateCents(amountCents));
+            }
+            if (creditAccount != 0L) {
+                netAmounts.add(creditAccount, amountCents);
+            }
+            rows[0]++;
+        }, watermark, upperBound, batchSize);
+        // 读满一批时只推进到本批最后一笔交易，剩余的交易下次处理
+        long batchEnd = rows[0] >= batchSize ? lastId[0] : upperBound;
+
+        List<Long> touched = new ArrayList<>(netAmounts.size());
+        netAmounts.forEach((accountId, amount) -> touched.add(accountId));
+        if (!touched.isEmpty()) {
+            LongLongMap live = new LongLongMap(touched.size());
+            LongLongMap newer = new LongLongMap(touched.size());
+            for (int from = 0; from < touched.size(); from += IN_BATCH_SIZE) {
+                List<Long> ids = touched.subList(from, Math.min(from + IN_BATCH_SIZE, touched.size()));
+                String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+                jdbcTemplate.query(String.format(SELECT_BALANCES_SQL, placeholders),
+                        rs -> {
+                            live.add(rs.getLong(1), rs.getLong(2));
+                        },
+                        ids.toArray());
+                List<Object> args = new ArrayList<>(ids.size() * 2 + 2);
+                args.addAll(ids);
+                args.add(batchEnd);
+                args.addAll(ids);
+                args.add(batchEnd);
+                jdbcTemplate.query(String.format(SUM_NEWER_SQL, placeholders),
+                        rs -> {
+                            newer.add(rs.getLong(1), rs.getLong(2));
+                        },
+                        args.toArray());
+            }
+            compare(touched, netAmounts, live, newer);
+        }
+
+        watermark = batchEnd;
+        watermarkTimestamp = SnowflakeIdGenerator.timestampOf(batchEnd);
+        transactionCounter.increment(rows[0]);
+        return rows[0];
+    }
+
+    /**
+     * 推进影子余额并与账户余额比较；新出现的账户以扣除更新交易后的余额初始化
+     */
+    private void compare(List<Long> touched, LongLongMap netAmounts, LongLongMap live, LongLongMap newer) {
+        if (shadowBalances.size() + touched.size() > maxAccounts) {
+            log.info("影子余额表超过 {} 个账户，清空后重新初始化", maxAccounts);
+            shadowBalances = new LongLongMap(1024);
+            drifts.clear();
+        }
+        for (Long accountId : touched) {
+            if (!live.containsKey(accountId)) {
+                continue;
+            }
+            long observed = Money.addCents(live.get(accountId), Money.negateCents(newer.get(accountId)));
+            if (!shadowBalances.containsKey(accountId)) {
+                shadowBalances.add(accountId, observed);
+                continue;
+            }
+            shadowBalances.add(accountId, netAmounts.get(accountId));
+            long drift = Money.addCents(observed, Money.negateCents(shadowBalances.get(accountId)));
+            if (drift == 0L) {
+                drifts.remove(accountId);
+            } else if (!Long.valueOf(drift).equals(drifts.put(accountId, drift))) {
+                log.warn("余额漂移 - 账户: {}, 账户余额: {}, 交易推算余额: {}",
+                        accountId, Money.ofCents(observed), Money.ofCents(shadowBalances.get(accountId)));
+            }
+        }
+    }
+
+    /**
+     * 可以安全处理的最大交易ID；Snowflake之前的自增ID远小于按时间推算的上界，此时以当前最大ID为上界
+     */
+    private long upperBound() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM transactions", Long.class);
+        long safeId = SnowflakeIdGenerator.minIdAt(System.currentTimeMillis() - lagMs) - 1;
+        return Math.min(maxId != null ? maxId : 0L, safeId);
+    }
+
+    /**
+     * @return 当前存在漂移的账户及漂移金额（分）
+     */
+    Map<Long, Long> getDrifts() {
+        return Collections.unmodifiableMap(drifts);
+    }
+
+    private double totalDrift() {
+        long total = 0L;
+        for (long drift : drifts.values()) {
+            total = Money.addCents(total, Math.abs(drift));
+        }
+        return Money.ofCents(total).toBigDecimal().doubleValue();
+    }
+}
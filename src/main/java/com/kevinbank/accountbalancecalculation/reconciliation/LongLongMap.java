@@ -0,0 +1,123 @@
+package com.kevinbank.accountbalancecalculation.reconciliation;
+
+import com.kevinbank.accountbalancecalculation.model.Money;
+
+/**
+ * 以long为键、long为值的开放寻址哈希表，用于按账户累加以分为单位的金额，避免装箱。
+ * 键0保留为空槽标记，账户ID从不为0；非线程安全，每个对账任务各自持有一个实例，最后再合并。
+ */
+final class LongLongMap {
+
+    /**
+     * 键与值的回调，遍历时使用
+     */
+    @FunctionalInterface
+    interface Visitor {
+        void visit(long key, long value);
+    }
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private int mask;
+
+    LongLongMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * 把金额累加到指定键上，键不存在时从0开始
+     *
+     * @param key 键，必须不为0
+     * @param delta 以分为单位的金额
+     */
+    void add(long key, long delta) {
+        int index = indexOf(key);
+        if (keys[index] == key) {
+            values[index] = Money.addCents(values[index], delta);
+            return;
+        }
+        keys[index] = key;
+        values[index] = delta;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    /**
+     * @param key 键
+     * @return 键对应的值，键不存在时返回0
+     */
+    long get(long key) {
+        int index = indexOf(key);
+        return keys[index] == key ? values[index] : 0L;
+    }
+
+    /**
+     * @param key 键
+     * @return 如果键存在则返回true
+     */
+    boolean containsKey(long key) {
+        return key != 0L && keys[indexOf(key)] == key;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 把另一个表的全部金额累加到本表
+     *
+     * @param other 另一个表
+     * @return 本表
+     */
+    LongLongMap merge(LongLongMap other) {
+        other.forEach(this::add);
+        return this;
+    }
+
+    void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0L) {
+                visitor.visit(keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * 线性探测，返回键所在的槽位或者第一个空槽位
+     */
+    private int indexOf(long key) {
+        int index = mix(key) & mask;
+        while (keys[index] != 0L && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length << 1];
+        values = new long[oldValues.length << 1];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0L) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Snowflake ID的低位是序号，高位是时间，混合后再取低位，避免连续ID聚集在相邻槽位
+     */
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,98 @@
+package com.kevinbank.accountbalancecalculation.reconciliation;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.kevinbank.accountbalancecalculation.model.Money;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一次余额对账的结果
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReconciliationReport {
+
+    /**
+     * 差异类型
+     */
+    public enum Kind {
+        /**
+         * 账户余额与开户余额加交易净额不一致
+         */
+        BALANCE_MISMATCH,
+
+        /**
+         * Redis中account:{id}缓存的余额与数据库不一致
+         */
+        STALE_CACHE
+    }
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime completedAt;
+
+    /**
+     * 对账开始时的最大交易ID，只统计不超过该ID的交易
+     */
+    private long watermark;
+
+    private long transactionsScanned;
+
+    private long accountsChecked;
+
+    /**
+     * 没有开户余额、无法校验余额的账户数
+     */
+    private long accountsWithoutBaseline;
+
+    private long cacheEntriesChecked;
+
+    private long balanceMismatches;
+
+    private long staleCacheEntries;
+
+    /**
+     * 已删除的过期缓存数，仅在开启reconciliation.evict-stale-cache时不为0
+     */
+    private long staleCacheEvicted;
+
+    /**
+     * 差异明细，超过reconciliation.max-report-size的部分只计数不记录
+     */
+    private List<Discrepancy> discrepancies = new ArrayList<>();
+
+    /**
+     * 对账失败时的原因
+     */
+    private String error;
+
+    /**
+     * 单个账户的差异
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Discrepancy {
+        private Long accountId;
+
+        private Kind kind;
+
+        /**
+         * 期望的余额：余额差异为开户余额加交易净额，缓存差异为数据库中的余额
+         */
+        @JsonSerialize
+        private Money expected;
+
+        /**
+         * 实际的余额：余额差异为数据库中的余额，缓存差异为缓存中的余额
+         */
+        @JsonSerialize
+        private Money actual;
+    }
+}
@@ -1,13 +1,16 @@
 package com.kevinbank.accountbalancecalculation.repository;
 
 import com.kevinbank.accountbalancecalculation.model.Account;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import jakarta.persistence.LockModeType;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -36,6 +39,88 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
     @Query("SELECT a FROM Account a WHERE a.id = :id")
     Optional<Account> findByIdWithLock(@Param("id") Long id);
 
+    /**
+     * 原子地调整账户余额。
+     * 在一条条件UPDATE语句中同时完成余额增减和信用额度下限校验，
+     * 避免先查询再保存带来的更新丢失，也省去一次查询往返。
+     * 更新成功时同一条语句把更新后的余额记入会话变量@balance_after，由{@link #findBalanceAfterDelta()}读取。
+     *
+     * @param id 账户ID。
+     * @param delta 余额变动金额，正数表示入账，负数表示出账。
+     * @return 受影响的行数：1表示更新成功，0表示账户不存在或变动后余额低于信用额度下限。
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE accounts SET balance = (@balance_after \\:= balance + :delta), version = version + 1 " +
+            "WHERE id = :id AND balance + :delta >= -credit_limit", nativeQuery = true)
+    int applyBalanceDelta(@Param("id") Long id, @Param("delta") BigDecimal delta);
+
+    /**
+     * 不加锁读取账户的余额、信用额度和版本号，用于乐观并发更新。
+     * 直接查询数据库而不经过持久化上下文，重试时总能读到最新提交的版本。
+     *
+     * @param id 账户ID。
+     * @return 账户余额视图，如果找不到账户则返回Optional.empty()。
+     */
+    @Query(value = "SELECT balance, credit_limit AS creditLimit, version FROM accounts WHERE id = :id",
+            nativeQuery = true)
+    Optional<BalanceView> findBalanceView(@Param("id") Long id);
+
+    /**
+     * 按版本号有条件地调整账户余额，版本号与读取时不一致说明账户已被其他事务修改。
+     *
+     * @param id 账户ID。
+     * @param delta 余额变动金额。
+     * @param version 读取余额时的版本号。
+     * @return 受影响的行数：1表示更新成功，0表示版本冲突或账户不存在。
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE accounts SET balance = balance + :delta, version = version + 1 " +
+            "WHERE id = :id AND version = :version", nativeQuery = true)
+    int applyBalanceDeltaIfVersion(@Param("id") Long id, @Param("delta") BigDecimal delta,
+                                   @Param("version") long version);
+
+    /**
+     * 无条件调整账户主余额。
+     * 用于把热点账户子余额槽位中已经入账的金额合并回主余额，不做额度检查。
+     *
+     * @param id 账户ID。
+     * @param delta 余额变动金额。
+     * @return 受影响的行数。
+     */
+    @Modifying
+    @Query(value = "UPDATE accounts SET balance = balance + :delta, version = version + 1 WHERE id = :id",
+            nativeQuery = true)
+    int addBalance(@Param("id") Long id, @Param("delta") BigDecimal delta);
+
+    /**
+     * 直接写入账户余额。
+     * 用于内存余额引擎异步持久化已经校验过的余额，不做任何额度检查。
+     *
+     * @param id 账户ID。
+     * @param balance 要写入的余额。
+     * @return 受影响的行数。
+     */
+    @Modifying
+    @Query(value = "UPDATE accounts SET balance = :balance, version = version + 1 WHERE id = :id", nativeQuery = true)
+    int overwriteBalance(@Param("id") Long id, @Param("balance") BigDecimal balance);
+
+    /**
+     * 按ID顺序分页读取账户，以上一页最后一个账户ID为起点，不需要OFFSET扫描。
+     *
+     * @param id 上一页最后一个账户ID，第一页传0。
+     * @param pageable 只使用其中的页大小。
+     * @return ID大于给定值的账户，按ID升序排列。
+     */
+    List<Account> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * 查询所有热点账户及其子余额槽数量。
+     *
+     * @return 每个元素为[账户ID, 子余额槽数量]。
+     */
+    @Query("SELECT a.id, a.subBalanceSlots FROM Account a WHERE a.subBalanceSlots > 0")
+    List<Object[]> findHotAccountSlots();
+
     /**
      * 根据账户号码查找账户信息。
      *
@@ -52,4 +137,25 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
      * @return 包含账户信息的列表，如果找不到匹配的账户则返回空列表。
      */
     List<Account> findByUserId(Long userId);
+
+    /**
+     * 读取本连接上一次{@link #applyBalanceDelta}更新成功时记录的更新后余额。
+     * 余额在UPDATE语句内部记录，与余额变动是同一个原子操作；这里只读取会话变量，不访问accounts表。
+     * 必须在同一事务中、更新成功之后立即调用，更新失败时会话变量保留的是之前的值。
+     *
+     * @return 更新后的账户主余额，不包含子余额槽位。
+     */
+    @Query(value = "SELECT @balance_after", nativeQuery = true)
+    BigDecimal findBalanceAfterDelta();
+
+    /**
+     * 账户余额视图，只包含乐观并发更新需要的字段。
+     */
+    interface BalanceView {
+        BigDecimal getBalance();
+
+        BigDecimal getCreditLimit();
+
+        Long getVersion();
+    }
 }
@@ -0,0 +1,66 @@
+package com.kevinbank.accountbalancecalculation.repository;
+
+import com.kevinbank.accountbalancecalculation.model.AccountSubBalance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * AccountSubBalanceRepository接口用于读写热点账户的子余额槽位。
+ */
+@Repository
+public interface AccountSubBalanceRepository extends JpaRepository<AccountSubBalance, AccountSubBalance.Key> {
+
+    /**
+     * 向一个槽位入账，槽位不存在时创建。
+     * 只锁定该槽位所在的行，不涉及accounts表。
+     *
+     * @param accountId 账户ID
+     * @param slot 槽位序号
+     * @param amount 入账金额，必须为正数
+     * @return 受影响的行数
+     */
+    @Modifying
+    @Query(value = "INSERT INTO account_sub_balances (account_id, slot, balance) VALUES (:accountId, :slot, :amount) " +
+            "ON DUPLICATE KEY UPDATE balance = balance + :amount", nativeQuery = true)
+    int credit(@Param("accountId") Long accountId, @Param("slot") int slot, @Param("amount") BigDecimal amount);
+
+    /**
+     * 使用悲观写锁读取账户的全部非零槽位，用于把槽位余额合并到主余额
+     *
+     * @param accountId 账户ID
+     * @return 每个元素为[槽位序号, 槽位余额]
+     */
+    @Query(value = "SELECT slot, balance FROM account_sub_balances " +
+            "WHERE account_id = :accountId AND balance <> 0 ORDER BY slot FOR UPDATE", nativeQuery = true)
+    List<Object[]> lockNonZeroSlots(@Param("accountId") Long accountId);
+
+    /**
+     * 从一个槽位中扣除已经合并到主余额的金额。
+     * 按扣除金额而不是直接清零，合并期间新写入的入账不会丢失。
+     *
+     * @param accountId 账户ID
+     * @param slot 槽位序号
+     * @param amount 已合并的金额
+     * @return 受影响的行数
+     */
+    @Modifying
+    @Query(value = "UPDATE account_sub_balances SET balance = balance - :amount " +
+            "WHERE account_id = :accountId AND slot = :slot", nativeQuery = true)
+    int deduct(@Param("accountId") Long accountId, @Param("slot") int slot, @Param("amount") BigDecimal amount);
+
+    /**
+     * 汇总账户全部槽位的余额
+     *
+     * @param accountId 账户ID
+     * @return 槽位余额之和，没有槽位时为0
+     */
+    @Query(value = "SELECT COALESCE(SUM(balance), 0) FROM account_sub_balances WHERE account_id = :accountId",
+            nativeQuery = true)
+    BigDecimal sumBalance(@Param("accountId") Long accountId);
+}
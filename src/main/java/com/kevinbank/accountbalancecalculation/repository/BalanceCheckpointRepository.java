@@ -0,0 +1,39 @@
+package com.kevinbank.accountbalancecalculation.repository;
+
+import com.kevinbank.accountbalancecalculation.model.BalanceCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * BalanceCheckpointRepository接口用于读取账户的每日余额检查点。
+ */
+@Repository
+public interface BalanceCheckpointRepository extends JpaRepository<BalanceCheckpoint, BalanceCheckpoint.Key> {
+
+    /**
+     * 查询不晚于指定时间的最近一个检查点
+     *
+     * @param accountId 账户ID
+     * @param time 时间点
+     * @return 检查点，不存在时返回空
+     */
+    @Query(value = "SELECT * FROM balance_checkpoints WHERE account_id = :accountId AND checkpoint_time <= :time " +
+            "ORDER BY checkpoint_time DESC LIMIT 1", nativeQuery = true)
+    Optional<BalanceCheckpoint> findLatestAtOrBefore(@Param("accountId") Long accountId, @Param("time") LocalDateTime time);
+
+    /**
+     * 查询晚于指定时间的最早一个检查点
+     *
+     * @param accountId 账户ID
+     * @param time 时间点
+     * @return 检查点，不存在时返回空
+     */
+    @Query(value = "SELECT * FROM balance_checkpoints WHERE account_id = :accountId AND checkpoint_time > :time " +
+            "ORDER BY checkpoint_time LIMIT 1", nativeQuery = true)
+    Optional<BalanceCheckpoint> findEarliestAfter(@Param("accountId") Long accountId, @Param("time") LocalDateTime time);
+}
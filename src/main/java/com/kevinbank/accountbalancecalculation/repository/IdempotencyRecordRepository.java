@@ -0,0 +1,82 @@
+package com.kevinbank.accountbalancecalculation.repository;
+
+import com.kevinbank.accountbalancecalculation.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * IdempotencyRecordRepository接口用于读写幂等记录。
+ */
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    /**
+     * 查询未过期的幂等记录。
+     *
+     * @param key 幂等键
+     * @param now 当前时间
+     * @return 幂等记录，不存在或已过期时返回Optional.empty()
+     */
+    @Query("SELECT r FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND r.expiresAt > :now")
+    Optional<IdempotencyRecord> findActive(@Param("key") String key, @Param("now") LocalDateTime now);
+
+    /**
+     * 占用幂等键。
+     * 立即执行INSERT而不是等到事务提交时再刷新，同一个键的并发请求在主键上排队：
+     * 先到的请求提交后，后到的请求得到主键冲突；先到的请求回滚时，后到的请求插入成功并继续处理。
+     *
+     * @param key 幂等键
+     * @param requestHash 请求摘要
+     * @param now 当前时间
+     * @param expiresAt 过期时间
+     * @return 受影响的行数
+     */
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_records (idempotency_key, request_hash, created_at, expires_at) " +
+            "VALUES (:key, :requestHash, :now, :expiresAt)", nativeQuery = true)
+    int claim(@Param("key") String key, @Param("requestHash") String requestHash,
+              @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * 写入首次处理的结果。
+     *
+     * @param key 幂等键
+     * @param transactionId 交易ID
+     * @param responseBody 响应内容
+     * @return 受影响的行数
+     */
+    @Modifying
+    @Query(value = "UPDATE idempotency_records SET transaction_id = :transactionId, response_body = :responseBody " +
+            "WHERE idempotency_key = :key", nativeQuery = true)
+    int complete(@Param("key") String key, @Param("transactionId") Long transactionId,
+                 @Param("responseBody") String responseBody);
+
+    /**
+     * 删除一个已过期的幂等键，使其可以重新被占用。
+     *
+     * @param key 幂等键
+     * @param now 当前时间
+     * @return 受影响的行数
+     */
+    @Modifying
+    @Query(value = "DELETE FROM idempotency_records WHERE idempotency_key = :key AND expires_at <= :now",
+            nativeQuery = true)
+    int deleteExpired(@Param("key") String key, @Param("now") LocalDateTime now);
+
+    /**
+     * 分批清理过期的幂等记录。
+     *
+     * @param now 当前时间
+     * @param limit 每批最多删除的行数
+     * @return 删除的行数
+     */
+    @Modifying
+    @Query(value = "DELETE FROM idempotency_records WHERE expires_at <= :now LIMIT :limit", nativeQuery = true)
+    int purgeExpired(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
@@ -0,0 +1,27 @@
+package com.kevinbank.accountbalancecalculation.repository;
+
+import com.kevinbank.accountbalancecalculation.model.JournalCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * JournalCheckpointRepository接口用于读写交易日志的持久化检查点。
+ */
+@Repository
+public interface JournalCheckpointRepository extends JpaRepository<JournalCheckpoint, Long> {
+
+    /**
+     * 推进节点的持久化检查点，只允许向前推进。
+     *
+     * @param nodeId 节点ID
+     * @param persistedOffset 下一条待持久化记录的序号
+     * @return 受影响的行数
+     */
+    @Modifying
+    @Query(value = "UPDATE journal_checkpoints SET persisted_offset = :persistedOffset, updated_at = NOW() " +
+            "WHERE node_id = :nodeId AND persisted_offset <= :persistedOffset", nativeQuery = true)
+    int advance(@Param("nodeId") Long nodeId, @Param("persistedOffset") long persistedOffset);
+}
@@ -1,9 +1,19 @@
 package com.kevinbank.accountbalancecalculation.repository;
 
 import com.kevinbank.accountbalancecalculation.model.Transaction;
+import com.kevinbank.accountbalancecalculation.model.TransactionExportRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * TransactionRepository接口用于处理与Transaction实体相关的数据库操作.
@@ -13,13 +23,109 @@ import java.util.List;
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
     /**
-     * 根据源账户ID或目标账户ID查找交易记录.
-     * 此方法允许通过提供源账户ID或目标账户ID来检索相关的交易记录，
-     * 以便用户可以查看特定账户的所有支出和收入交易.
+     * 导出查询的fetchSize.
+     * MySQL驱动只有在fetchSize为Integer.MIN_VALUE时才逐行流式读取结果集，其他值都会把整个结果集读入内存.
+     */
+    String EXPORT_FETCH_SIZE = "" + Integer.MIN_VALUE;
+
+    String EXPORT_ROW = "SELECT new com.kevinbank.accountbalancecalculation.model.TransactionExportRow(" +
+            "t.id, t.transactionTime, t.type, t.sourceAccountId, t.targetAccountId, t.amount, " +
+            "t.sourceBalanceAfter, t.targetBalanceAfter, t.description) FROM Transaction t ";
+
+    /**
+     * 按账户导出时UNION ALL各分支选出的列，外层查询按别名构造导出行
+     */
+    String EXPORT_COLUMNS = "t.id AS id, t.transactionTime AS transactionTime, t.type AS type, " +
+            "t.sourceAccountId AS sourceAccountId, t.targetAccountId AS targetAccountId, t.amount AS amount, " +
+            "t.sourceBalanceAfter AS sourceBalanceAfter, t.targetBalanceAfter AS targetBalanceAfter, " +
+            "t.description AS description";
+
+    /**
+     * 在交易时间范围内按ID查找交易记录.
+     * 交易表按transaction_time分区，带上交易时间范围后只需要查找对应的分区.
+     *
+     * @param id   交易ID
+     * @param from 交易时间下界（包含）
+     * @param to   交易时间上界（不包含）
+     * @return 交易记录，不在该时间范围内时返回空
+     */
+    @Query(value = "SELECT * FROM transactions WHERE id = :id AND transaction_time >= :from AND transaction_time < :to",
+            nativeQuery = true)
+    Optional<Transaction> findByIdWithin(@Param("id") Long id, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * 按(transaction_time, id)从新到旧分页读取交易记录.
+     * 从上一页最后一笔交易的位置直接定位到索引中继续读取，不使用OFFSET，读取任意一页的代价只与页大小有关.
+     *
+     * @param time  上一页最后一笔交易的交易时间
+     * @param id    上一页最后一笔交易的ID
+     * @param limit 最多读取的记录数
+     * @return 位于游标之后的交易记录
+     */
+    @Query(value = "SELECT * FROM transactions WHERE transaction_time < :time OR (transaction_time = :time AND id < :id) " +
+            "ORDER BY transaction_time DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<Transaction> findPageBefore(@Param("time") LocalDateTime time, @Param("id") long id, @Param("limit") int limit);
+
+    /**
+     * 按(transaction_time, id)从新到旧分页读取指定账户作为来源或目标账户的交易记录.
+     * 拆成来源账户和目标账户两个分支，各自在(source_account_id, transaction_time, id)和(target_account_id, transaction_time, id)
+     * 索引上做一次范围扫描并取前limit条，再合并排序取前limit条；直接用OR条件时MySQL只能走索引合并或全表扫描.
+     * 来源和目标是同一账户的交易只在来源分支中返回.
+     *
+     * @param accountId 账户ID
+     * @param time      上一页最后一笔交易的交易时间
+     * @param id        上一页最后一笔交易的ID
+     * @param limit     最多读取的记录数
+     * @return 位于游标之后的交易记录
+     */
+    @Query(value = "SELECT * FROM (" +
+            "(SELECT * FROM transactions WHERE source_account_id = :accountId " +
+            "AND (transaction_time < :time OR (transaction_time = :time AND id < :id)) " +
+            "ORDER BY transaction_time DESC, id DESC LIMIT :limit) " +
+            "UNION ALL " +
+            "(SELECT * FROM transactions WHERE target_account_id = :accountId " +
+            "AND (source_account_id IS NULL OR source_account_id <> :accountId) " +
+            "AND (transaction_time < :time OR (transaction_time = :time AND id < :id)) " +
+            "ORDER BY transaction_time DESC, id DESC LIMIT :limit)" +
+            ") t ORDER BY transaction_time DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<Transaction> findPageByAccountIdBefore(@Param("accountId") Long accountId, @Param("time") LocalDateTime time,
+                                                @Param("id") long id, @Param("limit") int limit);
+
+    /**
+     * 按交易时间顺序流式读取交易时间在[from, to)内的交易，直接构造导出行而不加载实体.
+     * 必须在事务中使用，并在读取完成后关闭返回的流；流打开期间一直占用一个数据库连接.
+     *
+     * @param from 起始时间（包含）
+     * @param to   结束时间（不包含）
+     * @return 导出行的流
+     */
+    @Query(EXPORT_ROW + "WHERE t.transactionTime >= :from AND t.transactionTime < :to ORDER BY t.transactionTime, t.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    Stream<TransactionExportRow> streamForExport(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * 按交易时间顺序流式读取指定账户作为来源或目标账户、交易时间在[from, to)内的交易.
+     * 与{@link #findPageByAccountIdBefore}一样拆成来源账户和目标账户两个分支，各自在对应的(账户, transaction_time, id)索引上
+     * 做范围扫描，合并后再排序；来源和目标是同一账户的交易只在来源分支中返回.
+     * 必须在事务中使用，并在读取完成后关闭返回的流；流打开期间一直占用一个数据库连接.
      *
-     * @param sourceAccountId  源账户ID
-     * @param targetAccountId  目标账户ID
-     * @return 包含所有匹配交易记录的列表
+     * @param accountId 账户ID
+     * @param from      起始时间（包含）
+     * @param to        结束时间（不包含）
+     * @return 导出行的流
      */
-    List<Transaction> findBySourceAccountIdOrTargetAccountId(Long sourceAccountId, Long targetAccountId);
+    @Query("SELECT new com.kevinbank.accountbalancecalculation.model.TransactionExportRow(" +
+            "u.id, u.transactionTime, u.type, u.sourceAccountId, u.targetAccountId, u.amount, " +
+            "u.sourceBalanceAfter, u.targetBalanceAfter, u.description) FROM (" +
+            "SELECT " + EXPORT_COLUMNS + " FROM Transaction t WHERE t.sourceAccountId = :accountId " +
+            "AND t.transactionTime >= :from AND t.transactionTime < :to " +
+            "UNION ALL " +
+            "SELECT " + EXPORT_COLUMNS + " FROM Transaction t WHERE t.targetAccountId = :accountId " +
+            "AND (t.sourceAccountId IS NULL OR t.sourceAccountId <> :accountId) " +
+            "AND t.transactionTime >= :from AND t.transactionTime < :to" +
+            ") u ORDER BY u.transactionTime, u.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    Stream<TransactionExportRow> streamForExportByAccountId(@Param("accountId") Long accountId,
+                                                            @Param("from") LocalDateTime from,
+                                                            @Param("to") LocalDateTime to);
 }
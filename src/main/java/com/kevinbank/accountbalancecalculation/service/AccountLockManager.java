@@ -0,0 +1,31 @@
+package com.kevinbank.accountbalancecalculation.service;
+
+import java.util.Collection;
+
+/**
+ * 账户锁管理接口，用于在交易处理期间对涉及的账户加锁。
+ * 实现类必须按固定顺序获取多个账户的锁以避免死锁，并在超时前阻塞等待而不是立即失败。
+ */
+public interface AccountLockManager {
+
+    /**
+     * 获取一组账户的锁
+     *
+     * @param accountIds 需要加锁的账户ID，允许重复，null会被忽略
+     * @return 锁句柄，调用方负责在同一线程中释放
+     * @throws RuntimeException 如果在超时时间内未能获取全部锁
+     */
+    LockHandle lock(Collection<Long> accountIds);
+
+    /**
+     * 已获取的一组账户锁，释放操作是幂等的
+     */
+    interface LockHandle extends AutoCloseable {
+
+        /**
+         * 释放所有已获取的锁
+         */
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,25 @@
+package com.kevinbank.accountbalancecalculation.service;
+
+import com.kevinbank.accountbalancecalculation.model.CreateTransactionRequest;
+import com.kevinbank.accountbalancecalculation.model.TransactionRequestStatus;
+
+/**
+ * 异步交易服务接口，请求校验后进入队列即返回，由后台工作线程创建交易
+ */
+public interface AsyncTransactionService {
+
+    /**
+     * 提交交易请求
+     * @param request 交易请求
+     * @return 处于PENDING状态的请求，包含用于查询的句柄
+     * @throws com.kevinbank.accountbalancecalculation.exception.TransactionQueueFullException 如果队列已满
+     */
+    TransactionRequestStatus submit(CreateTransactionRequest request);
+
+    /**
+     * 查询交易请求的处理状态
+     * @param handle 提交时返回的句柄
+     * @return 处理状态
+     */
+    TransactionRequestStatus getStatus(String handle);
+}
@@ -0,0 +1,27 @@
+package com.kevinbank.accountbalancecalculation.service;
+
+import com.kevinbank.accountbalancecalculation.model.BalanceAsOf;
+
+import java.time.LocalDateTime;
+
+/**
+ * 历史余额服务接口，按时间点查询账户余额并维护每日余额检查点
+ */
+public interface BalanceHistoryService {
+
+    /**
+     * 查询账户在指定时间点的余额，包含交易时间不晚于该时间点的全部交易
+     * @param accountId 账户ID
+     * @param asOf 时间点
+     * @return 该时间点的余额
+     * @throws RuntimeException 如果账户不存在
+     */
+    BalanceAsOf getBalanceAsOf(Long accountId, LocalDateTime asOf);
+
+    /**
+     * 为全部账户写入指定时间的余额检查点，已经存在的检查点保持不变
+     * @param checkpointTime 检查点时间
+     * @return 新写入的检查点数
+     */
+    int writeCheckpoints(LocalDateTime checkpointTime);
+}
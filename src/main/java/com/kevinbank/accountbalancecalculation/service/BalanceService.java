@@ -1,6 +1,6 @@
 package com.kevinbank.accountbalancecalculation.service;
 
-import java.math.BigDecimal;
+import com.kevinbank.accountbalancecalculation.model.Money;
 
 /**
  * 账户余额服务接口，用于定义更新账户余额的方法。
@@ -11,6 +11,28 @@ public interface BalanceService {
      *
      * @param accountId 账户ID，标识需要更新余额的账户。
      * @param amount    更新金额，表示要增加或减少的金额。
+     * @return 更新后的账户余额；无法在本次更新中准确确定时返回null（例如热点账户的余额分散在子余额槽位中）。
      */
-    void updateBalance(Long accountId, BigDecimal amount);
+    Money updateBalance(Long accountId, Money amount);
+
+    /**
+     * 撤销一笔已经生效的余额变动，用于交易在余额更新之后、落地之前失败的补偿。
+     * 默认实现等同于反向更新余额。
+     *
+     * @param accountId 账户ID。
+     * @param amount    当初更新的金额。
+     */
+    default void revertBalance(Long accountId, Money amount) {
+        updateBalance(accountId, amount.negate());
+    }
+
+    /**
+     * 账户信用额度变化后通知余额服务，在修改额度的事务提交后调用。
+     * 默认实现不做任何事，数据库余额引擎每次更新时都按数据库中的额度校验。
+     *
+     * @param accountId   账户ID。
+     * @param creditLimit 新的信用额度。
+     */
+    default void refreshCreditLimit(Long accountId, Money creditLimit) {
+    }
 }
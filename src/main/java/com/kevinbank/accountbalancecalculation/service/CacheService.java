@@ -4,6 +4,7 @@
  */
 package com.kevinbank.accountbalancecalculation.service;
 
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -17,6 +18,11 @@ public interface CacheService {
      */
     void set(String key, Object value, long timeout, TimeUnit unit);
 
+    /**
+     * 批量设置缓存，所有缓存项使用相同的过期时间
+     */
+    void setAll(Map<String, ?> values, long timeout, TimeUnit unit);
+
     /**
      * 获取缓存
      */
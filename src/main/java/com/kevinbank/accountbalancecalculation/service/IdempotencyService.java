@@ -0,0 +1,24 @@
+package com.kevinbank.accountbalancecalculation.service;
+
+import java.util.function.Supplier;
+
+/**
+ * 幂等服务接口
+ * 根据客户端传入的Idempotency-Key保证重试的请求只处理一次，重复请求直接返回首次处理的响应
+ */
+public interface IdempotencyService {
+
+    /**
+     * 以幂等方式执行一个操作
+     *
+     * @param scope 接口范围，不同接口的相同键互不影响
+     * @param key 客户端传入的幂等键，为空时直接执行操作
+     * @param request 请求内容，用于识别同一个键被用于不同的请求
+     * @param responseType 响应类型
+     * @param action 实际要执行的操作
+     * @param <T> 响应类型
+     * @return 首次处理的响应
+     * @throws com.kevinbank.accountbalancecalculation.exception.IdempotencyConflictException 如果同一个键已被用于内容不同的请求
+     */
+    <T> T execute(String scope, String key, Object request, Class<T> responseType, Supplier<T> action);
+}
@@ -0,0 +1,32 @@
+package com.kevinbank.accountbalancecalculation.service;
+
+import com.kevinbank.accountbalancecalculation.model.Account;
+import com.kevinbank.accountbalancecalculation.model.Transaction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * 响应式查询服务接口，提供不占用请求线程的账户和交易只读查询
+ */
+public interface ReactiveQueryService {
+
+    /**
+     * 根据ID获取账户，先查缓存，未命中时查询数据库并写入缓存
+     * @param id 账户ID
+     * @return 账户；账户不存在时以错误结束
+     */
+    Mono<Account> getAccount(Long id);
+
+    /**
+     * 流式读取全部账户，按订阅方的需求逐行从数据库读取
+     * @return 账户流
+     */
+    Flux<Account> getAllAccounts();
+
+    /**
+     * 流式读取指定账户的交易记录
+     * @param accountId 账户ID
+     * @return 交易记录流
+     */
+    Flux<Transaction> getTransactionsByAccountId(Long accountId);
+}
@@ -0,0 +1,25 @@
+package com.kevinbank.accountbalancecalculation.service;
+
+import com.kevinbank.accountbalancecalculation.model.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+/**
+ * 交易导出服务接口，把一段时间内的交易流式写出，内存占用与导出的行数无关
+ */
+public interface TransactionExportService {
+
+    /**
+     * 按交易时间顺序导出交易时间在[from, to)内的交易
+     * @param accountId 账户ID，为空时导出全部账户
+     * @param from 起始时间（包含）
+     * @param to 结束时间（不包含）
+     * @param format 导出格式
+     * @param out 输出流，导出完成后刷新但不关闭
+     * @return 导出的行数
+     * @throws IOException 如果写出失败，通常是客户端断开连接
+     */
+    long export(Long accountId, LocalDateTime from, LocalDateTime to, ExportFormat format, OutputStream out) throws IOException;
+}
@@ -1,7 +1,9 @@
 package com.kevinbank.accountbalancecalculation.service;
 
+import com.kevinbank.accountbalancecalculation.model.BatchTransactionResult;
 import com.kevinbank.accountbalancecalculation.model.Transaction;
 import com.kevinbank.accountbalancecalculation.model.CreateTransactionRequest;
+import com.kevinbank.accountbalancecalculation.model.TransactionPage;
 import java.util.List;
 
 /**
@@ -17,11 +19,21 @@ public interface TransactionService {
     Transaction createTransaction(CreateTransactionRequest request);
 
     /**
-     * 获取指定账户的所有交易记录
+     * 批量创建交易记录，每笔请求单独成功或失败
+     * 涉及不同账户的请求并行处理，涉及同一账户的请求按提交顺序处理
+     * @param requests 按提交顺序排列的交易请求
+     * @return 与请求一一对应的处理结果
+     */
+    List<BatchTransactionResult> createTransactions(List<CreateTransactionRequest> requests);
+
+    /**
+     * 按交易时间从新到旧分页获取指定账户的交易记录
      * @param accountId 账户ID
-     * @return 交易记录列表
+     * @param cursor 上一页返回的游标，为空时读取第一页
+     * @param limit 每页记录数
+     * @return 一页交易记录
      */
-    List<Transaction> getTransactionsByAccountId(Long accountId);
+    TransactionPage getTransactionsByAccountId(Long accountId, String cursor, int limit);
 
     /**
      * 根据ID获取交易记录
@@ -31,8 +43,10 @@ public interface TransactionService {
     Transaction getTransactionById(Long id);
 
     /**
-     * 获取所有交易记录
-     * @return 交易记录列表
+     * 按交易时间从新到旧分页获取所有交易记录
+     * @param cursor 上一页返回的游标，为空时读取第一页
+     * @param limit 每页记录数
+     * @return 一页交易记录
      */
-    List<Transaction> getAllTransactions();
+    TransactionPage getTransactions(String cursor, int limit);
 }
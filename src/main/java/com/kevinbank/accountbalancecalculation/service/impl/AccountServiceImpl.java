@@ -4,6 +4,7 @@ import com.kevinbank.accountbalancecalculation.model.Transaction;
 import com.kevinbank.accountbalancecalculation.model.Account;
 import com.kevinbank.accountbalancecalculation.model.CreateAccountRequest;
 import com.kevinbank.accountbalancecalculation.model.CreateTransactionRequest;
+import com.kevinbank.accountbalancecalculation.model.Money;
 import com.kevinbank.accountbalancecalculation.model.TransactionType;
 import com.kevinbank.accountbalancecalculation.mapper.AccountMapper;
 import com.kevinbank.accountbalancecalculation.repository.AccountRepository;
@@ -14,11 +15,21 @@ import com.kevinbank.accountbalancecalculation.service.CacheService;
 import com.kevinbank.accountbalancecalculation.service.BalanceService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import jakarta.annotation.PostConstruct;
 import java.util.Optional;
@@ -52,19 +63,66 @@ public class AccountServiceImpl implements AccountService {
     @Autowired
     private BalanceService balanceService;
 
-    private static final String ACCOUNT_CACHE_KEY_PREFIX = "account:";
+    @Autowired
+    private HotAccountLedger hotAccountLedger;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 缓存中的金额以分为单位，键带版本前缀，不会读到旧版本以元为单位写入的缓存
+     */
+    private static final String ACCOUNT_CACHE_KEY_PREFIX = "v2:account:";
     private static final long CACHE_TIMEOUT = 30; // 缓存30分钟
 
     /**
-     * 系统初始化时加载所有账户信息到缓存。
-     * 这个方法在服务启动后自动调用，用于预热缓存，提高系统响应速度。
+     * 缓存预热时每页读取的账户数
+     */
+    @Value("${account.cache.warmup-page-size:1000}")
+    private int warmupPageSize;
+
+    /**
+     * 系统初始化时在后台线程中把账户信息加载到缓存。
+     * 预热不阻塞启动，缓存未命中的账户会照常从数据库读取。
      */
     @PostConstruct
     public void init() {
-        List<Account> accounts = accountRepository.findAll();
-        for (Account account : accounts) {
-            String cacheKey = ACCOUNT_CACHE_KEY_PREFIX + account.getId();
-            cacheService.set(cacheKey, account, CACHE_TIMEOUT, TimeUnit.MINUTES);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        Thread warmup = new Thread(this::warmUpCache, "account-cache-warmup");
+        warmup.setDaemon(true);
+        warmup.start();
+    }
+
+    /**
+     * 按ID分页读取账户，每页通过一次管道批量写入缓存，内存占用只与页大小有关
+     */
+    private void warmUpCache() {
+        long start = System.currentTimeMillis();
+        long lastId = 0L;
+        int total = 0;
+        try {
+            while (true) {
+                List<Account> page = accountRepository.findByIdGreaterThanOrderByIdAsc(lastId,
+                        PageRequest.of(0, warmupPageSize));
+                if (page.isEmpty()) {
+                    break;
+                }
+                Map<String, Object> values = new HashMap<>(page.size() * 2);
+                for (Account account : page) {
+                    values.put(ACCOUNT_CACHE_KEY_PREFIX + account.getId(), withSubBalances(account));
+                }
+                cacheService.setAll(values, CACHE_TIMEOUT, TimeUnit.MINUTES);
+                total += page.size();
+                lastId = page.get(page.size() - 1).getId();
+                if (page.size() < warmupPageSize) {
+                    break;
+                }
+            }
+            log.info("账户缓存预热完成 - 账户数: {}, 耗时: {} 毫秒", total, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("账户缓存预热失败，已加载 {} 个账户: {}", total, e.getMessage(), e);
         }
     }
 
@@ -94,6 +152,7 @@ public class AccountServiceImpl implements AccountService {
             log.info("Saving account to database: {}", account);
             Account savedAccount = accountRepository.save(account);
             log.info("Account saved to database with ID: {}", savedAccount.getId());
+            hotAccountLedger.register(savedAccount.getId(), savedAccount.getSubBalanceSlots());
             
             // 更新缓存
             String cacheKey = ACCOUNT_CACHE_KEY_PREFIX + savedAccount.getId();
@@ -130,18 +189,20 @@ public class AccountServiceImpl implements AccountService {
     @Override
     @Transactional
     public void updateBalance(Long accountId, BigDecimal amount) {
-        balanceService.updateBalance(accountId, amount);
+        balanceService.updateBalance(accountId, Money.of(amount));
     }
 
     /**
      * 根据账户ID获取账户信息。
      * 首先尝试从缓存中获取，如果缓存未命中，则从数据库中查询。
+     * 只读事务，启用读写分离时从只读副本查询，读到的余额可能落后主库最多datasource.replica.max-lag-ms。
      *
      * @param id 账户ID。
      * @return 返回账户对象。
      * @throws RuntimeException 如果账户不存在，则抛出运行时异常。
      */
     @Override
+    @Transactional(readOnly = true)
     public Account getAccountById(Long id) {
         String cacheKey = ACCOUNT_CACHE_KEY_PREFIX + id;
         
@@ -154,8 +215,8 @@ public class AccountServiceImpl implements AccountService {
         
         // 缓存未命中，从数据库获取
         log.info("Account not found in cache, fetching from database: {}", id);
-        account = accountRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Account not found: " + id));
+        account = withSubBalances(accountRepository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Account not found: " + id)));
             
         // 放入缓存
         cacheService.set(cacheKey, account, CACHE_TIMEOUT, TimeUnit.MINUTES);
@@ -164,16 +225,47 @@ public class AccountServiceImpl implements AccountService {
 
     /**
      * 获取所有账户信息。
+     * 只读事务，启用读写分离时从只读副本查询。
      *
      * @return 返回账户对象列表。
      */
     @Override
+    @Transactional(readOnly = true)
     public List<Account> getAllAccounts() {
-        return accountRepository.findAll();
+        return accountRepository.findAll().stream()
+                .map(this::withSubBalances)
+                .toList();
+    }
+
+    /**
+     * 热点账户的余额为主余额与各子余额槽位之和。
+     * 返回副本而不是修改查询到的受管实体，避免把合计余额当作主余额写回数据库。
+     *
+     * @param account 从数据库读取的账户
+     * @return 余额为合计余额的账户，普通账户原样返回
+     */
+    private Account withSubBalances(Account account) {
+        if (account.getSubBalanceSlots() <= 0) {
+            return account;
+        }
+        Account view = accountMapper.copy(account);
+        view.setBalance(account.getBalance().add(hotAccountLedger.subBalanceTotal(account.getId())));
+        return view;
+    }
+
+    /**
+     * 交易提交后回读账户。
+     * 在读写事务中读取，启用读写分离时从主库读取，不会从落后的副本读到交易之前的余额
+     */
+    private Account reloadAccount(Long accountId) {
+        return transactionTemplate.execute(status -> withSubBalances(accountRepository.findById(accountId)
+                .orElseThrow(() -> new RuntimeException("账户不存在"))));
     }
 
     /**
      * 存款操作。
+     * 账户存在性由交易服务中的原子余额更新一并校验，无需事先查询账户。
+     * 交易的原子性由交易服务自身保证，这里不再额外开启事务，以便在启用组提交时与其他请求合并提交。
      *
      * @param accountId 账户ID。
      * @param amount 存款金额。
@@ -181,15 +273,12 @@ public class AccountServiceImpl implements AccountService {
      * @throws RuntimeException 如果存款金额不大于0或账户不存在，则抛出运行时异常。
      */
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Account deposit(Long accountId, BigDecimal amount) {
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+        if (!Money.of(amount).isPositive()) {
             throw new RuntimeException("存款金额必须大于0");
         }
 
-        Account account = accountRepository.findById(accountId)
-                .orElseThrow(() -> new RuntimeException("账户不存在"));
-
         try {
             CreateTransactionRequest transactionRequest = new CreateTransactionRequest();
             transactionRequest.setType(TransactionType.DEPOSIT);
@@ -199,8 +288,9 @@ public class AccountServiceImpl implements AccountService {
 
             transactionService.createTransaction(transactionRequest);
 
-            return accountRepository.findById(accountId)
-                    .orElseThrow(() -> new RuntimeException("账户不存在"));
+            return reloadAccount(accountId);
+        } catch (OptimisticLockingFailureException e) {
+            throw e;
         } catch (Exception e) {
             log.error("存款失败", e);
             throw new RuntimeException("存款失败: " + e.getMessage());
@@ -209,6 +299,8 @@ public class AccountServiceImpl implements AccountService {
 
     /**
      * 取款操作。
+     * 余额与信用额度校验由原子余额更新的条件UPDATE完成，避免先读余额再扣款之间的并发窗口。
+     * 与存款相同，不额外开启事务。
      *
      * @param accountId 账户ID。
      * @param amount 取款金额。
@@ -216,19 +308,12 @@ public class AccountServiceImpl implements AccountService {
      * @throws RuntimeException 如果取款金额不大于0、账户不存在或余额不足，则抛出运行时异常。
      */
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Account withdraw(Long accountId, BigDecimal amount) {
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+        if (!Money.of(amount).isPositive()) {
             throw new RuntimeException("取款金额必须大于0");
         }
 
-        Account account = accountRepository.findById(accountId)
-                .orElseThrow(() -> new RuntimeException("账户不存在"));
-
-        if (account.getBalance().compareTo(amount) < 0) {
-            throw new RuntimeException("余额不足");
-        }
-
         try {
             CreateTransactionRequest transactionRequest = new CreateTransactionRequest();
             transactionRequest.setType(TransactionType.WITHDRAW);
@@ -238,8 +323,9 @@ public class AccountServiceImpl implements AccountService {
 
             transactionService.createTransaction(transactionRequest);
 
-            return accountRepository.findById(accountId)
-                    .orElseThrow(() -> new RuntimeException("账户不存在"));
+            return reloadAccount(accountId);
+        } catch (OptimisticLockingFailureException e) {
+            throw e;
         } catch (Exception e) {
             log.error("取款失败", e);
             throw new RuntimeException("取款失败: " + e.getMessage());
@@ -248,6 +334,8 @@ public class AccountServiceImpl implements AccountService {
 
     /**
      * 转账操作。
+     * 不再预先对两个账户加悲观锁读取余额，扣款和入账都由原子余额更新完成，
+     * 数据库行锁仅在条件UPDATE时获取并保持到事务提交。与存款相同，不额外开启事务。
      *
      * @param sourceAccountId 源账户ID。
      * @param targetAccountId 目标账户ID。
@@ -255,26 +343,14 @@ public class AccountServiceImpl implements AccountService {
      * @throws RuntimeException 如果转账金额不大于0、账户不存在或余额不足，则抛出运行时异常。
      */
     @Override
-    @Transactional(rollbackFor = Exception.class)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void transfer(Long sourceAccountId, Long targetAccountId, BigDecimal amount) {
         log.info("开始转账流程 - 从账户: {} 到账户: {}, 金额: {}", sourceAccountId, targetAccountId, amount);
 
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+        if (!Money.of(amount).isPositive()) {
             throw new RuntimeException("转账金额必须大于0");
         }
 
-        Account sourceAccount = accountRepository.findByIdWithLock(sourceAccountId)
-                .orElseThrow(() -> new RuntimeException("源账户不存在"));
-        Account targetAccount = accountRepository.findByIdWithLock(targetAccountId)
-                .orElseThrow(() -> new RuntimeException("目标账户不存在"));
-
-        log.info("源账户当前余额: {}, 目标账户当前余额: {}",
-                sourceAccount.getBalance(), targetAccount.getBalance());
-
-        if (sourceAccount.getBalance().compareTo(amount) < 0) {
-            throw new RuntimeException("余额不足");
-        }
-
         try {
             CreateTransactionRequest transactionRequest = new CreateTransactionRequest();
             transactionRequest.setType(TransactionType.TRANSFER);
@@ -287,10 +363,8 @@ public class AccountServiceImpl implements AccountService {
 
             Transaction transaction = transactionService.createTransaction(transactionRequest);
             log.info("转账交易记录创建成功，交易ID: {}", transaction.getId());
-
-            Transaction savedTransaction = transactionService.getTransactionById(transaction.getId());
-            log.info("已保存的交易记录: {}", savedTransaction);
-
+        } catch (OptimisticLockingFailureException e) {
+            throw e;
         } catch (Exception e) {
             log.error("转账失败: {}", e.getMessage(), e);
             throw new RuntimeException("转账失败: " + e.getMessage());
@@ -300,7 +374,24 @@ public class AccountServiceImpl implements AccountService {
     @Override
     @Transactional
     public Account updateAccount(Account account) {
+        // 取消或调整热点账户设置前，先把子余额槽位中的金额合并回主余额
+        if (hotAccountLedger.isHot(account.getId())) {
+            hotAccountLedger.consolidate(account.getId());
+        }
         Account updatedAccount = accountRepository.save(account);
+        hotAccountLedger.register(updatedAccount.getId(), updatedAccount.getSubBalanceSlots());
+        // 信用额度可能已变化，提交后通知余额服务，分片内存余额引擎据此更新缓存的额度
+        Money creditLimit = updatedAccount.getCreditLimit();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    balanceService.refreshCreditLimit(updatedAccount.getId(), creditLimit);
+                }
+            });
+        } else {
+            balanceService.refreshCreditLimit(updatedAccount.getId(), creditLimit);
+        }
         // 更新缓存
         String cacheKey = ACCOUNT_CACHE_KEY_PREFIX + updatedAccount.getId();
         cacheService.set(cacheKey, updatedAccount, CACHE_TIMEOUT, TimeUnit.MINUTES);
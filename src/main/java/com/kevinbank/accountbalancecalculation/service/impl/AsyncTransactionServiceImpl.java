@@ -0,0 +1,181 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kevinbank.accountbalancecalculation.config.WorkerThreads;
+import com.kevinbank.accountbalancecalculation.exception.TransactionQueueFullException;
+import com.kevinbank.accountbalancecalculation.model.CreateTransactionRequest;
+import com.kevinbank.accountbalancecalculation.model.Money;
+import com.kevinbank.accountbalancecalculation.model.TransactionRequestStatus;
+import com.kevinbank.accountbalancecalculation.service.AsyncTransactionService;
+import com.kevinbank.accountbalancecalculation.service.CacheService;
+import com.kevinbank.accountbalancecalculation.service.TransactionService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步交易服务实现类
+ * 请求在调用线程中完成不依赖数据库的校验后放入有界队列，由固定数量的工作线程调用{@link TransactionService#createTransaction}，
+ * 队列满时立即拒绝，不阻塞请求线程。
+ * 处理状态保存在本实例内存中，处理完成后同时以JSON字符串写入Redis，负载均衡到其他实例的查询也能看到最终状态；
+ * PENDING状态只在接受请求的实例上可见，其他实例在处理完成前查询会返回请求不存在。
+ *
+ * 注意：进入队列但尚未处理的请求只保存在内存中，实例停止时会等待队列处理完，进程崩溃时这部分请求会丢失，状态查询将找不到对应句柄。
+ */
+@Slf4j
+@Service
+public class AsyncTransactionServiceImpl implements AsyncTransactionService {
+
+    private static final String CACHE_KEY_PREFIX = "transaction:request:";
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private CacheService cacheService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private WorkerThreads workerThreads;
+
+    /**
+     * 等待处理的请求数上限，超过时返回429
+     */
+    @Value("${transaction.async.queue-capacity:10000}")
+    private int queueCapacity;
+
+    /**
+     * 工作线程数，受数据库连接池大小限制；使用虚拟线程时同样限制同时访问数据库的请求数
+     */
+    @Value("${transaction.async.workers:8}")
+    private int workers;
+
+    /**
+     * 处理结果的保留时间（分钟）
+     */
+    @Value("${transaction.async.status-ttl-minutes:60}")
+    private long statusTtlMinutes;
+
+    /**
+     * 停止时等待队列处理完成的最长时间（秒）
+     */
+    @Value("${transaction.async.shutdown-timeout-seconds:30}")
+    private long shutdownTimeoutSeconds;
+
+    private ThreadPoolExecutor executor;
+
+    private final Map<String, TransactionRequestStatus> statuses = new ConcurrentHashMap<>();
+
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                workerThreads.factory("transaction-async-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder("transaction.async.queue.size", executor, e -> e.getQueue().size())
+                .description("Async transaction requests waiting for a worker")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("transaction.async.rejected")
+                .description("Async transaction requests rejected because the queue was full")
+                .register(meterRegistry);
+        log.info("异步交易已启用 - 工作线程: {}, 队列容量: {}", workers, queueCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+            log.warn("异步交易队列未能在 {} 秒内处理完，剩余 {} 笔请求被丢弃",
+                    shutdownTimeoutSeconds, executor.shutdownNow().size());
+        }
+    }
+
+    @Override
+    public TransactionRequestStatus submit(CreateTransactionRequest request) {
+        TransactionServiceImpl.validateTransactionRequest(request);
+        if (!Money.of(request.getAmount()).isPositive()) {
+            throw new RuntimeException("交易金额必须大于0");
+        }
+
+        String handle = UUID.randomUUID().toString();
+        TransactionRequestStatus pending = TransactionRequestStatus.pending(handle);
+        statuses.put(handle, pending);
+        try {
+            executor.execute(() -> process(pending, request));
+        } catch (RejectedExecutionException e) {
+            statuses.remove(handle);
+            rejectedCounter.increment();
+            throw new TransactionQueueFullException("交易队列已满，请稍后重试");
+        }
+        log.debug("交易请求已进入队列 - 句柄: {}", handle);
+        return pending;
+    }
+
+    @Override
+    public TransactionRequestStatus getStatus(String handle) {
+        TransactionRequestStatus status = statuses.get(handle);
+        if (status != null) {
+            return status;
+        }
+        String json = cacheService.get(CACHE_KEY_PREFIX + handle, String.class);
+        if (json == null) {
+            throw new RuntimeException("交易请求不存在");
+        }
+        try {
+            return objectMapper.readValue(json, TransactionRequestStatus.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("交易请求状态解析失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 定期删除已经超过保留时间的处理结果
+     */
+    @Scheduled(fixedDelayString = "${transaction.async.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        LocalDateTime expiry = LocalDateTime.now().minusMinutes(statusTtlMinutes);
+        statuses.values().removeIf(status -> status.getState() != TransactionRequestStatus.State.PENDING
+                && status.getUpdatedAt().isBefore(expiry));
+    }
+
+    private void process(TransactionRequestStatus pending, CreateTransactionRequest request) {
+        TransactionRequestStatus finished;
+        try {
+            finished = pending.completed(transactionService.createTransaction(request));
+        } catch (Exception e) {
+            log.warn("异步交易被拒绝 - 句柄: {}, 原因: {}", pending.getHandle(), e.getMessage());
+            finished = pending.rejected(e.getMessage());
+        }
+        statuses.put(pending.getHandle(), finished);
+        try {
+            cacheService.set(CACHE_KEY_PREFIX + pending.getHandle(), objectMapper.writeValueAsString(finished),
+                    statusTtlMinutes, TimeUnit.MINUTES);
+        } catch (JsonProcessingException e) {
+            log.error("交易请求状态序列化失败 - 句柄: {}, 原因: {}", pending.getHandle(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.kevinbank.accountbalancecalculation.model.Money;
+import com.kevinbank.accountbalancecalculation.model.TransactionType;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 交易后余额回填任务。
+ * 启动后在后台线程中按账户回填历史交易的source_balance_after和target_balance_after：
+ * 从账户当前余额出发，按交易ID从新到旧逐笔倒推每笔交易前的余额。
+ * 第一段在锁定账户行的事务中读取余额和最新的交易，保证两者一致；更早的交易已经不会再变化，后续分段不再加锁。
+ * 已有交易后余额的记录作为锚点，倒推从锚点的值继续，只更新为空的字段。
+ *
+ * 注意：只有转账、存款和取款会改变余额；通过余额接口直接调整而没有交易记录的变动会使更早的交易后余额整体偏移。
+ * 热点账户的子余额槽位不在行锁保护之内，不回填，交易量最大的这些账户因此始终没有交易后余额，对账单需要按交易累加；
+ * 未启用交易日志的分片内存余额引擎异步写回余额，余额与交易记录不一致，不执行回填。
+ *
+ * 倒推按交易ID的顺序进行，前提是ID顺序与余额生效的顺序一致：交易ID都在持有账户行锁（或分片内）时分配，
+ * 单实例上同一账户的ID随余额生效顺序递增。多实例部署时各节点时钟存在偏差，先生效的交易可能分配到更大的ID，
+ * 这种情况下两个锚点之间的回填值可能有误，这一限制是可以接受的：已有的交易后余额作为锚点，误差不会越过锚点传播。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "transaction.balance-after.backfill.enabled", havingValue = "true")
+public class BalanceAfterBackfill {
+
+    private static final String SELECT_ACCOUNT_IDS_SQL = "SELECT id FROM accounts WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String HAS_MISSING_SQL = "SELECT EXISTS(" +
+            "SELECT 1 FROM transactions WHERE source_account_id = ? AND source_balance_after IS NULL " +
+            "AND type IN ('TRANSFER', 'WITHDRAW')) OR EXISTS(" +
+            "SELECT 1 FROM transactions WHERE target_account_id = ? AND target_balance_after IS NULL " +
+            "AND type IN ('TRANSFER', 'DEPOSIT'))";
+
+    private static final String LOCK_BALANCE_SQL = "SELECT a.balance + COALESCE((SELECT SUM(s.balance) " +
+            "FROM account_sub_balances s WHERE s.account_id = a.id), 0) FROM accounts a WHERE a.id = ? FOR UPDATE";
+
+    private static final String HISTORY_COLUMNS = "id, source_account_id, target_account_id, amount, type, " +
+            "source_balance_after, target_balance_after";
+
+    /**
+     * 拆成来源账户和目标账户两个分支，各自走对应的账户索引并取前若干条，合并后再取前若干条；
+     * 来源和目标是同一账户的交易只在来源分支中返回
+     */
+    private static final String SELECT_HISTORY_SQL = "SELECT " + HISTORY_COLUMNS + " FROM (" +
+            "(SELECT " + HISTORY_COLUMNS + " FROM transactions WHERE source_account_id = ? AND id < ? " +
+            "ORDER BY id DESC LIMIT ?) " +
+            "UNION ALL " +
+            "(SELECT " + HISTORY_COLUMNS + " FROM transactions WHERE target_account_id = ? " +
+            "AND (source_account_id IS NULL OR source_account_id <> ?) AND id < ? ORDER BY id DESC LIMIT ?)" +
+            ") t ORDER BY id DESC LIMIT ?";
+
+    private static final String UPDATE_SOURCE_SQL =
+            "UPDATE transactions SET source_balance_after = ? WHERE id = ? AND source_balance_after IS NULL";
+
+    private static final String UPDATE_TARGET_SQL =
+            "UPDATE transactions SET target_balance_after = ? WHERE id = ? AND target_balance_after IS NULL";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private HotAccountLedger hotAccountLedger;
+
+    /**
+     * 每次读取的账户数和每段读取的交易数
+     */
+    @Value("${transaction.balance-after.backfill.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${balance.engine.mode:jdbc}")
+    private String balanceEngineMode;
+
+    @Value("${transaction.journal.enabled:false}")
+    private boolean journalEnabled;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        if ("sharded".equalsIgnoreCase(balanceEngineMode) && !journalEnabled) {
+            log.warn("分片内存余额引擎未启用交易日志，余额与交易记录不一致，不执行交易后余额回填");
+            return;
+        }
+        Thread backfill = new Thread(this::backfillAll, "balance-after-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    /**
+     * 按ID分页遍历账户，逐个回填
+     */
+    private void backfillAll() {
+        long start = System.currentTimeMillis();
+        long lastId = 0L;
+        int accounts = 0;
+        long updated = 0L;
+        try {
+            while (true) {
+                List<Long> ids = jdbcTemplate.queryForList(SELECT_ACCOUNT_IDS_SQL, Long.class, lastId, chunkSize);
+                for (Long accountId : ids) {
+                    if (hotAccountLedger.isHot(accountId)
+                            || !Boolean.TRUE.equals(jdbcTemplate.queryForObject(HAS_MISSING_SQL, Boolean.class, accountId, accountId))) {
+                        continue;
+                    }
+                    updated += backfill(accountId);
+                    accounts++;
+                }
+                if (ids.size() < chunkSize) {
+                    break;
+                }
+                lastId = ids.get(ids.size() - 1);
+            }
+            log.info("交易后余额回填完成 - 账户数: {}, 更新字段数: {}, 耗时: {} 毫秒",
+                    accounts, updated, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("交易后余额回填失败，已回填 {} 个账户: {}", accounts, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 回填一个账户的全部交易
+     *
+     * @return 更新的字段数
+     */
+    private long backfill(Long accountId) {
+        // cursor[0]为下一段交易ID的上界，cursor[1]为该上界之前的余额（分）
+        long[] cursor = {Long.MAX_VALUE, 0L};
+        long updated = 0L;
+        boolean first = true;
+        while (true) {
+            boolean lockBalance = first;
+            Chunk chunk = transactionTemplate.execute(status -> {
+                if (lockBalance) {
+                    BigDecimal balance = jdbcTemplate.queryForObject(LOCK_BALANCE_SQL, BigDecimal.class, accountId);
+                    cursor[1] = Money.of(balance).getCents();
+                }
+                List<HistoryRow> rows = jdbcTemplate.query(SELECT_HISTORY_SQL, (rs, rowNum) -> new HistoryRow(
+                                rs.getLong("id"),
+                                rs.getLong("source_account_id"),
+                                rs.getLong("target_account_id"),
+                                Money.of(rs.getBigDecimal("amount")).getCents(),
+                                TransactionType.valueOf(rs.getString("type")),
+                                centsOrNull(rs.getBigDecimal("source_balance_after")),
+                                centsOrNull(rs.getBigDecimal("target_balance_after"))),
+                        accountId, cursor[0], chunkSize, accountId, accountId, cursor[0], chunkSize, chunkSize);
+                if (rows.isEmpty()) {
+                    return new Chunk(0, 0);
+                }
+                List<Object[]> sourceUpdates = new ArrayList<>();
+                List<Object[]> targetUpdates = new ArrayList<>();
+                cursor[1] = rewind(accountId, cursor[1], rows, sourceUpdates, targetUpdates);
+                cursor[0] = rows.get(rows.size() - 1).id();
+                if (!sourceUpdates.isEmpty()) {
+                    jdbcTemplate.batchUpdate(UPDATE_SOURCE_SQL, sourceUpdates);
+                }
+                if (!targetUpdates.isEmpty()) {
+                    jdbcTemplate.batchUpdate(UPDATE_TARGET_SQL, targetUpdates);
+                }
+                return new Chunk(rows.size(), sourceUpdates.size() + targetUpdates.size());
+            });
+            first = false;
+            if (chunk == null) {
+                break;
+            }
+            updated += chunk.updated();
+            if (chunk.rows() < chunkSize) {
+                break;
+            }
+        }
+        log.debug("交易后余额已回填 - 账户: {}, 更新字段数: {}", accountId, updated);
+        return updated;
+    }
+
+    /**
+     * 从交易后的余额出发，按ID从新到旧倒推每笔交易后的余额，ID顺序即余额生效的顺序（见类注释中的限制）。
+     * 同一笔交易中先扣减来源账户再增加目标账户，倒推时顺序相反。已有的交易后余额作为锚点覆盖倒推的结果。
+     *
+     * @param accountId 账户ID
+     * @param balanceCents 最新一笔交易之后以分为单位的余额
+     * @param rows 按ID降序排列的交易
+     * @param sourceUpdates 收集需要更新的来源账户交易后余额，元素为[余额, 交易ID]
+     * @param targetUpdates 收集需要更新的目标账户交易后余额，元素为[余额, 交易ID]
+     * @return 最早一笔交易之前以分为单位的余额
+     */
+    static long rewind(long accountId, long balanceCents, List<HistoryRow> rows,
+                       List<Object[]> sourceUpdates, List<Object[]> targetUpdates) {
+        long running = balanceCents;
+        for (HistoryRow row : rows) {
+            if (row.targetAccountId() == accountId && row.type().creditsTarget()) {
+                if (row.targetBalanceAfter() != null) {
+                    running = row.targetBalanceAfter();
+                } else {
+                    targetUpdates.add(new Object[]{Money.ofCents(running).toBigDecimal(), row.id()});
+                }
+                running = Money.addCents(running, Money.negateCents(row.amountCents()));
+            }
+            if (row.sourceAccountId() == accountId && row.type().debitsSource()) {
+                if (row.sourceBalanceAfter() != null) {
+                    running = row.sourceBalanceAfter();
+                } else {
+                    sourceUpdates.add(new Object[]{Money.ofCents(running).toBigDecimal(), row.id()});
+                }
+                running = Money.addCents(running, row.amountCents());
+            }
+        }
+        return running;
+    }
+
+    private static Long centsOrNull(BigDecimal value) {
+        return value != null ? Money.of(value).getCents() : null;
+    }
+
+    /**
+     * 一段回填的结果：读取的交易数和更新的字段数
+     */
+    private record Chunk(int rows, int updated) {
+    }
+
+    /**
+     * 回填时读取的一笔交易，账户ID为空时为0
+     */
+    record HistoryRow(long id, long sourceAccountId, long targetAccountId, long amountCents, TransactionType type,
+                      Long sourceBalanceAfter, Long targetBalanceAfter) {
+    }
+}
@@ -0,0 +1,237 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.kevinbank.accountbalancecalculation.model.BalanceAsOf;
+import com.kevinbank.accountbalancecalculation.model.BalanceCheckpoint;
+import com.kevinbank.accountbalancecalculation.model.Money;
+import com.kevinbank.accountbalancecalculation.repository.BalanceCheckpointRepository;
+import com.kevinbank.accountbalancecalculation.service.BalanceHistoryService;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 历史余额服务实现类。
+ * 每天零点之后由后台任务为每个账户写入一个余额检查点：在可重复读事务中读取当前余额，减去交易时间晚于零点的交易，
+ * 得到零点之前的余额。查询某一时间点的余额时，从该时间点之前最近的检查点出发，只累加检查点到该时间点之间的交易；
+ * 没有更早的检查点时，从之后最近的检查点（或当前余额）倒推。
+ *
+ * 检查点任务在零点之后延迟执行，延迟必须大于交易从生成交易时间到提交的最长时间（存款轧差窗口、交易日志持久化积压）。
+ * 注意：只有转账、存款和取款会改变余额；通过余额接口直接调整而没有交易记录的变动会使检查点之间的推算出现偏差。
+ * 未启用交易日志的分片内存余额引擎异步写回余额，余额与交易记录不一致，该模式下不写入检查点。
+ */
+@Slf4j
+@Service
+public class BalanceHistoryServiceImpl implements BalanceHistoryService {
+
+    /**
+     * 交易时间的上界，用于表示没有上界的时间范围
+     */
+    private static final LocalDateTime END_OF_TIME = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    /**
+     * 单个账户在[from, to)时间范围内交易带来的余额变动
+     */
+    private static final String SUM_DELTAS_SQL = "SELECT COALESCE(SUM(delta), 0) FROM (" +
+            "SELECT amount AS delta FROM transactions WHERE target_account_id = ? AND type IN ('TRANSFER', 'DEPOSIT') " +
+            "AND transaction_time >= ? AND transaction_time < ? " +
+            "UNION ALL " +
+            "SELECT -amount FROM transactions WHERE source_account_id = ? AND type IN ('TRANSFER', 'WITHDRAW') " +
+            "AND transaction_time >= ? AND transaction_time < ?) d";
+
+    /**
+     * 一段ID范围内的账户在某一时间之后交易带来的余额变动
+     */
+    private static final String SUM_DELTAS_BY_ACCOUNT_SQL = "SELECT account_id, SUM(delta) FROM (" +
+            "SELECT target_account_id AS account_id, amount AS delta FROM transactions " +
+            "WHERE target_account_id > ? AND target_account_id <= ? AND type IN ('TRANSFER', 'DEPOSIT') AND transaction_time >= ? " +
+            "UNION ALL " +
+            "SELECT source_account_id, -amount FROM transactions " +
+            "WHERE source_account_id > ? AND source_account_id <= ? AND type IN ('TRANSFER', 'WITHDRAW') AND transaction_time >= ?) d " +
+            "GROUP BY account_id";
+
+    private static final String SELECT_BALANCES_SQL = "SELECT a.id, a.balance + COALESCE((SELECT SUM(s.balance) " +
+            "FROM account_sub_balances s WHERE s.account_id = a.id), 0) FROM accounts a WHERE a.id > ? ORDER BY a.id LIMIT ?";
+
+    private static final String SELECT_BALANCE_SQL = "SELECT a.balance + COALESCE((SELECT SUM(s.balance) " +
+            "FROM account_sub_balances s WHERE s.account_id = a.id), 0) FROM accounts a WHERE a.id = ?";
+
+    private static final String INSERT_CHECKPOINT_SQL = "INSERT IGNORE INTO balance_checkpoints " +
+            "(account_id, checkpoint_time, balance, created_at) VALUES (?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BalanceCheckpointRepository balanceCheckpointRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * 检查点任务每次读取的账户数
+     */
+    @Value("${balance.checkpoint.page-size:1000}")
+    private int pageSize;
+
+    @Value("${balance.engine.mode:jdbc}")
+    private String balanceEngineMode;
+
+    @Value("${transaction.journal.enabled:false}")
+    private boolean journalEnabled;
+
+    private TransactionTemplate snapshotTransactionTemplate;
+
+    private TransactionTemplate transactionTemplate;
+
+    private boolean writable;
+
+    @PostConstruct
+    public void init() {
+        // 余额与之后的交易必须在同一个快照中读取
+        snapshotTransactionTemplate = new TransactionTemplate(transactionManager);
+        snapshotTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshotTransactionTemplate.setReadOnly(true);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        writable = !"sharded".equalsIgnoreCase(balanceEngineMode) || journalEnabled;
+        if (!writable) {
+            log.warn("分片内存余额引擎未启用交易日志，不写入余额检查点");
+        }
+    }
+
+    @Override
+    public BalanceAsOf getBalanceAsOf(Long accountId, LocalDateTime asOf) {
+        // 交易时间精确到微秒，不晚于asOf即早于asOf加一微秒
+        LocalDateTime end = asOf.plus(1, ChronoUnit.MICROS);
+        return snapshotTransactionTemplate.execute(status -> {
+            Optional<BalanceCheckpoint> before = balanceCheckpointRepository.findLatestAtOrBefore(accountId, asOf);
+            if (before.isPresent()) {
+                BalanceCheckpoint checkpoint = before.get();
+                long cents = Money.addCents(checkpoint.getBalance().getCents(),
+                        sumDeltas(accountId, checkpoint.getCheckpointTime(), end));
+                return new BalanceAsOf(accountId, asOf, Money.ofCents(cents), checkpoint.getCheckpointTime());
+            }
+
+            Optional<BalanceCheckpoint> after = balanceCheckpointRepository.findEarliestAfter(accountId, asOf);
+            if (after.isPresent()) {
+                BalanceCheckpoint checkpoint = after.get();
+                long cents = Money.addCents(checkpoint.getBalance().getCents(),
+                        Money.negateCents(sumDeltas(accountId, end, checkpoint.getCheckpointTime())));
+                return new BalanceAsOf(accountId, asOf, Money.ofCents(cents), checkpoint.getCheckpointTime());
+            }
+
+            List<BigDecimal> current = jdbcTemplate.queryForList(SELECT_BALANCE_SQL, BigDecimal.class, accountId);
+            if (current.isEmpty()) {
+                throw new RuntimeException("账户不存在");
+            }
+            long cents = Money.addCents(Money.of(current.get(0)).getCents(),
+                    Money.negateCents(sumDeltas(accountId, end, END_OF_TIME)));
+            return new BalanceAsOf(accountId, asOf, Money.ofCents(cents), null);
+        });
+    }
+
+    /**
+     * 每天零点之后写入当天零点的检查点
+     */
+    @Scheduled(cron = "${balance.checkpoint.cron:0 5 0 * * *}")
+    public void scheduledCheckpoints() {
+        if (!writable) {
+            return;
+        }
+        try {
+            writeCheckpoints(LocalDate.now().atStartOfDay());
+        } catch (Exception e) {
+            log.error("写入余额检查点失败: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int writeCheckpoints(LocalDateTime checkpointTime) {
+        long start = System.currentTimeMillis();
+        long lastId = 0L;
+        int written = 0;
+        while (true) {
+            long fromId = lastId;
+            List<Object[]> rows = snapshotTransactionTemplate.execute(status -> readCheckpoints(fromId, checkpointTime));
+            if (rows == null || rows.isEmpty()) {
+                break;
+            }
+            int[][] counts = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(INSERT_CHECKPOINT_SQL, rows,
+                    rows.size(), (ps, row) -> {
+                        ps.setLong(1, (Long) row[0]);
+                        ps.setTimestamp(2, Timestamp.valueOf(checkpointTime));
+                        ps.setBigDecimal(3, (BigDecimal) row[1]);
+                        ps.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+                    }));
+            if (counts != null) {
+                for (int[] batch : counts) {
+                    for (int count : batch) {
+                        written += count > 0 ? 1 : 0;
+                    }
+                }
+            }
+            lastId = (Long) rows.get(rows.size() - 1)[0];
+            if (rows.size() < pageSize) {
+                break;
+            }
+        }
+        log.info("余额检查点已写入 - 时间: {}, 新增: {}, 耗时: {} 毫秒",
+                checkpointTime, written, System.currentTimeMillis() - start);
+        return written;
+    }
+
+    /**
+     * 在快照事务中读取一页账户的当前余额，减去检查点时间之后的交易
+     *
+     * @return 每个元素为[账户ID, 检查点余额]
+     */
+    private List<Object[]> readCheckpoints(long fromId, LocalDateTime checkpointTime) {
+        List<long[]> balances = jdbcTemplate.query(SELECT_BALANCES_SQL,
+                (rs, rowNum) -> new long[]{rs.getLong(1), Money.of(rs.getBigDecimal(2)).getCents()}, fromId, pageSize);
+        if (balances.isEmpty()) {
+            return List.of();
+        }
+        long toId = balances.get(balances.size() - 1)[0];
+        Timestamp since = Timestamp.valueOf(checkpointTime);
+        Map<Long, Long> deltas = new HashMap<>();
+        jdbcTemplate.query(SUM_DELTAS_BY_ACCOUNT_SQL, rs -> {
+            deltas.put(rs.getLong(1), Money.of(rs.getBigDecimal(2)).getCents());
+        }, fromId, toId, since, fromId, toId, since);
+
+        List<Object[]> rows = new ArrayList<>(balances.size());
+        for (long[] balance : balances) {
+            long cents = Money.addCents(balance[1], Money.negateCents(deltas.getOrDefault(balance[0], 0L)));
+            rows.add(new Object[]{balance[0], Money.ofCents(cents).toBigDecimal()});
+        }
+        return rows;
+    }
+
+    /**
+     * 单个账户在[from, to)时间范围内交易带来的余额变动（分）
+     */
+    private long sumDeltas(Long accountId, LocalDateTime from, LocalDateTime to) {
+        Timestamp fromTime = Timestamp.valueOf(from);
+        Timestamp toTime = Timestamp.valueOf(to);
+        BigDecimal sum = jdbcTemplate.queryForObject(SUM_DELTAS_SQL, BigDecimal.class,
+                accountId, fromTime, toTime, accountId, fromTime, toTime);
+        return Money.ofNullable(sum).getCents();
+    }
+}
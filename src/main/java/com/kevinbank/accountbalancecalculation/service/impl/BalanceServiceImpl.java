@@ -1,20 +1,33 @@
 package com.kevinbank.accountbalancecalculation.service.impl;
 
-import com.kevinbank.accountbalancecalculation.model.Account;
+import com.kevinbank.accountbalancecalculation.model.Money;
 import com.kevinbank.accountbalancecalculation.repository.AccountRepository;
 import com.kevinbank.accountbalancecalculation.service.BalanceService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * 实现余额服务的类
+ * 默认的余额引擎，每次余额变动都同步写入数据库。
+ *
+ * 并发控制有两种模式（balance.concurrency.mode）：
+ * pessimistic（默认）由条件UPDATE在数据库中完成额度校验，依靠行锁排队；
+ * optimistic先不加锁读取余额和版本号，在应用中校验额度，再按版本号条件更新，版本冲突时带随机退避重试，超过次数后放弃。
+ * 热点账户始终使用pessimistic模式，高冲突下乐观重试只会浪费往返。
  */
 @Slf4j
 @Service
+@ConditionalOnProperty(name = "balance.engine.mode", havingValue = "jdbc", matchIfMissing = true)
 public class BalanceServiceImpl implements BalanceService {
 
     /**
@@ -23,31 +36,153 @@ public class BalanceServiceImpl implements BalanceService {
     @Autowired
     private AccountRepository accountRepository;
 
+    /**
+     * 热点账户子余额账本，入账分散到子余额槽位，出账前合并
+     */
+    @Autowired
+    private HotAccountLedger hotAccountLedger;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 存款轧差处理器，仅在transaction.deposit-netting.enabled=true时存在
+     */
+    @Autowired(required = false)
+    private DepositNettingProcessor depositNettingProcessor;
+
+    /**
+     * 并发控制模式: pessimistic / optimistic
+     */
+    @Value("${balance.concurrency.mode:pessimistic}")
+    private String concurrencyMode;
+
+    /**
+     * 乐观模式下版本冲突的最大重试次数
+     */
+    @Value("${balance.concurrency.max-retries:5}")
+    private int maxRetries;
+
+    /**
+     * 乐观模式下重试退避的基准时间（毫秒），每次重试翻倍
+     */
+    @Value("${balance.concurrency.backoff-base-ms:2}")
+    private long backoffBaseMs;
+
+    /**
+     * 乐观模式下重试退避的最长时间（毫秒）
+     */
+    @Value("${balance.concurrency.backoff-max-ms:50}")
+    private long backoffMaxMs;
+
+    private boolean optimistic;
+
+    private Counter retryCounter;
+
+    private Counter exhaustedCounter;
+
+    @PostConstruct
+    public void init() {
+        optimistic = "optimistic".equalsIgnoreCase(concurrencyMode);
+        retryCounter = Counter.builder("balance.optimistic.retries")
+                .description("Balance updates retried after an optimistic version conflict")
+                .register(meterRegistry);
+        exhaustedCounter = Counter.builder("balance.optimistic.exhausted")
+                .description("Balance updates that gave up after exhausting optimistic retries")
+                .register(meterRegistry);
+        log.info("余额并发控制模式: {}", optimistic ? "optimistic" : "pessimistic");
+    }
+
     /**
      * 更新账户余额的方法
+     * 通过一条条件UPDATE完成余额变动和信用额度校验，只有更新失败时才额外查询一次以区分失败原因。
+     * 热点账户的入账写入子余额槽位；出账前先把槽位余额合并回主余额，再按合并后的余额校验信用额度。
+     * 启用存款轧差时，出账前先写入该账户尚未写入的存款。
+     * 更新后的余额由条件UPDATE在同一条语句中记入会话变量，更新成功后在同一连接上读取；
+     * 读取会话变量仍是一次往返，但不访问表，也不依赖行锁保证读到的是本次更新的结果。
+     * 热点账户的余额分散在槽位中，且入账不持有账户锁，无法得到准确的余额，不返回余额，其交易后余额因此为空。
      *
      * @param accountId 账户ID
      * @param amount 要更新的金额
+     * @return 更新后的余额，热点账户返回null
      * @throws RuntimeException 如果账户不存在或余额不足时抛出异常
+     * @throws OptimisticLockingFailureException 如果乐观模式下重试次数用尽仍然版本冲突
      */
     @Override
     @Transactional
-    public void updateBalance(Long accountId, BigDecimal amount) {
-        // 获取账户信息，如果不存在则抛出异常
-        Account account = accountRepository.findById(accountId)
-                .orElseThrow(() -> new RuntimeException("账户不存在"));
+    public Money updateBalance(Long accountId, Money amount) {
+        if (depositNettingProcessor != null && !amount.isPositive()) {
+            depositNettingProcessor.flush(accountId);
+        }
+        if (hotAccountLedger.isHot(accountId)) {
+            if (hotAccountLedger.credit(accountId, amount)) {
+                return null;
+            }
+            hotAccountLedger.consolidate(accountId);
+            applyBalanceDelta(accountId, amount);
+            return null;
+        }
+        if (optimistic) {
+            return updateBalanceOptimistically(accountId, amount);
+        }
+        applyBalanceDelta(accountId, amount);
+        return Money.of(accountRepository.findBalanceAfterDelta());
+    }
 
-        // 计算新余额
-        BigDecimal newBalance = account.getBalance().add(amount);
+    /**
+     * 通过条件UPDATE更新余额
+     */
+    private void applyBalanceDelta(Long accountId, Money amount) {
 
-        // 检查是否超出信用额度
-        if (newBalance.compareTo(account.getCreditLimit().negate()) < 0) {
+        int updated = accountRepository.applyBalanceDelta(accountId, amount.toBigDecimal());
+        if (updated == 0) {
+            // 受影响行数为0时，区分账户不存在和超出信用额度两种情况
+            if (!accountRepository.existsById(accountId)) {
+                throw new RuntimeException("账户不存在");
+            }
             throw new RuntimeException("余额不足");
         }
+        log.debug("账户余额已更新 - 账户: {}, 变动金额: {}", accountId, amount);
+    }
+
+    /**
+     * 乐观并发更新余额。
+     * 读取不加锁，只有按版本号更新的那一刻才获取行锁；在READ COMMITTED隔离级别下，重试时重新读取即可看到最新提交的版本。
+     */
+    private Money updateBalanceOptimistically(Long accountId, Money amount) {
+        for (int attempt = 0; ; attempt++) {
+            AccountRepository.BalanceView view = accountRepository.findBalanceView(accountId)
+                    .orElseThrow(() -> new RuntimeException("账户不存在"));
+            long updatedCents = Money.addCents(Money.of(view.getBalance()).getCents(), amount.getCents());
+            if (updatedCents < -Money.of(view.getCreditLimit()).getCents()) {
+                throw new RuntimeException("余额不足");
+            }
+            if (accountRepository.applyBalanceDeltaIfVersion(accountId, amount.toBigDecimal(), view.getVersion()) == 1) {
+                log.debug("账户余额已更新 - 账户: {}, 变动金额: {}, 重试次数: {}", accountId, amount, attempt);
+                return Money.ofCents(updatedCents);
+            }
+            if (attempt >= maxRetries) {
+                exhaustedCounter.increment();
+                throw new OptimisticLockingFailureException("账户并发更新冲突，请稍后重试");
+            }
+            retryCounter.increment();
+            backoff(attempt);
+        }
+    }
 
-        // 更新余额
-        account.setBalance(newBalance);
-        // 保存更新后的账户信息
-        accountRepository.save(account);
+    /**
+     * 指数退避加全随机抖动，避免冲突的请求同时重试再次冲突
+     */
+    private void backoff(int attempt) {
+        long ceiling = Math.min(backoffMaxMs, backoffBaseMs << Math.min(attempt, 20));
+        if (ceiling <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OptimisticLockingFailureException("账户并发更新冲突，请稍后重试");
+        }
     }
 }
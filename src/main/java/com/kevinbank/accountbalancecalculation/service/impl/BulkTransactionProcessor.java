@@ -0,0 +1,306 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.kevinbank.accountbalancecalculation.config.WorkerThreads;
+import com.kevinbank.accountbalancecalculation.model.BatchTransactionResult;
+import com.kevinbank.accountbalancecalculation.model.CreateTransactionRequest;
+import com.kevinbank.accountbalancecalculation.model.Transaction;
+import com.kevinbank.accountbalancecalculation.service.AccountLockManager;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 批量交易处理器。
+ * 用并查集把涉及相同账户的请求归入同一个连通分量，再把分量按请求数均衡地分配到若干个分区：
+ * 不同分区之间没有共同的账户，可以并行处理且不会互相等待行锁；同一分区内按提交顺序执行，同一账户上的请求保持提交顺序。
+ * jdbc余额引擎下每个分区按chunk-size切成若干批，每批涉及的账户数不超过max-locked-accounts，
+ * 先通过{@link AccountLockManager}锁定这些账户，与单笔交易互斥，
+ * 再由{@link TransactionBatchWriter}在一个数据库事务中批量写入，提交后释放账户锁并缓存写入的交易。
+ * 批次之间的行级互斥由写入器按账户ID顺序的SELECT ... FOR UPDATE保证，账户锁只用来排除单笔交易路径，
+ * 限制每批的账户数是为了不让一个批次占住大半个锁分段，拖慢其他分区和无关的单笔交易；
+ * 分片内存余额引擎或启用交易日志时余额以内存为准，分区内逐笔调用单笔交易处理。
+ */
+@Slf4j
+@Component
+public class BulkTransactionProcessor {
+
+    @Autowired
+    private TransactionBatchWriter transactionBatchWriter;
+
+    @Autowired
+    private WorkerThreads workerThreads;
+
+    @Autowired
+    private AccountLockManager accountLockManager;
+
+    /**
+     * 一次请求最多包含的交易数
+     */
+    @Value("${transaction.batch.max-items:10000}")
+    private int maxItems;
+
+    /**
+     * 每个数据库事务最多写入的交易数
+     */
+    @Value("${transaction.batch.chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * 每个数据库事务最多锁定的账户数，应远小于账户锁的分段数
+     */
+    @Value("${transaction.batch.max-locked-accounts:64}")
+    private int maxLockedAccounts;
+
+    /**
+     * 并行处理的分区数，受数据库连接池大小限制
+     */
+    @Value("${transaction.batch.parallelism:4}")
+    private int parallelism;
+
+    @Value("${balance.engine.mode:jdbc}")
+    private String balanceEngineMode;
+
+    @Value("${transaction.journal.enabled:false}")
+    private boolean journalEnabled;
+
+    /**
+     * 余额并发控制模式，与单笔交易一致，optimistic模式下不持有账户锁
+     */
+    @Value("${balance.concurrency.mode:pessimistic}")
+    private String concurrencyMode;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newFixedThreadPool(parallelism, workerThreads.factory("transaction-batch-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 处理一批交易请求
+     *
+     * @param requests 按提交顺序排列的交易请求
+     * @param single 单笔交易处理，分片内存余额引擎或启用交易日志时使用
+     * @param cache  缓存批量写入成功的交易，逐笔处理时由单笔交易处理自行缓存
+     * @return 与请求一一对应的处理结果
+     * @throws RuntimeException 如果请求为空或超过单次上限
+     */
+    public List<BatchTransactionResult> process(List<CreateTransactionRequest> requests,
+                                                Function<CreateTransactionRequest, Transaction> single,
+                                                Consumer<Transaction> cache) {
+        if (requests == null || requests.isEmpty()) {
+            throw new RuntimeException("批量交易请求不能为空");
+        }
+        if (requests.size() > maxItems) {
+            throw new RuntimeException("批量交易请求不能超过" + maxItems + "笔");
+        }
+        long start = System.currentTimeMillis();
+        BatchTransactionResult[] results = new BatchTransactionResult[requests.size()];
+        List<List<Integer>> partitions = partition(requests, results);
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>(partitions.size());
+        for (List<Integer> partition : partitions) {
+            if (!partition.isEmpty()) {
+                futures.add(CompletableFuture.runAsync(() -> processPartition(requests, partition, single, cache, results), executor));
+            }
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+
+        long succeeded = Arrays.stream(results).filter(BatchTransactionResult::isSuccess).count();
+        log.info("批量交易处理完成 - 请求数: {}, 成功: {}, 分区数: {}, 耗时: {} 毫秒",
+                requests.size(), succeeded, futures.size(), System.currentTimeMillis() - start);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 按账户连通分量把请求分配到分区，校验失败的请求直接写入结果
+     *
+     * @return 每个分区中按提交顺序排列的请求下标
+     */
+    private List<List<Integer>> partition(List<CreateTransactionRequest> requests, BatchTransactionResult[] results) {
+        Map<Long, Integer> accountIndex = new HashMap<>();
+        int[] parent = new int[requests.size() * 2];
+        int[] firstAccount = new int[requests.size()];
+
+        for (int i = 0; i < requests.size(); i++) {
+            CreateTransactionRequest request = requests.get(i);
+            firstAccount[i] = -1;
+            if (request == null) {
+                results[i] = BatchTransactionResult.failed(i, "交易处理失败: 交易请求不能为空");
+                continue;
+            }
+            try {
+                TransactionServiceImpl.validateTransactionRequest(request);
+            } catch (RuntimeException e) {
+                results[i] = BatchTransactionResult.failed(i, "交易处理失败: " + e.getMessage());
+                continue;
+            }
+            int previous = -1;
+            for (Long accountId : accountsOf(request)) {
+                int node = accountIndex.computeIfAbsent(accountId, id -> {
+                    int created = accountIndex.size();
+                    parent[created] = created;
+                    return created;
+                });
+                if (previous >= 0) {
+                    union(parent, previous, node);
+                }
+                previous = node;
+            }
+            firstAccount[i] = previous;
+        }
+
+        // 统计每个连通分量的请求数，按从大到小依次放入当前请求数最少的分区
+        Map<Integer, List<Integer>> components = new HashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            if (firstAccount[i] >= 0) {
+                components.computeIfAbsent(find(parent, firstAccount[i]), k -> new ArrayList<>()).add(i);
+            }
+        }
+        int partitionCount = Math.max(1, Math.min(parallelism, components.size()));
+        List<List<Integer>> partitions = new ArrayList<>(partitionCount);
+        for (int p = 0; p < partitionCount; p++) {
+            partitions.add(new ArrayList<>());
+        }
+        components.values().stream()
+                .sorted((a, b) -> Integer.compare(b.size(), a.size()))
+                .forEach(component -> {
+                    List<Integer> target = partitions.get(0);
+                    for (List<Integer> candidate : partitions) {
+                        if (candidate.size() < target.size()) {
+                            target = candidate;
+                        }
+                    }
+                    target.addAll(component);
+                });
+        // 合并多个分量后恢复提交顺序
+        partitions.forEach(p -> p.sort(Integer::compare));
+        return partitions;
+    }
+
+    /**
+     * 在一个工作线程中按提交顺序处理一个分区
+     */
+    private void processPartition(List<CreateTransactionRequest> requests, List<Integer> partition,
+                                  Function<CreateTransactionRequest, Transaction> single,
+                                  Consumer<Transaction> cache, BatchTransactionResult[] results) {
+        if ("sharded".equalsIgnoreCase(balanceEngineMode) || journalEnabled) {
+            for (int index : partition) {
+                try {
+                    results[index] = BatchTransactionResult.succeeded(index, single.apply(requests.get(index)));
+                } catch (RuntimeException e) {
+                    results[index] = BatchTransactionResult.failed(index, e.getMessage());
+                }
+            }
+            return;
+        }
+
+        for (List<Integer> chunk : chunks(requests, partition)) {
+            List<CreateTransactionRequest> chunkRequests = chunk.stream().map(requests::get).toList();
+            List<TransactionBatchWriter.Result> written;
+            try (AccountLockManager.LockHandle ignored = lockAccounts(chunkRequests)) {
+                written = transactionBatchWriter.write(chunkRequests);
+            } catch (RuntimeException e) {
+                log.error("批量交易写入失败，{} 笔请求回滚: {}", chunk.size(), e.getMessage(), e);
+                for (int index : chunk) {
+                    results[index] = BatchTransactionResult.failed(index, "交易处理失败: " + e.getMessage());
+                }
+                continue;
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                TransactionBatchWriter.Result result = written.get(i);
+                int index = chunk.get(i);
+                if (result.isAccepted()) {
+                    cache.accept(result.transaction());
+                    results[index] = BatchTransactionResult.succeeded(index, result.transaction());
+                } else {
+                    results[index] = BatchTransactionResult.failed(index, result.error().getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * 按提交顺序把分区切成若干批，每批不超过chunk-size笔请求，涉及的账户不超过max-locked-accounts个
+     */
+    private List<List<Integer>> chunks(List<CreateTransactionRequest> requests, List<Integer> partition) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        List<Integer> chunk = new ArrayList<>();
+        Set<Long> chunkAccounts = new HashSet<>();
+        for (int index : partition) {
+            List<Long> accounts = accountsOf(requests.get(index));
+            long added = accounts.stream().filter(id -> !chunkAccounts.contains(id)).count();
+            if (!chunk.isEmpty() && (chunk.size() >= chunkSize || chunkAccounts.size() + added > maxLockedAccounts)) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+                chunkAccounts.clear();
+            }
+            chunk.add(index);
+            chunkAccounts.addAll(accounts);
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    /**
+     * 锁定一批请求涉及的全部账户，由锁管理器按固定顺序获取；optimistic模式下不加锁
+     */
+    private AccountLockManager.LockHandle lockAccounts(List<CreateTransactionRequest> chunkRequests) {
+        if ("optimistic".equalsIgnoreCase(concurrencyMode)) {
+            return () -> { };
+        }
+        List<Long> accountIds = new ArrayList<>(chunkRequests.size() * 2);
+        chunkRequests.forEach(request -> accountIds.addAll(accountsOf(request)));
+        return accountLockManager.lock(accountIds);
+    }
+
+    private static List<Long> accountsOf(CreateTransactionRequest request) {
+        List<Long> accounts = new ArrayList<>(2);
+        if (request.getSourceAccountId() != null) {
+            accounts.add(request.getSourceAccountId());
+        }
+        if (request.getTargetAccountId() != null && !request.getTargetAccountId().equals(request.getSourceAccountId())) {
+            accounts.add(request.getTargetAccountId());
+        }
+        return accounts;
+    }
+
+    private static int find(int[] parent, int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA != rootB) {
+            parent[rootB] = rootA;
+        }
+    }
+}
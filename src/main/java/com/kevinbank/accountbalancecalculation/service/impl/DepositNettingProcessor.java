@@ -0,0 +1,334 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.kevinbank.accountbalancecalculation.config.WorkerThreads;
+import com.kevinbank.accountbalancecalculation.id.SnowflakeIdGenerator;
+import com.kevinbank.accountbalancecalculation.model.CreateTransactionRequest;
+import com.kevinbank.accountbalancecalculation.model.Money;
+import com.kevinbank.accountbalancecalculation.model.Transaction;
+import com.kevinbank.accountbalancecalculation.model.TransactionType;
+import com.kevinbank.accountbalancecalculation.service.BalanceService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 存款轧差处理器。
+ * 同一账户在window-ms毫秒内到达的存款先在内存中累积，到期后在一个数据库事务中只做一次余额更新（金额为这些存款之和），
+ * 再用一个JDBC批次插入每一笔存款的交易记录，最后分别完成每个调用方的结果。热点账户上N次行更新因此变为一次。
+ *
+ * 存款不会触发信用额度校验，合并不改变结果；但尚未写入的存款会让余额偏低，因此任何扣款在更新余额前都要先调用
+ * {@link #flush(Long)}，把该账户已经提交的存款写入数据库后再校验额度。
+ * 扣款方已经处于事务中时，刷新在扣款方的事务中、用它已经持有的连接写入，不另外占用连接；
+ * 这些存款随扣款方的事务一起提交，提交后才完成各调用方的结果，回滚时重新放回累积区等待下次写入。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "transaction.deposit-netting.enabled", havingValue = "true")
+public class DepositNettingProcessor {
+
+    @Autowired
+    private BalanceService balanceService;
+
+    @Autowired
+    private TransactionBatchWriter transactionBatchWriter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private WorkerThreads workerThreads;
+
+    /**
+     * 同一账户的存款最多等待的时间（毫秒）
+     */
+    @Value("${transaction.deposit-netting.window-ms:5}")
+    private long windowMs;
+
+    /**
+     * 同一账户累积到该笔数时立即写入
+     */
+    @Value("${transaction.deposit-netting.max-batch-size:500}")
+    private int maxBatchSize;
+
+    /**
+     * 写入数据库的线程数
+     */
+    @Value("${transaction.deposit-netting.flush-threads:4}")
+    private int flushThreads;
+
+    @Value("${balance.engine.mode:jdbc}")
+    private String balanceEngineMode;
+
+    private final Map<Long, Bucket> buckets = new ConcurrentHashMap<>();
+
+    private ScheduledThreadPoolExecutor flusher;
+
+    private TransactionTemplate transactionTemplate;
+
+    private DistributionSummary batchSizeSummary;
+
+    private volatile boolean running;
+
+    /**
+     * 分片内存引擎以内存余额为准，直接修改数据库余额会与其冲突，因此两者不能同时启用
+     */
+    @PostConstruct
+    public void init() {
+        if ("sharded".equalsIgnoreCase(balanceEngineMode)) {
+            throw new RuntimeException("存款轧差不能与分片内存余额引擎同时启用");
+        }
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        batchSizeSummary = DistributionSummary.builder("transaction.deposit-netting.batch.size")
+                .description("Number of deposits to one account applied with a single balance update")
+                .register(meterRegistry);
+        flusher = new ScheduledThreadPoolExecutor(flushThreads, workerThreads.factory("deposit-netting-"));
+        // 停止时由shutdown统一写入剩余存款，不再等待尚未到期的定时写入
+        flusher.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        running = true;
+        log.info("存款轧差已启用 - 等待窗口: {} 毫秒, 每批最多: {} 笔", windowMs, maxBatchSize);
+    }
+
+    /**
+     * 停止接收新存款，并写入所有已累积的存款
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        buckets.forEach(this::flush);
+        log.info("存款轧差已停止");
+    }
+
+    /**
+     * 提交一笔存款，等待所在批次写入后完成
+     *
+     * @param request 存款请求，类型必须为DEPOSIT
+     * @return 该存款对应的交易记录，账户不存在或写入失败时异常完成
+     * @throws RuntimeException 如果处理器已停止
+     */
+    public CompletableFuture<Transaction> submit(CreateTransactionRequest request) {
+        if (!running) {
+            throw new RuntimeException("存款轧差已停止");
+        }
+        if (request.getType() != TransactionType.DEPOSIT) {
+            throw new IllegalArgumentException("只有存款可以轧差");
+        }
+        TransactionServiceImpl.validateTransactionRequest(request);
+        Money amount = Money.of(request.getAmount());
+        if (!amount.isPositive()) {
+            throw new RuntimeException("交易金额必须大于0");
+        }
+
+        Pending pending = new Pending(TransactionBatchWriter.toTransaction(request, LocalDateTime.now()),
+                new CompletableFuture<>());
+        enqueue(request.getTargetAccountId(), List.of(pending), false);
+        return pending.future();
+    }
+
+    /**
+     * 把存款放入账户的累积区，并安排写入
+     *
+     * @param first 为true时放在已累积的存款之前，用于放回回滚的存款
+     */
+    private void enqueue(Long accountId, List<Pending> pendings, boolean first) {
+        while (true) {
+            Bucket bucket = buckets.computeIfAbsent(accountId, id -> new Bucket());
+            int size;
+            boolean schedule;
+            bucket.stateLock.lock();
+            try {
+                if (bucket.closed) {
+                    continue;
+                }
+                if (first) {
+                    bucket.pending.addAll(0, pendings);
+                } else {
+                    bucket.pending.addAll(pendings);
+                }
+                size = bucket.pending.size();
+                schedule = !bucket.scheduled;
+                bucket.scheduled = true;
+            } finally {
+                bucket.stateLock.unlock();
+            }
+            if (size >= maxBatchSize) {
+                flusher.execute(() -> flush(accountId, bucket));
+            } else if (schedule) {
+                flusher.schedule(() -> flush(accountId, bucket), windowMs, TimeUnit.MILLISECONDS);
+            }
+            return;
+        }
+    }
+
+    /**
+     * 把一个账户已经提交的存款立即写入数据库，扣款前调用
+     * 如果该账户的存款正在写入，等待写入完成
+     *
+     * @param accountId 账户ID
+     */
+    public void flush(Long accountId) {
+        Bucket bucket = buckets.get(accountId);
+        if (bucket != null) {
+            flush(accountId, bucket);
+        }
+    }
+
+    /**
+     * 写入一个账户累积的存款。同一账户的写入由flushLock串行化，返回时此前提交的存款都已写入。
+     * 写入后没有新的存款时关闭并移除该账户的累积区，之后的存款会创建新的累积区。
+     */
+    private void flush(Long accountId, Bucket bucket) {
+        bucket.flushLock.lock();
+        try {
+            List<Pending> batch;
+            bucket.stateLock.lock();
+            try {
+                batch = bucket.pending;
+                bucket.pending = new ArrayList<>();
+                bucket.scheduled = false;
+            } finally {
+                bucket.stateLock.unlock();
+            }
+            if (!batch.isEmpty()) {
+                write(accountId, batch);
+            }
+
+            bucket.stateLock.lock();
+            try {
+                if (bucket.pending.isEmpty()) {
+                    bucket.closed = true;
+                    buckets.remove(accountId, bucket);
+                } else if (!bucket.scheduled && running) {
+                    bucket.scheduled = true;
+                    flusher.schedule(() -> flush(accountId, bucket), windowMs, TimeUnit.MILLISECONDS);
+                }
+            } finally {
+                bucket.stateLock.unlock();
+            }
+        } finally {
+            bucket.flushLock.unlock();
+        }
+    }
+
+    /**
+     * 写入同一账户的多笔存款。
+     * 当前线程已经处于事务中（扣款前刷新）时在该事务中写入，写入失败的异常直接抛给扣款方，
+     * 事务提交后完成各调用方的结果，回滚后把这些存款放回累积区；否则在一个新事务中写入。
+     */
+    private void write(Long accountId, List<Pending> batch) {
+        batchSizeSummary.record(batch.size());
+        List<Transaction> transactions = batch.stream().map(Pending::transaction).toList();
+        long totalCents = 0L;
+        for (Transaction transaction : transactions) {
+            totalCents = Money.addCents(totalCents, transaction.getAmount().getCents());
+        }
+        Money total = Money.ofCents(totalCents);
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        complete(accountId, batch, total);
+                    } else {
+                        requeue(accountId, batch);
+                    }
+                }
+            });
+            apply(accountId, transactions, total);
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> apply(accountId, transactions, total));
+        } catch (Exception e) {
+            log.error("存款轧差写入失败 - 账户: {}, 笔数: {}: {}", accountId, batch.size(), e.getMessage(), e);
+            RuntimeException failure = new RuntimeException("交易处理失败: " + e.getMessage());
+            batch.forEach(pending -> pending.future().completeExceptionally(failure));
+            return;
+        }
+        complete(accountId, batch, total);
+    }
+
+    /**
+     * 用一次余额更新写入同一账户的多笔存款，并批量插入交易记录，必须在事务中调用。
+     * 批次内各笔存款的交易后余额由更新后的余额倒推，与逐笔依次入账时的结果相同。
+     * 交易ID在余额更新之后、账户行仍被锁定时重新分配，ID顺序与余额生效的顺序一致，交易后余额回填依赖这一点。
+     */
+    private void apply(Long accountId, List<Transaction> transactions, Money total) {
+        Money balanceAfter = balanceService.updateBalance(accountId, total);
+        for (Transaction transaction : transactions) {
+            transaction.setId(SnowflakeIdGenerator.getInstance().nextId());
+        }
+        if (balanceAfter != null) {
+            long runningCents = Money.addCents(balanceAfter.getCents(), Money.negateCents(total.getCents()));
+            for (Transaction transaction : transactions) {
+                runningCents = Money.addCents(runningCents, transaction.getAmount().getCents());
+                transaction.setTargetBalanceAfter(Money.ofCents(runningCents));
+            }
+        }
+        transactionBatchWriter.insertTransactions(transactions);
+    }
+
+    private void complete(Long accountId, List<Pending> batch, Money total) {
+        log.debug("存款轧差已写入 - 账户: {}, 笔数: {}, 金额: {}", accountId, batch.size(), total);
+        batch.forEach(pending -> pending.future().complete(pending.transaction()));
+    }
+
+    /**
+     * 扣款方的事务回滚后，随之回滚的存款放回累积区等待下次写入；处理器已停止时以失败结束
+     */
+    private void requeue(Long accountId, List<Pending> batch) {
+        if (!running) {
+            RuntimeException failure = new RuntimeException("交易处理失败: 存款轧差已停止");
+            batch.forEach(pending -> pending.future().completeExceptionally(failure));
+            return;
+        }
+        log.debug("扣款事务回滚，存款重新等待写入 - 账户: {}, 笔数: {}", accountId, batch.size());
+        batch.forEach(pending -> pending.transaction().setTargetBalanceAfter(null));
+        enqueue(accountId, batch, true);
+    }
+
+    /**
+     * 一个账户尚未写入的存款
+     */
+    private static final class Bucket {
+        private final ReentrantLock flushLock = new ReentrantLock();
+        private final ReentrantLock stateLock = new ReentrantLock();
+        private List<Pending> pending = new ArrayList<>();
+        private boolean scheduled;
+        private boolean closed;
+    }
+
+    /**
+     * 等待写入的存款及其调用方的结果
+     */
+    private record Pending(Transaction transaction, CompletableFuture<Transaction> future) {
+    }
+}
@@ -0,0 +1,193 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.kevinbank.accountbalancecalculation.model.CreateTransactionRequest;
+import com.kevinbank.accountbalancecalculation.model.Transaction;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 交易组提交处理器。
+ * 调用方提交的交易请求先进入队列，由单个提交线程在最多max-wait-ms毫秒内或凑满max-batch-size笔后合并为一批，
+ * 交给{@link TransactionBatchWriter}在一个数据库事务中写入并提交一次，再分别完成每个调用方的结果。
+ * 一批正在提交时，新的请求在队列中继续累积，从而把每笔交易一次fsync摊薄为每批一次。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "transaction.group-commit.enabled", havingValue = "true")
+public class GroupCommitTransactionProcessor {
+
+    @Autowired
+    private TransactionBatchWriter transactionBatchWriter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 每批最多合并的交易数
+     */
+    @Value("${transaction.group-commit.max-batch-size:200}")
+    private int maxBatchSize;
+
+    /**
+     * 收到一批中第一笔请求后最多等待的时间（毫秒）
+     */
+    @Value("${transaction.group-commit.max-wait-ms:5}")
+    private long maxWaitMs;
+
+    /**
+     * 等待提交的请求队列容量，队列满时直接拒绝
+     */
+    @Value("${transaction.group-commit.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${balance.engine.mode:jdbc}")
+    private String balanceEngineMode;
+
+    private BlockingQueue<Pending> queue;
+
+    private Thread committer;
+
+    private DistributionSummary batchSizeSummary;
+
+    private volatile boolean running;
+
+    /**
+     * 启动提交线程。
+     * 分片内存引擎以内存余额为准，批量写入器直接修改数据库余额会与其冲突，因此两者不能同时启用。
+     */
+    @PostConstruct
+    public void init() {
+        if ("sharded".equalsIgnoreCase(balanceEngineMode)) {
+            throw new RuntimeException("交易组提交不能与分片内存余额引擎同时启用");
+        }
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        batchSizeSummary = DistributionSummary.builder("transaction.group-commit.batch.size")
+                .description("Number of transactions committed together in one group commit")
+                .register(meterRegistry);
+        running = true;
+        committer = new Thread(this::commitLoop, "transaction-group-commit");
+        committer.start();
+        log.info("交易组提交已启用 - 每批最多: {} 笔, 最长等待: {} 毫秒", maxBatchSize, maxWaitMs);
+    }
+
+    /**
+     * 停止接收新请求，并在提交线程处理完队列中剩余的请求后退出
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        try {
+            committer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Pending> remaining = new ArrayList<>(maxBatchSize);
+        while (queue.drainTo(remaining, maxBatchSize) > 0) {
+            commit(remaining);
+            remaining = new ArrayList<>(maxBatchSize);
+        }
+        log.info("交易组提交已停止");
+    }
+
+    /**
+     * 提交一笔交易请求，等待所在批次提交后完成
+     *
+     * @param request 交易请求
+     * @return 该请求对应的交易记录，请求被拒绝或批次提交失败时异常完成
+     * @throws RuntimeException 如果处理器已停止或等待队列已满
+     */
+    public CompletableFuture<Transaction> submit(CreateTransactionRequest request) {
+        if (!running) {
+            throw new RuntimeException("交易组提交已停止");
+        }
+        Pending pending = new Pending(request, new CompletableFuture<>());
+        if (!queue.offer(pending)) {
+            throw new RuntimeException("交易请求过多，请稍后重试");
+        }
+        return pending.future();
+    }
+
+    /**
+     * 提交线程主循环：等待第一笔请求，在等待窗口内继续收集，凑满或超时后提交。
+     * 空闲时定期醒来检查是否已停止，不依赖中断，避免打断正在进行的数据库提交。
+     */
+    private void commitLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+                while (batch.size() < maxBatchSize) {
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // 停止时把已取出的请求放回队列，由shutdown统一处理
+                Thread.currentThread().interrupt();
+                batch.forEach(queue::offer);
+                return;
+            }
+            commit(batch);
+            batch = new ArrayList<>(maxBatchSize);
+        }
+    }
+
+    /**
+     * 写入一批请求并完成各自的结果
+     *
+     * @param batch 同一批次的请求
+     */
+    private void commit(List<Pending> batch) {
+        batchSizeSummary.record(batch.size());
+        List<CreateTransactionRequest> requests = batch.stream().map(Pending::request).toList();
+        try {
+            List<TransactionBatchWriter.Result> results = transactionBatchWriter.write(requests);
+            for (int i = 0; i < batch.size(); i++) {
+                TransactionBatchWriter.Result result = results.get(i);
+                if (result.isAccepted()) {
+                    batch.get(i).future().complete(result.transaction());
+                } else {
+                    batch.get(i).future().completeExceptionally(result.error());
+                }
+            }
+        } catch (Exception e) {
+            log.error("交易批次提交失败，批次大小: {}: {}", batch.size(), e.getMessage(), e);
+            RuntimeException failure = new RuntimeException("交易处理失败: " + e.getMessage());
+            batch.forEach(pending -> pending.future().completeExceptionally(failure));
+        }
+    }
+
+    /**
+     * 等待提交的请求及其调用方的结果
+     */
+    private record Pending(CreateTransactionRequest request, CompletableFuture<Transaction> future) {
+    }
+}
@@ -0,0 +1,173 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.kevinbank.accountbalancecalculation.model.Money;
+import com.kevinbank.accountbalancecalculation.repository.AccountRepository;
+import com.kevinbank.accountbalancecalculation.repository.AccountSubBalanceRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 热点账户子余额账本。
+ * 对于设置了子余额槽位（sub_balance_slots大于0）的账户，入账不再更新accounts表中的账户行，
+ * 而是按轮询或线程哈希选择一个槽位写入account_sub_balances表，并发入账分散到K行上。
+ * 出账前先把各槽位余额合并回主余额，再按合并后的总余额校验信用额度；读取余额时把主余额和各槽位余额相加。
+ *
+ * 热点账户列表缓存在内存中，启动时加载并定期刷新，账户设置变化时立即更新。
+ */
+@Slf4j
+@Component
+public class HotAccountLedger {
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountSubBalanceRepository subBalanceRepository;
+
+    /**
+     * 槽位选择策略: round-robin(轮询) / hash(按线程哈希)
+     */
+    @Value("${balance.hot-account.slot-strategy:round-robin}")
+    private String slotStrategy;
+
+    private final AtomicLong roundRobin = new AtomicLong();
+
+    private volatile Map<Long, Integer> slotsByAccount = Map.of();
+
+    private final ReentrantLock registerLock = new ReentrantLock();
+
+    /**
+     * 启动时加载热点账户列表
+     */
+    @PostConstruct
+    public void init() {
+        refresh();
+        log.info("热点账户子余额已加载 - 热点账户数: {}, 槽位选择策略: {}", slotsByAccount.size(), slotStrategy);
+    }
+
+    /**
+     * 定期从数据库刷新热点账户列表，使其他实例上的设置变化在本实例生效
+     */
+    @Scheduled(initialDelayString = "${balance.hot-account.refresh-interval-ms:60000}",
+            fixedDelayString = "${balance.hot-account.refresh-interval-ms:60000}")
+    public void refresh() {
+        try {
+            Map<Long, Integer> loaded = new HashMap<>();
+            for (Object[] row : accountRepository.findHotAccountSlots()) {
+                loaded.put(((Number) row[0]).longValue(), ((Number) row[1]).intValue());
+            }
+            slotsByAccount = loaded;
+        } catch (Exception e) {
+            log.error("刷新热点账户列表失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 更新一个账户的子余额槽位设置
+     *
+     * @param accountId 账户ID
+     * @param slots 子余额槽位数量，0表示普通账户
+     */
+    public void register(Long accountId, int slots) {
+        registerLock.lock();
+        try {
+            Map<Long, Integer> updated = new HashMap<>(slotsByAccount);
+            if (slots > 0) {
+                updated.put(accountId, slots);
+            } else {
+                updated.remove(accountId);
+            }
+            slotsByAccount = updated;
+        } finally {
+            registerLock.unlock();
+        }
+    }
+
+    /**
+     * @param accountId 账户ID
+     * @return 如果账户是热点账户则返回true
+     */
+    public boolean isHot(Long accountId) {
+        return slotsByAccount.containsKey(accountId);
+    }
+
+    /**
+     * 向热点账户的一个槽位入账，必须在事务中调用
+     *
+     * @param accountId 账户ID
+     * @param amount 入账金额
+     * @return 如果账户是热点账户且已入账则返回true；普通账户返回false，由调用方按普通方式入账
+     */
+    public boolean credit(Long accountId, Money amount) {
+        Integer slots = slotsByAccount.get(accountId);
+        if (slots == null || !amount.isPositive()) {
+            return false;
+        }
+        int slot = selectSlot(slots);
+        subBalanceRepository.credit(accountId, slot, amount.toBigDecimal());
+        log.debug("热点账户入账 - 账户: {}, 槽位: {}, 金额: {}", accountId, slot, amount);
+        return true;
+    }
+
+    /**
+     * 把热点账户各槽位的余额合并回主余额，必须在事务中调用。
+     * 先锁定所有非零槽位，再按读到的金额逐个扣减并一次性加到主余额上，合并期间的新入账保留在槽位中。
+     *
+     * @param accountId 账户ID
+     * @return 合并的金额
+     */
+    public Money consolidate(Long accountId) {
+        List<Object[]> slots = subBalanceRepository.lockNonZeroSlots(accountId);
+        if (slots.isEmpty()) {
+            return Money.ZERO;
+        }
+        Money total = Money.ZERO;
+        for (Object[] row : slots) {
+            int slot = ((Number) row[0]).intValue();
+            Money amount = Money.of((BigDecimal) row[1]);
+            subBalanceRepository.deduct(accountId, slot, amount.toBigDecimal());
+            total = total.add(amount);
+        }
+        accountRepository.addBalance(accountId, total.toBigDecimal());
+        log.debug("热点账户子余额已合并 - 账户: {}, 槽位数: {}, 金额: {}", accountId, slots.size(), total);
+        return total;
+    }
+
+    /**
+     * 把所有热点账户的槽位余额合并回主余额，必须在事务中调用
+     */
+    public void consolidateAll() {
+        for (Long accountId : slotsByAccount.keySet()) {
+            consolidate(accountId);
+        }
+    }
+
+    /**
+     * 汇总账户各槽位的余额
+     *
+     * @param accountId 账户ID
+     * @return 槽位余额之和
+     */
+    public Money subBalanceTotal(Long accountId) {
+        return Money.of(subBalanceRepository.sumBalance(accountId));
+    }
+
+    private int selectSlot(int slots) {
+        if ("hash".equalsIgnoreCase(slotStrategy)) {
+            long threadId = Thread.currentThread().threadId();
+            return Math.floorMod(Long.hashCode(threadId * 0x9E3779B97F4A7C15L), slots);
+        }
+        return (int) Math.floorMod(roundRobin.getAndIncrement(), (long) slots);
+    }
+}
@@ -0,0 +1,246 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kevinbank.accountbalancecalculation.exception.IdempotencyConflictException;
+import com.kevinbank.accountbalancecalculation.model.IdempotencyRecord;
+import com.kevinbank.accountbalancecalculation.model.Transaction;
+import com.kevinbank.accountbalancecalculation.repository.IdempotencyRecordRepository;
+import com.kevinbank.accountbalancecalculation.service.IdempotencyService;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 幂等服务实现类
+ * 幂等记录保存在MySQL中，与交易在同一个数据库事务里占用幂等键并写入响应，交易提交与记录写入要么都成功要么都回滚。
+ * 前面有一层有界的进程内缓存，重复请求在本实例命中时不需要访问数据库。
+ *
+ * 注意：占用幂等键时调用方处于事务中，因此带幂等键的请求不会参与交易组提交；
+ * 启用交易日志时交易在日志落盘即生效，日志落盘与幂等记录提交之间崩溃时，重试仍可能再次执行。
+ */
+@Slf4j
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 128;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 幂等记录的保留时间（小时）
+     */
+    @Value("${idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    /**
+     * 进程内缓存的最大记录数
+     */
+    @Value("${idempotency.local-cache-size:10000}")
+    private int localCacheSize;
+
+    /**
+     * 每批清理的过期记录数
+     */
+    @Value("${idempotency.purge-batch-size:1000}")
+    private int purgeBatchSize;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Map<String, CachedResponse> localCache;
+
+    /**
+     * 保护进程内缓存，访问顺序的LinkedHashMap在get时也会修改内部链表；
+     * 使用ReentrantLock而不是synchronized，虚拟线程等待时不会占住载体线程
+     */
+    private final ReentrantLock localCacheLock = new ReentrantLock();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        localCache = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > localCacheSize;
+            }
+        };
+    }
+
+    @Override
+    public <T> T execute(String scope, String key, Object request, Class<T> responseType, Supplier<T> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new RuntimeException("幂等键长度不能超过" + MAX_KEY_LENGTH);
+        }
+        String storeKey = scope + ":" + key;
+        String requestHash = hash(scope, request);
+
+        Optional<T> previous = lookup(storeKey, requestHash, responseType);
+        if (previous.isPresent()) {
+            return previous.get();
+        }
+
+        String[] body = new String[1];
+        T response;
+        try {
+            response = transactionTemplate.execute(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                idempotencyRecordRepository.deleteExpired(storeKey, now);
+                try {
+                    idempotencyRecordRepository.claim(storeKey, requestHash, now, now.plusHours(ttlHours));
+                } catch (DataIntegrityViolationException e) {
+                    throw new KeyAlreadyClaimedException();
+                }
+
+                T result = action.get();
+                body[0] = toJson(result);
+                Long transactionId = result instanceof Transaction transaction ? transaction.getId() : null;
+                idempotencyRecordRepository.complete(storeKey, transactionId, body[0]);
+                return result;
+            });
+        } catch (KeyAlreadyClaimedException e) {
+            // 同一个键的并发请求已经先提交，返回它的结果
+            log.info("幂等键已被并发请求占用，返回已有结果 - Key: {}", storeKey);
+            return lookup(storeKey, requestHash, responseType)
+                    .orElseThrow(() -> new IdempotencyConflictException("相同幂等键的请求正在处理中，请稍后重试"));
+        }
+        // 只缓存已经提交的结果
+        cacheLocally(storeKey, new CachedResponse(requestHash, body[0],
+                System.currentTimeMillis() + TimeUnit.HOURS.toMillis(ttlHours)));
+        return response;
+    }
+
+    /**
+     * 定期分批删除过期的幂等记录
+     */
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        try {
+            int deleted;
+            int total = 0;
+            do {
+                deleted = transactionTemplate.execute(status ->
+                        idempotencyRecordRepository.purgeExpired(LocalDateTime.now(), purgeBatchSize));
+                total += deleted;
+            } while (deleted >= purgeBatchSize);
+            if (total > 0) {
+                log.info("已清理过期幂等记录: {} 条", total);
+            }
+        } catch (Exception e) {
+            log.error("清理过期幂等记录失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 先查进程内缓存，再查数据库。
+     * 数据库查询在读写事务中执行，启用读写分离时从主库读取，刚提交的记录在落后的副本上可能还不可见
+     */
+    private <T> Optional<T> lookup(String storeKey, String requestHash, Class<T> responseType) {
+        CachedResponse cached = cachedLocally(storeKey);
+        if (cached == null) {
+            Optional<IdempotencyRecord> record = transactionTemplate.execute(status ->
+                    idempotencyRecordRepository.findActive(storeKey, LocalDateTime.now()));
+            if (record == null || record.isEmpty() || record.get().getResponseBody() == null) {
+                return Optional.empty();
+            }
+            IdempotencyRecord found = record.get();
+            cached = new CachedResponse(found.getRequestHash(), found.getResponseBody(),
+                    found.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            cacheLocally(storeKey, cached);
+        }
+        if (!cached.requestHash().equals(requestHash)) {
+            throw new IdempotencyConflictException("幂等键已被用于内容不同的请求");
+        }
+        log.info("重复请求，返回首次处理的结果 - Key: {}", storeKey);
+        try {
+            return Optional.of(objectMapper.readValue(cached.body(), responseType));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("幂等记录解析失败: " + e.getMessage());
+        }
+    }
+
+    private CachedResponse cachedLocally(String storeKey) {
+        localCacheLock.lock();
+        try {
+            CachedResponse cached = localCache.get(storeKey);
+            if (cached != null && cached.expiresAtMillis() <= System.currentTimeMillis()) {
+                localCache.remove(storeKey);
+                return null;
+            }
+            return cached;
+        } finally {
+            localCacheLock.unlock();
+        }
+    }
+
+    private void cacheLocally(String storeKey, CachedResponse response) {
+        localCacheLock.lock();
+        try {
+            localCache.put(storeKey, response);
+        } finally {
+            localCacheLock.unlock();
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("响应序列化失败: " + e.getMessage());
+        }
+    }
+
+    private String hash(String scope, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(scope.getBytes(StandardCharsets.UTF_8));
+            digest.update(toJson(request).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 幂等键已被其他请求占用，只在本类内部用于跳出事务
+     */
+    private static final class KeyAlreadyClaimedException extends RuntimeException {
+        private KeyAlreadyClaimedException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * 进程内缓存的响应
+     */
+    private record CachedResponse(String requestHash, String body, long expiresAtMillis) {
+    }
+}
@@ -0,0 +1,141 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.kevinbank.accountbalancecalculation.service.AccountLockManager;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 进程内分段账户锁管理实现。
+ * 账户ID按哈希映射到固定数量的ReentrantLock上，多个账户按分段下标升序加锁，
+ * 不同请求之间不会出现交叉等待，从而避免死锁。适用于单实例部署。
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "transaction.lock.type", havingValue = "local", matchIfMissing = true)
+public class LocalStripedAccountLockManager implements AccountLockManager {
+
+    /**
+     * 分段数量，会向上取整为2的幂
+     */
+    @Value("${transaction.lock.stripes:1024}")
+    private int stripeCount;
+
+    /**
+     * 获取全部锁的最长等待时间（毫秒）
+     */
+    @Value("${transaction.lock.timeout-ms:3000}")
+    private long timeoutMs;
+
+    private ReentrantLock[] stripes;
+
+    private int mask;
+
+    public LocalStripedAccountLockManager() {
+    }
+
+    /**
+     * 直接指定分段数量和超时时间，便于在Spring容器之外使用
+     *
+     * @param stripeCount 分段数量
+     * @param timeoutMs 获取全部锁的最长等待时间（毫秒）
+     */
+    public LocalStripedAccountLockManager(int stripeCount, long timeoutMs) {
+        this.stripeCount = stripeCount;
+        this.timeoutMs = timeoutMs;
+        init();
+    }
+
+    /**
+     * 创建分段锁数组
+     */
+    @PostConstruct
+    public void init() {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+        log.info("本地分段账户锁已初始化，分段数量: {}, 超时时间: {}ms", size, timeoutMs);
+    }
+
+    /**
+     * 按分段下标升序获取一组账户的锁，超时后释放已获取的锁并抛出异常
+     *
+     * @param accountIds 需要加锁的账户ID
+     * @return 锁句柄
+     * @throws RuntimeException 如果在超时时间内未能获取全部锁或线程被中断
+     */
+    @Override
+    public LockHandle lock(Collection<Long> accountIds) {
+        int[] indexes = accountIds.stream()
+                .filter(Objects::nonNull)
+                .mapToInt(this::stripeIndex)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        int acquired = 0;
+        try {
+            for (int index : indexes) {
+                long remaining = deadline - System.nanoTime();
+                if (!stripes[index].tryLock(Math.max(0, remaining), TimeUnit.NANOSECONDS)) {
+                    throw new RuntimeException("获取账户锁超时，请稍后重试");
+                }
+                acquired++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            unlock(indexes, acquired);
+            throw new RuntimeException("获取账户锁被中断");
+        } catch (RuntimeException e) {
+            unlock(indexes, acquired);
+            throw e;
+        }
+
+        return new LockHandle() {
+            private boolean released;
+
+            @Override
+            public void close() {
+                if (!released) {
+                    released = true;
+                    unlock(indexes, indexes.length);
+                }
+            }
+        };
+    }
+
+    /**
+     * 计算账户ID对应的分段下标
+     *
+     * @param accountId 账户ID
+     * @return 分段下标
+     */
+    private int stripeIndex(Long accountId) {
+        int hash = Long.hashCode(accountId);
+        hash ^= (hash >>> 16);
+        return hash & mask;
+    }
+
+    /**
+     * 按获取的逆序释放前count个分段锁
+     *
+     * @param indexes 已排序的分段下标
+     * @param count 已获取的锁数量
+     */
+    private void unlock(int[] indexes, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            stripes[indexes[i]].unlock();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.kevinbank.accountbalancecalculation.model.Account;
+import com.kevinbank.accountbalancecalculation.model.Money;
+import com.kevinbank.accountbalancecalculation.model.Transaction;
+import com.kevinbank.accountbalancecalculation.model.TransactionType;
+import com.kevinbank.accountbalancecalculation.service.ReactiveQueryService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 响应式查询服务实现类
+ * 缓存通过Lettuce的响应式客户端访问，命中缓存的请求全程不占用线程。
+ * 项目没有响应式数据库驱动，数据库查询仍然走JDBC，但放到一个大小与连接池相当的有界调度器上执行：
+ * 列表查询使用MySQL驱动的逐行流式读取，只有订阅方请求下一批数据时才继续读取结果集，大结果集不会整体加载到内存。
+ *
+ * 注意：流式读取期间会一直占用一个数据库连接，客户端读取过慢时连接占用时间相应变长。
+ */
+@Slf4j
+@Service
+public class ReactiveQueryServiceImpl implements ReactiveQueryService {
+
+    /**
+     * 缓存中的金额以分为单位，键带版本前缀，不会读到旧版本以元为单位写入的缓存
+     */
+    private static final String ACCOUNT_CACHE_KEY_PREFIX = "v2:account:";
+    private static final Duration CACHE_TIMEOUT = Duration.ofMinutes(30);
+
+    private static final String SELECT_ACCOUNT_SQL = "SELECT a.id, a.user_id, a.account_number, " +
+            "a.balance + COALESCE((SELECT SUM(s.balance) FROM account_sub_balances s WHERE s.account_id = a.id), 0) AS balance, " +
+            "a.credit_limit, a.sub_balance_slots, a.version, a.created_at FROM accounts a";
+
+    private static final String TRANSACTION_COLUMNS = "id, source_account_id, target_account_id, amount, type, " +
+            "description, source_balance_after, target_balance_after, transaction_time";
+
+    /**
+     * 拆成来源账户和目标账户两个分支，各自走对应的账户索引，合并后按ID排序；来源和目标是同一账户的交易只在来源分支中返回
+     */
+    private static final String SELECT_TRANSACTIONS_SQL = "SELECT " + TRANSACTION_COLUMNS + " FROM (" +
+            "SELECT " + TRANSACTION_COLUMNS + " FROM transactions WHERE source_account_id = ? " +
+            "UNION ALL " +
+            "SELECT " + TRANSACTION_COLUMNS + " FROM transactions WHERE target_account_id = ? " +
+            "AND (source_account_id IS NULL OR source_account_id <> ?)" +
+            ") t ORDER BY id";
+
+    private static final RowMapper<Account> ACCOUNT_ROW_MAPPER = (rs, rowNum) -> {
+        Account account = new Account();
+        account.setId(rs.getLong("id"));
+        account.setUserId(rs.getLong("user_id"));
+        account.setAccountNumber(rs.getString("account_number"));
+        account.setBalance(Money.of(rs.getBigDecimal("balance")));
+        account.setCreditLimit(Money.ofNullable(rs.getBigDecimal("credit_limit")));
+        account.setSubBalanceSlots(rs.getInt("sub_balance_slots"));
+        account.setVersion(rs.getLong("version"));
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        account.setCreatedAt(createdAt != null ? createdAt.toLocalDateTime() : null);
+        return account;
+    };
+
+    private static final RowMapper<Transaction> TRANSACTION_ROW_MAPPER = (rs, rowNum) -> {
+        Transaction transaction = new Transaction();
+        transaction.setId(rs.getLong("id"));
+        long sourceAccountId = rs.getLong("source_account_id");
+        transaction.setSourceAccountId(rs.wasNull() ? null : sourceAccountId);
+        long targetAccountId = rs.getLong("target_account_id");
+        transaction.setTargetAccountId(rs.wasNull() ? null : targetAccountId);
+        transaction.setAmount(Money.of(rs.getBigDecimal("amount")));
+        transaction.setType(TransactionType.valueOf(rs.getString("type")));
+        transaction.setDescription(rs.getString("description"));
+        BigDecimal sourceBalanceAfter = rs.getBigDecimal("source_balance_after");
+        transaction.setSourceBalanceAfter(sourceBalanceAfter != null ? Money.of(sourceBalanceAfter) : null);
+        BigDecimal targetBalanceAfter = rs.getBigDecimal("target_balance_after");
+        transaction.setTargetBalanceAfter(targetBalanceAfter != null ? Money.of(targetBalanceAfter) : null);
+        transaction.setTransactionTime(rs.getTimestamp("transaction_time").toLocalDateTime());
+        return transaction;
+    };
+
+    @Autowired
+    private ReactiveRedisTemplate<String, Account> reactiveAccountRedisTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * 执行JDBC查询的线程数，超过连接池大小没有意义
+     */
+    @Value("${reactive.jdbc.threads:10}")
+    private int jdbcThreads;
+
+    /**
+     * 等待JDBC线程的查询数上限，超过时查询以错误结束
+     */
+    @Value("${reactive.jdbc.queue-capacity:10000}")
+    private int jdbcQueueCapacity;
+
+    private JdbcTemplate streamingJdbcTemplate;
+
+    private Scheduler jdbcScheduler;
+
+    @PostConstruct
+    public void init() {
+        // MySQL驱动只有在fetchSize为Integer.MIN_VALUE时才逐行流式读取结果集
+        streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+        jdbcScheduler = Schedulers.newBoundedElastic(jdbcThreads, jdbcQueueCapacity, "reactive-jdbc");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jdbcScheduler.dispose();
+    }
+
+    @Override
+    public Mono<Account> getAccount(Long id) {
+        String cacheKey = ACCOUNT_CACHE_KEY_PREFIX + id;
+        return reactiveAccountRedisTemplate.opsForValue().get(cacheKey)
+                .onErrorResume(e -> {
+                    log.error("Redis get error: key={}, error={}", cacheKey, e.getMessage());
+                    return Mono.empty();
+                })
+                .switchIfEmpty(Mono.defer(() -> loadAccount(id)
+                        .flatMap(account -> reactiveAccountRedisTemplate.opsForValue()
+                                .set(cacheKey, account, CACHE_TIMEOUT)
+                                .onErrorResume(e -> {
+                                    log.error("Failed to set cache - Key: {}, Error: {}", cacheKey, e.getMessage());
+                                    return Mono.just(false);
+                                })
+                                .thenReturn(account))));
+    }
+
+    @Override
+    public Flux<Account> getAllAccounts() {
+        return Flux.defer(() -> Flux.fromStream(streamingJdbcTemplate.queryForStream(
+                        SELECT_ACCOUNT_SQL + " ORDER BY a.id", ACCOUNT_ROW_MAPPER)))
+                .subscribeOn(jdbcScheduler);
+    }
+
+    @Override
+    public Flux<Transaction> getTransactionsByAccountId(Long accountId) {
+        return Flux.defer(() -> Flux.fromStream(streamingJdbcTemplate.queryForStream(
+                        SELECT_TRANSACTIONS_SQL, TRANSACTION_ROW_MAPPER, accountId, accountId, accountId)))
+                .subscribeOn(jdbcScheduler);
+    }
+
+    private Mono<Account> loadAccount(Long id) {
+        return Mono.fromCallable(() -> {
+                    List<Account> accounts = jdbcTemplate.query(SELECT_ACCOUNT_SQL + " WHERE a.id = ?", ACCOUNT_ROW_MAPPER, id);
+                    if (accounts.isEmpty()) {
+                        throw new RuntimeException("Account not found: " + id);
+                    }
+                    return accounts.get(0);
+                })
+                .subscribeOn(jdbcScheduler);
+    }
+}
@@ -0,0 +1,120 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.kevinbank.accountbalancecalculation.service.AccountLockManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于Redis的账户锁管理实现，适用于多实例部署。
+ * 每个账户对应一个lock:account:{id}键，多个账户按ID升序加锁；
+ * 获取失败时带随机退避重试直到超时，释放时校验持有者令牌，避免误删他人的锁。
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "transaction.lock.type", havingValue = "redis")
+public class RedisAccountLockManager implements AccountLockManager {
+
+    private static final String LOCK_KEY_PREFIX = "lock:account:";
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 获取全部锁的最长等待时间（毫秒）
+     */
+    @Value("${transaction.lock.timeout-ms:3000}")
+    private long timeoutMs;
+
+    /**
+     * 锁的租约时间（秒），防止持有者异常退出后锁无法释放
+     */
+    @Value("${transaction.lock.lease-seconds:10}")
+    private long leaseSeconds;
+
+    /**
+     * 按账户ID升序获取Redis锁，超时后释放已获取的锁并抛出异常
+     *
+     * @param accountIds 需要加锁的账户ID
+     * @return 锁句柄
+     * @throws RuntimeException 如果在超时时间内未能获取全部锁或线程被中断
+     */
+    @Override
+    public LockHandle lock(Collection<Long> accountIds) {
+        List<String> keys = accountIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .sorted()
+                .map(id -> LOCK_KEY_PREFIX + id)
+                .toList();
+        String token = UUID.randomUUID().toString();
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        List<String> acquired = new ArrayList<>(keys.size());
+
+        try {
+            for (String key : keys) {
+                while (!Boolean.TRUE.equals(
+                        redisTemplate.opsForValue().setIfAbsent(key, token, leaseSeconds, TimeUnit.SECONDS))) {
+                    if (System.currentTimeMillis() >= deadline) {
+                        throw new RuntimeException("获取账户锁超时，请稍后重试");
+                    }
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(5, 50));
+                }
+                acquired.add(key);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            release(acquired, token);
+            throw new RuntimeException("获取账户锁被中断");
+        } catch (RuntimeException e) {
+            release(acquired, token);
+            throw e;
+        }
+
+        return new LockHandle() {
+            private boolean released;
+
+            @Override
+            public void close() {
+                if (!released) {
+                    released = true;
+                    release(acquired, token);
+                }
+            }
+        };
+    }
+
+    /**
+     * 按获取的逆序释放锁，只删除仍由当前令牌持有的键
+     *
+     * @param keys 已获取的锁键
+     * @param token 持有者令牌
+     */
+    private void release(List<String> keys, String token) {
+        for (int i = keys.size() - 1; i >= 0; i--) {
+            try {
+                redisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(keys.get(i)), token);
+            } catch (Exception e) {
+                log.error("释放账户锁失败: key={}, error={}", keys.get(i), e.getMessage());
+            }
+        }
+    }
+}
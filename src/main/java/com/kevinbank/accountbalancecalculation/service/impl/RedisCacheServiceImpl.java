@@ -2,11 +2,15 @@ package com.kevinbank.accountbalancecalculation.service.impl;
 
 import com.kevinbank.accountbalancecalculation.service.CacheService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import jakarta.annotation.PostConstruct;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -48,6 +52,35 @@ public class RedisCacheServiceImpl implements CacheService {
         }
     }
 
+    /**
+     * 批量设置缓存项。
+     * 所有写入通过管道一次发送，只等待一次网络往返，不再逐项回读校验。
+     *
+     * @param values 缓存项的键和值
+     * @param timeout 缓存项的过期时间
+     * @param unit 缓存项过期时间的时间单位
+     */
+    @Override
+    public void setAll(Map<String, ?> values, long timeout, TimeUnit unit) {
+        if (values.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    values.forEach((key, value) -> ops.opsForValue().set(key, value, timeout, unit));
+                    return null;
+                }
+            });
+            log.debug("Batch cache set - Count: {}, Timeout: {} {}", values.size(), timeout, unit);
+        } catch (Exception e) {
+            log.error("Failed to batch set cache - Count: {}, Error: {}", values.size(), e.getMessage(), e);
+        }
+    }
+
     /**
      * 获取缓存项
      *
@@ -0,0 +1,475 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.kevinbank.accountbalancecalculation.model.Account;
+import com.kevinbank.accountbalancecalculation.model.Money;
+import com.kevinbank.accountbalancecalculation.repository.AccountRepository;
+import com.kevinbank.accountbalancecalculation.service.BalanceService;
+import com.kevinbank.accountbalancecalculation.snapshot.BalanceSnapshot;
+import com.kevinbank.accountbalancecalculation.snapshot.BalanceSnapshotService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 分片单写者内存余额引擎。
+ * 每个账户ID按哈希固定落到一个单线程分片上，分片独占其账户的余额和信用额度并顺序执行余额变动，
+ * 热路径上不需要任何锁，余额以分为单位的long保存，计算过程不分配对象。余额变动按分片内的顺序进入持久化队列，由该分片的持久化线程异步批量写回accounts表。
+ *
+ * 注意：内存余额是权威数据，因此该模式要求同一账户的写请求只落在一个实例上（单实例部署或按账户路由），
+ * 并且不能再通过其他途径直接修改accounts表的余额。
+ * 启用交易日志（transaction.journal.enabled=true）时，accounts表的余额改由交易日志按交易增量写回，引擎不再自行写回。
+ * 调用方处于事务中时，余额变动先在分片中登记为待定变动，事务提交后才计入余额并写回，回滚时直接丢弃；
+ * 校验信用额度时以已提交余额减去所有待定的扣款为准，因此未提交的入账不能被其他扣款使用，回滚也不会使余额低于信用额度。
+ * 热点账户在分片内本来就没有行锁争用，该模式下不使用子余额槽位。
+ * 启用余额快照（balance.snapshot.enabled=true）时，启动时用快照和回放后的余额预先填充各分片，不再在首次访问时逐个账户查询数据库。
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "balance.engine.mode", havingValue = "sharded")
+public class ShardedBalanceServiceImpl implements BalanceService, SmartInitializingSingleton {
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectProvider<BalanceSnapshotService> balanceSnapshotService;
+
+    @Autowired
+    private HotAccountLedger hotAccountLedger;
+
+    /**
+     * 分片数量，小于等于0时使用CPU核数
+     */
+    @Value("${balance.engine.shards:0}")
+    private int shardCount;
+
+    /**
+     * 每次持久化写回的最大余额记录数
+     */
+    @Value("${balance.engine.persist-batch-size:500}")
+    private int persistBatchSize;
+
+    /**
+     * 持久化失败后的重试间隔（毫秒）
+     */
+    @Value("${balance.engine.persist-retry-interval-ms:1000}")
+    private long persistRetryIntervalMs;
+
+    /**
+     * 启用交易日志时，余额由交易日志的持久化线程按交易增量写回，引擎自身不再写回余额
+     */
+    @Value("${transaction.journal.enabled:false}")
+    private boolean journalEnabled;
+
+    private Shard[] shards;
+
+    private TransactionTemplate transactionTemplate;
+
+    private volatile boolean running;
+
+    /**
+     * 初始化所有分片及其工作线程和持久化线程
+     */
+    @PostConstruct
+    public void init() {
+        int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        running = true;
+        shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard(i);
+            Shard shard = shards[i];
+            Gauge.builder("balance.engine.persist.backlog", shard.persistQueue, BlockingQueue::size)
+                    .description("Pending balance writes waiting to be persisted")
+                    .tag("shard", String.valueOf(i))
+                    .register(meterRegistry);
+        }
+        log.info("分片余额引擎已启动，分片数量: {}", count);
+    }
+
+    /**
+     * 所有单例初始化完成后（交易日志已追平到数据库），用最新的余额快照预先填充各分片。
+     * 预加载只填充分片中尚不存在的账户，在此之前已经按需加载的账户以其当前余额为准。
+     *
+     * 分片引擎以内存余额为准并直接写回主余额，不使用热点账户子余额，
+     * 因此先把以往在jdbc模式下写入子余额槽位的金额全部合并回主余额。
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        transactionTemplate.executeWithoutResult(status -> hotAccountLedger.consolidateAll());
+
+        BalanceSnapshotService snapshotService = balanceSnapshotService.getIfAvailable();
+        if (snapshotService == null) {
+            return;
+        }
+        snapshotService.loadLatest().ifPresent(this::preload);
+    }
+
+    /**
+     * 把快照中的账户按分片分组，每个分片在自己的工作线程中一次性装入
+     *
+     * @param snapshot 已回放的余额快照
+     */
+    private void preload(BalanceSnapshot snapshot) {
+        List<List<long[]>> perShard = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            perShard.add(new ArrayList<>(snapshot.size() / shards.length + 1));
+        }
+        snapshot.forEach((accountId, balanceCents, creditLimitCents) ->
+                perShard.get(shardFor(accountId).index).add(new long[]{accountId, balanceCents, creditLimitCents}));
+
+        CompletableFuture<?>[] loads = new CompletableFuture<?>[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            Shard shard = shards[i];
+            List<long[]> entries = perShard.get(i);
+            loads[i] = CompletableFuture.runAsync(() -> {
+                for (long[] entry : entries) {
+                    shard.accounts.putIfAbsent(entry[0], new AccountState(entry[1], entry[2]));
+                }
+            }, shard.worker);
+        }
+        CompletableFuture.allOf(loads).join();
+        log.info("分片余额引擎已从快照预加载 {} 个账户，水位线: {}", snapshot.size(), snapshot.getWatermark());
+    }
+
+    /**
+     * 停止接收新的余额变动，并把持久化队列中剩余的余额全部写回数据库
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        for (Shard shard : shards) {
+            shard.worker.shutdown();
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.worker.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            shard.persister.shutdownNow();
+            try {
+                shard.persister.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            List<BalanceWrite> remaining = new ArrayList<>();
+            shard.persistQueue.drainTo(remaining);
+            if (!remaining.isEmpty()) {
+                persist(shard, remaining);
+            }
+        }
+        log.info("分片余额引擎已停止");
+    }
+
+    /**
+     * 更新账户余额。
+     * 请求被投递到账户所属分片顺序执行，调用方等待分片返回校验结果。
+     * 调用方处于事务中时，变动只登记为待定变动，事务提交后才计入余额，回滚时丢弃。
+     *
+     * @param accountId 账户ID
+     * @param amount 要更新的金额
+     * @return 计入该账户所有待定变动后的余额
+     * @throws RuntimeException 如果账户不存在或余额不足时抛出异常
+     */
+    @Override
+    public Money updateBalance(Long accountId, Money amount) {
+        return Money.ofCents(change(accountId, amount.getCents(), true));
+    }
+
+    /**
+     * 撤销一笔已经生效的余额变动，在分片中顺序执行且不校验信用额度
+     *
+     * @param accountId 账户ID
+     * @param amount 当初更新的金额
+     */
+    @Override
+    public void revertBalance(Long accountId, Money amount) {
+        change(accountId, Money.negateCents(amount.getCents()), false);
+    }
+
+    /**
+     * 更新分片中缓存的信用额度，账户不在分片中时下次加载时从数据库读取
+     *
+     * @param accountId 账户ID
+     * @param creditLimit 新的信用额度
+     */
+    @Override
+    public void refreshCreditLimit(Long accountId, Money creditLimit) {
+        Shard shard = shardFor(accountId);
+        long creditLimitCents = creditLimit != null ? creditLimit.getCents() : 0L;
+        CompletableFuture.runAsync(() -> {
+            AccountState state = shard.accounts.get(accountId);
+            if (state != null) {
+                state.creditLimitCents = creditLimitCents;
+            }
+        }, shard.worker).join();
+        log.debug("分片信用额度已更新 - 账户: {}, 信用额度: {}", accountId, creditLimit);
+    }
+
+    /**
+     * 在账户所属分片中执行余额变动。
+     * 不在事务中时立即计入余额；在事务中时登记为待定变动，提交后计入余额，未提交时释放。
+     *
+     * @return 计入该账户所有待定变动后以分为单位的余额
+     */
+    private long change(Long accountId, long deltaCents, boolean checkLimit) {
+        if (!running) {
+            throw new RuntimeException("余额引擎已停止");
+        }
+        Shard shard = shardFor(accountId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return execute(shard, () -> shard.apply(accountId, deltaCents, checkLimit));
+        }
+        long balanceCents = execute(shard, () -> shard.reserve(accountId, deltaCents, checkLimit));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                execute(shard, () -> shard.settle(accountId, deltaCents, true));
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    log.warn("事务未提交，丢弃待定的余额变动 - 账户: {}, 金额: {}", accountId, Money.ofCents(deltaCents));
+                    execute(shard, () -> shard.settle(accountId, deltaCents, false));
+                }
+            }
+        });
+        return balanceCents;
+    }
+
+    /**
+     * 在分片工作线程中执行并等待结果，保留分片抛出的运行时异常
+     */
+    private static <T> T execute(Shard shard, Supplier<T> action) {
+        try {
+            return CompletableFuture.supplyAsync(action, shard.worker).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 根据账户ID选择分片
+     *
+     * @param accountId 账户ID
+     * @return 账户所属的分片
+     */
+    private Shard shardFor(Long accountId) {
+        int hash = Long.hashCode(accountId);
+        hash ^= (hash >>> 16);
+        return shards[Math.floorMod(hash, shards.length)];
+    }
+
+    /**
+     * 把一批余额写回数据库，同一账户只写最后一次的余额
+     *
+     * @param shard 所属分片
+     * @param batch 按分片顺序排列的余额写入记录
+     */
+    private void persist(Shard shard, List<BalanceWrite> batch) {
+        Map<Long, Long> latest = new LinkedHashMap<>();
+        for (BalanceWrite write : batch) {
+            latest.put(write.accountId(), write.balanceCents());
+        }
+        transactionTemplate.executeWithoutResult(status -> latest.forEach((accountId, balanceCents) ->
+                accountRepository.overwriteBalance(accountId, Money.ofCents(balanceCents).toBigDecimal())));
+        log.debug("分片 {} 已持久化 {} 个账户余额", shard.index, latest.size());
+    }
+
+    /**
+     * 分片内账户的余额状态，只由分片工作线程访问
+     */
+    private static final class AccountState {
+        /**
+         * 已提交的余额
+         */
+        private long balanceCents;
+
+        private long creditLimitCents;
+
+        /**
+         * 尚未提交的扣款合计（正数），校验信用额度时从已提交余额中预先扣除
+         */
+        private long pendingDebitCents;
+
+        /**
+         * 尚未提交的入账合计，提交前不能用于扣款
+         */
+        private long pendingCreditCents;
+
+        private AccountState(long balanceCents, long creditLimitCents) {
+            this.balanceCents = balanceCents;
+            this.creditLimitCents = creditLimitCents;
+        }
+    }
+
+    /**
+     * 待持久化的余额记录
+     */
+    private record BalanceWrite(Long accountId, long balanceCents) {
+    }
+
+    /**
+     * 余额分片：一个工作线程顺序处理余额变动，一个持久化线程按顺序写回数据库
+     */
+    private final class Shard {
+        private final int index;
+        private final Map<Long, AccountState> accounts = new HashMap<>();
+        private final BlockingQueue<BalanceWrite> persistQueue = new LinkedBlockingQueue<>();
+        private final ExecutorService worker;
+        private final ExecutorService persister;
+
+        private Shard(int index) {
+            this.index = index;
+            this.worker = Executors.newSingleThreadExecutor(r -> new Thread(r, "balance-shard-" + index));
+            this.persister = Executors.newSingleThreadExecutor(r -> new Thread(r, "balance-persister-" + index));
+            this.persister.execute(this::persistLoop);
+        }
+
+        /**
+         * 在分片工作线程中立即执行余额变动
+         *
+         * @param accountId 账户ID
+         * @param deltaCents 以分为单位的变动金额
+         * @param checkLimit 是否校验信用额度，撤销变动时不校验
+         * @return 计入待定变动后以分为单位的余额
+         */
+        private long apply(Long accountId, long deltaCents, boolean checkLimit) {
+            AccountState state = check(accountId, deltaCents, checkLimit);
+            commit(accountId, state, deltaCents);
+            return projected(state);
+        }
+
+        /**
+         * 在分片工作线程中校验并登记一笔待定变动，扣款立即占用额度，入账在提交前不可用
+         *
+         * @return 计入待定变动后以分为单位的余额
+         */
+        private long reserve(Long accountId, long deltaCents, boolean checkLimit) {
+            AccountState state = check(accountId, deltaCents, checkLimit);
+            if (deltaCents < 0) {
+                state.pendingDebitCents = Money.addCents(state.pendingDebitCents, Money.negateCents(deltaCents));
+            } else {
+                state.pendingCreditCents = Money.addCents(state.pendingCreditCents, deltaCents);
+            }
+            return projected(state);
+        }
+
+        /**
+         * 在分片工作线程中结束一笔待定变动：提交时计入余额并写回，未提交时只释放
+         *
+         * @return 计入剩余待定变动后以分为单位的余额
+         */
+        private long settle(Long accountId, long deltaCents, boolean committed) {
+            AccountState state = accounts.get(accountId);
+            if (deltaCents < 0) {
+                state.pendingDebitCents = Money.addCents(state.pendingDebitCents, deltaCents);
+            } else {
+                state.pendingCreditCents = Money.addCents(state.pendingCreditCents, Money.negateCents(deltaCents));
+            }
+            if (committed) {
+                commit(accountId, state, deltaCents);
+            }
+            return projected(state);
+        }
+
+        /**
+         * 加载账户并按已提交余额减去待定扣款校验信用额度
+         */
+        private AccountState check(Long accountId, long deltaCents, boolean checkLimit) {
+            AccountState state = accounts.get(accountId);
+            if (state == null) {
+                Account account = accountRepository.findById(accountId)
+                        .orElseThrow(() -> new RuntimeException("账户不存在"));
+                state = new AccountState(account.getBalance().getCents(), account.getCreditLimit().getCents());
+                accounts.put(accountId, state);
+            }
+            long available = Money.addCents(state.balanceCents, Money.negateCents(state.pendingDebitCents));
+            if (checkLimit && Money.addCents(available, deltaCents) < -state.creditLimitCents) {
+                throw new RuntimeException("余额不足");
+            }
+            return state;
+        }
+
+        private void commit(Long accountId, AccountState state, long deltaCents) {
+            state.balanceCents = Money.addCents(state.balanceCents, deltaCents);
+            if (!journalEnabled) {
+                persistQueue.add(new BalanceWrite(accountId, state.balanceCents));
+            }
+        }
+
+        private long projected(AccountState state) {
+            return Money.addCents(state.balanceCents,
+                    Money.addCents(state.pendingCreditCents, Money.negateCents(state.pendingDebitCents)));
+        }
+
+        /**
+         * 持久化线程主循环：阻塞等待余额写入，按批次写回数据库，失败时保留批次重试
+         */
+        private void persistLoop() {
+            List<BalanceWrite> batch = new ArrayList<>(persistBatchSize);
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    if (batch.isEmpty()) {
+                        batch.add(persistQueue.take());
+                        persistQueue.drainTo(batch, persistBatchSize - 1);
+                    }
+                    persist(this, batch);
+                    batch.clear();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    log.error("分片 {} 持久化余额失败，{} 毫秒后重试: {}", index, persistRetryIntervalMs, e.getMessage(), e);
+                    try {
+                        Thread.sleep(persistRetryIntervalMs);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+            // 被中断时把尚未写入的批次放回队列，由shutdown统一写回
+            if (!batch.isEmpty()) {
+                List<BalanceWrite> pending = new ArrayList<>(batch);
+                persistQueue.drainTo(pending);
+                persistQueue.addAll(pending);
+            }
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.kevinbank.accountbalancecalculation.id.SnowflakeIdGenerator;
+import com.kevinbank.accountbalancecalculation.model.CreateTransactionRequest;
+import com.kevinbank.accountbalancecalculation.model.Money;
+import com.kevinbank.accountbalancecalculation.model.Transaction;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 交易批量写入器。
+ * 在一个数据库事务中处理一批交易请求：一次SELECT ... FOR UPDATE锁定并读取涉及的全部账户，
+ * 在内存中按请求顺序逐笔校验余额和信用额度，再用一个JDBC批次写入各账户的净余额变动、一个JDBC批次插入预先分配好ID的交易记录，最后只提交一次。
+ * 每笔请求单独接受或拒绝，一笔余额不足不会影响同批次的其他请求。
+ * 逐笔校验时同时得到每笔交易后的账户余额，随交易记录一起写入；热点账户的子余额槽位不在锁保护之内，不记录交易后余额。
+ */
+@Slf4j
+@Component
+public class TransactionBatchWriter {
+
+    private static final String INSERT_TRANSACTION_SQL = "INSERT INTO transactions " +
+            "(id, source_account_id, target_account_id, amount, type, description, " +
+            "source_balance_after, target_balance_after, transaction_time) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String APPLY_DELTA_SQL = "UPDATE accounts SET balance = balance + ?, version = version + 1 WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private HotAccountLedger hotAccountLedger;
+
+    /**
+     * 存款轧差处理器，仅在transaction.deposit-netting.enabled=true时存在
+     */
+    @Autowired(required = false)
+    private DepositNettingProcessor depositNettingProcessor;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 在一个事务中写入一批交易。
+     * 单笔请求的校验失败只体现在其对应的结果中；数据库写入或提交失败时整个批次回滚并抛出异常。
+     *
+     * @param requests 按到达顺序排列的交易请求
+     * @return 与请求一一对应的处理结果
+     * @throws RuntimeException 如果批次写入或提交失败
+     */
+    public List<Result> write(List<CreateTransactionRequest> requests) {
+        List<Result> results = transactionTemplate.execute(status -> writeInTransaction(requests));
+        return results != null ? results : Collections.emptyList();
+    }
+
+    private List<Result> writeInTransaction(List<CreateTransactionRequest> requests) {
+        List<Result> results = new ArrayList<>(requests.size());
+        List<long[]> legsPerRequest = new ArrayList<>(requests.size());
+        TreeSet<Long> accountIds = new TreeSet<>();
+
+        // 先做不依赖数据库的校验，并收集需要锁定的账户
+        for (CreateTransactionRequest request : requests) {
+            try {
+                TransactionServiceImpl.validateTransactionRequest(request);
+                Money amount = Money.of(request.getAmount());
+                if (!amount.isPositive()) {
+                    throw new RuntimeException("交易金额必须大于0");
+                }
+                long[] legs = legsOf(request, amount.getCents());
+                for (int i = 0; i < legs.length; i += 2) {
+                    accountIds.add(legs[i]);
+                }
+                legsPerRequest.add(legs);
+                results.add(new Result(null, null));
+            } catch (RuntimeException e) {
+                legsPerRequest.add(null);
+                results.add(new Result(null, rejection(e)));
+            }
+        }
+
+        // 锁定账户前先写入扣款账户上尚未写入的存款，保证额度校验看到的是完整余额
+        if (depositNettingProcessor != null) {
+            for (long[] legs : legsPerRequest) {
+                for (int i = 0; legs != null && i < legs.length; i += 2) {
+                    if (legs[i + 1] < 0) {
+                        depositNettingProcessor.flush(legs[i]);
+                    }
+                }
+            }
+        }
+
+        // 按ID升序一次性锁定全部账户，与逐笔处理时的加锁顺序一致，避免死锁
+        Map<Long, long[]> accounts = lockAccounts(accountIds);
+        Map<Long, Long> netDeltas = new LinkedHashMap<>();
+        List<Transaction> accepted = new ArrayList<>(requests.size());
+        List<Integer> acceptedIndexes = new ArrayList<>(requests.size());
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int i = 0; i < requests.size(); i++) {
+            long[] legs = legsPerRequest.get(i);
+            if (legs == null) {
+                continue;
+            }
+            try {
+                Map<Long, Long> balancesAfter = simulate(legs, accounts, netDeltas);
+                Transaction transaction = toTransaction(requests.get(i), now);
+                transaction.setSourceBalanceAfter(balanceAfter(transaction.getSourceAccountId(), balancesAfter));
+                transaction.setTargetBalanceAfter(balanceAfter(transaction.getTargetAccountId(), balancesAfter));
+                accepted.add(transaction);
+                acceptedIndexes.add(i);
+            } catch (RuntimeException e) {
+                results.set(i, new Result(null, rejection(e)));
+            }
+        }
+
+        applyNetDeltas(netDeltas);
+        insertTransactions(accepted);
+
+        for (int i = 0; i < accepted.size(); i++) {
+            results.set(acceptedIndexes.get(i), new Result(accepted.get(i), null));
+        }
+        log.debug("批量写入完成 - 请求数: {}, 成功: {}, 涉及账户: {}", requests.size(), accepted.size(), netDeltas.size());
+        return results;
+    }
+
+    /**
+     * 把请求拆成余额变动分录，按[账户ID, 以分为单位的变动金额]成对排列，顺序与逐笔处理时一致
+     */
+    private static long[] legsOf(CreateTransactionRequest request, long amountCents) {
+        switch (request.getType()) {
+            case TRANSFER:
+                return new long[]{request.getSourceAccountId(), Money.negateCents(amountCents),
+                        request.getTargetAccountId(), amountCents};
+            case DEPOSIT:
+                return new long[]{request.getTargetAccountId(), amountCents};
+            case WITHDRAW:
+                return new long[]{request.getSourceAccountId(), Money.negateCents(amountCents)};
+            default:
+                return new long[0];
+        }
+    }
+
+    /**
+     * 使用悲观写锁读取账户余额和信用额度
+     *
+     * @return 账户ID到[余额, 信用额度]（以分为单位）的映射
+     */
+    private Map<Long, long[]> lockAccounts(TreeSet<Long> accountIds) {
+        Map<Long, long[]> accounts = new HashMap<>();
+        if (accountIds.isEmpty()) {
+            return accounts;
+        }
+        String placeholders = String.join(",", Collections.nCopies(accountIds.size(), "?"));
+        // 热点账户的余额包含子余额槽位，槽位只会增加，读取已提交的槽位余额做额度校验是安全的
+        jdbcTemplate.query("SELECT a.id, a.balance + COALESCE((SELECT SUM(s.balance) FROM account_sub_balances s " +
+                        "WHERE s.account_id = a.id), 0) AS balance, a.credit_limit FROM accounts a " +
+                        "WHERE a.id IN (" + placeholders + ") ORDER BY a.id FOR UPDATE",
+                rs -> {
+                    accounts.put(rs.getLong("id"), new long[]{
+                            Money.of(rs.getBigDecimal("balance")).getCents(),
+                            Money.of(rs.getBigDecimal("credit_limit")).getCents()});
+                },
+                accountIds.toArray());
+        return accounts;
+    }
+
+    /**
+     * 在内存中依次执行一笔请求的全部分录，任何一条分录失败时该请求的所有分录都不生效
+     *
+     * @return 该请求涉及的账户ID到执行后以分为单位的余额
+     */
+    private static Map<Long, Long> simulate(long[] legs, Map<Long, long[]> accounts, Map<Long, Long> netDeltas) {
+        Map<Long, Long> tentative = new HashMap<>(4);
+        for (int i = 0; i < legs.length; i += 2) {
+            long accountId = legs[i];
+            long[] state = accounts.get(accountId);
+            if (state == null) {
+                throw new RuntimeException("账户不存在");
+            }
+            long current = tentative.getOrDefault(accountId, state[0]);
+            long updated = Money.addCents(current, legs[i + 1]);
+            if (updated < -state[1]) {
+                throw new RuntimeException("余额不足");
+            }
+            tentative.put(accountId, updated);
+        }
+        tentative.forEach((accountId, balance) -> {
+            long[] state = accounts.get(accountId);
+            netDeltas.merge(accountId, balance - state[0], Long::sum);
+            state[0] = balance;
+        });
+        return tentative;
+    }
+
+    /**
+     * 交易后的账户余额，账户不在本笔分录中或者是热点账户时返回null
+     */
+    private Money balanceAfter(Long accountId, Map<Long, Long> balancesAfter) {
+        Long cents = accountId != null ? balancesAfter.get(accountId) : null;
+        if (cents == null || hotAccountLedger.isHot(accountId)) {
+            return null;
+        }
+        return Money.ofCents(cents);
+    }
+
+    /**
+     * 用一个JDBC批次把按账户合并后的余额变动写入数据库，不做额度校验，必须在事务中调用
+     *
+     * @param netDeltas 账户ID到以分为单位的净变动金额
+     */
+    public void applyNetDeltas(Map<Long, Long> netDeltas) {
+        List<Map.Entry<Long, Long>> changes = netDeltas.entrySet().stream()
+                .filter(e -> e.getValue() != 0L)
+                .toList();
+        if (changes.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setBigDecimal(1, Money.ofCents(changes.get(i).getValue()).toBigDecimal());
+                ps.setLong(2, changes.get(i).getKey());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return changes.size();
+            }
+        });
+    }
+
+    /**
+     * 用一个JDBC批次插入已分配ID的交易记录，必须在事务中调用
+     *
+     * @param transactions 交易记录
+     */
+    public void insertTransactions(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_TRANSACTION_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Transaction transaction = transactions.get(i);
+                ps.setLong(1, transaction.getId());
+                setNullableLong(ps, 2, transaction.getSourceAccountId());
+                setNullableLong(ps, 3, transaction.getTargetAccountId());
+                ps.setBigDecimal(4, transaction.getAmount().toBigDecimal());
+                ps.setString(5, transaction.getType().name());
+                ps.setString(6, transaction.getDescription());
+                setNullableMoney(ps, 7, transaction.getSourceBalanceAfter());
+                setNullableMoney(ps, 8, transaction.getTargetBalanceAfter());
+                ps.setTimestamp(9, Timestamp.valueOf(transaction.getTransactionTime()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return transactions.size();
+            }
+        });
+    }
+
+    private static void setNullableLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.BIGINT);
+        } else {
+            ps.setLong(index, value);
+        }
+    }
+
+    private static void setNullableMoney(PreparedStatement ps, int index, Money value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.DECIMAL);
+        } else {
+            ps.setBigDecimal(index, value.toBigDecimal());
+        }
+    }
+
+    /**
+     * 为请求分配交易ID并生成交易记录，尚未写入数据库
+     */
+    static Transaction toTransaction(CreateTransactionRequest request, LocalDateTime now) {
+        Transaction transaction = new Transaction();
+        transaction.setId(SnowflakeIdGenerator.getInstance().nextId());
+        transaction.setSourceAccountId(request.getSourceAccountId());
+        transaction.setTargetAccountId(request.getTargetAccountId());
+        transaction.setAmount(Money.of(request.getAmount()));
+        transaction.setType(request.getType());
+        transaction.setDescription(request.getDescription());
+        transaction.setTransactionTime(now);
+        return transaction;
+    }
+
+    private static RuntimeException rejection(RuntimeException e) {
+        return new RuntimeException("交易处理失败: " + e.getMessage());
+    }
+
+    /**
+     * 单笔请求的处理结果，transaction和error有且只有一个不为空
+     */
+    public record Result(Transaction transaction, RuntimeException error) {
+
+        /**
+         * @return 如果请求已写入则返回true
+         */
+        public boolean isAccepted() {
+            return transaction != null;
+        }
+    }
+}
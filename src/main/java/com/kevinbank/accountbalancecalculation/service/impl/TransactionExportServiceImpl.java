@@ -0,0 +1,163 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.kevinbank.accountbalancecalculation.model.ExportFormat;
+import com.kevinbank.accountbalancecalculation.model.TransactionExportRow;
+import com.kevinbank.accountbalancecalculation.repository.TransactionRepository;
+import com.kevinbank.accountbalancecalculation.service.TransactionExportService;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * 交易导出服务实现类
+ * 在只读事务中从数据库游标逐行读取导出行，逐行写入带缓冲的输出流，读取和写出交替进行：
+ * 客户端读取变慢时写出阻塞，数据库读取也随之暂停，内存中只有当前行和输出缓冲区。
+ *
+ * 注意：导出期间一直占用一个数据库连接，导出耗时与客户端的读取速度有关。
+ */
+@Slf4j
+@Service
+public class TransactionExportServiceImpl implements TransactionExportService {
+
+    private static final String CSV_HEADER = "id,transaction_time,type,source_account_id,target_account_id,amount," +
+            "source_balance_after,target_balance_after,description";
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * 接口使用的ObjectMapper，金额以两位小数写出
+     */
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 输出缓冲区大小（字节）
+     */
+    @Value("${transaction.export.buffer-size:65536}")
+    private int bufferSize;
+
+    private TransactionTemplate readOnlyTransactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public long export(Long accountId, LocalDateTime from, LocalDateTime to, ExportFormat format, OutputStream out)
+            throws IOException {
+        long start = System.currentTimeMillis();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), bufferSize);
+        Long exported;
+        try {
+            exported = readOnlyTransactionTemplate.execute(status -> {
+                try (Stream<TransactionExportRow> rows = accountId != null
+                        ? transactionRepository.streamForExportByAccountId(accountId, from, to)
+                        : transactionRepository.streamForExport(from, to)) {
+                    return format == ExportFormat.CSV ? writeCsv(rows.iterator(), writer) : writeNdjson(rows.iterator(), writer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        long count = exported != null ? exported : 0L;
+        log.info("交易导出完成 - 账户: {}, 时间范围: [{}, {}), 格式: {}, 行数: {}, 耗时: {} 毫秒",
+                accountId, from, to, format, count, System.currentTimeMillis() - start);
+        return count;
+    }
+
+    private long writeNdjson(Iterator<TransactionExportRow> rows, Writer writer) throws IOException {
+        long count = 0L;
+        // SequenceWriter复用同一个JsonGenerator，每个对象之后写出换行
+        try (SequenceWriter sequence = objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n")
+                .writeValues(writer)) {
+            while (rows.hasNext()) {
+                sequence.write(rows.next());
+                count++;
+            }
+        }
+        if (count > 0) {
+            writer.write('\n');
+        }
+        return count;
+    }
+
+    private long writeCsv(Iterator<TransactionExportRow> rows, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write("\r\n");
+        long count = 0L;
+        while (rows.hasNext()) {
+            TransactionExportRow row = rows.next();
+            writer.write(String.valueOf(row.id()));
+            writer.write(',');
+            writer.write(row.transactionTime().toString());
+            writer.write(',');
+            writer.write(row.type().name());
+            writer.write(',');
+            writeNullable(writer, row.sourceAccountId());
+            writer.write(',');
+            writeNullable(writer, row.targetAccountId());
+            writer.write(',');
+            writer.write(row.amount().toString());
+            writer.write(',');
+            writeNullable(writer, row.sourceBalanceAfter());
+            writer.write(',');
+            writeNullable(writer, row.targetBalanceAfter());
+            writer.write(',');
+            writeCsvText(writer, row.description());
+            writer.write("\r\n");
+            count++;
+        }
+        return count;
+    }
+
+    private static void writeNullable(Writer writer, Object value) throws IOException {
+        if (value != null) {
+            writer.write(value.toString());
+        }
+    }
+
+    /**
+     * 包含逗号、引号或换行的文本用双引号括起，引号写两次
+     */
+    static void writeCsvText(Writer writer, String text) throws IOException {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
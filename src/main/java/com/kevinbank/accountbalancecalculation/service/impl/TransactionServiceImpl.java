@@ -1,24 +1,46 @@
 package com.kevinbank.accountbalancecalculation.service.impl;
 
-import com.kevinbank.accountbalancecalculation.model.Account;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kevinbank.accountbalancecalculation.config.RedisConfig;
+import com.kevinbank.accountbalancecalculation.id.SnowflakeIdGenerator;
+import com.kevinbank.accountbalancecalculation.journal.TransactionJournal;
+import com.kevinbank.accountbalancecalculation.model.BatchTransactionResult;
+import com.kevinbank.accountbalancecalculation.model.Money;
 import com.kevinbank.accountbalancecalculation.model.Transaction;
+import com.kevinbank.accountbalancecalculation.model.TransactionCursor;
+import com.kevinbank.accountbalancecalculation.model.TransactionPage;
+import com.kevinbank.accountbalancecalculation.model.TransactionType;
 import com.kevinbank.accountbalancecalculation.model.CreateTransactionRequest;
 import com.kevinbank.accountbalancecalculation.mapper.TransactionMapper;
 import com.kevinbank.accountbalancecalculation.repository.TransactionRepository;
 import com.kevinbank.accountbalancecalculation.repository.AccountRepository;
+import com.kevinbank.accountbalancecalculation.service.AccountLockManager;
 import com.kevinbank.accountbalancecalculation.service.TransactionService;
 import com.kevinbank.accountbalancecalculation.service.CacheService;
 import com.kevinbank.accountbalancecalculation.service.BalanceService;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
 
 /**
  * 交易服务实现类
@@ -43,60 +65,233 @@ public class TransactionServiceImpl implements TransactionService {
     private CacheService cacheService;
 
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private AccountLockManager accountLockManager;
 
-    private static final String TRANSACTION_LIST_KEY = "transactions:account:";
-    private static final String LOCK_KEY_PREFIX = "lock:transaction:";
-    private static final String TRANSACTION_CACHE_KEY_PREFIX = "transaction:";
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private BulkTransactionProcessor bulkTransactionProcessor;
+
+    /**
+     * 热点账户子余额账本，热点账户的入账写入子余额槽位，逐笔处理时不对入账的热点账户加锁
+     */
+    @Autowired
+    private HotAccountLedger hotAccountLedger;
+
+    /**
+     * 交易组提交处理器，仅在transaction.group-commit.enabled=true时存在
+     */
+    @Autowired(required = false)
+    private GroupCommitTransactionProcessor groupCommitProcessor;
+
+    /**
+     * 存款轧差处理器，仅在transaction.deposit-netting.enabled=true时存在
+     */
+    @Autowired(required = false)
+    private DepositNettingProcessor depositNettingProcessor;
+
+    /**
+     * 交易日志，仅在transaction.journal.enabled=true时存在
+     */
+    @Autowired(required = false)
+    private TransactionJournal transactionJournal;
+
+    /**
+     * 余额并发控制模式，optimistic模式下由版本号保证余额更新的正确性，逐笔处理时不再持有账户锁
+     */
+    @Value("${balance.concurrency.mode:pessimistic}")
+    private String concurrencyMode;
+
+    /**
+     * 每页记录数上限
+     */
+    @Value("${transaction.page.max-limit:500}")
+    private int maxPageLimit;
+
+    /**
+     * 第一页的缓存时间（秒），为0时不缓存
+     */
+    @Value("${transaction.page.first-page-cache-seconds:5}")
+    private long firstPageCacheSeconds;
+
+    /**
+     * 其余页面的缓存时间（秒），为0时不缓存
+     */
+    @Value("${transaction.page.cache-seconds:300}")
+    private long pageCacheSeconds;
+
+    private TransactionTemplate transactionTemplate;
+
+    private static final String TRANSACTION_PAGE_KEY = "transactions:page:";
+    /**
+     * 缓存中的金额以分为单位，键带版本前缀，不会读到旧版本以元为单位写入的缓存
+     */
+    private static final String TRANSACTION_CACHE_KEY_PREFIX = "v2:transaction:";
     private static final long CACHE_TIMEOUT = 30; // 缓存30分钟
 
     /**
-     * 创建交易记录
+     * 按ID查找交易时，交易时间与ID生成时间的最大偏差
+     */
+    private static final Duration ID_TIME_WINDOW = Duration.ofDays(1);
+
+    /**
+     * 缓存中的金额以分为单位写入，读取分页缓存时用同样的方式转换回交易记录
+     */
+    private static final ObjectMapper PAGE_CACHE_MAPPER = RedisConfig.redisObjectMapper()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 创建交易记录。
+     * 启用交易日志时，交易写入本地交易日志后即返回，由后台线程异步写入数据库；
+     * 启用存款轧差且调用方不在事务中时，存款与同一账户上短时间内到达的其他存款合并为一次余额更新；
+     * 启用组提交且调用方不在事务中时，请求与并发到达的其他请求合并为一批写入并一起提交；
+     * 否则在当前事务（没有则新建）中逐笔处理。
      *
      * @param request 创建交易记录的请求对象
      * @return 保存后的交易记录对象
-     * @throws RuntimeException 如果操作太频繁或交易处理失败
+     * @throws RuntimeException 如果获取账户锁超时或交易处理失败
      */
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public Transaction createTransaction(CreateTransactionRequest request) {
-        log.info("开始创建交易记录: {}", request);
-
-        String lockKey = LOCK_KEY_PREFIX;
-        if (request.getSourceAccountId() != null) {
-            lockKey += request.getSourceAccountId();
+        if (transactionJournal != null) {
+            return createJournaledTransaction(request);
+        }
+        if (depositNettingProcessor != null && request.getType() == TransactionType.DEPOSIT
+                && !TransactionSynchronizationManager.isActualTransactionActive()) {
+            Transaction transaction;
+            try {
+                transaction = depositNettingProcessor.submit(request).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+            cacheTransaction(transaction);
+            return transaction;
         }
-        if (request.getTargetAccountId() != null) {
-            lockKey += "_" + request.getTargetAccountId();
+        if (groupCommitProcessor != null && !TransactionSynchronizationManager.isActualTransactionActive()) {
+            Transaction transaction;
+            try {
+                transaction = groupCommitProcessor.submit(request).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+            cacheTransaction(transaction);
+            return transaction;
         }
+        return transactionTemplate.execute(status -> createTransactionInTransaction(request));
+    }
 
-        boolean locked = false;
-        try {
-            // 获取分布式锁
-            locked = redisTemplate.opsForValue().setIfAbsent(lockKey, "1", 10, TimeUnit.SECONDS);
-            if (!locked) {
-                throw new RuntimeException("操作太频繁，请稍后重试");
+    /**
+     * 通过交易日志创建交易记录。
+     * 余额由分片内存引擎校验并更新，交易记录写入交易日志并按刷盘策略落盘后即视为成功，不等待数据库提交。
+     * 写入日志失败时撤销已更新的余额；记录已写入但等待刷盘失败时不撤销，该记录仍会被持久化。
+     *
+     * @param request 创建交易记录的请求对象
+     * @return 已写入交易日志的交易记录
+     * @throws RuntimeException 如果获取账户锁超时、余额校验失败或写入交易日志失败
+     */
+    private Transaction createJournaledTransaction(CreateTransactionRequest request) {
+        log.debug("开始创建交易记录(交易日志): {}", request);
+        validateTransactionRequest(request);
+        Money amount = Money.of(request.getAmount());
+        if (!amount.isPositive()) {
+            throw new RuntimeException("交易金额必须大于0");
+        }
+
+        try (AccountLockManager.LockHandle ignored = accountLockManager.lock(
+                Arrays.asList(request.getSourceAccountId(), request.getTargetAccountId()))) {
+            List<Long> appliedAccounts = new ArrayList<>(2);
+            List<Money> appliedAmounts = new ArrayList<>(2);
+            long offset;
+            Transaction transaction;
+            Money sourceBalanceAfter = null;
+            Money targetBalanceAfter = null;
+            try {
+                switch (request.getType()) {
+                    case TRANSFER:
+                        sourceBalanceAfter = applyLeg(request.getSourceAccountId(), amount.negate(), appliedAccounts, appliedAmounts);
+                        targetBalanceAfter = applyLeg(request.getTargetAccountId(), amount, appliedAccounts, appliedAmounts);
+                        break;
+                    case DEPOSIT:
+                        targetBalanceAfter = applyLeg(request.getTargetAccountId(), amount, appliedAccounts, appliedAmounts);
+                        break;
+                    case WITHDRAW:
+                        sourceBalanceAfter = applyLeg(request.getSourceAccountId(), amount.negate(), appliedAccounts, appliedAmounts);
+                        break;
+                    default:
+                        break;
+                }
+
+                transaction = new Transaction();
+                transaction.setId(SnowflakeIdGenerator.getInstance().nextId());
+                transaction.setSourceAccountId(request.getSourceAccountId());
+                transaction.setTargetAccountId(request.getTargetAccountId());
+                transaction.setAmount(amount);
+                transaction.setType(request.getType());
+                transaction.setDescription(request.getDescription());
+                transaction.setSourceBalanceAfter(sourceBalanceAfter);
+                transaction.setTargetBalanceAfter(targetBalanceAfter);
+                transaction.setTransactionTime(LocalDateTime.now());
+                offset = transactionJournal.write(transaction);
+            } catch (RuntimeException e) {
+                // 按相反顺序撤销已生效的余额变动
+                for (int i = appliedAccounts.size() - 1; i >= 0; i--) {
+                    balanceService.revertBalance(appliedAccounts.get(i), appliedAmounts.get(i));
+                }
+                log.error("交易处理失败: {}", e.getMessage());
+                throw new RuntimeException("交易处理失败: " + e.getMessage());
             }
 
-            // 验证请求
+            transactionJournal.awaitDurable(offset);
+            cacheTransaction(transaction);
+            return transaction;
+        }
+    }
+
+    private Money applyLeg(Long accountId, Money amount, List<Long> appliedAccounts, List<Money> appliedAmounts) {
+        Money balanceAfter = balanceService.updateBalance(accountId, amount);
+        appliedAccounts.add(accountId);
+        appliedAmounts.add(amount);
+        return balanceAfter;
+    }
+
+    /**
+     * 在事务中逐笔创建交易记录
+     *
+     * @param request 创建交易记录的请求对象
+     * @return 保存后的交易记录对象
+     */
+    private Transaction createTransactionInTransaction(CreateTransactionRequest request) {
+        log.info("开始创建交易记录: {}", request);
+
+        // 按账户加锁，多个账户由锁管理器按固定顺序获取，超时前阻塞等待；乐观模式下冲突由版本号检测，不加账户锁
+        AccountLockManager.LockHandle locks = "optimistic".equalsIgnoreCase(concurrencyMode)
+                ? () -> { }
+                : accountLockManager.lock(lockedAccounts(request));
+        boolean releaseAfterCompletion = releaseLocksAfterCompletion(locks);
+        try {
+            // 验证请求，金额在此转换为定点数，后续余额计算不再使用BigDecimal
             validateTransactionRequest(request);
+            Money amount = Money.of(request.getAmount());
+            if (!amount.isPositive()) {
+                throw new RuntimeException("交易金额必须大于0");
+            }
 
-            // 创建交易记录
-            Transaction transaction = new Transaction();
-            transaction.setSourceAccountId(request.getSourceAccountId());
-            transaction.setTargetAccountId(request.getTargetAccountId());
-            transaction.setAmount(request.getAmount());
-            transaction.setType(request.getType());
-            transaction.setDescription(request.getDescription());
-            transaction.setTransactionTime(LocalDateTime.now());
-
-            // 保存交易记录
-            log.info("保存交易记录到数据库: {}", transaction);
-            transaction = transactionRepository.save(transaction);
-            log.info("交易记录保存成功，ID: {}", transaction.getId());
-
-            // 更新账户余额
             try {
+                // 先更新账户余额：条件UPDATE同时完成账户存在性和信用额度校验，同时得到交易后的余额
+                Money sourceBalanceAfter = null;
+                Money targetBalanceAfter = null;
                 switch (request.getType()) {
                     case TRANSFER:
                         log.info("处理转账交易 - 源账户: {}, 目标账户: {}, 金额: {}",
@@ -105,10 +300,10 @@ public class TransactionServiceImpl implements TransactionService {
                                 request.getAmount());
 
                         if (request.getSourceAccountId() != null) {
-                            balanceService.updateBalance(request.getSourceAccountId(), request.getAmount().negate());
+                            sourceBalanceAfter = balanceService.updateBalance(request.getSourceAccountId(), amount.negate());
                         }
                         if (request.getTargetAccountId() != null) {
-                            balanceService.updateBalance(request.getTargetAccountId(), request.getAmount());
+                            targetBalanceAfter = balanceService.updateBalance(request.getTargetAccountId(), amount);
                         }
                         break;
 
@@ -118,7 +313,7 @@ public class TransactionServiceImpl implements TransactionService {
                                 request.getAmount());
 
                         if (request.getTargetAccountId() != null) {
-                            balanceService.updateBalance(request.getTargetAccountId(), request.getAmount());
+                            targetBalanceAfter = balanceService.updateBalance(request.getTargetAccountId(), amount);
                         }
                         break;
 
@@ -128,120 +323,180 @@ public class TransactionServiceImpl implements TransactionService {
                                 request.getAmount());
 
                         if (request.getSourceAccountId() != null) {
-                            balanceService.updateBalance(request.getSourceAccountId(), request.getAmount().negate());
+                            sourceBalanceAfter = balanceService.updateBalance(request.getSourceAccountId(), amount.negate());
                         }
                         break;
                 }
 
-                // 确认交易记录已保存
-                Transaction savedTransaction = transactionRepository.findById(transaction.getId())
-                        .orElseThrow(() -> new RuntimeException("无法获取已保存的交易记录"));
-                log.info("交易记录已确认保存: {}", savedTransaction);
+                // 创建交易记录
+                Transaction transaction = new Transaction();
+                transaction.setSourceAccountId(request.getSourceAccountId());
+                transaction.setTargetAccountId(request.getTargetAccountId());
+                transaction.setAmount(amount);
+                transaction.setType(request.getType());
+                transaction.setDescription(request.getDescription());
+                transaction.setSourceBalanceAfter(sourceBalanceAfter);
+                transaction.setTargetBalanceAfter(targetBalanceAfter);
+                transaction.setTransactionTime(LocalDateTime.now());
+
+                // 保存交易记录，主键在插入前已由ID生成器分配，INSERT随事务提交批量执行，无需再回查确认
+                log.info("保存交易记录到数据库: {}", transaction);
+                Transaction savedTransaction = transactionRepository.save(transaction);
+                log.info("交易记录保存成功，ID: {}", savedTransaction.getId());
 
                 // 保存到缓存
-                String cacheKey = TRANSACTION_CACHE_KEY_PREFIX + savedTransaction.getId();
-                log.info("Attempting to cache transaction with key: {}", cacheKey);
-                try {
-                    cacheService.set(cacheKey, savedTransaction, CACHE_TIMEOUT, TimeUnit.MINUTES);
-                    // 验证缓存是否成功
-                    Transaction cachedTransaction = cacheService.get(cacheKey, Transaction.class);
-                    if (cachedTransaction != null) {
-                        log.info("Successfully verified cache write for key: {}", cacheKey);
-                    } else {
-                        log.warn("Cache verification failed for key: {}", cacheKey);
-                    }
-                } catch (Exception e) {
-                    log.error("Failed to cache transaction: {}", e.getMessage(), e);
-                }
+                cacheTransaction(savedTransaction);
 
                 return savedTransaction;
+            } catch (OptimisticLockingFailureException e) {
+                // 保留异常类型，由全局异常处理返回409，调用方可以重试
+                log.warn("交易处理失败，账户并发更新冲突: {}", e.getMessage());
+                throw e;
             } catch (Exception e) {
                 log.error("交易处理失败: {}", e.getMessage(), e);
                 throw new RuntimeException("交易处理失败: " + e.getMessage());
             }
         } finally {
-            if (locked) {
-                redisTemplate.delete(lockKey);
+            if (!releaseAfterCompletion) {
+                locks.close();
+            }
+        }
+    }
+
+    /**
+     * 逐笔处理时需要加锁的账户。
+     * 热点账户的入账只向一个子余额槽位累加，不读取也不校验账户余额，并发入账由槽位行锁分散，
+     * 因此入账的热点账户不加账户锁，否则同一热点账户的入账会在账户锁上逐个排队；
+     * 热点账户的出账需要合并槽位并校验信用额度，仍然加锁。
+     *
+     * @param request 交易请求
+     * @return 需要加锁的账户ID，null由锁管理器忽略
+     */
+    private List<Long> lockedAccounts(CreateTransactionRequest request) {
+        Long targetAccountId = request.getTargetAccountId();
+        if (targetAccountId != null && request.getType() != null && request.getType().creditsTarget()
+                && !targetAccountId.equals(request.getSourceAccountId())
+                && hotAccountLedger.isHot(targetAccountId)) {
+            targetAccountId = null;
+        }
+        return Arrays.asList(request.getSourceAccountId(), targetAccountId);
+    }
+
+    /**
+     * 把交易记录写入缓存，缓存失败不影响交易结果
+     *
+     * @param transaction 已保存的交易记录
+     */
+    private void cacheTransaction(Transaction transaction) {
+        String cacheKey = TRANSACTION_CACHE_KEY_PREFIX + transaction.getId();
+        log.info("Attempting to cache transaction with key: {}", cacheKey);
+        try {
+            cacheService.set(cacheKey, transaction, CACHE_TIMEOUT, TimeUnit.MINUTES);
+            // 验证缓存是否成功
+            Transaction cachedTransaction = cacheService.get(cacheKey, Transaction.class);
+            if (cachedTransaction != null) {
+                log.info("Successfully verified cache write for key: {}", cacheKey);
+            } else {
+                log.warn("Cache verification failed for key: {}", cacheKey);
             }
+        } catch (Exception e) {
+            log.error("Failed to cache transaction: {}", e.getMessage(), e);
         }
     }
 
+    /**
+     * 如果当前处于事务中，则把账户锁的释放推迟到事务结束之后，
+     * 保证在提交完成前其他请求无法处理同一账户。
+     *
+     * @param locks 已获取的账户锁
+     * @return 如果已注册为事务结束后释放则返回true，否则返回false
+     */
+    private boolean releaseLocksAfterCompletion(AccountLockManager.LockHandle locks) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return false;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                locks.close();
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 批量创建交易
+     * jdbc余额引擎下按分区持有账户锁批量写入数据库并缓存写入的交易，分片内存余额引擎或启用交易日志时逐笔走单笔交易的处理流程
+     *
+     * @param requests 按提交顺序排列的交易请求
+     * @return 与请求一一对应的处理结果
+     */
+    @Override
+    public List<BatchTransactionResult> createTransactions(List<CreateTransactionRequest> requests) {
+        return bulkTransactionProcessor.process(requests, this::createTransaction, this::cacheTransaction);
+    }
+
     /**
      * 验证交易请求的合法性
+     * 账户是否存在由余额更新的条件UPDATE一并校验，这里不再逐个查询账户。
      *
      * @param request 交易请求对象
-     * @throws RuntimeException 如果账户ID为空或账户不存在
+     * @throws RuntimeException 如果交易类型、金额或必需的账户ID为空
      */
-    private void validateTransactionRequest(CreateTransactionRequest request) {
+    static void validateTransactionRequest(CreateTransactionRequest request) {
+        if (request.getType() == null) {
+            throw new RuntimeException("交易类型不能为空");
+        }
+        if (request.getAmount() == null) {
+            throw new RuntimeException("交易金额不能为空");
+        }
         switch (request.getType()) {
             case DEPOSIT:
                 if (request.getTargetAccountId() == null) {
                     throw new RuntimeException("存款账户ID不能为空");
                 }
-                validateAccount(request.getTargetAccountId());
                 break;
             case WITHDRAW:
                 if (request.getSourceAccountId() == null) {
                     throw new RuntimeException("取款账户ID不能为空");
                 }
-                validateAccount(request.getSourceAccountId());
                 break;
             case TRANSFER:
                 if (request.getSourceAccountId() == null || request.getTargetAccountId() == null) {
                     throw new RuntimeException("转账的源账户和目标账户ID不能为空");
                 }
-                validateAccount(request.getSourceAccountId());
-                validateAccount(request.getTargetAccountId());
                 break;
         }
     }
 
     /**
-     * 验证账户是否存在
-     *
-     * @param accountId 账户ID
-     * @throws RuntimeException 如果账户不存在
-     */
-    private void validateAccount(Long accountId) {
-        if (!accountRepository.findById(accountId).isPresent()) {
-            throw new RuntimeException("账户不存在: " + accountId);
-        }
-    }
-
-    /**
-     * 根据账户ID获取交易记录列表
+     * 按交易时间从新到旧分页获取指定账户的交易记录
      *
      * @param accountId 账户ID
-     * @return 交易记录列表
+     * @param cursor 上一页返回的游标，为空时读取第一页
+     * @param limit 每页记录数，超过transaction.page.max-limit时按上限读取
+     * @return 一页交易记录
+     * @throws com.kevinbank.accountbalancecalculation.exception.InvalidCursorException 如果游标无法解析
      */
     @Override
-    public List<Transaction> getTransactionsByAccountId(Long accountId) {
-        String cacheKey = TRANSACTION_LIST_KEY + accountId;
-
-        // 先从缓存获取
-        List<Transaction> transactions = cacheService.get(cacheKey, List.class);
-        if (transactions != null) {
-            return transactions;
-        }
-
-        // 缓存未命中，从数据库查询
-        transactions = transactionRepository
-            .findBySourceAccountIdOrTargetAccountId(accountId, accountId);
-
-        // 放入缓存
-        cacheService.set(cacheKey, transactions, 5, TimeUnit.MINUTES);
-
-        return transactions;
+    @Transactional(readOnly = true)
+    public TransactionPage getTransactionsByAccountId(Long accountId, String cursor, int limit) {
+        return getPage(TRANSACTION_PAGE_KEY + accountId, cursor, limit,
+                (position, size) -> transactionRepository.findPageByAccountIdBefore(
+                        accountId, position.transactionTime(), position.id(), size));
     }
 
     /**
-     * 根据ID获取交易记录
+     * 根据ID获取交易记录。
+     * 刚提交的交易可能还没有复制到只读副本，这里使用读写事务固定从主库查询，
+     * 否则findById默认的只读事务在启用读写分离时会被路由到副本。
      *
      * @param id 交易记录ID
      * @return 交易记录对象
      * @throws RuntimeException 如果交易记录不存在
      */
     @Override
+    @Transactional
     public Transaction getTransactionById(Long id) {
         String cacheKey = TRANSACTION_CACHE_KEY_PREFIX + id;
         // 先从缓存获取
@@ -253,7 +508,7 @@ public class TransactionServiceImpl implements TransactionService {
         
         // 缓存未命中，从数据库获取
         log.info("Transaction not found in cache, fetching from database: {}", id);
-        transaction = transactionRepository.findById(id)
+        transaction = findTransaction(id)
             .orElseThrow(() -> new RuntimeException("Transaction not found: " + id));
             
         // 放入缓存
@@ -262,12 +517,66 @@ public class TransactionServiceImpl implements TransactionService {
     }
 
     /**
-     * 获取所有交易记录
+     * 按ID查找交易记录。
+     * Snowflake ID中包含生成时间，交易时间与之相差很小，先只在该时间附近的分区中查找，找不到时再查找全部分区。
+     */
+    private Optional<Transaction> findTransaction(Long id) {
+        if (SnowflakeIdGenerator.timestampOf(id) > SnowflakeIdGenerator.EPOCH_MILLIS) {
+            LocalDateTime generatedAt = SnowflakeIdGenerator.timeOf(id);
+            Optional<Transaction> transaction = transactionRepository.findByIdWithin(
+                    id, generatedAt.minus(ID_TIME_WINDOW), generatedAt.plus(ID_TIME_WINDOW));
+            if (transaction.isPresent()) {
+                return transaction;
+            }
+        }
+        return transactionRepository.findById(id);
+    }
+
+    /**
+     * 按交易时间从新到旧分页获取所有交易记录
      *
-     * @return 交易记录列表
+     * @param cursor 上一页返回的游标，为空时读取第一页
+     * @param limit 每页记录数，超过transaction.page.max-limit时按上限读取
+     * @return 一页交易记录
+     * @throws com.kevinbank.accountbalancecalculation.exception.InvalidCursorException 如果游标无法解析
      */
     @Override
-    public List<Transaction> getAllTransactions() {
-        return transactionRepository.findAll();
+    @Transactional(readOnly = true)
+    public TransactionPage getTransactions(String cursor, int limit) {
+        return getPage(TRANSACTION_PAGE_KEY + "all", cursor, limit,
+                (position, size) -> transactionRepository.findPageBefore(position.transactionTime(), position.id(), size));
+    }
+
+    /**
+     * 按游标读取一页交易记录并按页缓存。
+     * 多读一条记录判断是否还有下一页。游标之后的页面内容基本不再变化，缓存时间较长；
+     * 第一页随新交易变化，只缓存transaction.page.first-page-cache-seconds秒。
+     * 调用方是只读事务，启用读写分离时从只读副本查询，副本的复制延迟不超过datasource.replica.max-lag-ms。
+     */
+    private TransactionPage getPage(String keyPrefix, String cursor, int limit,
+                                    BiFunction<TransactionCursor, Integer, List<Transaction>> query) {
+        TransactionCursor position = TransactionCursor.decode(cursor);
+        int size = Math.max(1, Math.min(limit, maxPageLimit));
+        boolean firstPage = position.equals(TransactionCursor.FIRST);
+        String cacheKey = keyPrefix + ":" + size + ":" + (firstPage ? "first" : cursor);
+
+        Map<?, ?> cached = cacheService.get(cacheKey, Map.class);
+        if (cached != null) {
+            return PAGE_CACHE_MAPPER.convertValue(cached, TransactionPage.class);
+        }
+
+        List<Transaction> rows = query.apply(position, size + 1);
+        TransactionPage page;
+        if (rows.size() > size) {
+            List<Transaction> items = new ArrayList<>(rows.subList(0, size));
+            page = new TransactionPage(items, TransactionCursor.after(items.get(size - 1)).encode());
+        } else {
+            page = new TransactionPage(rows, null);
+        }
+        long ttl = firstPage ? firstPageCacheSeconds : pageCacheSeconds;
+        if (ttl > 0) {
+            cacheService.set(cacheKey, page, ttl, TimeUnit.SECONDS);
+        }
+        return page;
     }
 }
@@ -0,0 +1,226 @@
+package com.kevinbank.accountbalancecalculation.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * 账户余额快照。
+ * 以紧凑的二进制格式保存全部账户的余额、信用额度和最后一笔交易ID，以及快照的交易水位线，
+ * 启动时通过内存映射一次性读入原始类型数组，再回放水位线之后的交易即可得到最新余额。
+ *
+ * 文件布局：64字节文件头（魔数、版本、水位线、回放下限、创建时间、账户数、已包含交易数、正文CRC32C），
+ * 随后是按账户ID升序排列的账户记录（每条32字节：账户ID、余额（分）、信用额度（分）、最后交易ID），
+ * 最后是按升序排列的已包含交易ID（每个8字节）：这些交易的ID大于回放下限，但在快照时已经提交并计入余额，回放时需要跳过。
+ */
+public final class BalanceSnapshot {
+
+    private static final int MAGIC = 0x4B425331;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int ACCOUNT_RECORD_SIZE = 32;
+
+    private final long[] accountIds;
+    private final long[] balances;
+    private final long[] creditLimits;
+    private final long[] lastTransactionIds;
+    private final long[] includedTransactionIds;
+    private final long replayFloor;
+    private final long createdAtMillis;
+    private long watermark;
+
+    /**
+     * @param accountIds 按升序排列的账户ID
+     * @param balances 以分为单位的余额
+     * @param creditLimits 以分为单位的信用额度
+     * @param lastTransactionIds 每个账户最后一笔交易的ID，没有交易时为0
+     * @param watermark 快照包含的最大交易ID
+     * @param replayFloor 回放下限，ID大于该值且不在已包含列表中的交易需要回放
+     * @param includedTransactionIds 按升序排列的、ID大于回放下限且已计入快照的交易ID
+     * @param createdAtMillis 快照创建时间
+     */
+    public BalanceSnapshot(long[] accountIds, long[] balances, long[] creditLimits, long[] lastTransactionIds,
+                           long watermark, long replayFloor, long[] includedTransactionIds, long createdAtMillis) {
+        this.accountIds = accountIds;
+        this.balances = balances;
+        this.creditLimits = creditLimits;
+        this.lastTransactionIds = lastTransactionIds;
+        this.watermark = watermark;
+        this.replayFloor = replayFloor;
+        this.includedTransactionIds = includedTransactionIds;
+        this.createdAtMillis = createdAtMillis;
+    }
+
+    /**
+     * 把快照写入文件，先写临时文件再原子替换，写入过程中崩溃不会留下不完整的快照
+     *
+     * @param file 目标文件
+     * @throws IOException 如果写入失败
+     */
+    public void writeTo(Path file) throws IOException {
+        int accountCount = accountIds.length;
+        long bodySize = (long) accountCount * ACCOUNT_RECORD_SIZE + (long) includedTransactionIds.length * Long.BYTES;
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + bodySize);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.position(HEADER_SIZE);
+            for (int i = 0; i < accountCount; i++) {
+                buffer.putLong(accountIds[i]);
+                buffer.putLong(balances[i]);
+                buffer.putLong(creditLimits[i]);
+                buffer.putLong(lastTransactionIds[i]);
+            }
+            for (long id : includedTransactionIds) {
+                buffer.putLong(id);
+            }
+
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.duplicate().position(HEADER_SIZE).limit((int) (HEADER_SIZE + bodySize)));
+
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(8, watermark);
+            buffer.putLong(16, replayFloor);
+            buffer.putLong(24, createdAtMillis);
+            buffer.putInt(32, accountCount);
+            buffer.putInt(36, includedTransactionIds.length);
+            buffer.putLong(40, crc.getValue());
+            buffer.force();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 通过内存映射读取快照文件
+     *
+     * @param file 快照文件
+     * @return 快照
+     * @throws IOException 如果文件无法读取
+     * @throws RuntimeException 如果文件格式不正确或校验失败
+     */
+    public static BalanceSnapshot readFrom(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new RuntimeException("余额快照文件不完整: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new RuntimeException("余额快照文件格式不正确: " + file);
+            }
+            long watermark = buffer.getLong(8);
+            long replayFloor = buffer.getLong(16);
+            long createdAtMillis = buffer.getLong(24);
+            int accountCount = buffer.getInt(32);
+            int includedCount = buffer.getInt(36);
+            long expectedCrc = buffer.getLong(40);
+            long bodySize = (long) accountCount * ACCOUNT_RECORD_SIZE + (long) includedCount * Long.BYTES;
+            if (accountCount < 0 || includedCount < 0 || size != HEADER_SIZE + bodySize) {
+                throw new RuntimeException("余额快照文件长度不正确: " + file);
+            }
+
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.duplicate().position(HEADER_SIZE));
+            if (crc.getValue() != expectedCrc) {
+                throw new RuntimeException("余额快照文件校验失败: " + file);
+            }
+
+            long[] accountIds = new long[accountCount];
+            long[] balances = new long[accountCount];
+            long[] creditLimits = new long[accountCount];
+            long[] lastTransactionIds = new long[accountCount];
+            ByteBuffer body = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).position(HEADER_SIZE);
+            for (int i = 0; i < accountCount; i++) {
+                accountIds[i] = body.getLong();
+                balances[i] = body.getLong();
+                creditLimits[i] = body.getLong();
+                lastTransactionIds[i] = body.getLong();
+            }
+            long[] included = new long[includedCount];
+            body.asLongBuffer().get(included);
+            return new BalanceSnapshot(accountIds, balances, creditLimits, lastTransactionIds,
+                    watermark, replayFloor, included, createdAtMillis);
+        }
+    }
+
+    /**
+     * 判断一笔交易在回放时是否需要应用
+     *
+     * @param transactionId 交易ID
+     * @return 如果该交易没有计入快照则返回true
+     */
+    public boolean needsReplay(long transactionId) {
+        return transactionId > replayFloor && Arrays.binarySearch(includedTransactionIds, transactionId) < 0;
+    }
+
+    /**
+     * 回放一条余额变动，快照中不存在的账户（快照之后创建的账户）被忽略
+     *
+     * @param accountId 账户ID
+     * @param deltaCents 以分为单位的变动金额
+     * @param transactionId 交易ID
+     */
+    public void apply(long accountId, long deltaCents, long transactionId) {
+        int index = Arrays.binarySearch(accountIds, accountId);
+        if (index >= 0) {
+            balances[index] += deltaCents;
+            lastTransactionIds[index] = Math.max(lastTransactionIds[index], transactionId);
+        }
+        watermark = Math.max(watermark, transactionId);
+    }
+
+    /**
+     * 依次访问每个账户的余额状态
+     *
+     * @param consumer 账户ID、余额（分）、信用额度（分）的消费者
+     */
+    public void forEach(AccountConsumer consumer) {
+        for (int i = 0; i < accountIds.length; i++) {
+            consumer.accept(accountIds[i], balances[i], creditLimits[i]);
+        }
+    }
+
+    /**
+     * @param accountId 账户ID
+     * @return 以分为单位的余额；账户不在快照中时返回null
+     */
+    public Long balanceOf(long accountId) {
+        int index = Arrays.binarySearch(accountIds, accountId);
+        return index >= 0 ? balances[index] : null;
+    }
+
+    public int size() {
+        return accountIds.length;
+    }
+
+    public long getWatermark() {
+        return watermark;
+    }
+
+    public long getReplayFloor() {
+        return replayFloor;
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    /**
+     * 账户余额状态的消费者
+     */
+    @FunctionalInterface
+    public interface AccountConsumer {
+        void accept(long accountId, long balanceCents, long creditLimitCents);
+    }
+}
@@ -0,0 +1,300 @@
+package com.kevinbank.accountbalancecalculation.snapshot;
+
+import com.kevinbank.accountbalancecalculation.id.SnowflakeIdGenerator;
+import com.kevinbank.accountbalancecalculation.model.Money;
+import com.kevinbank.accountbalancecalculation.model.TransactionType;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * 余额快照服务。
+ * 定期在一个可重复读的只读事务中读取全部账户余额和交易水位线，写成紧凑的二进制快照文件；
+ * 启动时加载最新的快照，只回放水位线附近及之后的交易，避免按账户逐条从数据库加载余额。
+ *
+ * 交易ID由各实例在提交前分配，ID较小的交易可能晚于ID较大的交易提交。因此快照同时记录回放下限
+ * （水位线对应时间减去replay-lag-ms）以及此时已经提交的、ID大于回放下限的交易，回放时只应用两者之外的交易。
+ * replay-lag-ms必须大于交易从分配ID到提交的最长时间（事务超时、交易日志持久化积压）。
+ *
+ * 快照只由分片内存余额引擎在启动时读取，jdbc引擎每次都从数据库读取余额，用不到快照，因此只在分片模式下生成快照。
+ *
+ * 注意：快照只记录通过交易产生的余额变动；快照文件保存在本地目录，多实例部署时需要挂载共享卷才能被新实例使用。
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "balance.snapshot.enabled", havingValue = "true")
+public class BalanceSnapshotService {
+
+    private static final String FILE_PREFIX = "balance-snapshot-";
+    private static final String FILE_SUFFIX = ".bin";
+
+    private static final String SELECT_ACCOUNTS_SQL = "SELECT a.id, " +
+            "a.balance + COALESCE((SELECT SUM(s.balance) FROM account_sub_balances s WHERE s.account_id = a.id), 0), " +
+            "a.credit_limit, " +
+            "GREATEST(COALESCE((SELECT MAX(t.id) FROM transactions t WHERE t.source_account_id = a.id), 0), " +
+            "COALESCE((SELECT MAX(t.id) FROM transactions t WHERE t.target_account_id = a.id), 0)) AS last_transaction_id " +
+            "FROM accounts a ORDER BY a.id";
+
+    private static final String SELECT_REPLAY_SQL = "SELECT id, source_account_id, target_account_id, amount, type " +
+            "FROM transactions WHERE id > ? ORDER BY id";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * 快照文件目录
+     */
+    @Value("${balance.snapshot.dir:./data/snapshot}")
+    private String directory;
+
+    /**
+     * 回放窗口（毫秒），ID对应时间早于水位线时间减去该值的交易视为在快照时已全部提交
+     */
+    @Value("${balance.snapshot.replay-lag-ms:60000}")
+    private long replayLagMs;
+
+    /**
+     * 保留的快照文件数量
+     */
+    @Value("${balance.snapshot.retain:2}")
+    private int retain;
+
+    @Value("${balance.engine.mode:jdbc}")
+    private String balanceEngineMode;
+
+    @Value("${transaction.journal.enabled:false}")
+    private boolean journalEnabled;
+
+    private JdbcTemplate streamingJdbcTemplate;
+
+    private TransactionTemplate snapshotTransactionTemplate;
+
+    private Path snapshotDirectory;
+
+    /**
+     * 只有分片内存余额引擎读取快照，其他模式下不生成快照。
+     * 未启用交易日志的分片内存余额引擎按账户异步写回余额，accounts表与transactions表之间没有一致的时间点，
+     * 在该模式下生成的快照无法通过回放得到正确余额，因此也不生成快照。
+     */
+    private boolean writable;
+
+    @PostConstruct
+    public void init() throws IOException {
+        snapshotDirectory = Paths.get(directory);
+        Files.createDirectories(snapshotDirectory);
+
+        // MySQL驱动只有在fetchSize为Integer.MIN_VALUE时才逐行流式读取结果集
+        streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+
+        snapshotTransactionTemplate = new TransactionTemplate(transactionManager);
+        snapshotTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshotTransactionTemplate.setReadOnly(true);
+
+        boolean sharded = "sharded".equalsIgnoreCase(balanceEngineMode);
+        writable = sharded && journalEnabled;
+        if (!sharded) {
+            log.warn("余额快照只由分片内存余额引擎读取，当前余额引擎: {}，不生成快照", balanceEngineMode);
+        } else if (!writable) {
+            log.warn("分片内存余额引擎未启用交易日志，余额快照只加载不生成");
+        }
+        log.info("余额快照已启用 - 目录: {}, 回放窗口: {} 毫秒", snapshotDirectory.toAbsolutePath(), replayLagMs);
+    }
+
+    /**
+     * 定期生成余额快照，并删除超出保留数量的旧快照
+     */
+    @Scheduled(initialDelayString = "${balance.snapshot.initial-delay-ms:60000}",
+            fixedDelayString = "${balance.snapshot.interval-ms:300000}")
+    public void scheduledSnapshot() {
+        if (!writable) {
+            return;
+        }
+        try {
+            takeSnapshot();
+        } catch (Exception e) {
+            log.error("生成余额快照失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 生成一个余额快照
+     *
+     * @return 快照文件路径
+     * @throws IOException 如果写入文件失败
+     */
+    public Path takeSnapshot() throws IOException {
+        long start = System.currentTimeMillis();
+        BalanceSnapshot snapshot = snapshotTransactionTemplate.execute(status -> readSnapshot());
+        Path file = snapshotDirectory.resolve(String.format("%s%020d%s", FILE_PREFIX, start, FILE_SUFFIX));
+        snapshot.writeTo(file);
+        deleteOldSnapshots();
+        log.info("余额快照已生成 - 文件: {}, 账户数: {}, 水位线: {}, 耗时: {} 毫秒",
+                file.getFileName(), snapshot.size(), snapshot.getWatermark(), System.currentTimeMillis() - start);
+        return file;
+    }
+
+    /**
+     * 加载最新的可用快照并回放之后的交易，最新快照损坏时依次尝试更早的快照
+     *
+     * @return 回放后的快照；没有可用快照时返回空
+     */
+    public Optional<BalanceSnapshot> loadLatest() {
+        List<Path> files;
+        try {
+            files = listSnapshots();
+        } catch (IOException e) {
+            log.error("读取余额快照目录失败: {}", e.getMessage(), e);
+            return Optional.empty();
+        }
+        for (int i = files.size() - 1; i >= 0; i--) {
+            Path file = files.get(i);
+            try {
+                long start = System.currentTimeMillis();
+                BalanceSnapshot snapshot = BalanceSnapshot.readFrom(file);
+                long replayed = replay(snapshot);
+                log.info("余额快照已加载 - 文件: {}, 账户数: {}, 回放交易: {} 笔, 耗时: {} 毫秒",
+                        file.getFileName(), snapshot.size(), replayed, System.currentTimeMillis() - start);
+                return Optional.of(snapshot);
+            } catch (Exception e) {
+                log.warn("余额快照不可用，尝试更早的快照 - 文件: {}, 原因: {}", file.getFileName(), e.getMessage());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * 在快照事务中读取账户余额和交易水位线，必须在可重复读事务中调用，保证所有查询看到同一时间点的数据
+     */
+    private BalanceSnapshot readSnapshot() {
+        JdbcTemplate jdbcTemplate = streamingJdbcTemplate;
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM transactions", Long.class);
+        long watermark = maxId != null ? maxId : 0L;
+        long replayFloor = replayFloorOf(watermark);
+
+        LongList included = new LongList();
+        if (replayFloor < watermark) {
+            jdbcTemplate.query("SELECT id FROM transactions WHERE id > ? ORDER BY id",
+                    rs -> {
+                        included.add(rs.getLong(1));
+                    },
+                    replayFloor);
+        }
+
+        LongList ids = new LongList();
+        LongList balances = new LongList();
+        LongList creditLimits = new LongList();
+        LongList lastTransactionIds = new LongList();
+        jdbcTemplate.query(SELECT_ACCOUNTS_SQL, rs -> {
+            ids.add(rs.getLong(1));
+            balances.add(Money.of(rs.getBigDecimal(2)).getCents());
+            creditLimits.add(Money.ofNullable(rs.getBigDecimal(3)).getCents());
+            lastTransactionIds.add(rs.getLong(4));
+        });
+
+        return new BalanceSnapshot(ids.toArray(), balances.toArray(), creditLimits.toArray(),
+                lastTransactionIds.toArray(), watermark, replayFloor, included.toArray(), System.currentTimeMillis());
+    }
+
+    /**
+     * 计算回放下限。
+     * Snowflake之前的自增ID不包含时间，无法推算提交窗口，此时以水位线本身为下限。
+     */
+    private long replayFloorOf(long watermark) {
+        long floorMillis = SnowflakeIdGenerator.timestampOf(watermark) - replayLagMs;
+        if (floorMillis <= SnowflakeIdGenerator.EPOCH_MILLIS) {
+            return watermark;
+        }
+        return Math.min(SnowflakeIdGenerator.minIdAt(floorMillis) - 1, watermark);
+    }
+
+    /**
+     * 按ID顺序流式读取回放下限之后的交易，把快照中未包含的交易应用到快照上
+     *
+     * @return 回放的交易笔数
+     */
+    private long replay(BalanceSnapshot snapshot) {
+        long[] replayed = new long[1];
+        streamingJdbcTemplate.query(SELECT_REPLAY_SQL, rs -> {
+            long id = rs.getLong(1);
+            if (!snapshot.needsReplay(id)) {
+                return;
+            }
+            long amountCents = Money.of(rs.getBigDecimal(4)).getCents();
+            TransactionType type = TransactionType.valueOf(rs.getString(5));
+            switch (type) {
+                case TRANSFER -> {
+                    snapshot.apply(rs.getLong(2), Money.negateCents(amountCents), id);
+                    snapshot.apply(rs.getLong(3), amountCents, id);
+                }
+                case DEPOSIT -> snapshot.apply(rs.getLong(3), amountCents, id);
+                case WITHDRAW -> snapshot.apply(rs.getLong(2), Money.negateCents(amountCents), id);
+                default -> {
+                    return;
+                }
+            }
+            replayed[0]++;
+        }, snapshot.getReplayFloor());
+        return replayed[0];
+    }
+
+    private List<Path> listSnapshots() throws IOException {
+        try (Stream<Path> stream = Files.list(snapshotDirectory)) {
+            return stream.filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX);
+                    })
+                    .sorted(Comparator.comparing(p -> p.getFileName().toString()))
+                    .toList();
+        }
+    }
+
+    private void deleteOldSnapshots() throws IOException {
+        List<Path> files = new ArrayList<>(listSnapshots());
+        for (int i = 0; i < files.size() - Math.max(retain, 1); i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    /**
+     * 简单的long动态数组，避免读取大量账户时装箱
+     */
+    private static final class LongList {
+        private long[] values = new long[1024];
+        private int size;
+
+        private void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
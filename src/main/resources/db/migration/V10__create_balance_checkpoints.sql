@@ -0,0 +1,8 @@
+-- 每日余额检查点，按时间点查询余额时从最近的检查点出发累加交易
+CREATE TABLE IF NOT EXISTS balance_checkpoints (
+    account_id BIGINT NOT NULL,
+    checkpoint_time DATETIME(6) NOT NULL,
+    balance DECIMAL(19,2) NOT NULL,
+    created_at DATETIME(6),
+    PRIMARY KEY (account_id, checkpoint_time)
+);
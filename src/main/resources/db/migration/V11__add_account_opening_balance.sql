@@ -0,0 +1,10 @@
+-- 开户余额，对账时账户余额应等于开户余额加上全部交易的净额；已有账户以当前余额减去已有交易的净额作为对账基线
+ALTER TABLE accounts ADD COLUMN opening_balance DECIMAL(19,2) NULL;
+
+UPDATE accounts a SET a.opening_balance = a.balance
+    + COALESCE((SELECT SUM(s.balance) FROM account_sub_balances s WHERE s.account_id = a.id), 0)
+    - COALESCE((SELECT SUM(t.amount) FROM transactions t
+                WHERE t.target_account_id = a.id AND t.type IN ('TRANSFER', 'DEPOSIT')), 0)
+    + COALESCE((SELECT SUM(t.amount) FROM transactions t
+                WHERE t.source_account_id = a.id AND t.type IN ('TRANSFER', 'WITHDRAW')), 0)
+WHERE a.opening_balance IS NULL;
@@ -0,0 +1,2 @@
+-- 交易记录按(transaction_time, id)游标分页，从上一页最后一笔交易的位置直接在索引中继续读取
+CREATE INDEX idx_transactions_time_id ON transactions (transaction_time, id);
@@ -0,0 +1,3 @@
+-- 按账户查询交易历史时，来源账户和目标账户各自在复合索引上做范围扫描，按(transaction_time, id)顺序读取而不需要排序
+CREATE INDEX idx_transactions_source_time_id ON transactions (source_account_id, transaction_time, id);
+CREATE INDEX idx_transactions_target_time_id ON transactions (target_account_id, transaction_time, id);
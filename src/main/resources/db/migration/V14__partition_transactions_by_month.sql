@@ -0,0 +1,50 @@
+-- 交易表按transaction_time按月分区，按时间范围查询时只扫描相关分区；后续月份的分区由TransactionPartitionManager定期创建
+-- 分区表不支持外键，且主键和唯一索引必须包含分区列
+
+-- 外键名由建表方式决定，从information_schema查出transactions上的全部外键后删除
+SET @drop_foreign_keys = (
+    SELECT GROUP_CONCAT(CONCAT('DROP FOREIGN KEY `', CONSTRAINT_NAME, '`') SEPARATOR ', ')
+    FROM information_schema.REFERENTIAL_CONSTRAINTS
+    WHERE CONSTRAINT_SCHEMA = DATABASE() AND TABLE_NAME = 'transactions'
+);
+SET @drop_foreign_keys_sql = IF(@drop_foreign_keys IS NULL, 'DO 0',
+    CONCAT('ALTER TABLE transactions ', @drop_foreign_keys));
+PREPARE stmt FROM @drop_foreign_keys_sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 主键改为(id, transaction_time)后，数据库不再单独保证id唯一：
+-- id由Snowflake生成器分配，唯一性依赖每个实例配置不同的id.generator.node-id；按id查询时仍可能命中多个分区
+ALTER TABLE transactions DROP PRIMARY KEY, ADD PRIMARY KEY (id, transaction_time);
+
+-- Snowflake ID启用之前的交易放在p_history中；2024-01起到当前月份为止每月一个分区，
+-- p_future只接收尚未创建月份分区的未来交易，维护任务从空的p_future中拆出后续月份，拆分时不移动数据
+-- 分区本身会重建整张表，应在停写的维护窗口内执行
+SET SESSION group_concat_max_len = 1000000;
+SET @month_partitions = (
+    WITH RECURSIVE months (month_start) AS (
+        SELECT DATE('2024-01-01')
+        UNION ALL
+        SELECT month_start + INTERVAL 1 MONTH FROM months
+        WHERE month_start + INTERVAL 1 MONTH <= DATE_FORMAT(CURRENT_DATE, '%Y-%m-01')
+    )
+    SELECT GROUP_CONCAT(CONCAT('PARTITION p', DATE_FORMAT(month_start, '%Y%m'), ' VALUES LESS THAN (''',
+            DATE_FORMAT(month_start + INTERVAL 1 MONTH, '%Y-%m-%d 00:00:00'), ''')')
+        ORDER BY month_start SEPARATOR ', ')
+    FROM months
+);
+SET @partition_sql = CONCAT('ALTER TABLE transactions PARTITION BY RANGE COLUMNS (transaction_time) (',
+    'PARTITION p_history VALUES LESS THAN (''2024-01-01 00:00:00''), ',
+    @month_partitions, ', ',
+    'PARTITION p_future VALUES LESS THAN (MAXVALUE))');
+PREPARE stmt FROM @partition_sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 已归档的分区，分区交易的净额并入accounts.opening_balance时在同一事务中写入
+CREATE TABLE IF NOT EXISTS transaction_archives (
+    partition_name VARCHAR(64) PRIMARY KEY,
+    archive_table VARCHAR(64),
+    row_count BIGINT NOT NULL,
+    archived_at DATETIME(6) NOT NULL
+);
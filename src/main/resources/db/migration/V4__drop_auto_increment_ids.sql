@@ -0,0 +1,11 @@
+-- 账户和交易的主键改由应用侧Snowflake生成器分配，去掉自增属性以启用JDBC批量插入
+-- 已有数据的ID保持不变，新生成的ID远大于现有自增值，不会冲突
+SET FOREIGN_KEY_CHECKS = 0;
+
+ALTER TABLE transactions
+MODIFY COLUMN id BIGINT NOT NULL;
+
+ALTER TABLE accounts
+MODIFY COLUMN id BIGINT NOT NULL;
+
+SET FOREIGN_KEY_CHECKS = 1;
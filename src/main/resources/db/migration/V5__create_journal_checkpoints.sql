@@ -0,0 +1,6 @@
+-- 交易日志持久化检查点，每个节点一行
+CREATE TABLE IF NOT EXISTS journal_checkpoints (
+    node_id BIGINT PRIMARY KEY,
+    persisted_offset BIGINT NOT NULL,
+    updated_at DATETIME(6)
+);
@@ -0,0 +1,10 @@
+-- 热点账户子余额: accounts.sub_balance_slots大于0的账户把入账分散到多个槽位，账户余额为主余额与各槽位之和
+ALTER TABLE accounts ADD COLUMN sub_balance_slots INT NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS account_sub_balances (
+    account_id BIGINT NOT NULL,
+    slot INT NOT NULL,
+    balance DECIMAL(19,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (account_id, slot),
+    FOREIGN KEY (account_id) REFERENCES accounts(id)
+);
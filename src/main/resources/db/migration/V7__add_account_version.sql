@@ -0,0 +1,2 @@
+-- 账户乐观锁版本号，所有修改余额的语句同时把版本号加1
+ALTER TABLE accounts ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,10 @@
+-- 幂等记录: Idempotency-Key与首次处理的响应，与交易在同一个事务中写入
+CREATE TABLE IF NOT EXISTS idempotency_records (
+    idempotency_key VARCHAR(160) PRIMARY KEY,
+    request_hash CHAR(64) NOT NULL,
+    transaction_id BIGINT,
+    response_body TEXT,
+    created_at DATETIME(6) NOT NULL,
+    expires_at DATETIME(6) NOT NULL,
+    INDEX idx_idempotency_expires_at (expires_at)
+);
@@ -0,0 +1,3 @@
+-- 交易完成后来源账户和目标账户的余额，账单和历史记录可以直接展示余额而不需要累加历史交易
+ALTER TABLE transactions ADD COLUMN source_balance_after DECIMAL(19,2) NULL;
+ALTER TABLE transactions ADD COLUMN target_balance_after DECIMAL(19,2) NULL;
@@ -0,0 +1,15 @@
+package com.kevinbank.accountbalancecalculation.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdGeneratorConfigTest {
+
+    @Test
+    void snowflakeIdGenerator_FailsWhenNodeIdIsRequiredButMissing() {
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> new IdGeneratorConfig().snowflakeIdGenerator(-1L, true));
+        assertTrue(e.getMessage().contains("id.generator.node-id"));
+    }
+}
@@ -0,0 +1,140 @@
+package com.kevinbank.accountbalancecalculation.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReadWriteRoutingDataSourceTest {
+
+    private DataSource primary;
+    private DataSource replica;
+    private Connection primaryConnection;
+    private Connection replicaConnection;
+    private ReplicaLagMonitor monitor;
+    private SimpleMeterRegistry meterRegistry;
+    private ReadWriteRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        primary = mock(DataSource.class);
+        replica = mock(DataSource.class);
+        primaryConnection = mock(Connection.class);
+        replicaConnection = mock(Connection.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        monitor = mock(ReplicaLagMonitor.class);
+        meterRegistry = new SimpleMeterRegistry();
+        routing = new ReadWriteRoutingDataSource(primary, replica, monitor, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setCurrentTransactionName(null);
+    }
+
+    @Test
+    void readOnlyTransactionsUseReplicaAndOthersUsePrimary() throws SQLException {
+        when(monitor.isUsable()).thenReturn(true);
+
+        assertSame(primaryConnection, routing.getConnection());
+
+        readOnlyServiceTransaction();
+        assertSame(replicaConnection, routing.getConnection());
+        assertSame(replicaConnection, routing.getConnection());
+
+        assertEquals(1.0, connections("primary"));
+        assertEquals(2.0, connections("replica"));
+    }
+
+    @Test
+    void readOnlyTransactionsOutsideServiceLayerUsePrimary() throws SQLException {
+        when(monitor.isUsable()).thenReturn(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // 没有外层事务时仓库方法自行开启的只读事务
+        TransactionSynchronizationManager.setCurrentTransactionName(
+                "org.springframework.data.jpa.repository.support.SimpleJpaRepository.findById");
+        assertSame(primaryConnection, routing.getConnection());
+
+        // 只读的TransactionTemplate没有名称
+        TransactionSynchronizationManager.setCurrentTransactionName(null);
+        assertSame(primaryConnection, routing.getConnection());
+
+        assertEquals(0.0, connections("replica"));
+    }
+
+    @Test
+    void readOnlyTransactionsFallBackToPrimaryWhenReplicaIsUnusable() throws SQLException {
+        readOnlyServiceTransaction();
+        when(monitor.isUsable()).thenReturn(false);
+
+        assertSame(primaryConnection, routing.getConnection());
+        assertEquals(1.0, fallbacks("lag"));
+
+        when(monitor.isUsable()).thenReturn(true);
+        when(replica.getConnection()).thenThrow(new SQLException("Connection refused"));
+
+        assertSame(primaryConnection, routing.getConnection());
+        assertEquals(1.0, fallbacks("error"));
+        assertEquals(2.0, connections("primary"));
+        verify(monitor).markUnusable();
+    }
+
+    @Test
+    void monitorMarksReplicaUnusableWhenLagExceedsLimit() throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        Statement statement = mock(Statement.class);
+        when(replicaConnection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery("SHOW REPLICA STATUS")).thenReturn(rs);
+        when(rs.next()).thenReturn(true);
+        when(rs.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(2);
+        when(metaData.getColumnLabel(1)).thenReturn("Replica_IO_State");
+        when(metaData.getColumnLabel(2)).thenReturn("Seconds_Behind_Source");
+        ReplicaLagMonitor lagMonitor = new ReplicaLagMonitor(replica, "SHOW REPLICA STATUS", 2000, meterRegistry);
+        assertFalse(lagMonitor.isUsable());
+
+        when(rs.getLong(2)).thenReturn(1L);
+        lagMonitor.check();
+        assertTrue(lagMonitor.isUsable());
+
+        when(rs.getLong(2)).thenReturn(3L);
+        lagMonitor.check();
+        assertFalse(lagMonitor.isUsable());
+        assertEquals(3.0, meterRegistry.get("datasource.replica.lag").gauge().value());
+
+        // 复制中断时Seconds_Behind_Source为NULL
+        when(rs.getLong(2)).thenReturn(0L);
+        when(rs.wasNull()).thenReturn(true);
+        lagMonitor.check();
+        assertFalse(lagMonitor.isUsable());
+    }
+
+    private static void readOnlyServiceTransaction() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        TransactionSynchronizationManager.setCurrentTransactionName(
+                ReadWriteRoutingDataSource.SERVICE_TRANSACTION_PREFIX + "impl.AccountServiceImpl.getAccountById");
+    }
+
+    private double connections(String route) {
+        return meterRegistry.get("datasource.route.connections").tag("route", route).counter().count();
+    }
+
+    private double fallbacks(String reason) {
+        return meterRegistry.get("datasource.route.fallbacks").tag("reason", reason).counter().count();
+    }
+}
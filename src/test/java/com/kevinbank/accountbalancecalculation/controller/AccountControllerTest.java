@@ -1,8 +1,10 @@
 package com.kevinbank.accountbalancecalculation.controller;
 
 import com.kevinbank.accountbalancecalculation.model.Account;
+import com.kevinbank.accountbalancecalculation.model.Money;
 import com.kevinbank.accountbalancecalculation.model.CreateAccountRequest;
 import com.kevinbank.accountbalancecalculation.service.AccountService;
+import com.kevinbank.accountbalancecalculation.service.BalanceHistoryService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -30,6 +32,9 @@ class AccountControllerTest {
     @MockBean
     private AccountService accountService;
 
+    @MockBean
+    private BalanceHistoryService balanceHistoryService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -42,8 +47,8 @@ class AccountControllerTest {
         testAccount.setId(1L);  // 使用 Long 类型
         testAccount.setUserId(1L);  // 使用 Long 类型
         testAccount.setAccountNumber("TEST001");
-        testAccount.setBalance(new BigDecimal("1000.00"));
-        testAccount.setCreditLimit(new BigDecimal("500.00"));
+        testAccount.setBalance(Money.of(new BigDecimal("1000.00")));
+        testAccount.setCreditLimit(Money.of(new BigDecimal("500.00")));
 
         createRequest = new CreateAccountRequest();
         createRequest.setUserId(1L);  // 使用 Long 类型
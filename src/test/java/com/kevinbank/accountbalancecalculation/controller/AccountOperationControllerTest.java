@@ -1,6 +1,8 @@
 package com.kevinbank.accountbalancecalculation.controller;
 
 import com.kevinbank.accountbalancecalculation.model.Account;
+import com.kevinbank.accountbalancecalculation.model.Money;
+import com.kevinbank.accountbalancecalculation.service.IdempotencyService;
 import com.kevinbank.accountbalancecalculation.service.AccountService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,6 +15,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.math.BigDecimal;
+import java.util.function.Supplier;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -30,6 +33,9 @@ class AccountOperationControllerTest {
     @MockBean
     private AccountService accountService;
 
+    @MockBean
+    private IdempotencyService idempotencyService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -37,12 +43,14 @@ class AccountOperationControllerTest {
 
     @BeforeEach
     void setUp() {
+        when(idempotencyService.execute(any(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> invocation.getArgument(4, Supplier.class).get());
         testAccount = new Account();
         testAccount.setId(1L);
         testAccount.setUserId(1L);
         testAccount.setAccountNumber("TEST001");
-        testAccount.setBalance(new BigDecimal("1000.00"));
-        testAccount.setCreditLimit(new BigDecimal("500.00"));
+        testAccount.setBalance(Money.of(new BigDecimal("1000.00")));
+        testAccount.setCreditLimit(Money.of(new BigDecimal("500.00")));
     }
 
     @Test
@@ -1,8 +1,13 @@
 package com.kevinbank.accountbalancecalculation.controller;
 
 import com.kevinbank.accountbalancecalculation.model.Transaction;
+import com.kevinbank.accountbalancecalculation.model.Money;
 import com.kevinbank.accountbalancecalculation.model.CreateTransactionRequest;
+import com.kevinbank.accountbalancecalculation.model.TransactionPage;
 import com.kevinbank.accountbalancecalculation.model.TransactionType;
+import com.kevinbank.accountbalancecalculation.service.AsyncTransactionService;
+import com.kevinbank.accountbalancecalculation.service.IdempotencyService;
+import com.kevinbank.accountbalancecalculation.service.TransactionExportService;
 import com.kevinbank.accountbalancecalculation.service.TransactionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,6 +20,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.math.BigDecimal;
+import java.util.function.Supplier;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 
@@ -33,6 +39,15 @@ class TransactionControllerTest {
     @MockBean
     private TransactionService transactionService;
 
+    @MockBean
+    private IdempotencyService idempotencyService;
+
+    @MockBean
+    private AsyncTransactionService asyncTransactionService;
+
+    @MockBean
+    private TransactionExportService transactionExportService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -41,11 +56,13 @@ class TransactionControllerTest {
 
     @BeforeEach
     void setUp() {
+        when(idempotencyService.execute(any(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> invocation.getArgument(4, Supplier.class).get());
         testTransaction = new Transaction();
         testTransaction.setId(1L);
         testTransaction.setSourceAccountId(1L);
         testTransaction.setTargetAccountId(2L);
-        testTransaction.setAmount(new BigDecimal("100.00"));
+        testTransaction.setAmount(Money.of(new BigDecimal("100.00")));
         testTransaction.setType(TransactionType.TRANSFER);  // 使用枚举
         testTransaction.setDescription("测试交易");
         testTransaction.setTransactionTime(LocalDateTime.now());
@@ -76,13 +93,14 @@ class TransactionControllerTest {
 
     @Test
     void getTransactionsByAccount() throws Exception {
-        when(transactionService.getTransactionsByAccountId(1L))
-                .thenReturn(Arrays.asList(testTransaction));
+        when(transactionService.getTransactionsByAccountId(1L, null, 20))
+                .thenReturn(new TransactionPage(Arrays.asList(testTransaction), "next"));
 
-        mockMvc.perform(get("/api/transactions/account/1"))
+        mockMvc.perform(get("/api/transactions/account/1").param("limit", "20"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].id").value(1L))
-                .andExpect(jsonPath("$[0].type").value(TransactionType.TRANSFER.name()));  // 使用枚举名称
+                .andExpect(jsonPath("$.items[0].id").value(1L))
+                .andExpect(jsonPath("$.items[0].type").value(TransactionType.TRANSFER.name()))  // 使用枚举名称
+                .andExpect(jsonPath("$.next").value("next"));
     }
 
     @Test
@@ -0,0 +1,65 @@
+package com.kevinbank.accountbalancecalculation.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowflakeIdGeneratorTest {
+
+    @Test
+    void nextId_IsMonotonicAndCarriesNodeAndTimestamp() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(42);
+        long before = System.currentTimeMillis();
+        long previous = 0;
+        for (int i = 0; i < 20000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+        long after = System.currentTimeMillis();
+
+        assertEquals(42, (previous >>> 12) & SnowflakeIdGenerator.MAX_NODE_ID);
+        long timestamp = SnowflakeIdGenerator.timestampOf(previous);
+        assertTrue(timestamp >= before && timestamp <= after);
+        assertTrue(SnowflakeIdGenerator.minIdAt(timestamp) <= previous);
+        assertTrue(SnowflakeIdGenerator.minIdAt(timestamp + 1) > previous);
+    }
+
+    @Test
+    void nextId_IsUniqueAcrossThreads() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10000; i++) {
+                        ids.add(generator.nextId());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(80000, ids.size());
+    }
+
+    @Test
+    void constructor_RejectsNodeIdOutOfRange() {
+        assertThrows(RuntimeException.class, () -> new SnowflakeIdGenerator(-1));
+        assertThrows(RuntimeException.class, () -> new SnowflakeIdGenerator(1024));
+    }
+}
@@ -0,0 +1,140 @@
+package com.kevinbank.accountbalancecalculation.journal;
+
+import com.kevinbank.accountbalancecalculation.model.Money;
+import com.kevinbank.accountbalancecalculation.model.Transaction;
+import com.kevinbank.accountbalancecalculation.model.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void append_ThenReadBackAfterReopen() {
+        LocalDateTime time = LocalDateTime.of(2026, 1, 2, 3, 4, 5, 123456789);
+        try (TransactionJournal journal = new TransactionJournal(directory, 4096, FsyncPolicy.BATCH, 0)) {
+            Transaction written = transaction(1L, 10L, 20L, TransactionType.TRANSFER, "转账交易", time);
+            written.setSourceBalanceAfter(Money.ofCents(-500));
+            written.setTargetBalanceAfter(Money.ofCents(99900));
+            assertEquals(0, journal.append(written));
+            assertEquals(1, journal.append(transaction(2L, null, 20L, TransactionType.DEPOSIT, null, time)));
+            assertEquals(2, journal.getDurableOffset());
+        }
+
+        try (TransactionJournal journal = new TransactionJournal(directory, 4096, FsyncPolicy.BATCH, 0)) {
+            assertEquals(2, journal.getWrittenOffset());
+            List<Transaction> records = journal.read(0, 10);
+            assertEquals(2, records.size());
+
+            Transaction transfer = records.get(0);
+            assertEquals(1L, transfer.getId());
+            assertEquals(10L, transfer.getSourceAccountId());
+            assertEquals(20L, transfer.getTargetAccountId());
+            assertEquals(Money.ofCents(12345), transfer.getAmount());
+            assertEquals(TransactionType.TRANSFER, transfer.getType());
+            assertEquals("转账交易", transfer.getDescription());
+            assertEquals(time, transfer.getTransactionTime());
+            assertEquals(Money.ofCents(-500), transfer.getSourceBalanceAfter());
+            assertEquals(Money.ofCents(99900), transfer.getTargetBalanceAfter());
+
+            Transaction deposit = records.get(1);
+            assertNull(deposit.getSourceAccountId());
+            assertNull(deposit.getDescription());
+            assertNull(deposit.getTargetBalanceAfter());
+        }
+    }
+
+    @Test
+    void reopen_DiscardsTornRecordAtTail() throws Exception {
+        LocalDateTime time = LocalDateTime.now();
+        try (TransactionJournal journal = new TransactionJournal(directory, 4096, FsyncPolicy.NONE, 0)) {
+            journal.append(transaction(1L, null, 20L, TransactionType.DEPOSIT, "a", time));
+            journal.append(transaction(2L, null, 20L, TransactionType.DEPOSIT, "b", time));
+        }
+        // 破坏第二条记录中的金额字段，模拟写了一半的记录
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(TransactionJournal.RECORD_SIZE + 32);
+            file.writeLong(999L);
+        }
+
+        try (TransactionJournal journal = new TransactionJournal(directory, 4096, FsyncPolicy.NONE, 0)) {
+            assertEquals(1, journal.getWrittenOffset());
+            assertEquals(1, journal.append(transaction(3L, null, 20L, TransactionType.DEPOSIT, "c", time)));
+            List<Transaction> records = journal.read(0, 10);
+            assertEquals(List.of(1L, 3L), records.stream().map(Transaction::getId).toList());
+        }
+    }
+
+    @Test
+    void markPersisted_DeletesFullyPersistedSegments() throws Exception {
+        long segmentBytes = TransactionJournal.RECORD_SIZE * 4L;
+        LocalDateTime time = LocalDateTime.now();
+        try (TransactionJournal journal = new TransactionJournal(directory, segmentBytes, FsyncPolicy.ALWAYS, 0)) {
+            for (long id = 1; id <= 10; id++) {
+                journal.append(transaction(id, 1L, 2L, TransactionType.TRANSFER, null, time));
+            }
+            assertEquals(3, countSegments());
+
+            journal.markPersisted(8);
+            assertEquals(1, countSegments());
+            assertEquals(List.of(9L, 10L), journal.read(8, 10).stream().map(Transaction::getId).toList());
+        }
+
+        try (TransactionJournal journal = new TransactionJournal(directory, segmentBytes, FsyncPolicy.ALWAYS, 8)) {
+            assertEquals(10, journal.getWrittenOffset());
+        }
+    }
+
+    @Test
+    void open_EmptyDirectoryStartsAtPersistedOffset() {
+        try (TransactionJournal journal = new TransactionJournal(directory, 4096, FsyncPolicy.NONE, 42)) {
+            assertEquals(42, journal.append(transaction(1L, null, 2L, TransactionType.DEPOSIT, null, LocalDateTime.now())));
+            assertEquals(1, journal.read(42, 10).size());
+        }
+    }
+
+    @Test
+    void append_TruncatesLongDescriptionOnCharacterBoundary() {
+        String description = "存".repeat(100);
+        try (TransactionJournal journal = new TransactionJournal(directory, 4096, FsyncPolicy.NONE, 0)) {
+            journal.append(transaction(1L, null, 2L, TransactionType.DEPOSIT, description, LocalDateTime.now()));
+            String stored = journal.read(0, 1).get(0).getDescription();
+            assertEquals(TransactionJournal.DESCRIPTION_MAX_BYTES / 3, stored.length());
+            assertTrue(description.startsWith(stored));
+        }
+    }
+
+    private long countSegments() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private static Transaction transaction(Long id, Long source, Long target, TransactionType type,
+                                           String description, LocalDateTime time) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setSourceAccountId(source);
+        transaction.setTargetAccountId(target);
+        transaction.setAmount(Money.ofCents(12345));
+        transaction.setType(type);
+        transaction.setDescription(description);
+        transaction.setTransactionTime(time);
+        return transaction;
+    }
+}
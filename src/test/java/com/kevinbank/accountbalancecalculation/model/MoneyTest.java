@@ -0,0 +1,51 @@
+package com.kevinbank.accountbalancecalculation.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void of_ConvertsDecimalToCents() {
+        assertEquals(12345L, Money.of(new BigDecimal("123.45")).getCents());
+        assertEquals(10000L, Money.of(new BigDecimal("100")).getCents());
+        assertEquals(-50L, Money.of(new BigDecimal("-0.5")).getCents());
+        assertEquals(new BigDecimal("123.45"), Money.ofCents(12345L).toBigDecimal());
+    }
+
+    @Test
+    void of_RejectsMoreThanTwoDecimalPlaces() {
+        assertThrows(RuntimeException.class, () -> Money.of(new BigDecimal("1.005")));
+        assertThrows(RuntimeException.class, () -> Money.of(null));
+        assertEquals(Money.ZERO, Money.ofNullable(null));
+    }
+
+    @Test
+    void arithmetic_DetectsOverflow() {
+        Money max = Money.ofCents(Long.MAX_VALUE);
+        assertThrows(RuntimeException.class, () -> max.add(Money.ofCents(1L)));
+        assertThrows(RuntimeException.class, () -> Money.ofCents(Long.MIN_VALUE).negate());
+        assertEquals(Money.ofCents(50L), Money.ofCents(150L).subtract(Money.ofCents(100L)));
+    }
+
+    @Test
+    void json_DecimalAndMinorUnitsModules() throws Exception {
+        ObjectMapper apiMapper = new ObjectMapper().registerModule(MoneyJsonModule.decimal());
+        ObjectMapper cacheMapper = new ObjectMapper().registerModule(MoneyJsonModule.minorUnits());
+        Money money = Money.of(new BigDecimal("10.50"));
+
+        assertEquals("10.50", apiMapper.writeValueAsString(money));
+        assertEquals(money, apiMapper.readValue("10.5", Money.class));
+        assertEquals(money, apiMapper.readValue("\"10.50\"", Money.class));
+        assertEquals("1050", cacheMapper.writeValueAsString(money));
+        assertEquals(money, cacheMapper.readValue("1050", Money.class));
+        // 旧格式以元为单位的缓存值不能被当作分读取
+        assertThrows(MismatchedInputException.class, () -> cacheMapper.readValue("100.50", Money.class));
+        assertThrows(MismatchedInputException.class, () -> cacheMapper.readValue("\"100.50\"", Money.class));
+    }
+}
@@ -0,0 +1,33 @@
+package com.kevinbank.accountbalancecalculation.model;
+
+import com.kevinbank.accountbalancecalculation.exception.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionCursorTest {
+
+    @Test
+    void encode_RoundTripsTimeAndId() {
+        TransactionCursor cursor = new TransactionCursor(LocalDateTime.of(2024, 3, 1, 12, 30, 5, 123456000), 987654321L);
+
+        String encoded = cursor.encode();
+
+        assertFalse(encoded.contains("="));
+        assertEquals(cursor, TransactionCursor.decode(encoded));
+    }
+
+    @Test
+    void decode_EmptyCursorIsFirstPage() {
+        assertEquals(TransactionCursor.FIRST, TransactionCursor.decode(null));
+        assertEquals(TransactionCursor.FIRST, TransactionCursor.decode(""));
+    }
+
+    @Test
+    void decode_RejectsMalformedCursor() {
+        assertThrows(InvalidCursorException.class, () -> TransactionCursor.decode("not a cursor!"));
+        assertThrows(InvalidCursorException.class, () -> TransactionCursor.decode("MjAyNC0wMS0wMQ"));
+    }
+}
@@ -0,0 +1,47 @@
+package com.kevinbank.accountbalancecalculation.partition;
+
+import com.kevinbank.accountbalancecalculation.partition.TransactionPartitionManager.Partition;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionPartitionManagerTest {
+
+    private static final List<Partition> PARTITIONS = List.of(
+            new Partition("p_history", LocalDateTime.of(2024, 1, 1, 0, 0)),
+            new Partition("p202401", LocalDateTime.of(2024, 2, 1, 0, 0)),
+            new Partition("p202402", LocalDateTime.of(2024, 3, 1, 0, 0)),
+            new Partition("p_future", null));
+
+    @Test
+    void addPartitionsSql_SplitsMonthsOutOfMaxvaluePartition() {
+        String sql = TransactionPartitionManager.addPartitionsSql(PARTITIONS, YearMonth.of(2024, 3), YearMonth.of(2024, 4));
+
+        assertEquals("ALTER TABLE transactions REORGANIZE PARTITION p_future INTO (" +
+                "PARTITION p202403 VALUES LESS THAN ('2024-04-01 00:00:00'), " +
+                "PARTITION p202404 VALUES LESS THAN ('2024-05-01 00:00:00'), " +
+                "PARTITION p_future VALUES LESS THAN (MAXVALUE))", sql);
+        assertNull(TransactionPartitionManager.addPartitionsSql(PARTITIONS, YearMonth.of(2024, 1), YearMonth.of(2024, 2)));
+    }
+
+    @Test
+    void addPartitionsSql_AppendsWhenNoMaxvaluePartition() {
+        String sql = TransactionPartitionManager.addPartitionsSql(PARTITIONS.subList(0, 3), YearMonth.of(2024, 3), YearMonth.of(2024, 3));
+
+        assertEquals("ALTER TABLE transactions ADD PARTITION (" +
+                "PARTITION p202403 VALUES LESS THAN ('2024-04-01 00:00:00'))", sql);
+    }
+
+    @Test
+    void expired_SelectsPartitionsEndingBeforeCutoff() {
+        List<Partition> expired = TransactionPartitionManager.expired(PARTITIONS, LocalDateTime.of(2024, 2, 1, 0, 0));
+
+        assertEquals(List.of("p_history", "p202401"), expired.stream().map(Partition::name).toList());
+        assertEquals(LocalDateTime.of(2024, 2, 1, 0, 0), TransactionPartitionManager.parseBound("'2024-02-01 00:00:00'"));
+        assertNull(TransactionPartitionManager.parseBound("MAXVALUE"));
+    }
+}
@@ -0,0 +1,173 @@
+package com.kevinbank.accountbalancecalculation.reconciliation;
+
+import com.kevinbank.accountbalancecalculation.config.WorkerThreads;
+import com.kevinbank.accountbalancecalculation.model.Money;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BalanceReconciliationServiceTest {
+
+    private BalanceReconciliationService service;
+    private JdbcTemplate jdbcTemplate;
+    private ValueOperations<String, Object> valueOperations;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        meterRegistry = new SimpleMeterRegistry();
+
+        service = new BalanceReconciliationService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(service, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(service, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(service, "workerThreads", new WorkerThreads(false));
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+        ReflectionTestUtils.setField(service, "accountPageSize", 10);
+        ReflectionTestUtils.setField(service, "parallelism", 2);
+        ReflectionTestUtils.setField(service, "maxReportSize", 100);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void reconcile_ReportsConfirmedBalanceMismatchAndStaleCache() throws SQLException {
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COALESCE(MAX(id)"), eq(Long.class))).thenReturn(3L);
+        // 交易1: 账户10存入100.00；交易2: 账户10转给账户20 30.00；交易3: 账户20支付，不改变余额
+        stubLegs(List.of(
+                new long[]{1L, 0L, 10L, 10000L},
+                new long[]{2L, 10L, 20L, 3000L},
+                new long[]{3L, 0L, 0L, 500L}));
+        // 账户10余额正确；账户20开户余额5.00，期望35.00，实际40.00；账户30没有开户余额
+        stubAccounts(List.of(
+                new Object[]{10L, "70.00", "0.00"},
+                new Object[]{20L, "40.00", "5.00"},
+                new Object[]{30L, "1.00", null}));
+        doAnswer(invocation -> List.of(mappedRow(invocation.getArgument(1), new Object[]{"40.00", "5.00"})))
+                .when(jdbcTemplate).query(startsWith("SELECT a.balance"), any(RowMapper.class), eq(20L));
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COALESCE(SUM(delta)"), eq(BigDecimal.class), eq(20L), eq(20L)))
+                .thenReturn(new BigDecimal("30.00"));
+        when(valueOperations.multiGet(List.of("v2:account:10", "v2:account:20", "v2:account:30")))
+                .thenReturn(Arrays.asList(Map.of("id", 10, "balance", 5000), null, Map.of("id", 30, "balance", 100)));
+
+        ReconciliationReport report = service.reconcile();
+
+        assertNull(report.getError());
+        assertEquals(3L, report.getTransactionsScanned());
+        assertEquals(3L, report.getAccountsChecked());
+        assertEquals(1L, report.getAccountsWithoutBaseline());
+        assertEquals(1L, report.getBalanceMismatches());
+        assertEquals(2L, report.getCacheEntriesChecked());
+        assertEquals(1L, report.getStaleCacheEntries());
+        assertEquals(2, report.getDiscrepancies().size());
+
+        ReconciliationReport.Discrepancy balance = report.getDiscrepancies().get(0);
+        assertEquals(20L, balance.getAccountId());
+        assertEquals(ReconciliationReport.Kind.BALANCE_MISMATCH, balance.getKind());
+        assertEquals(Money.of(new BigDecimal("35.00")), balance.getExpected());
+        assertEquals(Money.of(new BigDecimal("40.00")), balance.getActual());
+
+        ReconciliationReport.Discrepancy cache = report.getDiscrepancies().get(1);
+        assertEquals(10L, cache.getAccountId());
+        assertEquals(ReconciliationReport.Kind.STALE_CACHE, cache.getKind());
+        assertEquals(Money.of(new BigDecimal("50.00")), cache.getActual());
+
+        assertEquals(1.0, meterRegistry.get("reconciliation.discrepancies").tag("kind", "balance").gauge().value());
+        assertSame(report, service.getLatestReport().orElseThrow());
+    }
+
+    @Test
+    void reconcile_IgnoresMismatchResolvedByConsistentReread() throws SQLException {
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COALESCE(MAX(id)"), eq(Long.class))).thenReturn(1L);
+        stubLegs(List.<long[]>of(new long[]{1L, 0L, 10L, 10000L}));
+        // 分段读取之后账户10又入账了20.00
+        stubAccounts(List.<Object[]>of(new Object[]{10L, "120.00", "0.00"}));
+        doAnswer(invocation -> List.of(mappedRow(invocation.getArgument(1), new Object[]{"120.00", "0.00"})))
+                .when(jdbcTemplate).query(startsWith("SELECT a.balance"), any(RowMapper.class), eq(10L));
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COALESCE(SUM(delta)"), eq(BigDecimal.class), eq(10L), eq(10L)))
+                .thenReturn(new BigDecimal("120.00"));
+
+        ReconciliationReport report = service.reconcile();
+
+        assertEquals(0L, report.getBalanceMismatches());
+        assertTrue(report.getDiscrepancies().isEmpty());
+    }
+
+    private void stubLegs(List<long[]> rows) throws SQLException {
+        doAnswer(invocation -> {
+            long afterId = invocation.getArgument(2);
+            int limit = invocation.getArgument(4);
+            RowCallbackHandler handler = invocation.getArgument(1);
+            int emitted = 0;
+            for (long[] row : rows) {
+                if (row[0] > afterId && emitted < limit) {
+                    ResultSet rs = mock(ResultSet.class);
+                    for (int i = 0; i < row.length; i++) {
+                        when(rs.getLong(i + 1)).thenReturn(row[i]);
+                    }
+                    handler.processRow(rs);
+                    emitted++;
+                }
+            }
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT id, CASE"), any(RowCallbackHandler.class), any(), any(), any());
+    }
+
+    private void stubAccounts(List<Object[]> rows) {
+        doAnswer(invocation -> {
+            long afterId = invocation.getArgument(2);
+            List<Object> page = new ArrayList<>();
+            for (Object[] row : rows) {
+                if ((Long) row[0] > afterId) {
+                    page.add(mappedRow(invocation.getArgument(1), row));
+                }
+            }
+            return page;
+        }).when(jdbcTemplate).query(startsWith("SELECT a.id"), any(RowMapper.class), any(), any());
+    }
+
+    /**
+     * 用模拟的结果集调用RowMapper，Long列按getLong返回，字符串列按getBigDecimal返回
+     */
+    private static Object mappedRow(RowMapper<?> mapper, Object[] row) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        for (int i = 0; i < row.length; i++) {
+            if (row[i] instanceof Long value) {
+                when(rs.getLong(i + 1)).thenReturn(value);
+            } else if (row[i] instanceof String value) {
+                when(rs.getBigDecimal(i + 1)).thenReturn(new BigDecimal(value));
+            }
+        }
+        return mapper.mapRow(rs, 0);
+    }
+}
@@ -0,0 +1,163 @@
+package com.kevinbank.accountbalancecalculation.reconciliation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class IncrementalReconcilerTest {
+
+    private IncrementalReconciler reconciler;
+    private JdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry meterRegistry;
+
+    /**
+     * 已提交的交易，元素为[ID, 扣款账户, 入账账户, 金额（分）]
+     */
+    private final List<long[]> transactions = new ArrayList<>();
+
+    /**
+     * 账户当前的余额（分）
+     */
+    private final Map<Long, Long> balances = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COALESCE(MAX(id)"), eq(Long.class)))
+                .thenAnswer(invocation -> transactions.isEmpty() ? 0L : transactions.get(transactions.size() - 1)[0]);
+        doAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            RowCallbackHandler handler = invocation.getArgument(1);
+            Object[] args = (Object[]) invocation.getRawArguments()[2];
+            if (sql.startsWith("SELECT id, CASE")) {
+                emitLegs(handler, (Long) args[0], (Long) args[1], (Integer) args[2]);
+            } else if (sql.startsWith("SELECT a.id")) {
+                for (Object id : args) {
+                    if (balances.containsKey((Long) id)) {
+                        emit(handler, (Long) id, balances.get((Long) id));
+                    }
+                }
+            } else {
+                emitNewer(handler, args);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+
+        reconciler = new IncrementalReconciler();
+        ReflectionTestUtils.setField(reconciler, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(reconciler, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(reconciler, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(reconciler, "batchSize", 10);
+        ReflectionTestUtils.setField(reconciler, "maxAccounts", 100);
+        ReflectionTestUtils.setField(reconciler, "balanceEngineMode", "jdbc");
+        reconciler.init();
+    }
+
+    @Test
+    void reconcileNewTransactions_DetectsDriftOnTouchedAccounts() throws Exception {
+        // 启动前的交易不处理
+        transactions.add(new long[]{1L, 0L, 10L, 5000L});
+        assertEquals(0, reconciler.reconcileNewTransactions());
+
+        // 账户10存入100.00，账户10第一次出现，以余额初始化影子余额
+        transactions.add(new long[]{2L, 0L, 10L, 10000L});
+        balances.put(10L, 15000L);
+        assertEquals(1, reconciler.reconcileNewTransactions());
+
+        // 账户10转给账户20 30.00，账户20取款5.00
+        transactions.add(new long[]{3L, 10L, 20L, 3000L});
+        transactions.add(new long[]{4L, 20L, 0L, 500L});
+        balances.put(10L, 12000L);
+        balances.put(20L, 7500L);
+        assertEquals(2, reconciler.reconcileNewTransactions());
+        assertTrue(reconciler.getDrifts().isEmpty());
+
+        // 账户10存入10.00，但余额多了5.00
+        transactions.add(new long[]{5L, 0L, 10L, 1000L});
+        transactions.add(new long[]{6L, 0L, 20L, 100L});
+        balances.put(10L, 13500L);
+        balances.put(20L, 7600L);
+        assertEquals(2, reconciler.reconcileNewTransactions());
+
+        assertEquals(Map.of(10L, 500L), reconciler.getDrifts());
+        assertEquals(1.0, meterRegistry.get("reconciliation.incremental.drift.accounts").gauge().value());
+        assertEquals(5.0, meterRegistry.get("reconciliation.incremental.drift.amount").gauge().value());
+        assertEquals(5.0, meterRegistry.get("reconciliation.incremental.transactions").counter().count());
+    }
+
+    @Test
+    void reconcileNewTransactions_FullBatchDiscountsTransactionsBeyondIt() throws Exception {
+        ReflectionTestUtils.setField(reconciler, "batchSize", 2);
+        assertEquals(0, reconciler.reconcileNewTransactions());
+
+        transactions.add(new long[]{1L, 0L, 10L, 1000L});
+        balances.put(10L, 1000L);
+        assertEquals(1, reconciler.reconcileNewTransactions());
+
+        // 三笔交易都已计入余额，本次只处理前两笔，第三笔在比较时扣除
+        transactions.add(new long[]{2L, 0L, 10L, 200L});
+        transactions.add(new long[]{3L, 10L, 0L, 100L});
+        transactions.add(new long[]{4L, 0L, 10L, 700L});
+        balances.put(10L, 1800L);
+        assertEquals(2, reconciler.reconcileNewTransactions());
+        assertTrue(reconciler.getDrifts().isEmpty());
+
+        assertEquals(1, reconciler.reconcileNewTransactions());
+        assertTrue(reconciler.getDrifts().isEmpty());
+    }
+
+    private void emitLegs(RowCallbackHandler handler, long afterId, long upTo, int limit) throws Exception {
+        int emitted = 0;
+        for (long[] row : transactions) {
+            if (row[0] > afterId && row[0] <= upTo && emitted < limit) {
+                emit(handler, row);
+                emitted++;
+            }
+        }
+    }
+
+    /**
+     * 参数为[账户ID..., 上界, 账户ID..., 上界]，按账户汇总ID超过上界的交易净额
+     */
+    private void emitNewer(RowCallbackHandler handler, Object[] args) throws Exception {
+        int count = args.length / 2 - 1;
+        long bound = (Long) args[count];
+        for (int i = 0; i < count; i++) {
+            long accountId = (Long) args[i];
+            long net = 0L;
+            boolean found = false;
+            for (long[] row : transactions) {
+                if (row[0] > bound && (row[1] == accountId || row[2] == accountId)) {
+                    net += (row[2] == accountId ? row[3] : 0L) - (row[1] == accountId ? row[3] : 0L);
+                    found = true;
+                }
+            }
+            if (found) {
+                emit(handler, accountId, net);
+            }
+        }
+    }
+
+    private static void emit(RowCallbackHandler handler, long... row) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        for (int i = 0; i < row.length; i++) {
+            when(rs.getLong(i + 1)).thenReturn(row[i]);
+        }
+        handler.processRow(rs);
+    }
+}
@@ -0,0 +1,57 @@
+package com.kevinbank.accountbalancecalculation.reconciliation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongLongMapTest {
+
+    @Test
+    void add_AccumulatesAcrossResize() {
+        LongLongMap map = new LongLongMap(2);
+        for (long id = 1; id <= 10_000; id++) {
+            map.add(id << 22, id);
+            map.add(id << 22, -1L);
+        }
+        assertEquals(10_000, map.size());
+        assertEquals(4_999L, map.get(5_000L << 22));
+        assertEquals(0L, map.get(42L));
+        assertFalse(map.containsKey(42L));
+    }
+
+    @Test
+    void merge_SumsValuesOfSharedKeys() {
+        LongLongMap left = new LongLongMap(4);
+        left.add(1L, 100L);
+        left.add(2L, -50L);
+        LongLongMap right = new LongLongMap(4);
+        right.add(2L, 20L);
+        right.add(3L, 7L);
+
+        Map<Long, Long> merged = new HashMap<>();
+        left.merge(right).forEach(merged::put);
+
+        assertEquals(Map.of(1L, 100L, 2L, -30L, 3L, 7L), merged);
+    }
+
+    @Test
+    void reduceTask_SplitsLargeChunksAndMatchesSequentialSum() {
+        int size = 50_000;
+        long[] accounts = new long[size];
+        long[] amounts = new long[size];
+        Map<Long, Long> expected = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            accounts[i] = 1 + (i % 997);
+            amounts[i] = (i % 2 == 0) ? i : -i;
+            expected.merge(accounts[i], amounts[i], Long::sum);
+        }
+
+        LongLongMap result = new BalanceReconciliationService.ReduceTask(accounts, amounts, 0, size).invoke();
+
+        assertEquals(expected.size(), result.size());
+        expected.forEach((account, amount) -> assertEquals(amount, result.get(account)));
+    }
+}
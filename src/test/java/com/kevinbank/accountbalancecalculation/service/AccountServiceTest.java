@@ -1,6 +1,7 @@
 package com.kevinbank.accountbalancecalculation.service;
 
 import com.kevinbank.accountbalancecalculation.model.Account;
+import com.kevinbank.accountbalancecalculation.model.Money;
 import com.kevinbank.accountbalancecalculation.model.CreateAccountRequest;
 import com.kevinbank.accountbalancecalculation.model.CreateTransactionRequest;
 import com.kevinbank.accountbalancecalculation.model.TransactionType;
@@ -50,8 +51,8 @@ class AccountServiceTest {
         mockAccount = new Account();
         mockAccount.setId(1L);
         mockAccount.setUserId(1L);
-        mockAccount.setBalance(new BigDecimal("1000.00"));
-        mockAccount.setCreditLimit(new BigDecimal("5000.00"));
+        mockAccount.setBalance(Money.of(new BigDecimal("1000.00")));
+        mockAccount.setCreditLimit(Money.of(new BigDecimal("5000.00")));
         mockAccount.setAccountNumber("ACC001");
     }
 
@@ -61,7 +62,7 @@ class AccountServiceTest {
         BigDecimal depositAmount = new BigDecimal("100.00");
         Account updatedAccount = new Account();
         updatedAccount.setId(1L);
-        updatedAccount.setBalance(new BigDecimal("1100.00"));
+        updatedAccount.setBalance(Money.of(new BigDecimal("1100.00")));
 
         when(accountRepository.findById(1L))
             .thenReturn(Optional.of(mockAccount));
@@ -73,7 +74,7 @@ class AccountServiceTest {
 
         // 验证
         assertNotNull(result);
-        assertEquals(new BigDecimal("1100.00"), result.getBalance());
+        assertEquals(Money.of(new BigDecimal("1100.00")), result.getBalance());
         
         // 验证是否创建了存款交易记录
         verify(transactionService).createTransaction(argThat(request -> {
@@ -111,7 +112,7 @@ class AccountServiceTest {
         BigDecimal withdrawAmount = new BigDecimal("100.00");
         Account updatedAccount = new Account();
         updatedAccount.setId(1L);
-        updatedAccount.setBalance(new BigDecimal("900.00"));
+        updatedAccount.setBalance(Money.of(new BigDecimal("900.00")));
 
         when(accountRepository.findById(1L))
             .thenReturn(Optional.of(mockAccount));
@@ -123,7 +124,7 @@ class AccountServiceTest {
 
         // 验证
         assertNotNull(result);
-        assertEquals(new BigDecimal("900.00"), result.getBalance());
+        assertEquals(Money.of(new BigDecimal("900.00")), result.getBalance());
         
         // 验证是否创建了取款交易记录
         verify(transactionService).createTransaction(argThat(request -> {
@@ -173,7 +174,7 @@ class AccountServiceTest {
         BigDecimal transferAmount = new BigDecimal("100.00");
         Account targetAccount = new Account();
         targetAccount.setId(2L);
-        targetAccount.setBalance(new BigDecimal("500.00"));
+        targetAccount.setBalance(Money.of(new BigDecimal("500.00")));
 
         when(accountRepository.findById(1L)).thenReturn(Optional.of(mockAccount));
         when(accountRepository.findById(2L)).thenReturn(Optional.of(targetAccount));
@@ -1,8 +1,11 @@
 package com.kevinbank.accountbalancecalculation.service;
 
 import com.kevinbank.accountbalancecalculation.model.Account;
+import com.kevinbank.accountbalancecalculation.model.Money;
 import com.kevinbank.accountbalancecalculation.model.Transaction;
 import com.kevinbank.accountbalancecalculation.model.CreateTransactionRequest;
+import com.kevinbank.accountbalancecalculation.model.TransactionCursor;
+import com.kevinbank.accountbalancecalculation.model.TransactionPage;
 import com.kevinbank.accountbalancecalculation.model.TransactionType;
 import com.kevinbank.accountbalancecalculation.mapper.TransactionMapper;
 import com.kevinbank.accountbalancecalculation.repository.TransactionRepository;
@@ -17,6 +20,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -74,7 +78,7 @@ class TransactionServiceTest {
         mockTransaction.setId(1L);
         mockTransaction.setSourceAccountId(1L);
         mockTransaction.setTargetAccountId(2L);
-        mockTransaction.setAmount(new BigDecimal("100.00"));
+        mockTransaction.setAmount(Money.of(new BigDecimal("100.00")));
         mockTransaction.setType(TransactionType.TRANSFER);
         mockTransaction.setDescription("测试交易");
         mockTransaction.setTransactionTime(LocalDateTime.now());
@@ -82,11 +86,11 @@ class TransactionServiceTest {
         // 准备账户数据
         mockSourceAccount = new Account();
         mockSourceAccount.setId(1L);
-        mockSourceAccount.setBalance(new BigDecimal("1000.00"));
+        mockSourceAccount.setBalance(Money.of(new BigDecimal("1000.00")));
 
         mockTargetAccount = new Account();
         mockTargetAccount.setId(2L);
-        mockTargetAccount.setBalance(new BigDecimal("500.00"));
+        mockTargetAccount.setBalance(Money.of(new BigDecimal("500.00")));
 
         // 准备请求数据
         mockRequest = new CreateTransactionRequest();
@@ -113,8 +117,8 @@ class TransactionServiceTest {
         assertNotNull(result);
         assertEquals(TransactionType.TRANSFER, result.getType());
         verify(accountRepository, times(2)).save(any());
-        assertEquals(new BigDecimal("900.00"), mockSourceAccount.getBalance());
-        assertEquals(new BigDecimal("600.00"), mockTargetAccount.getBalance());
+        assertEquals(Money.of(new BigDecimal("900.00")), mockSourceAccount.getBalance());
+        assertEquals(Money.of(new BigDecimal("600.00")), mockTargetAccount.getBalance());
     }
 
     @Test
@@ -142,17 +146,22 @@ class TransactionServiceTest {
 
     @Test
     void getTransactionsByAccountId_Success() {
-        // 准备
-        when(transactionRepository.findBySourceAccountIdOrTargetAccountId(1L, 1L))
-                .thenReturn(Arrays.asList(mockTransaction));
+        // 准备：多读的一条记录表示还有下一页
+        ReflectionTestUtils.setField(transactionService, "maxPageLimit", 500);
+        Transaction older = new Transaction();
+        older.setId(0L);
+        older.setTransactionTime(mockTransaction.getTransactionTime().minusSeconds(1));
+        when(transactionRepository.findPageByAccountIdBefore(eq(1L), any(), anyLong(), eq(2)))
+                .thenReturn(Arrays.asList(mockTransaction, older));
 
         // 执行
-        List<Transaction> results = transactionService.getTransactionsByAccountId(1L);
+        TransactionPage page = transactionService.getTransactionsByAccountId(1L, null, 1);
 
         // 验证
-        assertNotNull(results);
-        assertEquals(1, results.size());
-        assertEquals(TransactionType.TRANSFER, results.get(0).getType());
+        assertNotNull(page);
+        assertEquals(1, page.getItems().size());
+        assertEquals(TransactionType.TRANSFER, page.getItems().get(0).getType());
+        assertEquals(TransactionCursor.after(mockTransaction), TransactionCursor.decode(page.getNext()));
     }
 
     @Test
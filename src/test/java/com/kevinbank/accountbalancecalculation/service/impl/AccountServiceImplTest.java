@@ -1,6 +1,7 @@
 package com.kevinbank.accountbalancecalculation.service.impl;
 
 import com.kevinbank.accountbalancecalculation.model.Account;
+import com.kevinbank.accountbalancecalculation.model.Money;
 import com.kevinbank.accountbalancecalculation.model.CreateAccountRequest;
 import com.kevinbank.accountbalancecalculation.model.CreateTransactionRequest;
 import com.kevinbank.accountbalancecalculation.mapper.AccountMapper;
@@ -47,8 +48,8 @@ class AccountServiceImplTest {
         testAccount = new Account();
         testAccount.setUserId(1L);  // 使用 Long 类型
         testAccount.setAccountNumber("TEST001");
-        testAccount.setBalance(new BigDecimal("1000.00"));
-        testAccount.setCreditLimit(new BigDecimal("500.00"));
+        testAccount.setBalance(Money.of(new BigDecimal("1000.00")));
+        testAccount.setCreditLimit(Money.of(new BigDecimal("500.00")));
         testAccount = accountRepository.save(testAccount);
 
         createRequest = new CreateAccountRequest();
@@ -64,19 +65,19 @@ class AccountServiceImplTest {
         assertNotNull(account);
         assertEquals(createRequest.getUserId(), account.getUserId());
         assertEquals(createRequest.getAccountNumber(), account.getAccountNumber());
-        assertEquals(createRequest.getBalance(), account.getBalance());
+        assertEquals(Money.of(createRequest.getBalance()), account.getBalance());
     }
 
     @Test
     void deposit() {
         Account account = accountService.deposit(testAccount.getId(), new BigDecimal("100.00"));
-        assertEquals(new BigDecimal("1100.00"), account.getBalance());
+        assertEquals(Money.of(new BigDecimal("1100.00")), account.getBalance());
     }
 
     @Test
     void withdraw() {
         Account account = accountService.withdraw(testAccount.getId(), new BigDecimal("100.00"));
-        assertEquals(new BigDecimal("900.00"), account.getBalance());
+        assertEquals(Money.of(new BigDecimal("900.00")), account.getBalance());
     }
 
     @Test
@@ -92,8 +93,8 @@ class AccountServiceImplTest {
         Account targetAccount = new Account();
         targetAccount.setUserId(2L);  // 使用 Long 类型
         targetAccount.setAccountNumber("TEST003");
-        targetAccount.setBalance(new BigDecimal("500.00"));
-        targetAccount.setCreditLimit(new BigDecimal("500.00"));
+        targetAccount.setBalance(Money.of(new BigDecimal("500.00")));
+        targetAccount.setCreditLimit(Money.of(new BigDecimal("500.00")));
         targetAccount = accountRepository.save(targetAccount);
 
         // 执行转账
@@ -102,7 +103,7 @@ class AccountServiceImplTest {
         // 验证余额变化
         Account updatedSource = accountService.getAccountById(testAccount.getId());
         Account updatedTarget = accountService.getAccountById(targetAccount.getId());
-        assertEquals(new BigDecimal("900.00"), updatedSource.getBalance());
-        assertEquals(new BigDecimal("600.00"), updatedTarget.getBalance());
+        assertEquals(Money.of(new BigDecimal("900.00")), updatedSource.getBalance());
+        assertEquals(Money.of(new BigDecimal("600.00")), updatedTarget.getBalance());
     }
 } 
\ No newline at end of file
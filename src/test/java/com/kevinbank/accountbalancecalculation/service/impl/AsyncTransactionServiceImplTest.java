@@ -0,0 +1,121 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.kevinbank.accountbalancecalculation.config.WorkerThreads;
+import com.kevinbank.accountbalancecalculation.exception.TransactionQueueFullException;
+import com.kevinbank.accountbalancecalculation.model.CreateTransactionRequest;
+import com.kevinbank.accountbalancecalculation.model.Transaction;
+import com.kevinbank.accountbalancecalculation.model.TransactionRequestStatus;
+import com.kevinbank.accountbalancecalculation.model.TransactionType;
+import com.kevinbank.accountbalancecalculation.service.CacheService;
+import com.kevinbank.accountbalancecalculation.service.TransactionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AsyncTransactionServiceImplTest {
+
+    private AsyncTransactionServiceImpl service;
+    private TransactionService transactionService;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        transactionService = mock(TransactionService.class);
+        service = new AsyncTransactionServiceImpl();
+        ReflectionTestUtils.setField(service, "transactionService", transactionService);
+        ReflectionTestUtils.setField(service, "workerThreads", new WorkerThreads(false));
+        ReflectionTestUtils.setField(service, "cacheService", mock(CacheService.class));
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper().registerModule(new JavaTimeModule()));
+        ReflectionTestUtils.setField(service, "queueCapacity", 1);
+        ReflectionTestUtils.setField(service, "workers", 1);
+        ReflectionTestUtils.setField(service, "statusTtlMinutes", 60L);
+        ReflectionTestUtils.setField(service, "shutdownTimeoutSeconds", 5L);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    void submit_CompletesInBackground() throws Exception {
+        Transaction transaction = new Transaction();
+        transaction.setId(42L);
+        when(transactionService.createTransaction(any())).thenReturn(transaction);
+
+        TransactionRequestStatus pending = service.submit(deposit("100"));
+        assertEquals(TransactionRequestStatus.State.PENDING, pending.getState());
+
+        TransactionRequestStatus status = awaitFinished(pending.getHandle());
+        assertEquals(TransactionRequestStatus.State.COMPLETED, status.getState());
+        assertEquals(42L, status.getTransaction().getId());
+    }
+
+    @Test
+    void submit_RecordsRejection() throws Exception {
+        when(transactionService.createTransaction(any())).thenThrow(new RuntimeException("交易处理失败: 余额不足"));
+
+        TransactionRequestStatus status = awaitFinished(service.submit(deposit("100")).getHandle());
+        assertEquals(TransactionRequestStatus.State.REJECTED, status.getState());
+        assertEquals("交易处理失败: 余额不足", status.getError());
+    }
+
+    @Test
+    void submit_ThrowsWhenQueueFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        when(transactionService.createTransaction(any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new Transaction();
+        });
+
+        // 一笔占用工作线程，一笔占满队列
+        service.submit(deposit("1"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        service.submit(deposit("2"));
+        assertThrows(TransactionQueueFullException.class, () -> service.submit(deposit("3")));
+    }
+
+    @Test
+    void submit_ValidatesBeforeEnqueue() {
+        assertThrows(RuntimeException.class, () -> service.submit(deposit("0")));
+        CreateTransactionRequest missingAccount = deposit("1");
+        missingAccount.setTargetAccountId(null);
+        assertThrows(RuntimeException.class, () -> service.submit(missingAccount));
+    }
+
+    private TransactionRequestStatus awaitFinished(String handle) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            TransactionRequestStatus status = service.getStatus(handle);
+            if (status.getState() != TransactionRequestStatus.State.PENDING) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        return fail("交易请求未在预期时间内完成");
+    }
+
+    private static CreateTransactionRequest deposit(String amount) {
+        CreateTransactionRequest request = new CreateTransactionRequest();
+        request.setTargetAccountId(1L);
+        request.setAmount(new BigDecimal(amount));
+        request.setType(TransactionType.DEPOSIT);
+        return request;
+    }
+}
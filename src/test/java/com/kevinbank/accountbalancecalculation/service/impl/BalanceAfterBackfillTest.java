@@ -0,0 +1,53 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.kevinbank.accountbalancecalculation.model.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceAfterBackfillTest {
+
+    @Test
+    void rewind_DerivesBalancesFromNewestToOldest() {
+        // 账户1: 存入100.00，转出30.00给账户2，取出20.00，支付不影响余额，当前余额50.00
+        List<BalanceAfterBackfill.HistoryRow> rows = List.of(
+                new BalanceAfterBackfill.HistoryRow(4L, 1L, 0L, 999L, TransactionType.PAYMENT, null, null),
+                new BalanceAfterBackfill.HistoryRow(3L, 1L, 0L, 2000L, TransactionType.WITHDRAW, null, null),
+                new BalanceAfterBackfill.HistoryRow(2L, 1L, 2L, 3000L, TransactionType.TRANSFER, null, null),
+                new BalanceAfterBackfill.HistoryRow(1L, 0L, 1L, 10000L, TransactionType.DEPOSIT, null, null));
+        List<Object[]> sourceUpdates = new ArrayList<>();
+        List<Object[]> targetUpdates = new ArrayList<>();
+
+        long opening = BalanceAfterBackfill.rewind(1L, 5000L, rows, sourceUpdates, targetUpdates);
+
+        assertEquals(0L, opening);
+        assertEquals(2, sourceUpdates.size());
+        assertArrayEquals(new Object[]{new BigDecimal("50.00"), 3L}, sourceUpdates.get(0));
+        assertArrayEquals(new Object[]{new BigDecimal("70.00"), 2L}, sourceUpdates.get(1));
+        assertEquals(1, targetUpdates.size());
+        assertArrayEquals(new Object[]{new BigDecimal("100.00"), 1L}, targetUpdates.get(0));
+    }
+
+    @Test
+    void rewind_ContinuesFromRecordedBalanceAndHandlesSelfTransfer() {
+        List<BalanceAfterBackfill.HistoryRow> rows = List.of(
+                new BalanceAfterBackfill.HistoryRow(3L, 1L, 1L, 500L, TransactionType.TRANSFER, null, null),
+                new BalanceAfterBackfill.HistoryRow(2L, 0L, 1L, 1000L, TransactionType.DEPOSIT, null, 8000L),
+                new BalanceAfterBackfill.HistoryRow(1L, 1L, 0L, 1000L, TransactionType.WITHDRAW, null, null));
+        List<Object[]> sourceUpdates = new ArrayList<>();
+        List<Object[]> targetUpdates = new ArrayList<>();
+
+        long opening = BalanceAfterBackfill.rewind(1L, 9000L, rows, sourceUpdates, targetUpdates);
+
+        // 已记录的8000作为锚点，覆盖从当前余额倒推出的9000
+        assertEquals(8000L, opening);
+        assertArrayEquals(new Object[]{new BigDecimal("90.00"), 3L}, targetUpdates.get(0));
+        assertArrayEquals(new Object[]{new BigDecimal("85.00"), 3L}, sourceUpdates.get(0));
+        assertArrayEquals(new Object[]{new BigDecimal("70.00"), 1L}, sourceUpdates.get(1));
+        assertEquals(1, targetUpdates.size());
+    }
+}
@@ -0,0 +1,93 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.kevinbank.accountbalancecalculation.model.BalanceAsOf;
+import com.kevinbank.accountbalancecalculation.model.BalanceCheckpoint;
+import com.kevinbank.accountbalancecalculation.model.Money;
+import com.kevinbank.accountbalancecalculation.repository.BalanceCheckpointRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BalanceHistoryServiceImplTest {
+
+    private static final LocalDateTime MIDNIGHT = LocalDateTime.of(2026, 3, 1, 0, 0);
+
+    private BalanceHistoryServiceImpl service;
+    private JdbcTemplate jdbcTemplate;
+    private BalanceCheckpointRepository checkpointRepository;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        checkpointRepository = mock(BalanceCheckpointRepository.class);
+
+        service = new BalanceHistoryServiceImpl();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "balanceCheckpointRepository", checkpointRepository);
+        ReflectionTestUtils.setField(service, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(service, "pageSize", 1000);
+        ReflectionTestUtils.setField(service, "balanceEngineMode", "jdbc");
+        service.init();
+    }
+
+    @Test
+    void getBalanceAsOf_AddsDeltasSinceLatestCheckpoint() {
+        LocalDateTime asOf = MIDNIGHT.plusHours(10);
+        when(checkpointRepository.findLatestAtOrBefore(1L, asOf)).thenReturn(Optional.of(checkpoint("100.00")));
+        when(jdbcTemplate.queryForObject(anyString(), eq(BigDecimal.class), eq(1L),
+                eq(Timestamp.valueOf(MIDNIGHT)), eq(Timestamp.valueOf(asOf.plusNanos(1000))),
+                eq(1L), any(), any()))
+                .thenReturn(new BigDecimal("-25.50"));
+
+        BalanceAsOf result = service.getBalanceAsOf(1L, asOf);
+
+        assertEquals(Money.of(new BigDecimal("74.50")), result.getBalance());
+        assertEquals(MIDNIGHT, result.getCheckpointTime());
+        verify(checkpointRepository, never()).findEarliestAfter(any(), any());
+    }
+
+    @Test
+    void getBalanceAsOf_RewindsFromLaterCheckpointWhenNoEarlierOne() {
+        LocalDateTime asOf = MIDNIGHT.minusHours(2);
+        when(checkpointRepository.findLatestAtOrBefore(1L, asOf)).thenReturn(Optional.empty());
+        when(checkpointRepository.findEarliestAfter(1L, asOf)).thenReturn(Optional.of(checkpoint("100.00")));
+        when(jdbcTemplate.queryForObject(anyString(), eq(BigDecimal.class), eq(1L),
+                eq(Timestamp.valueOf(asOf.plusNanos(1000))), eq(Timestamp.valueOf(MIDNIGHT)),
+                eq(1L), any(), any()))
+                .thenReturn(new BigDecimal("40.00"));
+
+        BalanceAsOf result = service.getBalanceAsOf(1L, asOf);
+
+        assertEquals(Money.of(new BigDecimal("60.00")), result.getBalance());
+    }
+
+    @Test
+    void getBalanceAsOf_RejectsUnknownAccountWithoutCheckpoints() {
+        when(checkpointRepository.findLatestAtOrBefore(eq(9L), any())).thenReturn(Optional.empty());
+        when(checkpointRepository.findEarliestAfter(eq(9L), any())).thenReturn(Optional.empty());
+        when(jdbcTemplate.queryForList(anyString(), eq(BigDecimal.class), eq(9L))).thenReturn(List.of());
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> service.getBalanceAsOf(9L, MIDNIGHT));
+        assertEquals("账户不存在", e.getMessage());
+    }
+
+    private static BalanceCheckpoint checkpoint(String balance) {
+        BalanceCheckpoint checkpoint = new BalanceCheckpoint();
+        checkpoint.setAccountId(1L);
+        checkpoint.setCheckpointTime(MIDNIGHT);
+        checkpoint.setBalance(Money.of(new BigDecimal(balance)));
+        return checkpoint;
+    }
+}
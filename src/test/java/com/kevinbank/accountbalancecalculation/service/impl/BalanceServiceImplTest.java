@@ -0,0 +1,110 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.kevinbank.accountbalancecalculation.model.Money;
+import com.kevinbank.accountbalancecalculation.repository.AccountRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BalanceServiceImplTest {
+
+    private BalanceServiceImpl balanceService;
+    private AccountRepository accountRepository;
+    private HotAccountLedger hotAccountLedger;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        accountRepository = mock(AccountRepository.class);
+        hotAccountLedger = mock(HotAccountLedger.class);
+        meterRegistry = new SimpleMeterRegistry();
+
+        balanceService = new BalanceServiceImpl();
+        ReflectionTestUtils.setField(balanceService, "accountRepository", accountRepository);
+        ReflectionTestUtils.setField(balanceService, "hotAccountLedger", hotAccountLedger);
+        ReflectionTestUtils.setField(balanceService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(balanceService, "concurrencyMode", "optimistic");
+        ReflectionTestUtils.setField(balanceService, "maxRetries", 2);
+        ReflectionTestUtils.setField(balanceService, "backoffBaseMs", 1L);
+        ReflectionTestUtils.setField(balanceService, "backoffMaxMs", 2L);
+        balanceService.init();
+    }
+
+    @Test
+    void updateBalance_RetriesOnVersionConflictWithFreshRead() {
+        when(accountRepository.findBalanceView(1L))
+                .thenReturn(Optional.of(view("100.00", "0.00", 7L)))
+                .thenReturn(Optional.of(view("80.00", "0.00", 8L)));
+        when(accountRepository.applyBalanceDeltaIfVersion(1L, new BigDecimal("-50.00"), 7L)).thenReturn(0);
+        when(accountRepository.applyBalanceDeltaIfVersion(1L, new BigDecimal("-50.00"), 8L)).thenReturn(1);
+
+        Money balanceAfter = balanceService.updateBalance(1L, Money.of(new BigDecimal("-50")));
+
+        assertEquals(Money.of(new BigDecimal("30.00")), balanceAfter);
+        verify(accountRepository, times(2)).applyBalanceDeltaIfVersion(eq(1L), any(), anyLong());
+        verify(accountRepository, never()).applyBalanceDelta(any(), any());
+        assertEquals(1.0, meterRegistry.counter("balance.optimistic.retries").count());
+    }
+
+    @Test
+    void updateBalance_GivesUpAfterMaxRetries() {
+        when(accountRepository.findBalanceView(1L)).thenReturn(Optional.of(view("100.00", "0.00", 7L)));
+        when(accountRepository.applyBalanceDeltaIfVersion(eq(1L), any(), anyLong())).thenReturn(0);
+
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> balanceService.updateBalance(1L, Money.of(new BigDecimal("10"))));
+        verify(accountRepository, times(3)).applyBalanceDeltaIfVersion(eq(1L), any(), anyLong());
+        assertEquals(1.0, meterRegistry.counter("balance.optimistic.exhausted").count());
+    }
+
+    @Test
+    void updateBalance_ChecksCreditLimitBeforeWriting() {
+        when(accountRepository.findBalanceView(1L)).thenReturn(Optional.of(view("10.00", "5.00", 1L)));
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> balanceService.updateBalance(1L, Money.of(new BigDecimal("-15.01"))));
+        assertEquals("余额不足", e.getMessage());
+        verify(accountRepository, never()).applyBalanceDeltaIfVersion(any(), any(), anyLong());
+    }
+
+    @Test
+    void updateBalance_HotAccountsStayPessimistic() {
+        when(hotAccountLedger.isHot(1L)).thenReturn(true);
+        when(accountRepository.applyBalanceDelta(1L, new BigDecimal("-5.00"))).thenReturn(1);
+
+        balanceService.updateBalance(1L, Money.of(new BigDecimal("-5")));
+
+        verify(hotAccountLedger).consolidate(1L);
+        verify(accountRepository, never()).findBalanceView(any());
+    }
+
+    private static AccountRepository.BalanceView view(String balance, String creditLimit, long version) {
+        return new AccountRepository.BalanceView() {
+            @Override
+            public BigDecimal getBalance() {
+                return new BigDecimal(balance);
+            }
+
+            @Override
+            public BigDecimal getCreditLimit() {
+                return new BigDecimal(creditLimit);
+            }
+
+            @Override
+            public Long getVersion() {
+                return version;
+            }
+        };
+    }
+}
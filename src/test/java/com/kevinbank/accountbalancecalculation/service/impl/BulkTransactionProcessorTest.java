@@ -0,0 +1,192 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.kevinbank.accountbalancecalculation.config.WorkerThreads;
+import com.kevinbank.accountbalancecalculation.model.BatchTransactionResult;
+import com.kevinbank.accountbalancecalculation.model.CreateTransactionRequest;
+import com.kevinbank.accountbalancecalculation.model.Transaction;
+import com.kevinbank.accountbalancecalculation.model.TransactionType;
+import com.kevinbank.accountbalancecalculation.service.AccountLockManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BulkTransactionProcessorTest {
+
+    private BulkTransactionProcessor processor;
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+    private final List<Set<Long>> lockedAccounts = new CopyOnWriteArrayList<>();
+    private final List<Transaction> cached = new CopyOnWriteArrayList<>();
+    private final List<Set<Long>> heldDuringWrite = new CopyOnWriteArrayList<>();
+    private final Set<Long> held = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void setUp() {
+        TransactionBatchWriter writer = mock(TransactionBatchWriter.class);
+        when(writer.write(anyList())).thenAnswer(invocation -> {
+            List<CreateTransactionRequest> requests = invocation.getArgument(0);
+            batches.add(requests.stream().map(CreateTransactionRequest::getDescription).toList());
+            heldDuringWrite.add(new TreeSet<>(held));
+            List<TransactionBatchWriter.Result> results = new ArrayList<>();
+            for (CreateTransactionRequest request : requests) {
+                if (request.getAmount().compareTo(new BigDecimal("1000")) > 0) {
+                    results.add(new TransactionBatchWriter.Result(null, new RuntimeException("交易处理失败: 余额不足")));
+                } else {
+                    Transaction transaction = new Transaction();
+                    transaction.setDescription(request.getDescription());
+                    results.add(new TransactionBatchWriter.Result(transaction, null));
+                }
+            }
+            return results;
+        });
+
+        processor = new BulkTransactionProcessor();
+        ReflectionTestUtils.setField(processor, "transactionBatchWriter", writer);
+        ReflectionTestUtils.setField(processor, "workerThreads", new WorkerThreads(false));
+        ReflectionTestUtils.setField(processor, "accountLockManager", (AccountLockManager) accountIds -> {
+            Set<Long> locked = new TreeSet<>(accountIds);
+            lockedAccounts.add(locked);
+            held.addAll(locked);
+            return () -> held.removeAll(locked);
+        });
+        ReflectionTestUtils.setField(processor, "maxItems", 100);
+        ReflectionTestUtils.setField(processor, "chunkSize", 3);
+        ReflectionTestUtils.setField(processor, "maxLockedAccounts", 4);
+        ReflectionTestUtils.setField(processor, "parallelism", 2);
+        ReflectionTestUtils.setField(processor, "balanceEngineMode", "jdbc");
+        ReflectionTestUtils.setField(processor, "concurrencyMode", "pessimistic");
+        processor.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        processor.shutdown();
+    }
+
+    @Test
+    void process_KeepsSubmissionOrderWithinConnectedAccounts() {
+        List<CreateTransactionRequest> requests = List.of(
+                transfer(1L, 2L, "100", "a1"),
+                transfer(3L, 4L, "100", "b1"),
+                transfer(2L, 5L, "100", "a2"),
+                transfer(4L, 6L, "100", "b2"),
+                transfer(5L, 1L, "100", "a3"),
+                transfer(6L, 3L, "100", "b3"));
+
+        List<BatchTransactionResult> results = processor.process(requests, r -> fail("不应逐笔处理"), cached::add);
+
+        assertEquals(6, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).getIndex());
+            assertTrue(results.get(i).isSuccess());
+            assertEquals(requests.get(i).getDescription(), results.get(i).getTransaction().getDescription());
+        }
+        // 两个互不相交的账户集合各自成为一个分区，分区内保持提交顺序
+        List<List<String>> sorted = new ArrayList<>(batches);
+        sorted.sort((x, y) -> x.get(0).compareTo(y.get(0)));
+        assertEquals(List.of(List.of("a1", "a2", "a3"), List.of("b1", "b2", "b3")), sorted);
+    }
+
+    @Test
+    void process_ReportsFailuresPerItem() {
+        CreateTransactionRequest missingType = transfer(1L, 2L, "100", "x");
+        missingType.setType(null);
+        List<CreateTransactionRequest> requests = List.of(
+                transfer(1L, 2L, "100", "ok"),
+                transfer(1L, 2L, "5000", "too-much"),
+                missingType);
+
+        List<BatchTransactionResult> results = processor.process(requests, r -> fail("不应逐笔处理"), cached::add);
+
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("交易处理失败: 余额不足", results.get(1).getError());
+        assertFalse(results.get(2).isSuccess());
+        assertEquals("交易处理失败: 交易类型不能为空", results.get(2).getError());
+        assertEquals(List.of(List.of("ok", "too-much")), batches);
+    }
+
+    @Test
+    void process_SplitsPartitionIntoChunks() {
+        List<CreateTransactionRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            requests.add(transfer(1L, 2L, "1", "t" + i));
+        }
+        processor.process(requests, r -> fail("不应逐笔处理"), cached::add);
+        assertEquals(List.of(3, 3, 1), batches.stream().map(List::size).toList());
+    }
+
+    @Test
+    void process_SplitsChunkWhenLockedAccountsExceedLimit() {
+        List<CreateTransactionRequest> requests = List.of(
+                transfer(1L, 2L, "1", "c1"),
+                transfer(2L, 3L, "1", "c2"),
+                transfer(3L, 4L, "1", "c3"),
+                transfer(4L, 5L, "1", "c4"));
+
+        processor.process(requests, r -> fail("不应逐笔处理"), cached::add);
+
+        assertEquals(List.of(List.of("c1", "c2", "c3"), List.of("c4")), batches);
+        assertEquals(List.<Set<Long>>of(Set.of(1L, 2L, 3L, 4L), Set.of(4L, 5L)), lockedAccounts);
+    }
+
+    @Test
+    void process_LocksChunkAccountsWhileWritingAndCachesAccepted() {
+        List<CreateTransactionRequest> requests = List.of(
+                transfer(1L, 2L, "100", "ok"),
+                transfer(2L, 3L, "5000", "too-much"));
+
+        processor.process(requests, r -> fail("不应逐笔处理"), cached::add);
+
+        assertEquals(List.<Set<Long>>of(Set.of(1L, 2L, 3L)), lockedAccounts);
+        assertEquals(List.<Set<Long>>of(Set.of(1L, 2L, 3L)), heldDuringWrite);
+        assertTrue(held.isEmpty());
+        assertEquals(List.of("ok"), cached.stream().map(Transaction::getDescription).toList());
+    }
+
+    @Test
+    void process_UsesSingleTransactionsWhenJournalEnabled() {
+        ReflectionTestUtils.setField(processor, "journalEnabled", true);
+        List<CreateTransactionRequest> requests = List.of(transfer(1L, 2L, "100", "j"));
+
+        List<BatchTransactionResult> results = processor.process(requests, r -> {
+            Transaction transaction = new Transaction();
+            transaction.setDescription(r.getDescription());
+            return transaction;
+        }, cached::add);
+
+        assertTrue(results.get(0).isSuccess());
+        assertTrue(batches.isEmpty());
+        assertTrue(lockedAccounts.isEmpty());
+    }
+
+    @Test
+    void process_RejectsOversizeRequest() {
+        List<CreateTransactionRequest> requests = Collections.nCopies(101, transfer(1L, 2L, "1", "t"));
+        assertThrows(RuntimeException.class, () -> processor.process(requests, r -> null, cached::add));
+    }
+
+    private static CreateTransactionRequest transfer(Long source, Long target, String amount, String description) {
+        CreateTransactionRequest request = new CreateTransactionRequest();
+        request.setSourceAccountId(source);
+        request.setTargetAccountId(target);
+        request.setAmount(new BigDecimal(amount));
+        request.setType(TransactionType.TRANSFER);
+        request.setDescription(description);
+        return request;
+    }
+}
@@ -0,0 +1,157 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.kevinbank.accountbalancecalculation.config.WorkerThreads;
+import com.kevinbank.accountbalancecalculation.model.CreateTransactionRequest;
+import com.kevinbank.accountbalancecalculation.model.Money;
+import com.kevinbank.accountbalancecalculation.model.Transaction;
+import com.kevinbank.accountbalancecalculation.model.TransactionType;
+import com.kevinbank.accountbalancecalculation.service.BalanceService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DepositNettingProcessorTest {
+
+    private DepositNettingProcessor processor;
+    private BalanceService balanceService;
+    private TransactionBatchWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        balanceService = mock(BalanceService.class);
+        writer = mock(TransactionBatchWriter.class);
+
+        processor = new DepositNettingProcessor();
+        ReflectionTestUtils.setField(processor, "balanceService", balanceService);
+        ReflectionTestUtils.setField(processor, "transactionBatchWriter", writer);
+        ReflectionTestUtils.setField(processor, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(processor, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(processor, "workerThreads", new WorkerThreads(false));
+        ReflectionTestUtils.setField(processor, "windowMs", 60_000L);
+        ReflectionTestUtils.setField(processor, "maxBatchSize", 100);
+        ReflectionTestUtils.setField(processor, "flushThreads", 1);
+        ReflectionTestUtils.setField(processor, "balanceEngineMode", "jdbc");
+        processor.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        processor.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_AppliesDepositsWithOneBalanceUpdate() throws Exception {
+        List<CompletableFuture<Transaction>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(processor.submit(deposit(1L, "10.50")));
+        }
+        futures.add(processor.submit(deposit(2L, "1.00")));
+        assertFalse(futures.get(0).isDone());
+
+        processor.flush(1L);
+
+        verify(balanceService).updateBalance(1L, Money.of(new BigDecimal("52.50")));
+        verify(writer).insertTransactions(argThat(list -> list.size() == 5));
+        for (int i = 0; i < 5; i++) {
+            Transaction transaction = futures.get(i).get(1, TimeUnit.SECONDS);
+            assertEquals(1L, transaction.getTargetAccountId());
+            assertEquals(Money.of(new BigDecimal("10.50")), transaction.getAmount());
+        }
+        assertFalse(futures.get(5).isDone());
+        verify(balanceService, never()).updateBalance(eq(2L), any());
+    }
+
+    @Test
+    void submit_FlushesWhenBatchIsFull() throws Exception {
+        ReflectionTestUtils.setField(processor, "maxBatchSize", 3);
+        List<CompletableFuture<Transaction>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(processor.submit(deposit(1L, "1.00")));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        verify(balanceService).updateBalance(1L, Money.of(new BigDecimal("3.00")));
+    }
+
+    @Test
+    void flush_FailsEveryDepositWhenWriteFails() {
+        doThrow(new RuntimeException("账户不存在")).when(balanceService).updateBalance(eq(9L), any());
+        CompletableFuture<Transaction> first = processor.submit(deposit(9L, "1.00"));
+        CompletableFuture<Transaction> second = processor.submit(deposit(9L, "2.00"));
+
+        processor.flush(9L);
+
+        CompletionException e = assertThrows(CompletionException.class, first::join);
+        assertEquals("交易处理失败: 账户不存在", e.getCause().getMessage());
+        assertThrows(CompletionException.class, second::join);
+        verify(writer, never()).insertTransactions(anyList());
+    }
+
+    @Test
+    void flush_InCallerTransactionCompletesAfterCommit() throws Exception {
+        CompletableFuture<Transaction> future = processor.submit(deposit(1L, "5.00"));
+
+        List<TransactionSynchronization> synchronizations = flushInTransaction(1L);
+
+        verify(balanceService).updateBalance(1L, Money.of(new BigDecimal("5.00")));
+        verify(writer).insertTransactions(anyList());
+        assertFalse(future.isDone());
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        assertEquals(1L, future.get(1, TimeUnit.SECONDS).getTargetAccountId());
+    }
+
+    @Test
+    void flush_InCallerTransactionRequeuesDepositsOnRollback() throws Exception {
+        CompletableFuture<Transaction> future = processor.submit(deposit(1L, "5.00"));
+
+        List<TransactionSynchronization> synchronizations = flushInTransaction(1L);
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        assertFalse(future.isDone());
+
+        processor.flush(1L);
+
+        verify(balanceService, times(2)).updateBalance(1L, Money.of(new BigDecimal("5.00")));
+        assertEquals(1L, future.get(1, TimeUnit.SECONDS).getTargetAccountId());
+    }
+
+    /**
+     * 模拟扣款方已经开启的事务，返回刷新时注册的事务同步
+     */
+    private List<TransactionSynchronization> flushInTransaction(Long accountId) {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            processor.flush(accountId);
+            return TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static CreateTransactionRequest deposit(Long accountId, String amount) {
+        CreateTransactionRequest request = new CreateTransactionRequest();
+        request.setTargetAccountId(accountId);
+        request.setAmount(new BigDecimal(amount));
+        request.setType(TransactionType.DEPOSIT);
+        return request;
+    }
+}
@@ -0,0 +1,112 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.kevinbank.accountbalancecalculation.model.CreateTransactionRequest;
+import com.kevinbank.accountbalancecalculation.model.Transaction;
+import com.kevinbank.accountbalancecalculation.model.TransactionType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GroupCommitTransactionProcessorTest {
+
+    private GroupCommitTransactionProcessor processor;
+    private TransactionBatchWriter writer;
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        writer = mock(TransactionBatchWriter.class);
+        when(writer.write(anyList())).thenAnswer(invocation -> {
+            List<CreateTransactionRequest> requests = invocation.getArgument(0);
+            batchSizes.add(requests.size());
+            List<TransactionBatchWriter.Result> results = new ArrayList<>();
+            for (CreateTransactionRequest request : requests) {
+                if (request.getAmount().compareTo(new BigDecimal("1000")) > 0) {
+                    results.add(new TransactionBatchWriter.Result(null, new RuntimeException("交易处理失败: 余额不足")));
+                } else {
+                    Transaction transaction = new Transaction();
+                    transaction.setId((long) request.getDescription().hashCode());
+                    transaction.setDescription(request.getDescription());
+                    results.add(new TransactionBatchWriter.Result(transaction, null));
+                }
+            }
+            return results;
+        });
+
+        processor = new GroupCommitTransactionProcessor();
+        ReflectionTestUtils.setField(processor, "transactionBatchWriter", writer);
+        ReflectionTestUtils.setField(processor, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(processor, "maxBatchSize", 50);
+        ReflectionTestUtils.setField(processor, "maxWaitMs", 200L);
+        ReflectionTestUtils.setField(processor, "queueCapacity", 1000);
+        ReflectionTestUtils.setField(processor, "balanceEngineMode", "jdbc");
+        processor.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        processor.shutdown();
+    }
+
+    @Test
+    void submit_CoalescesConcurrentRequestsAndCompletesEachFuture() throws Exception {
+        List<CompletableFuture<Transaction>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(processor.submit(request("tx-" + i, i == 3 ? "5000" : "10")));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            if (i == 3) {
+                CompletableFuture<Transaction> rejected = futures.get(i);
+                ExecutionException e = assertThrows(ExecutionException.class, () -> rejected.get(2, TimeUnit.SECONDS));
+                assertEquals("交易处理失败: 余额不足", e.getCause().getMessage());
+            } else {
+                assertEquals("tx-" + i, futures.get(i).get(2, TimeUnit.SECONDS).getDescription());
+            }
+        }
+        assertEquals(List.of(10), batchSizes);
+    }
+
+    @Test
+    void submit_FailsWholeBatchWhenCommitFails() {
+        when(writer.write(anyList())).thenThrow(new RuntimeException("deadlock"));
+
+        CompletableFuture<Transaction> first = processor.submit(request("a", "10"));
+        CompletableFuture<Transaction> second = processor.submit(request("b", "10"));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> first.get(2, TimeUnit.SECONDS));
+        assertEquals("交易处理失败: deadlock", e.getCause().getMessage());
+        assertThrows(ExecutionException.class, () -> second.get(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void init_RejectsShardedBalanceEngine() {
+        GroupCommitTransactionProcessor sharded = new GroupCommitTransactionProcessor();
+        ReflectionTestUtils.setField(sharded, "balanceEngineMode", "sharded");
+        assertThrows(RuntimeException.class, sharded::init);
+    }
+
+    private static CreateTransactionRequest request(String description, String amount) {
+        CreateTransactionRequest request = new CreateTransactionRequest();
+        request.setType(TransactionType.DEPOSIT);
+        request.setTargetAccountId(1L);
+        request.setAmount(new BigDecimal(amount));
+        request.setDescription(description);
+        return request;
+    }
+}
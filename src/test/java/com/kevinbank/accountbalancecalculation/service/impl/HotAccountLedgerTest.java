@@ -0,0 +1,82 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.kevinbank.accountbalancecalculation.model.Money;
+import com.kevinbank.accountbalancecalculation.repository.AccountRepository;
+import com.kevinbank.accountbalancecalculation.repository.AccountSubBalanceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class HotAccountLedgerTest {
+
+    private HotAccountLedger ledger;
+    private AccountRepository accountRepository;
+    private AccountSubBalanceRepository subBalanceRepository;
+
+    @BeforeEach
+    void setUp() {
+        accountRepository = mock(AccountRepository.class);
+        subBalanceRepository = mock(AccountSubBalanceRepository.class);
+        List<Object[]> hotAccounts = new ArrayList<>();
+        hotAccounts.add(new Object[]{1L, 4});
+        when(accountRepository.findHotAccountSlots()).thenReturn(hotAccounts);
+
+        ledger = new HotAccountLedger();
+        ReflectionTestUtils.setField(ledger, "accountRepository", accountRepository);
+        ReflectionTestUtils.setField(ledger, "subBalanceRepository", subBalanceRepository);
+        ReflectionTestUtils.setField(ledger, "slotStrategy", "round-robin");
+        ledger.init();
+    }
+
+    @Test
+    void credit_SpreadsHotAccountCreditsAcrossSlots() {
+        for (int i = 0; i < 8; i++) {
+            assertTrue(ledger.credit(1L, Money.of(new BigDecimal("10"))));
+        }
+        ArgumentCaptor<Integer> slots = ArgumentCaptor.forClass(Integer.class);
+        verify(subBalanceRepository, times(8)).credit(eq(1L), slots.capture(), eq(new BigDecimal("10.00")));
+        assertEquals(List.of(0, 1, 2, 3, 0, 1, 2, 3), slots.getAllValues());
+
+        assertFalse(ledger.credit(2L, Money.of(new BigDecimal("10"))));
+        assertFalse(ledger.credit(1L, Money.of(new BigDecimal("-10"))));
+        verifyNoMoreInteractions(subBalanceRepository);
+    }
+
+    @Test
+    void consolidate_DeductsExactSlotAmountsAndFoldsIntoMainBalance() {
+        List<Object[]> slots = new ArrayList<>();
+        slots.add(new Object[]{0, new BigDecimal("10.50")});
+        slots.add(new Object[]{3, new BigDecimal("4.50")});
+        when(subBalanceRepository.lockNonZeroSlots(1L)).thenReturn(slots);
+
+        assertEquals(Money.of(new BigDecimal("15")), ledger.consolidate(1L));
+        verify(subBalanceRepository).deduct(1L, 0, new BigDecimal("10.50"));
+        verify(subBalanceRepository).deduct(1L, 3, new BigDecimal("4.50"));
+        verify(accountRepository).addBalance(1L, new BigDecimal("15.00"));
+    }
+
+    @Test
+    void register_UpdatesHotAccountSet() {
+        ledger.register(2L, 8);
+        assertTrue(ledger.isHot(2L));
+        ledger.register(1L, 0);
+        assertFalse(ledger.isHot(1L));
+
+        when(subBalanceRepository.lockNonZeroSlots(anyLong())).thenReturn(List.of());
+        assertEquals(Money.ZERO, ledger.consolidate(2L));
+        verify(accountRepository, never()).addBalance(any(), any());
+        verify(subBalanceRepository, never()).deduct(anyLong(), anyInt(), any());
+    }
+}
@@ -0,0 +1,142 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.kevinbank.accountbalancecalculation.exception.IdempotencyConflictException;
+import com.kevinbank.accountbalancecalculation.model.CreateTransactionRequest;
+import com.kevinbank.accountbalancecalculation.model.IdempotencyRecord;
+import com.kevinbank.accountbalancecalculation.model.Money;
+import com.kevinbank.accountbalancecalculation.model.MoneyJsonModule;
+import com.kevinbank.accountbalancecalculation.model.Transaction;
+import com.kevinbank.accountbalancecalculation.model.TransactionType;
+import com.kevinbank.accountbalancecalculation.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class IdempotencyServiceImplTest {
+
+    private IdempotencyServiceImpl idempotencyService;
+    private IdempotencyRecordRepository repository;
+    private PlatformTransactionManager transactionManager;
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(IdempotencyRecordRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        TransactionStatus status = new SimpleTransactionStatus();
+        when(transactionManager.getTransaction(any())).thenReturn(status);
+        when(repository.findActive(anyString(), any())).thenReturn(Optional.empty());
+
+        idempotencyService = new IdempotencyServiceImpl();
+        ReflectionTestUtils.setField(idempotencyService, "idempotencyRecordRepository", repository);
+        ReflectionTestUtils.setField(idempotencyService, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(idempotencyService, "objectMapper",
+                new ObjectMapper().registerModule(new JavaTimeModule()).registerModule(MoneyJsonModule.decimal()));
+        ReflectionTestUtils.setField(idempotencyService, "ttlHours", 24L);
+        ReflectionTestUtils.setField(idempotencyService, "localCacheSize", 100);
+        idempotencyService.init();
+    }
+
+    @Test
+    void execute_ReplaysFirstResponseForSameKey() {
+        Transaction first = execute("key-1", request("10"));
+        Transaction second = execute("key-1", request("10"));
+
+        assertEquals(1, executions.get());
+        assertEquals(first.getId(), second.getId());
+        assertEquals(Money.of(new BigDecimal("10")), second.getAmount());
+        verify(repository).claim(eq("transaction:key-1"), anyString(), any(), any());
+        verify(repository).complete(eq("transaction:key-1"), eq(first.getId()), anyString());
+    }
+
+    @Test
+    void execute_RejectsSameKeyWithDifferentRequest() {
+        execute("key-1", request("10"));
+        assertThrows(IdempotencyConflictException.class, () -> execute("key-1", request("20")));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void execute_ReturnsConcurrentWinnersResponseWhenKeyAlreadyClaimed() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule()).registerModule(MoneyJsonModule.decimal());
+        Transaction winner = transaction(42L, "10");
+        when(repository.claim(anyString(), anyString(), any(), any()))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+
+        // 第一次查询时对方尚未提交，占用失败后再次查询得到对方的结果
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setRequestHash((String) ReflectionTestUtils.invokeMethod(idempotencyService, "hash", "transaction", request("10")));
+        record.setResponseBody(mapper.writeValueAsString(winner));
+        record.setExpiresAt(LocalDateTime.now().plusHours(1));
+        when(repository.findActive(eq("transaction:key-2"), any()))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(record));
+
+        Transaction result = execute("key-2", request("10"));
+        assertEquals(42L, result.getId());
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void execute_WithoutKeyRunsEveryTime() {
+        execute(null, request("10"));
+        execute(null, request("10"));
+        assertEquals(2, executions.get());
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void execute_LooksUpStoredResponseInReadWriteTransaction() {
+        execute("key-1", request("10"));
+
+        // 只读事务在启用读写分离时可能被路由到落后的副本，查询必须在读写事务中执行
+        ArgumentCaptor<TransactionDefinition> definitions = ArgumentCaptor.forClass(TransactionDefinition.class);
+        InOrder inOrder = inOrder(transactionManager, repository);
+        inOrder.verify(transactionManager).getTransaction(definitions.capture());
+        inOrder.verify(repository).findActive(eq("transaction:key-1"), any());
+        assertFalse(definitions.getValue().isReadOnly());
+    }
+
+    private Transaction execute(String key, CreateTransactionRequest request) {
+        return idempotencyService.execute("transaction", key, request, Transaction.class,
+                () -> transaction(1000L + executions.incrementAndGet(), request.getAmount().toPlainString()));
+    }
+
+    private static Transaction transaction(long id, String amount) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setTargetAccountId(1L);
+        transaction.setAmount(Money.of(new BigDecimal(amount)));
+        transaction.setType(TransactionType.DEPOSIT);
+        transaction.setTransactionTime(LocalDateTime.of(2026, 1, 1, 0, 0));
+        return transaction;
+    }
+
+    private static CreateTransactionRequest request(String amount) {
+        CreateTransactionRequest request = new CreateTransactionRequest();
+        request.setType(TransactionType.DEPOSIT);
+        request.setTargetAccountId(1L);
+        request.setAmount(new BigDecimal(amount));
+        return request;
+    }
+}
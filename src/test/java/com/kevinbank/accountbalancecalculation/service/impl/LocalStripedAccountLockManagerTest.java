@@ -0,0 +1,92 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.kevinbank.accountbalancecalculation.service.AccountLockManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalStripedAccountLockManagerTest {
+
+    @Test
+    void lock_BlocksOtherThreadUntilReleased() throws Exception {
+        LocalStripedAccountLockManager lockManager = new LocalStripedAccountLockManager(64, 2000);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AccountLockManager.LockHandle handle = lockManager.lock(List.of(1L, 2L));
+            Future<Boolean> waiter = executor.submit(() -> {
+                try (AccountLockManager.LockHandle ignored = lockManager.lock(List.of(2L, 3L))) {
+                    return true;
+                }
+            });
+
+            Thread.sleep(100);
+            assertFalse(waiter.isDone());
+
+            handle.close();
+            assertTrue(waiter.get(1, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void lock_TimesOutInsteadOfFailingImmediately() throws Exception {
+        LocalStripedAccountLockManager lockManager = new LocalStripedAccountLockManager(64, 200);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (AccountLockManager.LockHandle ignored = lockManager.lock(List.of(1L))) {
+            long start = System.nanoTime();
+            Future<?> waiter = executor.submit(() -> lockManager.lock(List.of(1L)));
+
+            Exception e = assertThrows(Exception.class, () -> waiter.get(2, TimeUnit.SECONDS));
+            assertInstanceOf(RuntimeException.class, e.getCause());
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 200);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void lock_OppositeOrderTransfersDoNotDeadlock() throws Exception {
+        LocalStripedAccountLockManager lockManager = new LocalStripedAccountLockManager(64, 5000);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        AtomicInteger completed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            Runnable forward = () -> repeat(start, () -> lockManager.lock(Arrays.asList(1L, 2L)), completed);
+            Runnable backward = () -> repeat(start, () -> lockManager.lock(Arrays.asList(2L, 1L, null)), completed);
+            Future<?> first = executor.submit(forward);
+            Future<?> second = executor.submit(backward);
+            start.countDown();
+
+            first.get(10, TimeUnit.SECONDS);
+            second.get(10, TimeUnit.SECONDS);
+            assertEquals(2000, completed.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void repeat(CountDownLatch start, java.util.function.Supplier<AccountLockManager.LockHandle> locker,
+                               AtomicInteger completed) {
+        try {
+            start.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        for (int i = 0; i < 1000; i++) {
+            try (AccountLockManager.LockHandle ignored = locker.get()) {
+                completed.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.kevinbank.accountbalancecalculation.model.Account;
+import com.kevinbank.accountbalancecalculation.model.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ReactiveQueryServiceImplTest {
+
+    private ReactiveQueryServiceImpl service;
+    private ReactiveValueOperations<String, Account> valueOperations;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ReactiveRedisTemplate<String, Account> redisTemplate = mock(ReactiveRedisTemplate.class);
+        valueOperations = mock(ReactiveValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.set(anyString(), any(), any(Duration.class))).thenReturn(Mono.just(true));
+        jdbcTemplate = mock(JdbcTemplate.class);
+
+        service = new ReactiveQueryServiceImpl();
+        ReflectionTestUtils.setField(service, "reactiveAccountRedisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "dataSource", mock(DataSource.class));
+        ReflectionTestUtils.setField(service, "jdbcThreads", 2);
+        ReflectionTestUtils.setField(service, "jdbcQueueCapacity", 10);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void getAccount_ReturnsCachedAccount() {
+        when(valueOperations.get("v2:account:1")).thenReturn(Mono.just(account(1L)));
+
+        assertEquals(1L, service.getAccount(1L).block().getId());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getAccount_LoadsFromDatabaseOnMissAndCaches() {
+        when(valueOperations.get("v2:account:1")).thenReturn(Mono.empty());
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(1L))).thenReturn(List.of(account(1L)));
+
+        Account account = service.getAccount(1L).block();
+
+        assertEquals(new BigDecimal("100.00"), account.getBalance().toBigDecimal());
+        verify(valueOperations).set(eq("v2:account:1"), eq(account), any(Duration.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getAccount_FallsBackToDatabaseWhenRedisFails() {
+        when(valueOperations.get("v2:account:1")).thenReturn(Mono.error(new RuntimeException("connection refused")));
+        when(valueOperations.set(anyString(), any(), any(Duration.class)))
+                .thenReturn(Mono.error(new RuntimeException("connection refused")));
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(1L))).thenReturn(List.of(account(1L)));
+
+        assertEquals(1L, service.getAccount(1L).block().getId());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getAccount_ErrorsWhenAccountMissing() {
+        when(valueOperations.get("v2:account:9")).thenReturn(Mono.empty());
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(9L))).thenReturn(Collections.emptyList());
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> service.getAccount(9L).block());
+        assertEquals("Account not found: 9", e.getMessage());
+    }
+
+    private static Account account(Long id) {
+        Account account = new Account();
+        account.setId(id);
+        account.setBalance(Money.of(new BigDecimal("100.00")));
+        return account;
+    }
+}
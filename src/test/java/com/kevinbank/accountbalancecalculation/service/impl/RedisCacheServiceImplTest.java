@@ -1,6 +1,7 @@
 package com.kevinbank.accountbalancecalculation.service.impl;
 
 import com.kevinbank.accountbalancecalculation.model.Account;
+import com.kevinbank.accountbalancecalculation.model.Money;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -54,7 +55,7 @@ class RedisCacheServiceImplTest {
         String testKey = "test:account:1";
         Account testAccount = new Account();
         testAccount.setId(1L);
-        testAccount.setBalance(new BigDecimal("1000.00"));
+        testAccount.setBalance(Money.of(new BigDecimal("1000.00")));
 
         // 测试存储
         cacheService.set(testKey, testAccount, 1, TimeUnit.MINUTES);
@@ -0,0 +1,173 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.kevinbank.accountbalancecalculation.model.Account;
+import com.kevinbank.accountbalancecalculation.model.Money;
+import com.kevinbank.accountbalancecalculation.repository.AccountRepository;
+import com.kevinbank.accountbalancecalculation.snapshot.BalanceSnapshotService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ShardedBalanceServiceImplTest {
+
+    private ShardedBalanceServiceImpl service;
+    private AccountRepository accountRepository;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        accountRepository = mock(AccountRepository.class);
+        // 账户1：余额100，信用额度50
+        Account account = new Account();
+        account.setId(1L);
+        account.setBalance(Money.of(new BigDecimal("100")));
+        account.setCreditLimit(Money.of(new BigDecimal("50")));
+        when(accountRepository.findById(1L)).thenReturn(Optional.of(account));
+
+        service = new ShardedBalanceServiceImpl();
+        ReflectionTestUtils.setField(service, "accountRepository", accountRepository);
+        ReflectionTestUtils.setField(service, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "balanceSnapshotService", mock(ObjectProvider.class));
+        ReflectionTestUtils.setField(service, "hotAccountLedger", mock(HotAccountLedger.class));
+        ReflectionTestUtils.setField(service, "shardCount", 2);
+        ReflectionTestUtils.setField(service, "persistBatchSize", 500);
+        ReflectionTestUtils.setField(service, "persistRetryIntervalMs", 10L);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        service.shutdown();
+    }
+
+    @Test
+    void updateBalance_AppliesChangesInOrderAndPersistsLatestBalance() throws Exception {
+        assertEquals(money("110"), service.updateBalance(1L, money("10")));
+        assertEquals(money("90"), service.updateBalance(1L, money("-20")));
+        assertEquals(money("95"), service.updateBalance(1L, money("5")));
+
+        // 并发的变动在分片中逐个执行，不会丢失
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Money>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(executor.submit(() -> service.updateBalance(1L, money("1"))));
+            }
+            for (Future<Money> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        service.shutdown();
+
+        // 写回的余额是按分片执行顺序得到的余额序列的子序列，最后一次为最终余额
+        List<BigDecimal> applied = new ArrayList<>(List.of(
+                new BigDecimal("110.00"), new BigDecimal("90.00"), new BigDecimal("95.00")));
+        for (int i = 96; i <= 195; i++) {
+            applied.add(new BigDecimal(i + ".00"));
+        }
+        List<BigDecimal> persisted = persistedBalances();
+        int previous = -1;
+        for (BigDecimal balance : persisted) {
+            int index = applied.indexOf(balance);
+            assertTrue(index > previous, "persisted out of order: " + persisted);
+            previous = index;
+        }
+        assertEquals(new BigDecimal("195.00"), persisted.get(persisted.size() - 1));
+    }
+
+    @Test
+    void updateBalance_PendingDebitsReserveCreditLimitUntilCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        // 100 - 120 = -20，在信用额度内；未提交前再扣40会超出额度
+        assertEquals(money("-20"), service.updateBalance(1L, money("-120")));
+        RuntimeException e = assertThrows(RuntimeException.class, () -> service.updateBalance(1L, money("-40")));
+        assertEquals("余额不足", e.getMessage());
+        // 未提交的入账不能用于扣款
+        service.updateBalance(1L, money("100"));
+        assertThrows(RuntimeException.class, () -> service.updateBalance(1L, money("-40")));
+        verify(accountRepository, never()).overwriteBalance(any(), any());
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(money("40"), service.updateBalance(1L, money("-40")));
+        service.shutdown();
+
+        List<BigDecimal> persisted = persistedBalances();
+        assertEquals(new BigDecimal("40.00"), persisted.get(persisted.size() - 1));
+    }
+
+    @Test
+    void updateBalance_RollbackDiscardsPendingChangesWithoutTouchingBalance() {
+        TransactionSynchronizationManager.initSynchronization();
+        service.updateBalance(1L, money("-120"));
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // 回滚后额度完全释放，已提交余额仍为100
+        assertEquals(money("-50"), service.updateBalance(1L, money("-150")));
+        assertThrows(RuntimeException.class, () -> service.updateBalance(1L, money("-0.01")));
+        service.shutdown();
+
+        verify(accountRepository, never()).overwriteBalance(eq(1L), eq(new BigDecimal("-20.00")));
+        List<BigDecimal> persisted = persistedBalances();
+        assertEquals(List.of(new BigDecimal("-50.00")), persisted);
+    }
+
+    @Test
+    void refreshCreditLimit_AppliesToLoadedAccount() {
+        assertEquals(money("90"), service.updateBalance(1L, money("-10")));
+
+        service.refreshCreditLimit(1L, Money.ZERO);
+        assertThrows(RuntimeException.class, () -> service.updateBalance(1L, money("-100")));
+
+        service.refreshCreditLimit(1L, money("200"));
+        assertEquals(money("-200"), service.updateBalance(1L, money("-290")));
+    }
+
+    /**
+     * 模拟事务结束，按Spring的顺序回调已注册的同步器
+     */
+    private void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+        }
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+
+    private List<BigDecimal> persistedBalances() {
+        ArgumentCaptor<BigDecimal> balances = ArgumentCaptor.forClass(BigDecimal.class);
+        verify(accountRepository, atLeastOnce()).overwriteBalance(eq(1L), balances.capture());
+        return balances.getAllValues();
+    }
+
+    private static Money money(String amount) {
+        return Money.of(new BigDecimal(amount));
+    }
+}
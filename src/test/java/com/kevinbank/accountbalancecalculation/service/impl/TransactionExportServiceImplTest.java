@@ -0,0 +1,86 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.kevinbank.accountbalancecalculation.config.RedisConfig;
+import com.kevinbank.accountbalancecalculation.model.ExportFormat;
+import com.kevinbank.accountbalancecalculation.model.Money;
+import com.kevinbank.accountbalancecalculation.model.TransactionExportRow;
+import com.kevinbank.accountbalancecalculation.model.TransactionType;
+import com.kevinbank.accountbalancecalculation.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TransactionExportServiceImplTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2024, 2, 1, 0, 0);
+
+    private TransactionExportServiceImpl exportService;
+    private TransactionRepository transactionRepository;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository = mock(TransactionRepository.class);
+        exportService = new TransactionExportServiceImpl();
+        ReflectionTestUtils.setField(exportService, "transactionRepository", transactionRepository);
+        ReflectionTestUtils.setField(exportService, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(exportService, "objectMapper", new RedisConfig().objectMapper());
+        ReflectionTestUtils.setField(exportService, "bufferSize", 16);
+        exportService.init();
+    }
+
+    @Test
+    void export_WritesCsvWithEscapedTextAndClosesStream() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean();
+        when(transactionRepository.streamForExportByAccountId(10L, FROM, TO)).thenReturn(Stream.of(
+                new TransactionExportRow(1L, FROM.plusHours(1), TransactionType.DEPOSIT, null, 10L,
+                        money("100.00"), null, money("100.00"), "工资"),
+                new TransactionExportRow(2L, FROM.plusHours(2), TransactionType.TRANSFER, 10L, 20L,
+                        money("30.50"), money("69.50"), null, "房租, \"三月\"")).onClose(() -> closed.set(true)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exportService.export(10L, FROM, TO, ExportFormat.CSV, out);
+
+        assertEquals(2L, count);
+        assertTrue(closed.get());
+        assertEquals("id,transaction_time,type,source_account_id,target_account_id,amount," +
+                        "source_balance_after,target_balance_after,description\r\n" +
+                        "1,2024-01-01T01:00,DEPOSIT,,10,100.00,,100.00,工资\r\n" +
+                        "2,2024-01-01T02:00,TRANSFER,10,20,30.50,69.50,,\"房租, \"\"三月\"\"\"\r\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void export_WritesOneJsonObjectPerLine() throws Exception {
+        when(transactionRepository.streamForExport(FROM, TO)).thenReturn(Stream.of(
+                new TransactionExportRow(1L, FROM.plusHours(1), TransactionType.DEPOSIT, null, 10L,
+                        money("100.00"), null, null, null),
+                new TransactionExportRow(2L, FROM.plusHours(2), TransactionType.WITHDRAW, 10L, null,
+                        money("5.00"), null, null, null)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exportService.export(null, FROM, TO, ExportFormat.NDJSON, out);
+
+        assertEquals(2L, count);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("{\"id\":1,\"transactionTime\":\"2024-01-01T01:00:00\",\"type\":\"DEPOSIT\"," +
+                "\"targetAccountId\":10,\"amount\":100.00}", lines[0]);
+        assertTrue(lines[1].startsWith("{\"id\":2,"));
+    }
+
+    private static Money money(String amount) {
+        return Money.of(new BigDecimal(amount));
+    }
+}
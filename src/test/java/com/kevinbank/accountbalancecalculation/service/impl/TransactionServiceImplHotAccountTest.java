@@ -0,0 +1,111 @@
+package com.kevinbank.accountbalancecalculation.service.impl;
+
+import com.kevinbank.accountbalancecalculation.model.CreateTransactionRequest;
+import com.kevinbank.accountbalancecalculation.model.Money;
+import com.kevinbank.accountbalancecalculation.model.Transaction;
+import com.kevinbank.accountbalancecalculation.model.TransactionType;
+import com.kevinbank.accountbalancecalculation.repository.TransactionRepository;
+import com.kevinbank.accountbalancecalculation.service.AccountLockManager;
+import com.kevinbank.accountbalancecalculation.service.BalanceService;
+import com.kevinbank.accountbalancecalculation.service.CacheService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TransactionServiceImplHotAccountTest {
+
+    private static final long HOT_ACCOUNT = 2L;
+
+    private TransactionServiceImpl service;
+    private BalanceService balanceService;
+    private AccountLockManager accountLockManager;
+    private final List<Collection<Long>> lockedAccounts = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        balanceService = mock(BalanceService.class);
+        AccountLockManager locks = new LocalStripedAccountLockManager(64, 200);
+        accountLockManager = mock(AccountLockManager.class);
+        when(accountLockManager.lock(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> accountIds = invocation.getArgument(0);
+            synchronized (lockedAccounts) {
+                lockedAccounts.add(accountIds);
+            }
+            return locks.lock(accountIds);
+        });
+        HotAccountLedger hotAccountLedger = mock(HotAccountLedger.class);
+        when(hotAccountLedger.isHot(HOT_ACCOUNT)).thenReturn(true);
+        TransactionRepository transactionRepository = mock(TransactionRepository.class);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        service = new TransactionServiceImpl();
+        ReflectionTestUtils.setField(service, "balanceService", balanceService);
+        ReflectionTestUtils.setField(service, "accountLockManager", accountLockManager);
+        ReflectionTestUtils.setField(service, "hotAccountLedger", hotAccountLedger);
+        ReflectionTestUtils.setField(service, "transactionRepository", transactionRepository);
+        ReflectionTestUtils.setField(service, "cacheService", mock(CacheService.class));
+        ReflectionTestUtils.setField(service, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(service, "concurrencyMode", "pessimistic");
+        service.init();
+    }
+
+    @Test
+    void concurrentCreditsToHotAccountDoNotBlockEachOther() throws Exception {
+        // 每笔入账在余额更新中等待另一笔也进入余额更新，若入账账户仍被加锁，第二笔会在锁上超时
+        CountDownLatch bothInside = new CountDownLatch(2);
+        when(balanceService.updateBalance(eq(HOT_ACCOUNT), any())).thenAnswer(invocation -> {
+            bothInside.countDown();
+            assertTrue(bothInside.await(5, TimeUnit.SECONDS));
+            return null;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Transaction> deposit = executor.submit(() -> service.createTransaction(request(TransactionType.DEPOSIT, null)));
+            Future<Transaction> transfer = executor.submit(() -> service.createTransaction(request(TransactionType.TRANSFER, 1L)));
+            assertNotNull(deposit.get(5, TimeUnit.SECONDS));
+            assertNotNull(transfer.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(balanceService).updateBalance(1L, Money.of(new BigDecimal("-10")));
+        assertTrue(lockedAccounts.stream().noneMatch(accountIds -> accountIds.contains(HOT_ACCOUNT)));
+        assertTrue(lockedAccounts.stream().anyMatch(accountIds -> accountIds.contains(1L)));
+    }
+
+    @Test
+    void debitsFromHotAccountStillTakeTheLock() {
+        CreateTransactionRequest withdraw = request(TransactionType.WITHDRAW, HOT_ACCOUNT);
+        withdraw.setTargetAccountId(null);
+        service.createTransaction(withdraw);
+
+        assertEquals(1, lockedAccounts.size());
+        assertTrue(lockedAccounts.get(0).contains(HOT_ACCOUNT));
+    }
+
+    private CreateTransactionRequest request(TransactionType type, Long sourceAccountId) {
+        CreateTransactionRequest request = new CreateTransactionRequest();
+        request.setType(type);
+        request.setSourceAccountId(sourceAccountId);
+        request.setTargetAccountId(HOT_ACCOUNT);
+        request.setAmount(new BigDecimal("10"));
+        return request;
+    }
+}
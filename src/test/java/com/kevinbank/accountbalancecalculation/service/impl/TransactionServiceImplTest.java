@@ -1,6 +1,7 @@
 package com.kevinbank.accountbalancecalculation.service.impl;
 
 import com.kevinbank.accountbalancecalculation.model.Account;
+import com.kevinbank.accountbalancecalculation.model.Money;
 import com.kevinbank.accountbalancecalculation.model.Transaction;
 import com.kevinbank.accountbalancecalculation.model.CreateTransactionRequest;
 import com.kevinbank.accountbalancecalculation.model.TransactionType;
@@ -46,15 +47,15 @@ class TransactionServiceImplTest {
         testSourceAccount = new Account();
         testSourceAccount.setUserId(1L);  // 使用 Long 类型
         testSourceAccount.setAccountNumber("TEST001");
-        testSourceAccount.setBalance(new BigDecimal("1000.00"));
-        testSourceAccount.setCreditLimit(new BigDecimal("500.00"));
+        testSourceAccount.setBalance(Money.of(new BigDecimal("1000.00")));
+        testSourceAccount.setCreditLimit(Money.of(new BigDecimal("500.00")));
         testSourceAccount = accountRepository.save(testSourceAccount);
 
         testTargetAccount = new Account();
         testTargetAccount.setUserId(2L);  // 使用 Long 类型
         testTargetAccount.setAccountNumber("TEST002");
-        testTargetAccount.setBalance(new BigDecimal("500.00"));
-        testTargetAccount.setCreditLimit(new BigDecimal("500.00"));
+        testTargetAccount.setBalance(Money.of(new BigDecimal("500.00")));
+        testTargetAccount.setCreditLimit(Money.of(new BigDecimal("500.00")));
         testTargetAccount = accountRepository.save(testTargetAccount);
     }
 
@@ -71,15 +72,15 @@ class TransactionServiceImplTest {
         
         assertNotNull(transaction);
         assertEquals(TransactionType.TRANSFER, transaction.getType());
-        assertEquals(new BigDecimal("100.00"), transaction.getAmount());
+        assertEquals(Money.of(new BigDecimal("100.00")), transaction.getAmount());
         assertEquals(testSourceAccount.getId(), transaction.getSourceAccountId());
         assertEquals(testTargetAccount.getId(), transaction.getTargetAccountId());
         
         // 验证账户余额变化
         Account updatedSourceAccount = accountRepository.findById(testSourceAccount.getId()).get();
         Account updatedTargetAccount = accountRepository.findById(testTargetAccount.getId()).get();
-        assertEquals(new BigDecimal("900.00"), updatedSourceAccount.getBalance());
-        assertEquals(new BigDecimal("600.00"), updatedTargetAccount.getBalance());
+        assertEquals(Money.of(new BigDecimal("900.00")), updatedSourceAccount.getBalance());
+        assertEquals(Money.of(new BigDecimal("600.00")), updatedTargetAccount.getBalance());
     }
 
     @Test
@@ -94,11 +95,11 @@ class TransactionServiceImplTest {
         
         assertNotNull(transaction);
         assertEquals(TransactionType.DEPOSIT, transaction.getType());
-        assertEquals(new BigDecimal("100.00"), transaction.getAmount());
+        assertEquals(Money.of(new BigDecimal("100.00")), transaction.getAmount());
         
         // 验证账户余额增加
         Account updatedAccount = accountRepository.findById(testSourceAccount.getId()).get();
-        assertEquals(new BigDecimal("1100.00"), updatedAccount.getBalance());
+        assertEquals(Money.of(new BigDecimal("1100.00")), updatedAccount.getBalance());
     }
 
     @Test
@@ -113,11 +114,11 @@ class TransactionServiceImplTest {
         
         assertNotNull(transaction);
         assertEquals(TransactionType.WITHDRAW, transaction.getType());
-        assertEquals(new BigDecimal("100.00"), transaction.getAmount());
+        assertEquals(Money.of(new BigDecimal("100.00")), transaction.getAmount());
         
         // 验证账户余额减少
         Account updatedAccount = accountRepository.findById(testSourceAccount.getId()).get();
-        assertEquals(new BigDecimal("900.00"), updatedAccount.getBalance());
+        assertEquals(Money.of(new BigDecimal("900.00")), updatedAccount.getBalance());
     }
 
     @Test
@@ -134,6 +135,6 @@ class TransactionServiceImplTest {
         
         // 验证账户余额未变
         Account updatedAccount = accountRepository.findById(testSourceAccount.getId()).get();
-        assertEquals(new BigDecimal("1000.00"), updatedAccount.getBalance());
+        assertEquals(Money.of(new BigDecimal("1000.00")), updatedAccount.getBalance());
     }
 } 
\ No newline at end of file
@@ -0,0 +1,70 @@
+package com.kevinbank.accountbalancecalculation.snapshot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writeTo_ThenReadBack() throws Exception {
+        Path file = directory.resolve("snapshot.bin");
+        snapshot().writeTo(file);
+
+        BalanceSnapshot loaded = BalanceSnapshot.readFrom(file);
+        assertEquals(3, loaded.size());
+        assertEquals(500L, loaded.getWatermark());
+        assertEquals(300L, loaded.getReplayFloor());
+        assertEquals(1234L, loaded.getCreatedAtMillis());
+        assertEquals(10000L, loaded.balanceOf(1L));
+        assertEquals(-2000L, loaded.balanceOf(2L));
+        assertNull(loaded.balanceOf(4L));
+
+        List<long[]> accounts = new ArrayList<>();
+        loaded.forEach((id, balance, limit) -> accounts.add(new long[]{id, balance, limit}));
+        assertArrayEquals(new long[]{2L, -2000L, 5000L}, accounts.get(1));
+    }
+
+    @Test
+    void needsReplay_SkipsTransactionsAlreadyIncluded() {
+        BalanceSnapshot snapshot = snapshot();
+        assertFalse(snapshot.needsReplay(250L));
+        assertFalse(snapshot.needsReplay(400L));
+        assertTrue(snapshot.needsReplay(350L));
+        assertTrue(snapshot.needsReplay(600L));
+
+        snapshot.apply(1L, -500L, 600L);
+        snapshot.apply(4L, 100L, 601L);
+        assertEquals(9500L, snapshot.balanceOf(1L));
+        assertEquals(601L, snapshot.getWatermark());
+    }
+
+    @Test
+    void readFrom_RejectsCorruptedFile() throws Exception {
+        Path file = directory.resolve("snapshot.bin");
+        snapshot().writeTo(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(64 + 8);
+            raf.writeLong(42L);
+        }
+        assertThrows(RuntimeException.class, () -> BalanceSnapshot.readFrom(file));
+    }
+
+    private static BalanceSnapshot snapshot() {
+        return new BalanceSnapshot(
+                new long[]{1L, 2L, 3L},
+                new long[]{10000L, -2000L, 0L},
+                new long[]{0L, 5000L, 0L},
+                new long[]{400L, 500L, 0L},
+                500L, 300L, new long[]{400L, 500L}, 1234L);
+    }
+}